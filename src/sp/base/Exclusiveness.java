@@ -10,15 +10,23 @@ package sp.base;
 
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
+ * <p>
  * 対象クラス及びメソッドが排他制御されていることを示す.
+ * </p>
+ * <p>
+ * 実行時に参照できる. {@link sp.util.concurrent.ContentionProfiler} はこの注釈が付与されたメソッドを計測の区間として登録する.
+ * </p>
  *
  * @author Se-foo
  * @since 0.1
  */
 @Documented
+@Retention(RetentionPolicy.RUNTIME)
 @Target({ ElementType.TYPE, ElementType.METHOD })
 public @interface Exclusiveness {
 }
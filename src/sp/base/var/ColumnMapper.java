@@ -0,0 +1,627 @@
+/*
+sp.base.var.ColumnMapper
+sp.base.var.ColumnMapper.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.base.var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * オブジェクトの集合を列 (プリミティブ配列) 単位に一括変換するマッピング機構.
+ * </p>
+ * <p>
+ * {@link Mapper.FromObj} がオブジェクト 1 件ずつ変換するのに対して, 登録された全てのマッピングを変換元の 1 回の走査で適用し,
+ * マッピング毎の列を生成する.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            マッピングの変換元クラス.
+ * @param <X>
+ *            変換中に発生する例外クラス.
+ * @since 0.2
+ */
+public final class ColumnMapper<T, X extends Throwable> {
+
+    /**
+     * 並列変換時に 1 タスクが担当する最小要素数.
+     */
+    private static final int MINIMUM_CHUNK_SIZE = 1024;
+
+    /**
+     * int 値列のマッピング.
+     */
+    private final List<FunctionWithThrown.OfObjToInt<? super T, ? extends X>> intMappings = new ArrayList<>();
+
+    /**
+     * long 値列のマッピング.
+     */
+    private final List<FunctionWithThrown.OfObjToLong<? super T, ? extends X>> longMappings = new ArrayList<>();
+
+    /**
+     * double 値列のマッピング.
+     */
+    private final List<FunctionWithThrown.OfObjToDouble<? super T, ? extends X>> doubleMappings = new ArrayList<>();
+
+    /**
+     * オブジェクト列のマッピング.
+     */
+    private final List<FunctionWithThrown.OfObj<? super T, ?, ? extends X>> objMappings = new ArrayList<>();
+
+    /**
+     * 列の種類.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    enum Kind {
+        /**
+         * int 値列.
+         */
+        INT,
+        /**
+         * long 値列.
+         */
+        LONG,
+        /**
+         * double 値列.
+         */
+        DOUBLE,
+        /**
+         * オブジェクト列.
+         */
+        OBJ
+    }
+
+    /**
+     * 変換結果から列を取り出すためのキー.
+     *
+     * @author Se-foo
+     * @param <A>
+     *            列の配列クラス.
+     * @since 0.2
+     */
+    public static final class Column<A> {
+
+        /**
+         * キーを発行したマッピング機構.
+         */
+        final ColumnMapper<?, ?> owner;
+
+        /**
+         * 列の種類.
+         */
+        final ColumnMapper.Kind kind;
+
+        /**
+         * 同じ種類の列の中での位置.
+         */
+        final int index;
+
+        /**
+         * Constractor.
+         *
+         * @param owner
+         *            キーを発行したマッピング機構.
+         * @param kind
+         *            列の種類.
+         * @param index
+         *            同じ種類の列の中での位置.
+         */
+        Column(ColumnMapper<?, ?> owner, ColumnMapper.Kind kind, int index) {
+            super();
+            this.owner = owner;
+            this.kind = kind;
+            this.index = index;
+        }
+    }
+
+    /**
+     * 一括変換の結果である列の集合.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static final class Columns {
+
+        /**
+         * 変換を行ったマッピング機構.
+         */
+        private final ColumnMapper<?, ?> owner;
+
+        /**
+         * 行数.
+         */
+        private final int size;
+
+        /**
+         * int 値列.
+         */
+        final int[][] ints;
+
+        /**
+         * long 値列.
+         */
+        final long[][] longs;
+
+        /**
+         * double 値列.
+         */
+        final double[][] doubles;
+
+        /**
+         * オブジェクト列.
+         */
+        final Object[][] objs;
+
+        /**
+         * Constractor.
+         *
+         * @param owner
+         *            変換を行ったマッピング機構.
+         * @param size
+         *            行数.
+         */
+        Columns(ColumnMapper<?, ?> owner, int size) {
+            super();
+            this.owner = owner;
+            this.size = size;
+            this.ints = new int[owner.intMappings.size()][size];
+            this.longs = new long[owner.longMappings.size()][size];
+            this.doubles = new double[owner.doubleMappings.size()][size];
+            this.objs = new Object[owner.objMappings.size()][size];
+        }
+
+        /**
+         * 行数を返す.
+         *
+         * @return 行数.
+         */
+        public int size() {
+            return this.size;
+        }
+
+        /**
+         * 指定されたキーに対応する列を返す.
+         *
+         * @param <A>
+         *            列の配列クラス.
+         * @param column
+         *            取り出す列のキー.
+         * @return 列. 返される配列は複製されない.
+         * @throws NullPointerException
+         *             指定されたキーが NULL の場合.
+         * @throws IllegalArgumentException
+         *             指定されたキーが変換を行ったマッピング機構で発行されていない場合.
+         */
+        @NonNullReturnValue
+        @SuppressWarnings("unchecked")
+        public <A> A get(ColumnMapper.Column<A> column) {
+            Objects.requireNonNull(column);
+            if (column.owner != this.owner) {
+                throw new IllegalArgumentException("column is not issued by this mapper.");
+            }
+            Object returnValue = null;
+            switch (column.kind) {
+            case INT:
+                returnValue = this.ints[column.index];
+                break;
+            case LONG:
+                returnValue = this.longs[column.index];
+                break;
+            case DOUBLE:
+                returnValue = this.doubles[column.index];
+                break;
+            default:
+                returnValue = this.objs[column.index];
+                break;
+            }
+            return (A) returnValue;
+        }
+    }
+
+    /**
+     * 指定されたマッピングを int 値列として登録する.
+     *
+     * @param mapping
+     *            列の生成に用いるマッピング.
+     * @return 変換結果から列を取り出すためのキー.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Column<int[]> toInt(FunctionWithThrown.OfObjToInt<? super T, ? extends X> mapping) {
+        this.intMappings.add(Objects.requireNonNull(mapping));
+        return new ColumnMapper.Column<>(this, ColumnMapper.Kind.INT, this.intMappings.size() - 1);
+    }
+
+    /**
+     * 指定されたマッピングを long 値列として登録する.
+     *
+     * @param mapping
+     *            列の生成に用いるマッピング.
+     * @return 変換結果から列を取り出すためのキー.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Column<long[]> toLong(FunctionWithThrown.OfObjToLong<? super T, ? extends X> mapping) {
+        this.longMappings.add(Objects.requireNonNull(mapping));
+        return new ColumnMapper.Column<>(this, ColumnMapper.Kind.LONG, this.longMappings.size() - 1);
+    }
+
+    /**
+     * 指定されたマッピングを double 値列として登録する.
+     *
+     * @param mapping
+     *            列の生成に用いるマッピング.
+     * @return 変換結果から列を取り出すためのキー.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Column<double[]> toDouble(
+            FunctionWithThrown.OfObjToDouble<? super T, ? extends X> mapping) {
+        this.doubleMappings.add(Objects.requireNonNull(mapping));
+        return new ColumnMapper.Column<>(this, ColumnMapper.Kind.DOUBLE, this.doubleMappings.size() - 1);
+    }
+
+    /**
+     * 指定されたマッピングをオブジェクト列として登録する.
+     *
+     * @param mapping
+     *            列の生成に用いるマッピング.
+     * @return 変換結果から列を取り出すためのキー.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Column<Object[]> toObj(FunctionWithThrown.OfObj<? super T, ?, ? extends X> mapping) {
+        this.objMappings.add(Objects.requireNonNull(mapping));
+        return new ColumnMapper.Column<>(this, ColumnMapper.Kind.OBJ, this.objMappings.size() - 1);
+    }
+
+    /**
+     * 登録された全てのマッピングを用いて対象を一括変換する.
+     *
+     * @param source
+     *            変換元.
+     * @return 変換結果.
+     * @throws NullPointerException
+     *             指定された変換元が NULL の場合.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns map(List<? extends T> source) throws X {
+        ColumnMapper.Columns returnValue = new ColumnMapper.Columns(this, source.size());
+        if (source instanceof RandomAccess) {
+            this.fill(returnValue, source, null, 0, source.size());
+        } else {
+            int row = 0;
+            for (T target : source) {
+                this.fillRow(returnValue, target, row);
+                row++;
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 登録された全てのマッピングを用いて対象を一括変換する.
+     *
+     * @param source
+     *            変換元.
+     * @return 変換結果.
+     * @throws NullPointerException
+     *             指定された変換元が NULL の場合.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns map(T[] source) throws X {
+        return this.map(Arrays.asList(source));
+    }
+
+    /**
+     * <p>
+     * 登録された全てのマッピングを用いて対象を並列に一括変換する.
+     * </p>
+     * <p>
+     * 変換元は chunkSize 件毎に分割され, {@link ForkJoinPool#commonPool()} で変換される. 複数の分割で例外が発生した場合,
+     * 最初に記録された例外がスローされる.
+     * </p>
+     *
+     * @param source
+     *            変換元.
+     * @param chunkSize
+     *            1 タスクが担当する最大要素数.
+     * @return 変換結果.
+     * @throws NullPointerException
+     *             指定された変換元が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された要素数が 1 未満の場合.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns mapParallel(List<? extends T> source, int chunkSize) throws X {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        List<? extends T> rows = source instanceof RandomAccess ? source : new ArrayList<>(source);
+        ColumnMapper.Columns returnValue = new ColumnMapper.Columns(this, rows.size());
+        this.fillParallel(returnValue, rows, null, chunkSize);
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 登録された全てのマッピングを用いて対象を並列に一括変換する.
+     * </p>
+     * <p>
+     * 1 タスクが担当する要素数は共通プールの並列度から決定される.
+     * </p>
+     *
+     * @param source
+     *            変換元.
+     * @return 変換結果.
+     * @throws NullPointerException
+     *             指定された変換元が NULL の場合.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     * @see #mapParallel(List, int)
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns mapParallel(List<? extends T> source) throws X {
+        return this.mapParallel(source, ColumnMapper.chunkSize(source.size()));
+    }
+
+    /**
+     * 登録された全てのマッピングを用いて対象を並列に一括変換する.
+     *
+     * @param source
+     *            変換元.
+     * @return 変換結果.
+     * @throws NullPointerException
+     *             指定された変換元が NULL の場合.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     * @see #mapParallel(List, int)
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns mapParallel(T[] source) throws X {
+        return this.mapParallel(Arrays.asList(source));
+    }
+
+    /**
+     * 変換元の指定された行だけを一括変換する.
+     *
+     * @param source
+     *            変換元.
+     * @param rows
+     *            変換対象の行番号. 結果の i 行目は rows[i] 行目の変換結果となる.
+     * @param parallel
+     *            並列に変換する場合 TRUE.
+     * @return 変換結果.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    ColumnMapper.Columns map(List<? extends T> source, int[] rows, boolean parallel) throws X {
+        ColumnMapper.Columns returnValue = new ColumnMapper.Columns(this, rows.length);
+        if (parallel) {
+            this.fillParallel(returnValue, source, rows, ColumnMapper.chunkSize(rows.length));
+        } else {
+            this.fill(returnValue, source, rows, 0, rows.length);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 共通プールの並列度から 1 タスクが担当する要素数を決定する.
+     *
+     * @param size
+     *            全要素数.
+     * @return 1 タスクが担当する要素数.
+     */
+    static int chunkSize(int size) {
+        return Math.max(ColumnMapper.MINIMUM_CHUNK_SIZE, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+    }
+
+    /**
+     * 変換元の範囲を列に変換する.
+     *
+     * @param columns
+     *            変換結果の格納先.
+     * @param source
+     *            変換元.
+     * @param rows
+     *            変換対象の行番号. NULL の場合は結果の行番号と同じ.
+     * @param from
+     *            変換範囲の開始位置 (この位置を含む).
+     * @param to
+     *            変換範囲の終了位置 (この位置を含まない).
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    private void fill(ColumnMapper.Columns columns, List<? extends T> source, int[] rows, int from, int to)
+            throws X {
+        for (int row = from; row < to; row++) {
+            this.fillRow(columns, source.get(rows == null ? row : rows[row]), row);
+        }
+    }
+
+    /**
+     * 1 行分の変換を行う.
+     *
+     * @param columns
+     *            変換結果の格納先.
+     * @param target
+     *            変換元.
+     * @param row
+     *            結果の行番号.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    private void fillRow(ColumnMapper.Columns columns, T target, int row) throws X {
+        for (int index = 0; index < columns.ints.length; index++) {
+            columns.ints[index][row] = this.intMappings.get(index).apply(target);
+        }
+        for (int index = 0; index < columns.longs.length; index++) {
+            columns.longs[index][row] = this.longMappings.get(index).apply(target);
+        }
+        for (int index = 0; index < columns.doubles.length; index++) {
+            columns.doubles[index][row] = this.doubleMappings.get(index).apply(target);
+        }
+        for (int index = 0; index < columns.objs.length; index++) {
+            columns.objs[index][row] = this.objMappings.get(index).apply(target);
+        }
+    }
+
+    /**
+     * 変換元を分割して並列に変換する.
+     *
+     * @param columns
+     *            変換結果の格納先.
+     * @param source
+     *            変換元. ランダムアクセス可能であること.
+     * @param rows
+     *            変換対象の行番号. NULL の場合は結果の行番号と同じ.
+     * @param chunkSize
+     *            1 タスクが担当する最大要素数.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    @SuppressWarnings("unchecked")
+    private void fillParallel(ColumnMapper.Columns columns, List<? extends T> source, int[] rows, int chunkSize)
+            throws X {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ForkJoinPool.commonPool().invoke(new FillTask(columns, source, rows, chunkSize, failure, 0, columns.size()));
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        } else if (thrown instanceof Error) {
+            throw (Error) thrown;
+        } else if (thrown != null) {
+            throw (X) thrown;
+        }
+    }
+
+    /**
+     * 変換範囲を分割しながら変換するタスク.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    private final class FillTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 変換結果の格納先.
+         */
+        private final ColumnMapper.Columns columns;
+
+        /**
+         * 変換元.
+         */
+        private final List<? extends T> source;
+
+        /**
+         * 変換対象の行番号.
+         */
+        private final int[] rows;
+
+        /**
+         * 1 タスクが担当する最大要素数.
+         */
+        private final int chunkSize;
+
+        /**
+         * 最初に発生した例外.
+         */
+        private final AtomicReference<Throwable> failure;
+
+        /**
+         * 変換範囲の開始位置 (この位置を含む).
+         */
+        private final int from;
+
+        /**
+         * 変換範囲の終了位置 (この位置を含まない).
+         */
+        private final int to;
+
+        /**
+         * Constractor.
+         *
+         * @param columns
+         *            変換結果の格納先.
+         * @param source
+         *            変換元.
+         * @param rows
+         *            変換対象の行番号.
+         * @param chunkSize
+         *            1 タスクが担当する最大要素数.
+         * @param failure
+         *            最初に発生した例外.
+         * @param from
+         *            変換範囲の開始位置 (この位置を含む).
+         * @param to
+         *            変換範囲の終了位置 (この位置を含まない).
+         */
+        FillTask(ColumnMapper.Columns columns, List<? extends T> source, int[] rows, int chunkSize,
+                AtomicReference<Throwable> failure, int from, int to) {
+            super();
+            this.columns = columns;
+            this.source = source;
+            this.rows = rows;
+            this.chunkSize = chunkSize;
+            this.failure = failure;
+            this.from = from;
+            this.to = to;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (this.failure.get() != null) {
+                return;
+            }
+            if (this.to - this.from <= this.chunkSize) {
+                try {
+                    ColumnMapper.this.fill(this.columns, this.source, this.rows, this.from, this.to);
+                } catch (Throwable e) {
+                    this.failure.compareAndSet(null, e);
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                RecursiveAction.invokeAll(
+                        new FillTask(this.columns, this.source, this.rows, this.chunkSize, this.failure, this.from,
+                                middle),
+                        new FillTask(this.columns, this.source, this.rows, this.chunkSize, this.failure, middle,
+                                this.to));
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/*
+sp.base.var.ColumnQuery
+sp.base.var.ColumnQuery.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.base.var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+import sp.util.function.PredicateWithThrown;
+
+/**
+ * <p>
+ * オブジェクトの集合に対する列指向の問い合わせ.
+ * </p>
+ * <p>
+ * 条件は登録順に 1 列ずつ評価され, 各条件の列は直前までの条件を満たした行についてだけ生成される. 集計及び射影の列は全ての条件を満たした行について
+ * だけ生成され, どの条件及び集計からも参照されない列は生成されない.
+ * </p>
+ * <p>
+ * このクラスのインスタンスは不変であり, 条件の追加は新しい問い合わせを返す.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            問い合わせ対象のクラス.
+ * @param <X>
+ *            評価中に発生する例外クラス.
+ * @since 0.2
+ */
+public final class ColumnQuery<T, X extends Throwable> {
+
+    /**
+     * 問い合わせ対象.
+     */
+    private final List<? extends T> source;
+
+    /**
+     * 登録順の条件.
+     */
+    private final List<ColumnQuery.Filter<T, X>> filters;
+
+    /**
+     * 選択行を絞り込む条件.
+     *
+     * @author Se-foo
+     * @param <T>
+     *            問い合わせ対象のクラス.
+     * @param <X>
+     *            評価中に発生する例外クラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    private static interface Filter<T, X extends Throwable> {
+
+        /**
+         * 選択行のうち条件を満たす行を返す.
+         *
+         * @param source
+         *            問い合わせ対象.
+         * @param rows
+         *            選択行.
+         * @return 条件を満たす行. 引数の配列を上書きして返す場合がある.
+         * @throws X
+         *             評価中にエラーが発生した場合.
+         */
+        int[] apply(List<? extends T> source, int[] rows) throws X;
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param source
+     *            問い合わせ対象.
+     * @param filters
+     *            登録順の条件.
+     */
+    private ColumnQuery(List<? extends T> source, List<ColumnQuery.Filter<T, X>> filters) {
+        super();
+        this.source = source;
+        this.filters = filters;
+    }
+
+    /**
+     * 指定されたオブジェクトの集合を対象とする, 条件を持たない問い合わせを生成する.
+     *
+     * @param <T>
+     *            問い合わせ対象のクラス.
+     * @param <X>
+     *            評価中に発生する例外クラス.
+     * @param source
+     *            問い合わせ対象. ランダムアクセスできない場合は複製される.
+     * @return 問い合わせ.
+     * @throws NullPointerException
+     *             指定された問い合わせ対象が NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <T, X extends Throwable> ColumnQuery<T, X> from(List<? extends T> source) {
+        List<? extends T> rows = source instanceof RandomAccess ? source : new ArrayList<>(source);
+        return new ColumnQuery<>(rows, Collections.emptyList());
+    }
+
+    /**
+     * 指定されたオブジェクトの配列を対象とする, 条件を持たない問い合わせを生成する.
+     *
+     * @param <T>
+     *            問い合わせ対象のクラス.
+     * @param <X>
+     *            評価中に発生する例外クラス.
+     * @param source
+     *            問い合わせ対象.
+     * @return 問い合わせ.
+     * @throws NullPointerException
+     *             指定された問い合わせ対象が NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <T, X extends Throwable> ColumnQuery<T, X> from(T[] source) {
+        return ColumnQuery.from(Arrays.asList(source));
+    }
+
+    /**
+     * int 値列に対する条件を追加した問い合わせを返す.
+     *
+     * @param column
+     *            列の生成に用いるマッピング.
+     * @param predicate
+     *            列の値に対する条件.
+     * @return 条件を追加した問い合わせ.
+     * @throws NullPointerException
+     *             指定されたマッピング又は条件が NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnQuery<T, X> whereInt(FunctionWithThrown.OfObjToInt<? super T, ? extends X> column,
+            PredicateWithThrown.OfInt<? extends X> predicate) {
+        Objects.requireNonNull(column);
+        Objects.requireNonNull(predicate);
+        return this.where((source, rows) -> {
+            int size = ColumnQuery.size(source, rows);
+            int[] values = new int[size];
+            for (int index = 0; index < size; index++) {
+                values[index] = column.apply(source.get(ColumnQuery.row(rows, index)));
+            }
+            int[] selected = ColumnQuery.selection(rows, size);
+            int count = 0;
+            for (int index = 0; index < size; index++) {
+                if (predicate.test(values[index])) {
+                    selected[count++] = ColumnQuery.row(rows, index);
+                }
+            }
+            return Arrays.copyOf(selected, count);
+        });
+    }
+
+    /**
+     * long 値列に対する条件を追加した問い合わせを返す.
+     *
+     * @param column
+     *            列の生成に用いるマッピング.
+     * @param predicate
+     *            列の値に対する条件.
+     * @return 条件を追加した問い合わせ.
+     * @throws NullPointerException
+     *             指定されたマッピング又は条件が NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnQuery<T, X> whereLong(FunctionWithThrown.OfObjToLong<? super T, ? extends X> column,
+            PredicateWithThrown.OfLong<? extends X> predicate) {
+        Objects.requireNonNull(column);
+        Objects.requireNonNull(predicate);
+        return this.where((source, rows) -> {
+            int size = ColumnQuery.size(source, rows);
+            long[] values = new long[size];
+            for (int index = 0; index < size; index++) {
+                values[index] = column.apply(source.get(ColumnQuery.row(rows, index)));
+            }
+            int[] selected = ColumnQuery.selection(rows, size);
+            int count = 0;
+            for (int index = 0; index < size; index++) {
+                if (predicate.test(values[index])) {
+                    selected[count++] = ColumnQuery.row(rows, index);
+                }
+            }
+            return Arrays.copyOf(selected, count);
+        });
+    }
+
+    /**
+     * double 値列に対する条件を追加した問い合わせを返す.
+     *
+     * @param column
+     *            列の生成に用いるマッピング.
+     * @param predicate
+     *            列の値に対する条件.
+     * @return 条件を追加した問い合わせ.
+     * @throws NullPointerException
+     *             指定されたマッピング又は条件が NULL の場合.
+     */
+    @NonNullReturnValue
+    public ColumnQuery<T, X> whereDouble(FunctionWithThrown.OfObjToDouble<? super T, ? extends X> column,
+            PredicateWithThrown.OfDouble<? extends X> predicate) {
+        Objects.requireNonNull(column);
+        Objects.requireNonNull(predicate);
+        return this.where((source, rows) -> {
+            int size = ColumnQuery.size(source, rows);
+            double[] values = new double[size];
+            for (int index = 0; index < size; index++) {
+                values[index] = column.apply(source.get(ColumnQuery.row(rows, index)));
+            }
+            int[] selected = ColumnQuery.selection(rows, size);
+            int count = 0;
+            for (int index = 0; index < size; index++) {
+                if (predicate.test(values[index])) {
+                    selected[count++] = ColumnQuery.row(rows, index);
+                }
+            }
+            return Arrays.copyOf(selected, count);
+        });
+    }
+
+    /**
+     * 全ての条件を満たす行の行番号を返す.
+     *
+     * @return 条件を満たす行の行番号 (昇順).
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public int[] rows() throws X {
+        int[] returnValue = null;
+        for (ColumnQuery.Filter<T, X> filter : this.filters) {
+            returnValue = filter.apply(this.source, returnValue);
+            if (returnValue.length == 0) {
+                break;
+            }
+        }
+        if (returnValue == null) {
+            returnValue = ColumnQuery.selection(null, this.source.size());
+        }
+        return returnValue;
+    }
+
+    /**
+     * 全ての条件を満たす行の件数を返す.
+     *
+     * @return 条件を満たす行の件数.
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     */
+    public int count() throws X {
+        return this.filters.isEmpty() ? this.source.size() : this.rows().length;
+    }
+
+    /**
+     * 全ての条件を満たす行について int 値列を生成して集計する.
+     *
+     * @param column
+     *            列の生成に用いるマッピング.
+     * @return 集計結果.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public IntSummaryStatistics summarizeInt(FunctionWithThrown.OfObjToInt<? super T, ? extends X> column)
+            throws X {
+        Objects.requireNonNull(column);
+        IntSummaryStatistics returnValue = new IntSummaryStatistics();
+        for (int row : this.rows()) {
+            returnValue.accept(column.apply(this.source.get(row)));
+        }
+        return returnValue;
+    }
+
+    /**
+     * 全ての条件を満たす行について long 値列を生成して集計する.
+     *
+     * @param column
+     *            列の生成に用いるマッピング.
+     * @return 集計結果.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public LongSummaryStatistics summarizeLong(FunctionWithThrown.OfObjToLong<? super T, ? extends X> column)
+            throws X {
+        Objects.requireNonNull(column);
+        LongSummaryStatistics returnValue = new LongSummaryStatistics();
+        for (int row : this.rows()) {
+            returnValue.accept(column.apply(this.source.get(row)));
+        }
+        return returnValue;
+    }
+
+    /**
+     * 全ての条件を満たす行について double 値列を生成して集計する.
+     *
+     * @param column
+     *            列の生成に用いるマッピング.
+     * @return 集計結果.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public DoubleSummaryStatistics summarizeDouble(
+            FunctionWithThrown.OfObjToDouble<? super T, ? extends X> column) throws X {
+        Objects.requireNonNull(column);
+        DoubleSummaryStatistics returnValue = new DoubleSummaryStatistics();
+        for (int row : this.rows()) {
+            returnValue.accept(column.apply(this.source.get(row)));
+        }
+        return returnValue;
+    }
+
+    /**
+     * 全ての条件を満たす行について, 指定されたマッピング機構に登録された列だけを生成する.
+     *
+     * @param mapper
+     *            射影に用いるマッピング機構.
+     * @return 条件を満たす行の列. i 行目は {@link #rows()} の i 番目の行に対応する.
+     * @throws NullPointerException
+     *             指定されたマッピング機構が NULL の場合.
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns project(ColumnMapper<T, X> mapper) throws X {
+        Objects.requireNonNull(mapper);
+        return mapper.map(this.source, this.rows(), false);
+    }
+
+    /**
+     * 全ての条件を満たす行について, 指定されたマッピング機構に登録された列だけを並列に生成する.
+     *
+     * @param mapper
+     *            射影に用いるマッピング機構.
+     * @return 条件を満たす行の列. i 行目は {@link #rows()} の i 番目の行に対応する.
+     * @throws NullPointerException
+     *             指定されたマッピング機構が NULL の場合.
+     * @throws X
+     *             評価中にエラーが発生した場合.
+     * @see ColumnMapper#mapParallel(List)
+     */
+    @NonNullReturnValue
+    public ColumnMapper.Columns projectParallel(ColumnMapper<T, X> mapper) throws X {
+        Objects.requireNonNull(mapper);
+        return mapper.map(this.source, this.rows(), true);
+    }
+
+    /**
+     * 指定された条件を追加した問い合わせを返す.
+     *
+     * @param filter
+     *            追加する条件.
+     * @return 条件を追加した問い合わせ.
+     */
+    private ColumnQuery<T, X> where(ColumnQuery.Filter<T, X> filter) {
+        List<ColumnQuery.Filter<T, X>> filters = new ArrayList<>(this.filters);
+        filters.add(filter);
+        return new ColumnQuery<>(this.source, Collections.unmodifiableList(filters));
+    }
+
+    /**
+     * 選択行の件数を返す.
+     *
+     * @param source
+     *            問い合わせ対象.
+     * @param rows
+     *            選択行. NULL の場合は全ての行.
+     * @return 選択行の件数.
+     */
+    private static int size(List<?> source, int[] rows) {
+        return rows == null ? source.size() : rows.length;
+    }
+
+    /**
+     * 選択行の index 番目の行番号を返す.
+     *
+     * @param rows
+     *            選択行. NULL の場合は全ての行.
+     * @param index
+     *            選択行の中での位置.
+     * @return 行番号.
+     */
+    private static int row(int[] rows, int index) {
+        return rows == null ? index : rows[index];
+    }
+
+    /**
+     * 絞り込み結果の格納先を返す.
+     *
+     * @param rows
+     *            選択行. NULL の場合は全ての行.
+     * @param size
+     *            選択行の件数.
+     * @return 絞り込み結果の格納先. 選択行が指定されている場合はその配列.
+     */
+    private static int[] selection(int[] rows, int size) {
+        int[] returnValue = rows;
+        if (returnValue == null) {
+            returnValue = new int[size];
+            for (int index = 0; index < size; index++) {
+                returnValue[index] = index;
+            }
+        }
+        return returnValue;
+    }
+}
@@ -0,0 +1,665 @@
+/*
+sp.base.var.LazyMapping
+sp.base.var.LazyMapping.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.base.var;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * 要素へのアクセス時に初めてマッピングを適用する, 遅延評価のビュー.
+ * </p>
+ * <p>
+ * ビューは変更不可能であり, 変換元の変更はビューに反映される. ただしキャッシュを有効にしたビューは, 一度変換した要素の結果を保持し続ける.
+ * </p>
+ * <p>
+ * {@link List} 及び {@link Map} のメソッドから変換中の例外がスローされる場合, エラー又は非チェック例外はそのままスローされ,
+ * それ以外は {@link RuntimeException} でラッピングされてスローされる. {@code materialize()} はラッピングせずにスローする.
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class LazyMapping {
+
+    /**
+     * NULL 値の変換結果を表すキャッシュ上の値.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * Constractor.
+     */
+    private LazyMapping() {
+        super();
+    }
+
+    /**
+     * 遅延評価のリストビュー.
+     *
+     * @author Se-foo
+     * @param <T>
+     *            変換元の要素クラス.
+     * @param <R>
+     *            変換先の要素クラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @since 0.2
+     */
+    public static final class ListView<T, R, X extends Throwable> extends AbstractList<R> implements RandomAccess {
+
+        /**
+         * 変換元.
+         */
+        private final List<? extends T> source;
+
+        /**
+         * マッピング.
+         */
+        private final FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> mapping;
+
+        /**
+         * 位置毎の変換結果. キャッシュしない場合は NULL.
+         */
+        private final AtomicReferenceArray<Object> cache;
+
+        /**
+         * Constractor.
+         *
+         * @param source
+         *            変換元.
+         * @param mapping
+         *            マッピング.
+         * @param cached
+         *            変換結果をキャッシュする場合 TRUE.
+         */
+        ListView(List<? extends T> source, FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> mapping,
+                boolean cached) {
+            super();
+            this.source = source instanceof RandomAccess ? source : new ArrayList<>(source);
+            this.mapping = mapping;
+            this.cache = cached ? new AtomicReferenceArray<>(this.source.size()) : null;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractList#get(int)
+         */
+        @Override
+        public R get(int index) {
+            try {
+                return this.apply(index);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractCollection#size()
+         */
+        @Override
+        public int size() {
+            return this.source.size();
+        }
+
+        /**
+         * 全ての要素を並列に変換し, 変換結果を格納した新しいリストを返す.
+         *
+         * @return 変換結果のリスト.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        @NonNullReturnValue
+        @SuppressWarnings("unchecked")
+        public List<R> materialize() throws X {
+            Object[] values = new Object[this.size()];
+            LazyMapping.parallel(values.length, index -> values[index] = this.apply(index));
+            List<R> returnValue = new ArrayList<>(values.length);
+            for (Object value : values) {
+                returnValue.add((R) value);
+            }
+            return returnValue;
+        }
+
+        /**
+         * 指定された位置の要素を変換する.
+         *
+         * @param index
+         *            要素の位置.
+         * @return 変換結果.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        @SuppressWarnings("unchecked")
+        private R apply(int index) throws X {
+            R returnValue = null;
+            if (this.cache == null) {
+                returnValue = this.mapping.apply(this.source.get(index));
+            } else {
+                Object value = this.cache.get(index);
+                if (value == null) {
+                    value = LazyMapping.mask(this.mapping.apply(this.source.get(index)));
+                    if (!this.cache.compareAndSet(index, null, value)) {
+                        value = this.cache.get(index);
+                    }
+                }
+                returnValue = (R) LazyMapping.unmask(value);
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * 値を遅延評価するマップビュー.
+     *
+     * @author Se-foo
+     * @param <K>
+     *            キーのクラス.
+     * @param <V>
+     *            変換元の値クラス.
+     * @param <R>
+     *            変換先の値クラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @since 0.2
+     */
+    public static final class MapView<K, V, R, X extends Throwable> extends AbstractMap<K, R> {
+
+        /**
+         * 変換元.
+         */
+        private final Map<K, ? extends V> source;
+
+        /**
+         * マッピング.
+         */
+        private final FunctionWithThrown.OfObj<? super V, ? extends R, ? extends X> mapping;
+
+        /**
+         * キー毎の変換結果. キャッシュしない場合は NULL.
+         */
+        private final ConcurrentMap<Object, Object> cache;
+
+        /**
+         * Constractor.
+         *
+         * @param source
+         *            変換元.
+         * @param mapping
+         *            マッピング.
+         * @param cached
+         *            変換結果をキャッシュする場合 TRUE.
+         */
+        MapView(Map<K, ? extends V> source, FunctionWithThrown.OfObj<? super V, ? extends R, ? extends X> mapping,
+                boolean cached) {
+            super();
+            this.source = source;
+            this.mapping = mapping;
+            this.cache = cached ? new ConcurrentHashMap<>() : null;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractMap#get(java.lang.Object)
+         */
+        @Override
+        public R get(Object key) {
+            R returnValue = null;
+            if (this.source.containsKey(key)) {
+                returnValue = this.wrap(key, this.source.get(key));
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractMap#containsKey(java.lang.Object)
+         */
+        @Override
+        public boolean containsKey(Object key) {
+            return this.source.containsKey(key);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractMap#size()
+         */
+        @Override
+        public int size() {
+            return this.source.size();
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractMap#keySet()
+         */
+        @NonNullReturnValue
+        @Override
+        public Set<K> keySet() {
+            return Collections.unmodifiableSet(this.source.keySet());
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.AbstractMap#entrySet()
+         */
+        @NonNullReturnValue
+        @Override
+        public Set<Map.Entry<K, R>> entrySet() {
+            return new AbstractSet<Map.Entry<K, R>>() {
+
+                @Override
+                public Iterator<Map.Entry<K, R>> iterator() {
+                    Iterator<? extends Map.Entry<K, ? extends V>> entries = MapView.this.source.entrySet().iterator();
+                    return new Iterator<Map.Entry<K, R>>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<K, R> next() {
+                            return MapView.this.new LazyEntry(entries.next());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return MapView.this.source.size();
+                }
+            };
+        }
+
+        /**
+         * 値を初回の {@link #getValue()} で変換し, 結果を保持するエントリ.
+         *
+         * @author Se-foo
+         * @since 0.2
+         */
+        private final class LazyEntry implements Map.Entry<K, R> {
+
+            /**
+             * 変換元のエントリ.
+             */
+            private final Map.Entry<K, ? extends V> entry;
+
+            /**
+             * 変換済みの場合 TRUE.
+             */
+            private boolean mapped;
+
+            /**
+             * 変換結果.
+             */
+            private R value;
+
+            /**
+             * Constractor.
+             *
+             * @param entry
+             *            変換元のエントリ.
+             */
+            LazyEntry(Map.Entry<K, ? extends V> entry) {
+                super();
+                this.entry = entry;
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Map.Entry#getKey()
+             */
+            @Override
+            public K getKey() {
+                return this.entry.getKey();
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Map.Entry#getValue()
+             */
+            @Override
+            public R getValue() {
+                if (!this.mapped) {
+                    this.value = MapView.this.wrap(this.entry.getKey(), this.entry.getValue());
+                    this.mapped = true;
+                }
+                return this.value;
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Map.Entry#setValue(java.lang.Object)
+             */
+            @Override
+            public R setValue(R value) {
+                throw new UnsupportedOperationException();
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.lang.Object#equals(java.lang.Object)
+             */
+            @Override
+            public boolean equals(Object object) {
+                boolean returnValue = false;
+                if (object instanceof Map.Entry) {
+                    Map.Entry<?, ?> other = (Map.Entry<?, ?>) object;
+                    returnValue = Objects.equals(this.getKey(), other.getKey())
+                            && Objects.equals(this.getValue(), other.getValue());
+                }
+                return returnValue;
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.lang.Object#hashCode()
+             */
+            @Override
+            public int hashCode() {
+                return Objects.hashCode(this.getKey()) ^ Objects.hashCode(this.getValue());
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.lang.Object#toString()
+             */
+            @Override
+            public String toString() {
+                return this.getKey() + "=" + this.getValue();
+            }
+        }
+
+        /**
+         * 全ての値を並列に変換し, 変換結果を格納した新しいマップを返す.
+         *
+         * @return 変換結果のマップ. 変換元の反復順序を保持する.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        @NonNullReturnValue
+        @SuppressWarnings("unchecked")
+        public Map<K, R> materialize() throws X {
+            List<Map.Entry<K, ? extends V>> entries = new ArrayList<>(this.source.entrySet());
+            Object[] values = new Object[entries.size()];
+            LazyMapping.parallel(values.length, index -> {
+                Map.Entry<K, ? extends V> entry = entries.get(index);
+                values[index] = this.apply(entry.getKey(), entry.getValue());
+            });
+            Map<K, R> returnValue = new LinkedHashMap<>();
+            for (int index = 0; index < values.length; index++) {
+                returnValue.put(entries.get(index).getKey(), (R) values[index]);
+            }
+            return returnValue;
+        }
+
+        /**
+         * 指定されたキーの値を変換し, 例外をラッピングする.
+         *
+         * @param key
+         *            キー.
+         * @param value
+         *            変換元の値.
+         * @return 変換結果.
+         */
+        private R wrap(Object key, V value) {
+            try {
+                return this.apply(key, value);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * 指定されたキーの値を変換する.
+         *
+         * @param key
+         *            キー.
+         * @param value
+         *            変換元の値.
+         * @return 変換結果.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        @SuppressWarnings("unchecked")
+        private R apply(Object key, V value) throws X {
+            R returnValue = null;
+            if (this.cache == null) {
+                returnValue = this.mapping.apply(value);
+            } else {
+                Object masked = this.cache.get(LazyMapping.mask(key));
+                if (masked == null) {
+                    masked = LazyMapping.mask(this.mapping.apply(value));
+                    Object previous = this.cache.putIfAbsent(LazyMapping.mask(key), masked);
+                    if (previous != null) {
+                        masked = previous;
+                    }
+                }
+                returnValue = (R) LazyMapping.unmask(masked);
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * 指定されたリストの要素をアクセス時に変換するビューを返す.
+     *
+     * @param <T>
+     *            変換元の要素クラス.
+     * @param <R>
+     *            変換先の要素クラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param source
+     *            変換元. ランダムアクセスできない場合は複製される.
+     * @param mapping
+     *            マッピング.
+     * @return 変換結果をキャッシュしないビュー.
+     * @throws NullPointerException
+     *             指定された変換元又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <T, R, X extends Throwable> LazyMapping.ListView<T, R, X> list(List<? extends T> source,
+            FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> mapping) {
+        return new LazyMapping.ListView<>(Objects.requireNonNull(source), Objects.requireNonNull(mapping), false);
+    }
+
+    /**
+     * 指定されたリストの要素を初回アクセス時に変換し, 結果を位置毎にキャッシュするビューを返す.
+     *
+     * @param <T>
+     *            変換元の要素クラス.
+     * @param <R>
+     *            変換先の要素クラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param source
+     *            変換元. ランダムアクセスできない場合は複製される. 要素数は変化しないこと.
+     * @param mapping
+     *            マッピング.
+     * @return 変換結果をキャッシュするビュー.
+     * @throws NullPointerException
+     *             指定された変換元又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <T, R, X extends Throwable> LazyMapping.ListView<T, R, X> cachedList(List<? extends T> source,
+            FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> mapping) {
+        return new LazyMapping.ListView<>(Objects.requireNonNull(source), Objects.requireNonNull(mapping), true);
+    }
+
+    /**
+     * 指定されたマップの値をアクセス時に変換するビューを返す.
+     *
+     * @param <K>
+     *            キーのクラス.
+     * @param <V>
+     *            変換元の値クラス.
+     * @param <R>
+     *            変換先の値クラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param source
+     *            変換元.
+     * @param mapping
+     *            マッピング.
+     * @return 変換結果をキャッシュしないビュー.
+     * @throws NullPointerException
+     *             指定された変換元又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <K, V, R, X extends Throwable> LazyMapping.MapView<K, V, R, X> map(Map<K, ? extends V> source,
+            FunctionWithThrown.OfObj<? super V, ? extends R, ? extends X> mapping) {
+        return new LazyMapping.MapView<>(Objects.requireNonNull(source), Objects.requireNonNull(mapping), false);
+    }
+
+    /**
+     * 指定されたマップの値を初回アクセス時に変換し, 結果をキー毎にキャッシュするビューを返す.
+     *
+     * @param <K>
+     *            キーのクラス.
+     * @param <V>
+     *            変換元の値クラス.
+     * @param <R>
+     *            変換先の値クラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param source
+     *            変換元.
+     * @param mapping
+     *            マッピング.
+     * @return 変換結果をキャッシュするビュー.
+     * @throws NullPointerException
+     *             指定された変換元又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <K, V, R, X extends Throwable> LazyMapping.MapView<K, V, R, X> cachedMap(
+            Map<K, ? extends V> source, FunctionWithThrown.OfObj<? super V, ? extends R, ? extends X> mapping) {
+        return new LazyMapping.MapView<>(Objects.requireNonNull(source), Objects.requireNonNull(mapping), true);
+    }
+
+    /**
+     * 位置毎の処理.
+     *
+     * @author Se-foo
+     * @param <X>
+     *            処理中に発生する例外クラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    private static interface IndexTask<X extends Throwable> {
+
+        /**
+         * 指定された位置を処理する.
+         *
+         * @param index
+         *            位置.
+         * @throws X
+         *             処理中にエラーが発生した場合.
+         */
+        void run(int index) throws X;
+    }
+
+    /**
+     * 0 から size までの位置を {@link java.util.concurrent.ForkJoinPool#commonPool()} で並列に処理する.
+     *
+     * @param <X>
+     *            処理中に発生する例外クラス.
+     * @param size
+     *            処理する位置の数.
+     * @param task
+     *            位置毎の処理.
+     * @throws X
+     *             処理中にエラーが発生した場合. 複数発生した場合は最初に記録されたもの.
+     */
+    @SuppressWarnings("unchecked")
+    private static <X extends Throwable> void parallel(int size, LazyMapping.IndexTask<? extends X> task) throws X {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        IntStream.range(0, size).parallel().forEach(index -> {
+            if (failure.get() == null) {
+                try {
+                    task.run(index);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        });
+        Throwable thrown = failure.get();
+        if (thrown instanceof RuntimeException) {
+            throw (RuntimeException) thrown;
+        } else if (thrown instanceof Error) {
+            throw (Error) thrown;
+        } else if (thrown != null) {
+            throw (X) thrown;
+        }
+    }
+
+    /**
+     * NULL 値をキャッシュ上の値に置き換える.
+     *
+     * @param value
+     *            値.
+     * @return キャッシュ上の値.
+     */
+    private static Object mask(Object value) {
+        return value == null ? LazyMapping.NULL : value;
+    }
+
+    /**
+     * キャッシュ上の値を元の値に戻す.
+     *
+     * @param value
+     *            キャッシュ上の値.
+     * @return 元の値.
+     */
+    private static Object unmask(Object value) {
+        return value == LazyMapping.NULL ? null : value;
+    }
+}
@@ -0,0 +1,500 @@
+/*
+sp.base.var.PropertyAccessors
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.base.var;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * クラスのプロパティを取り出すマッピングの生成機構.
+ * </p>
+ * <p>
+ * プロパティは公開された getter (getXxx 及び boolean 値の isXxx) 又はレコードの構成要素である. マッピングは
+ * {@link LambdaMetafactory} で生成され, リフレクションによる呼び出しを伴わない. 公開されていないクラスのプロパティは
+ * {@link MethodHandle} を直接呼び出すマッピングとなる.
+ * </p>
+ * <p>
+ * インスタンスはクラス毎に {@link ClassValue} でキャッシュされ, 生成したマッピングもインスタンス内でキャッシュされる.
+ * </p>
+ *
+ * <pre>
+ * PropertyAccessors&lt;Item&gt; accessors = PropertyAccessors.of(Item.class);
+ * mapper.toInt(accessors.toInt("quantity"));
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            プロパティを持つクラス.
+ * @since 0.2
+ */
+public final class PropertyAccessors<T> {
+
+    /**
+     * クラス毎のインスタンス.
+     */
+    private static final ClassValue<PropertyAccessors<?>> CACHE = new ClassValue<PropertyAccessors<?>>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected PropertyAccessors<?> computeValue(Class<?> type) {
+            return new PropertyAccessors<>(type);
+        }
+    };
+
+    /**
+     * マッピングの生成に用いるルックアップ.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * プロパティを持つクラス.
+     */
+    private final Class<T> type;
+
+    /**
+     * プロパティ名毎の取得メソッド.
+     */
+    private final Map<String, Method> getters;
+
+    /**
+     * 生成したマッピング.
+     */
+    private final ConcurrentMap<String, Object> accessors = new ConcurrentHashMap<>();
+
+    /**
+     * Constractor.
+     *
+     * @param type
+     *            プロパティを持つクラス.
+     */
+    private PropertyAccessors(Class<T> type) {
+        super();
+        this.type = type;
+        this.getters = Collections.unmodifiableMap(PropertyAccessors.getters(type));
+    }
+
+    /**
+     * 指定されたクラスのプロパティを取り出すマッピングの生成機構を返す.
+     *
+     * @param <T>
+     *            プロパティを持つクラス.
+     * @param type
+     *            プロパティを持つクラス.
+     * @return マッピングの生成機構.
+     * @throws NullPointerException
+     *             指定されたクラスが NULL の場合.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public static <T> PropertyAccessors<T> of(Class<T> type) {
+        return (PropertyAccessors<T>) PropertyAccessors.CACHE.get(Objects.requireNonNull(type));
+    }
+
+    /**
+     * プロパティ名の一覧を返す.
+     *
+     * @return プロパティ名の変更不可能な集合.
+     */
+    @NonNullReturnValue
+    public Set<String> names() {
+        return this.getters.keySet();
+    }
+
+    /**
+     * 指定されたプロパティの型を返す.
+     *
+     * @param name
+     *            プロパティ名.
+     * @return プロパティの型.
+     * @throws NullPointerException
+     *             指定されたプロパティ名が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたプロパティが存在しない場合.
+     */
+    @NonNullReturnValue
+    public Class<?> typeOf(String name) {
+        return this.getter(name).getReturnType();
+    }
+
+    /**
+     * 指定されたプロパティをオブジェクトとして取り出すマッピングを返す. プリミティブ型のプロパティはボクシングされる.
+     *
+     * @param <R>
+     *            プロパティのクラス.
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param name
+     *            プロパティ名.
+     * @param type
+     *            プロパティのクラス.
+     * @return マッピング.
+     * @throws NullPointerException
+     *             指定されたプロパティ名又はクラスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたプロパティが存在しない, 又は指定されたクラスに代入できない場合.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public <R, X extends Throwable> FunctionWithThrown.OfObj<T, R, X> toObj(String name, Class<R> type) {
+        Method getter = this.getter(name);
+        if (!type.isAssignableFrom(PropertyAccessors.wrap(getter.getReturnType()))) {
+            throw new IllegalArgumentException(name + " is not assignable to " + type.getName());
+        }
+        return (FunctionWithThrown.OfObj<T, R, X>) this.accessor(getter, FunctionWithThrown.OfObj.class,
+                Object.class);
+    }
+
+    /**
+     * 指定されたプロパティを int 値として取り出すマッピングを返す.
+     *
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param name
+     *            プロパティ名.
+     * @return マッピング.
+     * @throws NullPointerException
+     *             指定されたプロパティ名が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたプロパティが存在しない, 又は int 値に拡大変換できない場合.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public <X extends Throwable> FunctionWithThrown.OfObjToInt<T, X> toInt(String name) {
+        return (FunctionWithThrown.OfObjToInt<T, X>) this.accessor(this.getter(name),
+                FunctionWithThrown.OfObjToInt.class, int.class);
+    }
+
+    /**
+     * 指定されたプロパティを long 値として取り出すマッピングを返す.
+     *
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param name
+     *            プロパティ名.
+     * @return マッピング.
+     * @throws NullPointerException
+     *             指定されたプロパティ名が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたプロパティが存在しない, 又は long 値に拡大変換できない場合.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public <X extends Throwable> FunctionWithThrown.OfObjToLong<T, X> toLong(String name) {
+        return (FunctionWithThrown.OfObjToLong<T, X>) this.accessor(this.getter(name),
+                FunctionWithThrown.OfObjToLong.class, long.class);
+    }
+
+    /**
+     * 指定されたプロパティを double 値として取り出すマッピングを返す.
+     *
+     * @param <X>
+     *            変換中に発生する例外クラス.
+     * @param name
+     *            プロパティ名.
+     * @return マッピング.
+     * @throws NullPointerException
+     *             指定されたプロパティ名が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたプロパティが存在しない, 又は double 値に拡大変換できない場合.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public <X extends Throwable> FunctionWithThrown.OfObjToDouble<T, X> toDouble(String name) {
+        return (FunctionWithThrown.OfObjToDouble<T, X>) this.accessor(this.getter(name),
+                FunctionWithThrown.OfObjToDouble.class, double.class);
+    }
+
+    /**
+     * 指定されたプロパティの取得メソッドを返す.
+     *
+     * @param name
+     *            プロパティ名.
+     * @return 取得メソッド.
+     */
+    private Method getter(String name) {
+        Method returnValue = this.getters.get(Objects.requireNonNull(name));
+        if (returnValue == null) {
+            throw new IllegalArgumentException(this.type.getName() + " has no property: " + name);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 取得メソッドを呼び出すマッピングを生成又はキャッシュから取り出す.
+     *
+     * @param getter
+     *            取得メソッド.
+     * @param functional
+     *            マッピングの関数型インタフェース.
+     * @param result
+     *            マッピングの結果の型.
+     * @return マッピング.
+     */
+    private Object accessor(Method getter, Class<?> functional, Class<?> result) {
+        Class<?> returnType = getter.getReturnType();
+        if (result.isPrimitive() && !PropertyAccessors.isWidening(PropertyAccessors.unwrap(returnType), result)) {
+            throw new IllegalArgumentException(getter.getName() + " cannot be converted to " + result.getName());
+        }
+        return this.accessors.computeIfAbsent(getter.getName() + '/' + result.getName(), key -> {
+            try {
+                try {
+                    // 他のパッケージの公開されていないクラスの getter は, アクセスチェックを抑止しないと取り出せない.
+                    getter.setAccessible(true);
+                } catch (RuntimeException e) {
+                    // 抑止できない場合 (公開されていないモジュール等) は通常のアクセスチェックに委ねる.
+                }
+                MethodHandle handle = PropertyAccessors.LOOKUP.unreflect(getter);
+                if (Modifier.isPublic(getter.getDeclaringClass().getModifiers())) {
+                    try {
+                        return PropertyAccessors.metafactory(handle, functional, result);
+                    } catch (Throwable e) {
+                        // 生成できない場合は MethodHandle を直接呼び出す.
+                    }
+                }
+                return PropertyAccessors.direct(handle.asType(MethodType.methodType(result, Object.class)),
+                        functional);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+        });
+    }
+
+    /**
+     * {@link LambdaMetafactory} でマッピングを生成する.
+     *
+     * @param handle
+     *            取得メソッドのハンドル.
+     * @param functional
+     *            マッピングの関数型インタフェース.
+     * @param result
+     *            マッピングの結果の型.
+     * @return マッピング.
+     * @throws Throwable
+     *             生成できない場合.
+     */
+    private static Object metafactory(MethodHandle handle, Class<?> functional, Class<?> result) throws Throwable {
+        Class<?> owner = handle.type().parameterType(0);
+        CallSite site = LambdaMetafactory.metafactory(PropertyAccessors.LOOKUP, "apply",
+                MethodType.methodType(functional), MethodType.methodType(result, Object.class), handle,
+                MethodType.methodType(result, owner));
+        return site.getTarget().invoke();
+    }
+
+    /**
+     * {@link MethodHandle} を直接呼び出すマッピングを生成する.
+     *
+     * @param handle
+     *            (Object) 結果型 に適合させた取得メソッドのハンドル.
+     * @param functional
+     *            マッピングの関数型インタフェース.
+     * @return マッピング.
+     */
+    private static Object direct(MethodHandle handle, Class<?> functional) {
+        Object returnValue = null;
+        if (functional == FunctionWithThrown.OfObjToInt.class) {
+            returnValue = (FunctionWithThrown.OfObjToInt<Object, RuntimeException>) target -> {
+                try {
+                    return (int) handle.invokeExact(target);
+                } catch (Throwable e) {
+                    throw PropertyAccessors.<RuntimeException> rethrow(e);
+                }
+            };
+        } else if (functional == FunctionWithThrown.OfObjToLong.class) {
+            returnValue = (FunctionWithThrown.OfObjToLong<Object, RuntimeException>) target -> {
+                try {
+                    return (long) handle.invokeExact(target);
+                } catch (Throwable e) {
+                    throw PropertyAccessors.<RuntimeException> rethrow(e);
+                }
+            };
+        } else if (functional == FunctionWithThrown.OfObjToDouble.class) {
+            returnValue = (FunctionWithThrown.OfObjToDouble<Object, RuntimeException>) target -> {
+                try {
+                    return (double) handle.invokeExact(target);
+                } catch (Throwable e) {
+                    throw PropertyAccessors.<RuntimeException> rethrow(e);
+                }
+            };
+        } else {
+            returnValue = (FunctionWithThrown.OfObj<Object, Object, RuntimeException>) target -> {
+                try {
+                    return (Object) handle.invokeExact(target);
+                } catch (Throwable e) {
+                    throw PropertyAccessors.<RuntimeException> rethrow(e);
+                }
+            };
+        }
+        return returnValue;
+    }
+
+    /**
+     * 取得メソッドが送出した例外をそのままスローする.
+     *
+     * @param <E>
+     *            コンパイラに示す例外クラス.
+     * @param thrown
+     *            取得メソッドが送出した例外.
+     * @return このメソッドは正常に終了しない.
+     * @throws E
+     *             常にスローされる.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> RuntimeException rethrow(Throwable thrown) throws E {
+        throw (E) thrown;
+    }
+
+    /**
+     * 指定されたクラスのプロパティを収集する.
+     *
+     * @param type
+     *            プロパティを持つクラス.
+     * @return プロパティ名毎の取得メソッド.
+     */
+    private static Map<String, Method> getters(Class<?> type) {
+        Map<String, Method> returnValue = new LinkedHashMap<>();
+        Method[] components = PropertyAccessors.recordAccessors(type);
+        if (components != null) {
+            for (Method accessor : components) {
+                returnValue.put(accessor.getName(), accessor);
+            }
+        } else {
+            for (Method method : type.getMethods()) {
+                String name = method.getName();
+                // 共変戻り値のオーバーライドで生成されるブリッジメソッドは, スーパークラスの戻り値の型を持つため除く.
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                        || method.getReturnType() == void.class || method.getDeclaringClass() == Object.class
+                        || method.isBridge() || method.isSynthetic()) {
+                    continue;
+                }
+                if (name.length() > 3 && name.startsWith("get")) {
+                    returnValue.put(PropertyAccessors.decapitalize(name.substring(3)), method);
+                } else if (name.length() > 2 && name.startsWith("is") && method.getReturnType() == boolean.class) {
+                    returnValue.put(PropertyAccessors.decapitalize(name.substring(2)), method);
+                }
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定されたクラスがレコードの場合, 構成要素のアクセサを返す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return 構成要素のアクセサ. レコードでない, 又は実行環境がレコードを持たない場合は NULL.
+     */
+    private static Method[] recordAccessors(Class<?> type) {
+        Method[] returnValue = null;
+        try {
+            if ((Boolean) Class.class.getMethod("isRecord").invoke(type)) {
+                Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+                returnValue = new Method[components.length];
+                for (int index = 0; index < components.length; index++) {
+                    returnValue[index] = (Method) components[index].getClass().getMethod("getAccessor")
+                            .invoke(components[index]);
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            // レコードを持たない実行環境.
+        }
+        return returnValue;
+    }
+
+    /**
+     * {@link java.beans.Introspector#decapitalize(String)} と同じ規則でプロパティ名を生成する.
+     *
+     * @param name
+     *            get 又は is を除いたメソッド名.
+     * @return プロパティ名.
+     */
+    private static String decapitalize(String name) {
+        String returnValue = name;
+        if (!(name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0)))) {
+            returnValue = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+        return returnValue;
+    }
+
+    /**
+     * ラッパークラスをプリミティブ型に変換する.
+     *
+     * @param type
+     *            対象の型.
+     * @return プリミティブ型. ラッパークラスでない場合は対象の型.
+     */
+    private static Class<?> unwrap(Class<?> type) {
+        return MethodType.methodType(type).unwrap().returnType();
+    }
+
+    /**
+     * プリミティブ型をラッパークラスに変換する.
+     *
+     * @param type
+     *            対象の型.
+     * @return ラッパークラス. プリミティブ型でない場合は対象の型.
+     */
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * 同一又は拡大プリミティブ変換が可能か判定する.
+     *
+     * @param from
+     *            変換元の型.
+     * @param to
+     *            変換先の型.
+     * @return 変換可能な場合 TRUE.
+     */
+    private static boolean isWidening(Class<?> from, Class<?> to) {
+        String order = "BSIJFD";
+        boolean returnValue = from == to;
+        if (!returnValue && from.isPrimitive() && from != boolean.class && from != void.class) {
+            if (from == char.class) {
+                returnValue = to == int.class || to == long.class || to == float.class || to == double.class;
+            } else {
+                int source = order.indexOf(PropertyAccessors.descriptor(from));
+                int target = order.indexOf(PropertyAccessors.descriptor(to));
+                returnValue = 0 <= source && source < target;
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * プリミティブ型の記述子文字を返す.
+     *
+     * @param type
+     *            プリミティブ型.
+     * @return 記述子文字.
+     */
+    private static char descriptor(Class<?> type) {
+        return MethodType.methodType(type).toMethodDescriptorString().charAt(2);
+    }
+}
@@ -0,0 +1,578 @@
+/*
+sp.base.var.StructLayout
+sp.base.var.StructLayout.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.base.var;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * オブジェクトを固定長レコードとして {@link ByteBuffer} に書き込むマッピング機構.
+ * </p>
+ * <p>
+ * レコードはマッピングで取り出した int, long, double 値のフィールドで構成される. フィールドの位置は最初のレコードの書き込み時に確定し,
+ * 8 バイトのフィールドが先頭に, 4 バイトのフィールドがその後に境界整列して配置される. 確定後にフィールドを追加することはできない.
+ * </p>
+ * <p>
+ * 書き込んだレコードは {@link StructLayout.Cursor} によってオブジェクトを生成せずに読み出すことができる.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            マッピングの変換元クラス.
+ * @param <X>
+ *            変換中に発生する例外クラス.
+ * @since 0.2
+ */
+public final class StructLayout<T, X extends Throwable> {
+
+    /**
+     * {@link StructLayout.Store} の 1 ブロックの既定の最大バイト数.
+     */
+    private static final int DEFAULT_BLOCK_BYTES = 1 << 26;
+
+    /**
+     * 登録順のフィールド.
+     */
+    private final List<StructLayout.Field> fields = new ArrayList<>();
+
+    /**
+     * 登録順のマッピング.
+     */
+    private final List<Object> mappings = new ArrayList<>();
+
+    /**
+     * フィールド毎のレコード内位置. 確定前は NULL.
+     */
+    private volatile int[] offsets;
+
+    /**
+     * レコード長.
+     */
+    private int recordSize;
+
+    /**
+     * フィールドの種類.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    enum Kind {
+        /**
+         * int 値.
+         */
+        INT(Integer.BYTES),
+        /**
+         * long 値.
+         */
+        LONG(Long.BYTES),
+        /**
+         * double 値.
+         */
+        DOUBLE(Double.BYTES);
+
+        /**
+         * バイト数.
+         */
+        final int bytes;
+
+        /**
+         * Constractor.
+         *
+         * @param bytes
+         *            バイト数.
+         */
+        private Kind(int bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * レコード内のフィールドを表すキー.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static final class Field {
+
+        /**
+         * キーを発行したマッピング機構.
+         */
+        final StructLayout<?, ?> owner;
+
+        /**
+         * フィールドの種類.
+         */
+        final StructLayout.Kind kind;
+
+        /**
+         * 登録順の位置.
+         */
+        final int slot;
+
+        /**
+         * Constractor.
+         *
+         * @param owner
+         *            キーを発行したマッピング機構.
+         * @param kind
+         *            フィールドの種類.
+         * @param slot
+         *            登録順の位置.
+         */
+        Field(StructLayout<?, ?> owner, StructLayout.Kind kind, int slot) {
+            super();
+            this.owner = owner;
+            this.kind = kind;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * <p>
+     * レコードを読み出すフライウェイト.
+     * </p>
+     * <p>
+     * 1 つのインスタンスを移動させながら各レコードを読み出す. スレッドセーフではない.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public final class Cursor {
+
+        /**
+         * 読み出し元の格納域. 単一の {@link ByteBuffer} を読み出す場合は NULL.
+         */
+        private final StructLayout<T, X>.Store store;
+
+        /**
+         * 現在のレコードを含むバッファ.
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * 現在のレコードの先頭位置.
+         */
+        private int base;
+
+        /**
+         * フィールド毎のレコード内位置.
+         */
+        private final int[] offsets = StructLayout.this.seal();
+
+        /**
+         * Constractor.
+         *
+         * @param store
+         *            読み出し元の格納域.
+         * @param buffer
+         *            読み出し元のバッファ.
+         */
+        Cursor(StructLayout<T, X>.Store store, ByteBuffer buffer) {
+            super();
+            this.store = store;
+            this.buffer = buffer;
+        }
+
+        /**
+         * 指定された位置のレコードに移動する.
+         *
+         * @param index
+         *            レコードの位置.
+         * @return このインスタンス.
+         * @throws IndexOutOfBoundsException
+         *             指定された位置にレコードが存在しない場合.
+         */
+        @NonNullReturnValue
+        public StructLayout<T, X>.Cursor moveTo(long index) {
+            int recordSize = StructLayout.this.recordSize;
+            if (this.store == null) {
+                if (index < 0 || (index + 1) * recordSize > this.buffer.capacity()) {
+                    throw new IndexOutOfBoundsException(Long.toString(index));
+                }
+                this.base = (int) index * recordSize;
+            } else {
+                if (index < 0 || this.store.size() <= index) {
+                    throw new IndexOutOfBoundsException(Long.toString(index));
+                }
+                this.buffer = this.store.blocks.get((int) (index / this.store.recordsPerBlock));
+                this.base = (int) (index % this.store.recordsPerBlock) * recordSize;
+            }
+            return this;
+        }
+
+        /**
+         * 現在のレコードから int 値のフィールドを読み出す.
+         *
+         * @param field
+         *            読み出すフィールド.
+         * @return フィールドの値.
+         * @throws NullPointerException
+         *             指定されたフィールドが NULL の場合.
+         * @throws IllegalArgumentException
+         *             指定されたフィールドがこのレイアウトの int 値のフィールドでない場合.
+         */
+        public int getInt(StructLayout.Field field) {
+            return this.buffer.getInt(this.base + this.offset(field, StructLayout.Kind.INT));
+        }
+
+        /**
+         * 現在のレコードから long 値のフィールドを読み出す.
+         *
+         * @param field
+         *            読み出すフィールド.
+         * @return フィールドの値.
+         * @throws NullPointerException
+         *             指定されたフィールドが NULL の場合.
+         * @throws IllegalArgumentException
+         *             指定されたフィールドがこのレイアウトの long 値のフィールドでない場合.
+         */
+        public long getLong(StructLayout.Field field) {
+            return this.buffer.getLong(this.base + this.offset(field, StructLayout.Kind.LONG));
+        }
+
+        /**
+         * 現在のレコードから double 値のフィールドを読み出す.
+         *
+         * @param field
+         *            読み出すフィールド.
+         * @return フィールドの値.
+         * @throws NullPointerException
+         *             指定されたフィールドが NULL の場合.
+         * @throws IllegalArgumentException
+         *             指定されたフィールドがこのレイアウトの double 値のフィールドでない場合.
+         */
+        public double getDouble(StructLayout.Field field) {
+            return this.buffer.getDouble(this.base + this.offset(field, StructLayout.Kind.DOUBLE));
+        }
+
+        /**
+         * 指定されたフィールドのレコード内位置を返す.
+         *
+         * @param field
+         *            フィールド.
+         * @param kind
+         *            期待するフィールドの種類.
+         * @return レコード内位置.
+         */
+        private int offset(StructLayout.Field field, StructLayout.Kind kind) {
+            if (field.owner != StructLayout.this || field.kind != kind) {
+                throw new IllegalArgumentException("field is not a " + kind + " field of this layout.");
+            }
+            return this.offsets[field.slot];
+        }
+    }
+
+    /**
+     * <p>
+     * レコードを追記するオフヒープの格納域.
+     * </p>
+     * <p>
+     * レコードは固定数毎にダイレクトバッファのブロックへ格納されるため, 合計が 2 GB を超えても格納できる. 追記はスレッドセーフではない.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public final class Store {
+
+        /**
+         * 1 ブロックに格納するレコード数.
+         */
+        final int recordsPerBlock;
+
+        /**
+         * ブロック.
+         */
+        final List<ByteBuffer> blocks = new ArrayList<>();
+
+        /**
+         * 格納されたレコード数.
+         */
+        private long size;
+
+        /**
+         * 書き込みに失敗したために追加しなかったブロック. 次にブロックを追加する際に再利用する.
+         */
+        private ByteBuffer spare;
+
+        /**
+         * Constractor.
+         *
+         * @param recordsPerBlock
+         *            1 ブロックに格納するレコード数.
+         */
+        Store(int recordsPerBlock) {
+            super();
+            this.recordsPerBlock = recordsPerBlock;
+        }
+
+        /**
+         * 格納されたレコード数を返す.
+         *
+         * @return 格納されたレコード数.
+         */
+        public long size() {
+            return this.size;
+        }
+
+        /**
+         * 指定された対象をレコードとして追記する.
+         *
+         * @param target
+         *            追記する対象.
+         * @return 追記したレコードの位置.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        public long append(T target) throws X {
+            int index = (int) (this.size % this.recordsPerBlock);
+            if (index == 0) {
+                // 書き込みに成功するまでブロックを追加しないことで, 変換に失敗しても空のブロックを残さない.
+                ByteBuffer block = this.spare;
+                if (block == null) {
+                    block = ByteBuffer.allocateDirect(this.recordsPerBlock * StructLayout.this.recordSize)
+                            .order(ByteOrder.nativeOrder());
+                }
+                this.spare = block;
+                StructLayout.this.write(block, index, target);
+                this.spare = null;
+                this.blocks.add(block);
+            } else {
+                StructLayout.this.write(this.blocks.get(this.blocks.size() - 1), index, target);
+            }
+            return this.size++;
+        }
+
+        /**
+         * 指定された全ての対象をレコードとして追記する.
+         *
+         * @param targets
+         *            追記する対象.
+         * @throws NullPointerException
+         *             指定された対象が NULL の場合.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        public void appendAll(Iterable<? extends T> targets) throws X {
+            for (T target : targets) {
+                this.append(target);
+            }
+        }
+
+        /**
+         * この格納域を読み出すフライウェイトを生成する.
+         *
+         * @return 読み出し用のフライウェイト.
+         */
+        @NonNullReturnValue
+        public StructLayout<T, X>.Cursor cursor() {
+            return new Cursor(this, null);
+        }
+    }
+
+    /**
+     * 指定されたマッピングを int 値のフィールドとして登録する.
+     *
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return 登録したフィールド.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     * @throws IllegalStateException
+     *             レイアウトが確定している場合.
+     */
+    @NonNullReturnValue
+    public StructLayout.Field toInt(FunctionWithThrown.OfObjToInt<? super T, ? extends X> mapping) {
+        return this.add(StructLayout.Kind.INT, Objects.requireNonNull(mapping));
+    }
+
+    /**
+     * 指定されたマッピングを long 値のフィールドとして登録する.
+     *
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return 登録したフィールド.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     * @throws IllegalStateException
+     *             レイアウトが確定している場合.
+     */
+    @NonNullReturnValue
+    public StructLayout.Field toLong(FunctionWithThrown.OfObjToLong<? super T, ? extends X> mapping) {
+        return this.add(StructLayout.Kind.LONG, Objects.requireNonNull(mapping));
+    }
+
+    /**
+     * 指定されたマッピングを double 値のフィールドとして登録する.
+     *
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return 登録したフィールド.
+     * @throws NullPointerException
+     *             指定されたマッピングが NULL の場合.
+     * @throws IllegalStateException
+     *             レイアウトが確定している場合.
+     */
+    @NonNullReturnValue
+    public StructLayout.Field toDouble(FunctionWithThrown.OfObjToDouble<? super T, ? extends X> mapping) {
+        return this.add(StructLayout.Kind.DOUBLE, Objects.requireNonNull(mapping));
+    }
+
+    /**
+     * レイアウトを確定してレコード長を返す.
+     *
+     * @return レコード長 (バイト).
+     */
+    public int recordSize() {
+        this.seal();
+        return this.recordSize;
+    }
+
+    /**
+     * 指定された対象をバッファの指定された位置にレコードとして書き込む.
+     *
+     * @param buffer
+     *            書き込み先. バッファの位置及びリミットは変更されない.
+     * @param index
+     *            レコードの位置. バイト位置は index * {@link #recordSize()} となる.
+     * @param target
+     *            書き込む対象.
+     * @throws NullPointerException
+     *             指定されたバッファが NULL の場合.
+     * @throws IndexOutOfBoundsException
+     *             レコードがバッファに収まらない場合.
+     * @throws X
+     *             変換中にエラーが発生した場合.
+     */
+    @SuppressWarnings("unchecked")
+    public void write(ByteBuffer buffer, int index, T target) throws X {
+        int[] offsets = this.seal();
+        long position = (long) index * this.recordSize;
+        if (index < 0 || buffer.capacity() < position + this.recordSize) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        int base = (int) position;
+        for (int slot = 0; slot < offsets.length; slot++) {
+            Object mapping = this.mappings.get(slot);
+            switch (this.fields.get(slot).kind) {
+            case INT:
+                buffer.putInt(base + offsets[slot],
+                        ((FunctionWithThrown.OfObjToInt<? super T, ? extends X>) mapping).apply(target));
+                break;
+            case LONG:
+                buffer.putLong(base + offsets[slot],
+                        ((FunctionWithThrown.OfObjToLong<? super T, ? extends X>) mapping).apply(target));
+                break;
+            default:
+                buffer.putDouble(base + offsets[slot],
+                        ((FunctionWithThrown.OfObjToDouble<? super T, ? extends X>) mapping).apply(target));
+                break;
+            }
+        }
+    }
+
+    /**
+     * 指定されたバッファを読み出すフライウェイトを生成する.
+     *
+     * @param buffer
+     *            読み出し元. {@link #write(ByteBuffer, int, Object)} で書き込まれたバッファ.
+     * @return 読み出し用のフライウェイト.
+     * @throws NullPointerException
+     *             指定されたバッファが NULL の場合.
+     */
+    @NonNullReturnValue
+    public StructLayout<T, X>.Cursor cursor(ByteBuffer buffer) {
+        return new Cursor(null, Objects.requireNonNull(buffer));
+    }
+
+    /**
+     * レコードを追記するオフヒープの格納域を生成する.
+     *
+     * @return 格納域.
+     */
+    @NonNullReturnValue
+    public StructLayout<T, X>.Store newStore() {
+        return this.newStore(Math.max(1, StructLayout.DEFAULT_BLOCK_BYTES / Math.max(1, this.recordSize())));
+    }
+
+    /**
+     * レコードを追記するオフヒープの格納域を生成する.
+     *
+     * @param recordsPerBlock
+     *            1 ブロックに格納するレコード数.
+     * @return 格納域.
+     * @throws IllegalArgumentException
+     *             指定されたレコード数が 1 未満, 又は 1 ブロックが 2 GB を超える場合.
+     */
+    @NonNullReturnValue
+    public StructLayout<T, X>.Store newStore(int recordsPerBlock) {
+        if (recordsPerBlock < 1 || Integer.MAX_VALUE / Math.max(1, this.recordSize()) < recordsPerBlock) {
+            throw new IllegalArgumentException("illegal recordsPerBlock: " + recordsPerBlock);
+        }
+        return new Store(recordsPerBlock);
+    }
+
+    /**
+     * フィールドを登録する.
+     *
+     * @param kind
+     *            フィールドの種類.
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return 登録したフィールド.
+     */
+    private synchronized StructLayout.Field add(StructLayout.Kind kind, Object mapping) {
+        if (this.offsets != null) {
+            throw new IllegalStateException("layout is already sealed.");
+        }
+        StructLayout.Field returnValue = new StructLayout.Field(this, kind, this.fields.size());
+        this.fields.add(returnValue);
+        this.mappings.add(mapping);
+        return returnValue;
+    }
+
+    /**
+     * レイアウトを確定する.
+     *
+     * @return フィールド毎のレコード内位置.
+     */
+    private int[] seal() {
+        int[] returnValue = this.offsets;
+        if (returnValue == null) {
+            synchronized (this) {
+                returnValue = this.offsets;
+                if (returnValue == null) {
+                    returnValue = new int[this.fields.size()];
+                    int offset = 0;
+                    for (StructLayout.Kind kind : new StructLayout.Kind[] { StructLayout.Kind.LONG,
+                            StructLayout.Kind.DOUBLE, StructLayout.Kind.INT }) {
+                        for (StructLayout.Field field : this.fields) {
+                            if (field.kind == kind) {
+                                returnValue[field.slot] = offset;
+                                offset += kind.bytes;
+                            }
+                        }
+                    }
+                    this.recordSize = (offset + Long.BYTES - 1) & -Long.BYTES;
+                    this.offsets = returnValue;
+                }
+            }
+        }
+        return returnValue;
+    }
+}
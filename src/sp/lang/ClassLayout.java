@@ -0,0 +1,550 @@
+/*
+sp.lang.ClassLayout
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * クラスのインスタンスフィールドへのアクセス手段.
+ * </p>
+ * <p>
+ * スーパークラスを含む全ての非 static フィールドについて, {@link MethodHandle} による読み書き手段をクラス毎に 1 度だけ生成する.
+ * インスタンスの生成はコンストラクタを呼び出さずに行う ({@link Object#clone()} と同じ).
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+final class ClassLayout {
+
+    /**
+     * クラス毎のアクセス手段.
+     */
+    private static final ClassValue<ClassLayout> LAYOUTS = new ClassValue<ClassLayout>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected ClassLayout computeValue(Class<?> type) {
+            return new ClassLayout(type, false);
+        }
+    };
+
+    /**
+     * クラス毎の, 標準ライブラリのスーパークラスを除いたアクセス手段.
+     */
+    private static final ClassValue<ClassLayout> OWN_LAYOUTS = new ClassValue<ClassLayout>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected ClassLayout computeValue(Class<?> type) {
+            return new ClassLayout(type, true);
+        }
+    };
+
+    /**
+     * アクセス手段の生成に用いるルックアップ.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * sun.misc.Unsafe のインスタンス. 実行環境が対応していない場合は NULL.
+     */
+    private static final Object UNSAFE = ClassLayout.unsafe();
+
+    /**
+     * コンストラクタを呼び出さずにインスタンスを生成するハンドル ((Class)Object). 実行環境が対応していない場合は NULL.
+     */
+    private static final MethodHandle ALLOCATE = ClassLayout.allocator();
+
+    /**
+     * 対象のクラス.
+     */
+    final Class<?> type;
+
+    /**
+     * 参照型のフィールド.
+     */
+    final Field[] references;
+
+    /**
+     * 参照型のフィールドの読み出し ((Object)Object).
+     */
+    final MethodHandle[] getters;
+
+    /**
+     * 参照型のフィールドの書き込み ((Object, Object)void).
+     */
+    final MethodHandle[] setters;
+
+    /**
+     * プリミティブ型のフィールド.
+     */
+    final Field[] primitives;
+
+    /**
+     * プリミティブ型のフィールドの複製 ((Object 複製先, Object 複製元)void).
+     */
+    final MethodHandle[] copiers;
+
+    /**
+     * final でないプリミティブ型のフィールドの複製 ((Object 複製先, Object 複製元)void).
+     */
+    private final MethodHandle[] mutableCopiers;
+
+    /**
+     * final なフィールドを持つ場合 TRUE.
+     */
+    final boolean finals;
+
+    /**
+     * インスタンスの生成 (()Object). 標準ライブラリのスーパークラスを除いたアクセス手段の場合は NULL.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * アクセス手段の生成に失敗した原因. 成功した場合は NULL.
+     */
+    private final RuntimeException failure;
+
+    /**
+     * Constractor.
+     *
+     * @param type
+     *            対象のクラス.
+     * @param own
+     *            標準ライブラリのスーパークラスで宣言されたフィールドを除く場合 TRUE.
+     */
+    private ClassLayout(Class<?> type, boolean own) {
+        super();
+        this.type = type;
+        List<Field> references = new ArrayList<>();
+        List<Field> primitives = new ArrayList<>();
+        boolean finals = false;
+        for (Class<?> current = type; current != null && current != Object.class
+                && !(own && DeepCopier.isLibrary(current)); current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    (field.getType().isPrimitive() ? primitives : references).add(field);
+                    finals |= Modifier.isFinal(field.getModifiers());
+                }
+            }
+        }
+        this.finals = finals;
+        this.references = references.toArray(new Field[references.size()]);
+        this.primitives = primitives.toArray(new Field[primitives.size()]);
+        this.getters = new MethodHandle[this.references.length];
+        this.setters = new MethodHandle[this.references.length];
+        this.copiers = new MethodHandle[this.primitives.length];
+        List<MethodHandle> mutableCopiers = new ArrayList<>();
+        MethodHandle constructor = null;
+        RuntimeException failure = null;
+        try {
+            for (int index = 0; index < this.references.length; index++) {
+                Field field = this.references[index];
+                field.setAccessible(true);
+                this.getters[index] = ClassLayout.LOOKUP.unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                this.setters[index] = ClassLayout.LOOKUP.unreflectSetter(field)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            for (int index = 0; index < this.primitives.length; index++) {
+                Field field = this.primitives[index];
+                field.setAccessible(true);
+                MethodHandle getter = ClassLayout.LOOKUP.unreflectGetter(field);
+                MethodHandle setter = ClassLayout.LOOKUP.unreflectSetter(field);
+                this.copiers[index] = MethodHandles.filterArguments(setter, 1, getter)
+                        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                if (!Modifier.isFinal(field.getModifiers())) {
+                    mutableCopiers.add(this.copiers[index]);
+                }
+            }
+            constructor = own ? null : ClassLayout.constructor(type);
+        } catch (IllegalAccessException | RuntimeException e) {
+            failure = new IllegalArgumentException("cannot access fields of " + type.getName(), e);
+        }
+        this.mutableCopiers = mutableCopiers.toArray(new MethodHandle[mutableCopiers.size()]);
+        this.constructor = constructor;
+        this.failure = failure;
+    }
+
+    /**
+     * 指定されたクラスのアクセス手段を返す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return アクセス手段.
+     * @throws IllegalArgumentException
+     *             フィールドにアクセスできない, 又はインスタンスを生成できないクラスの場合.
+     */
+    static ClassLayout of(Class<?> type) {
+        ClassLayout returnValue = ClassLayout.LAYOUTS.get(type);
+        if (returnValue.failure != null) {
+            throw returnValue.failure;
+        }
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 指定されたクラスの, 標準ライブラリのスーパークラスで宣言されたフィールドを除いたアクセス手段を返す.
+     * </p>
+     * <p>
+     * 標準ライブラリのコレクション等を継承したクラスで, サブクラスで宣言されたフィールドだけを扱うために用いる. インスタンスは生成できない.
+     * </p>
+     *
+     * @param type
+     *            対象のクラス.
+     * @return アクセス手段.
+     * @throws IllegalArgumentException
+     *             フィールドにアクセスできない場合.
+     */
+    static ClassLayout ownOf(Class<?> type) {
+        ClassLayout returnValue = ClassLayout.OWN_LAYOUTS.get(type);
+        if (returnValue.failure != null) {
+            throw returnValue.failure;
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定されたクラスのアクセス手段を生成できるか判定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return 生成できる場合 TRUE.
+     */
+    static boolean isAccessible(Class<?> type) {
+        return ClassLayout.LAYOUTS.get(type).failure == null;
+    }
+
+    /**
+     * コンストラクタを呼び出さずに空のインスタンスを生成する.
+     *
+     * @return 全てのフィールドが初期値のインスタンス.
+     */
+    Object allocate() {
+        try {
+            return this.constructor.invoke();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 全てのプリミティブ型のフィールドを複製する.
+     *
+     * @param target
+     *            複製先.
+     * @param source
+     *            複製元.
+     */
+    void copyPrimitives(Object target, Object source) {
+        ClassLayout.copyAll(this.copiers, target, source);
+    }
+
+    /**
+     * final でない全てのプリミティブ型のフィールドを複製する. 既存のインスタンスに書き込む場合に用いる.
+     *
+     * @param target
+     *            複製先.
+     * @param source
+     *            複製元.
+     */
+    void copyMutablePrimitives(Object target, Object source) {
+        ClassLayout.copyAll(this.mutableCopiers, target, source);
+    }
+
+    /**
+     * 指定された複製のハンドルを全て実行する.
+     *
+     * @param copiers
+     *            複製のハンドル.
+     * @param target
+     *            複製先.
+     * @param source
+     *            複製元.
+     */
+    private static void copyAll(MethodHandle[] copiers, Object target, Object source) {
+        try {
+            for (MethodHandle copier : copiers) {
+                copier.invokeExact(target, source);
+            }
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 既存のインスタンスに final でない全てのフィールドを浅く複製する. final なフィールドには書き込まない.
+     *
+     * @param target
+     *            複製先.
+     * @param source
+     *            複製元.
+     */
+    void copyFields(Object target, Object source) {
+        this.copyMutablePrimitives(target, source);
+        for (int index = 0; index < this.references.length; index++) {
+            if (!Modifier.isFinal(this.references[index].getModifiers())) {
+                this.set(index, target, this.get(index, source));
+            }
+        }
+    }
+
+    /**
+     * final なフィールドの値が一致するか判定する. プリミティブ型は値で, 参照型は同一性で比較する.
+     * final なフィールドは書き換えないため, 一致する場合に限り既存のインスタンスを複製先として再利用できる.
+     *
+     * @param target
+     *            複製先.
+     * @param source
+     *            複製元.
+     * @return 一致する場合, 又は final なフィールドを持たない場合 TRUE.
+     */
+    boolean sameFinals(Object target, Object source) {
+        boolean returnValue = true;
+        for (int index = 0; this.finals && returnValue && index < this.primitives.length; index++) {
+            returnValue = !Modifier.isFinal(this.primitives[index].getModifiers())
+                    || this.getPrimitive(index, target).equals(this.getPrimitive(index, source));
+        }
+        for (int index = 0; this.finals && returnValue && index < this.references.length; index++) {
+            returnValue = !Modifier.isFinal(this.references[index].getModifiers())
+                    || this.get(index, target) == this.get(index, source);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 参照型のフィールドを読み出す.
+     *
+     * @param index
+     *            フィールドの位置.
+     * @param source
+     *            読み出し元.
+     * @return フィールドの値.
+     */
+    Object get(int index, Object source) {
+        try {
+            return (Object) this.getters[index].invokeExact(source);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * プリミティブ型のフィールドを読み出す.
+     *
+     * @param index
+     *            フィールドの位置.
+     * @param source
+     *            読み出し元.
+     * @return ボクシングされたフィールドの値.
+     */
+    Object getPrimitive(int index, Object source) {
+        try {
+            return this.primitives[index].get(source);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 指定された名前のフィールドの位置を返す. 名前が重複する場合はサブクラスで宣言されたフィールドを優先する.
+     *
+     * @param fields
+     *            {@link #references} 又は {@link #primitives}.
+     * @param name
+     *            フィールド名.
+     * @return フィールドの位置. 存在しない場合は -1.
+     */
+    static int indexOf(Field[] fields, String name) {
+        int returnValue = -1;
+        for (int index = fields.length - 1; index >= 0; index--) {
+            if (fields[index].getName().equals(name)) {
+                returnValue = index;
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 参照型のフィールドに書き込む.
+     *
+     * @param index
+     *            フィールドの位置.
+     * @param target
+     *            書き込み先.
+     * @param value
+     *            書き込む値.
+     */
+    void set(int index, Object target, Object value) {
+        try {
+            this.setters[index].invokeExact(target, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * インスタンスを生成するハンドルを返す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return インスタンスを生成するハンドル (()Object).
+     * @throws IllegalAccessException
+     *             コンストラクタにアクセスできない場合.
+     */
+    private static MethodHandle constructor(Class<?> type) throws IllegalAccessException {
+        MethodHandle returnValue = null;
+        if (ClassLayout.ALLOCATE != null) {
+            returnValue = MethodHandles.insertArguments(ClassLayout.ALLOCATE, 0, type);
+        } else {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                returnValue = ClassLayout.LOOKUP.unreflectConstructor(constructor)
+                        .asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(type.getName() + " has no constructor without arguments.", e);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 指定された名前のフィールドを読み出すハンドルを返す. フィールドは指定されたクラス及びそのスーパークラスから探す.
+     * </p>
+     * <p>
+     * 公開されていないモジュールのクラス (標準ライブラリの内部のクラス等) のフィールドは, 実行環境が対応していれば sun.misc.Unsafe で読み出す.
+     * 検査されたコレクションの要素の型等, 公開されたメソッドで取得できない生成時の設定を読み出すために用いる.
+     * </p>
+     *
+     * @param type
+     *            対象のクラス.
+     * @param name
+     *            フィールド名.
+     * @return フィールドを読み出すハンドル ((Object)Object). プリミティブ型の値はボクシングする.
+     * @throws IllegalArgumentException
+     *             フィールドが存在しない, 又は読み出せない場合.
+     */
+    static MethodHandle reader(Class<?> type, String name) {
+        Field field = null;
+        for (Class<?> current = type; field == null && current != null; current = current.getSuperclass()) {
+            for (Field declared : current.getDeclaredFields()) {
+                if (declared.getName().equals(name) && !Modifier.isStatic(declared.getModifiers())) {
+                    field = declared;
+                }
+            }
+        }
+        if (field == null) {
+            throw new IllegalArgumentException(type.getName() + " has no field " + name);
+        }
+        MethodHandle returnValue = null;
+        try {
+            field.setAccessible(true);
+            returnValue = ClassLayout.LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException | RuntimeException e) {
+            returnValue = ClassLayout.unsafeReader(field, e);
+        }
+        return returnValue.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
+    /**
+     * sun.misc.Unsafe でフィールドを読み出すハンドルを返す.
+     *
+     * @param field
+     *            フィールド.
+     * @param cause
+     *            通常の手段で読み出せなかった原因.
+     * @return フィールドを読み出すハンドル ((Object) プリミティブ型又は Object).
+     * @throws IllegalArgumentException
+     *             実行環境が対応していない場合.
+     */
+    private static MethodHandle unsafeReader(Field field, Exception cause) {
+        if (ClassLayout.UNSAFE == null) {
+            throw new IllegalArgumentException("cannot read " + field, cause);
+        }
+        Class<?> type = field.getType();
+        String getter = type.isPrimitive()
+                ? "get" + Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1)
+                : "getObject";
+        try {
+            Class<?> unsafe = ClassLayout.UNSAFE.getClass();
+            long offset = (long) unsafe.getMethod("objectFieldOffset", Field.class).invoke(ClassLayout.UNSAFE, field);
+            return MethodHandles.insertArguments(ClassLayout.LOOKUP
+                    .unreflect(unsafe.getMethod(getter, Object.class, long.class)).bindTo(ClassLayout.UNSAFE), 1,
+                    offset);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            IllegalArgumentException returnValue = new IllegalArgumentException("cannot read " + field, e);
+            returnValue.addSuppressed(cause);
+            throw returnValue;
+        }
+    }
+
+    /**
+     * sun.misc.Unsafe のインスタンスを探す.
+     *
+     * @return sun.misc.Unsafe のインスタンス. 実行環境が対応していない場合は NULL.
+     */
+    private static Object unsafe() {
+        Object returnValue = null;
+        try {
+            Field instance = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            instance.setAccessible(true);
+            returnValue = instance.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 実行環境が対応していない.
+        }
+        return returnValue;
+    }
+
+    /**
+     * コンストラクタを呼び出さずにインスタンスを生成するハンドルを探す.
+     *
+     * @return インスタンスを生成するハンドル ((Class)Object). 実行環境が対応していない場合は NULL.
+     */
+    private static MethodHandle allocator() {
+        MethodHandle returnValue = null;
+        try {
+            if (ClassLayout.UNSAFE != null) {
+                returnValue = ClassLayout.LOOKUP
+                        .unreflect(ClassLayout.UNSAFE.getClass().getMethod("allocateInstance", Class.class))
+                        .bindTo(ClassLayout.UNSAFE).asType(MethodType.methodType(Object.class, Class.class));
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // コンストラクタの呼び出しで代替する.
+        }
+        return returnValue;
+    }
+}
@@ -0,0 +1,2667 @@
+/*
+sp.lang.DeepCopier
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicStampedReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import sp.base.Immutable;
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * オブジェクトグラフを深くコピーする機構.
+ * </p>
+ * <p>
+ * コピー方法はクラス毎に 1 度だけ決定され, {@link ClassValue} でキャッシュされる. コピー中は複製元と複製の対応を同一性で管理するため,
+ * 循環参照及び共有参照はそのままの形で複製される.
+ * </p>
+ * <ul>
+ * <li>不変なクラス ({@link Immutable} が付与されたクラス, {@link String}, ボクシングされたプリミティブ, 列挙型, {@link Class},
+ * {@link BigDecimal}, {@link BigInteger}, {@link UUID}, {@link URI}, {@link Locale}, {@link Pattern},
+ * {@link OptionalInt} 及び java.time の値クラス等) はコピーされず, 参照が共有される.
+ * {@link Immutable} が付与されたクラスが final でないフィールドを持つ場合は, コピー時に {@link IllegalArgumentException}
+ * が発生する.</li>
+ * <li>配列は要素を深くコピーした同じ型の配列となる. 要素の型が final かつ不変な場合は要素を共有する.</li>
+ * <li>{@link Optional} は値を深くコピーして包み直す. 値が共有される場合は {@link Optional} も共有する.</li>
+ * <li>標準ライブラリの {@link Collection} 及び {@link Map} は, 同じクラスのインスタンスに要素を深くコピーして追加する. ソート済みの
+ * コレクション及び {@link PriorityQueue} はコンパレータを, {@link EnumMap} はキーの型を, {@link LinkedHashMap} は順序の種類
+ * (アクセス順序か) を, 容量制限のある {@link BlockingQueue} は容量を引き継ぐ. {@link EnumSet} は {@link EnumSet#copyOf(EnumSet)}
+ * でコピーする. {@link Arrays#asList(Object...)} の複製は固定長のリストとなり, {@link ConcurrentHashMap#newKeySet()} の複製は
+ * {@link ConcurrentHashMap.KeySetView} となる. 変更不可能なコレクション ({@link Collections#unmodifiableList(List)} 等),
+ * 同期化されたコレクション ({@link Collections#synchronizedList(List)} 等) 及び型検査されたコレクション
+ * ({@link Collections#checkedList(List, Class)} 等) は, 要素の型を引き継いだ同じ種類のラッパーとなる. ラッパーの内側は
+ * {@link ArrayList}, {@link LinkedHashSet}, {@link TreeSet}, {@link LinkedHashMap} 等の標準的なクラスとなる. 同じクラスの
+ * インスタンスを生成できない場合 (他のコレクションのビュー等) は, コピー時に {@link IllegalArgumentException} が発生する.</li>
+ * <li>標準ライブラリの具象クラスのコレクション及びマップを継承したクラスは, 宣言されたコンストラクタ (ソート済みの場合はコンパレータを引数に取るもの)
+ * で生成した空のインスタンスに要素を深くコピーして追加し, サブクラスで宣言されたフィールドを深くコピーする.</li>
+ * <li>{@link AtomicReference}, {@link AtomicReferenceArray}, {@link LongAdder} 等の java.util.concurrent.atomic のクラスは,
+ * 同じクラスのインスタンスに値を深くコピーして設定する.</li>
+ * <li>それ以外の標準ライブラリのクラスは, 公開された clone() を持つ場合はそれを用いる. clone() を持たない場合は, 公開されたコピーコンストラクタ
+ * (自身の型又は {@link CharSequence} を引数に取るもの) 又は get() の値を引数に取るコンストラクタ ({@link AtomicInteger} 等) を用いる.</li>
+ * <li>その他のクラスは, コンストラクタを呼び出さずにインスタンスを生成し, 全てのフィールドを深くコピーする. 宣言された型が final
+ * かつ不変なフィールドは参照を共有する.
+ * {@link DeepCopyable#deepclone()} は呼び出されない.</li>
+ * </ul>
+ * <p>
+ * コピーは再帰的に行われるため, 非常に深いグラフ (長い連結リスト等) では {@link StackOverflowError} が発生する場合がある.
+ * </p>
+ *
+ * <pre>
+ * public Sample deepclone() {
+ *     return DeepCopier.copy(this);
+ * }
+ * </pre>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class DeepCopier {
+
+    /**
+     * 再利用する同一性マップの最大サイズ. これを超えて拡張されたマップは破棄する.
+     */
+    private static final int REUSABLE_MAP_SIZE = 1 << 12;
+
+    /**
+     * 不変であることが分かっている標準ライブラリのクラス.
+     */
+    private static final Set<Class<?>> IMMUTABLES = new HashSet<>(Arrays.asList(String.class, Integer.class,
+            Long.class, Double.class, Float.class, Short.class, Byte.class, Character.class, Boolean.class,
+            Class.class, BigDecimal.class, BigInteger.class, UUID.class, URI.class, URL.class, File.class,
+            Locale.class, Currency.class, Pattern.class, OptionalInt.class, OptionalLong.class, OptionalDouble.class,
+            DateTimeFormatter.class));
+
+    /**
+     * 値を深くコピーする java.util.concurrent.atomic のクラス.
+     */
+    private static final Set<Class<?>> ATOMICS = new HashSet<>(Arrays.asList(AtomicReference.class,
+            AtomicReferenceArray.class, AtomicIntegerArray.class, AtomicLongArray.class, AtomicMarkableReference.class,
+            AtomicStampedReference.class, LongAdder.class, DoubleAdder.class));
+
+    /**
+     * {@link PriorityQueue} 等が引数なしのコンストラクタで用いる初期容量.
+     */
+    private static final int INITIAL_CAPACITY = 11;
+
+    /**
+     * 並列にコピーするオブジェクト数の下限.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * アクセス手段の生成に用いるルックアップ.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * {@link EnumSet#copyOf(EnumSet)} のハンドル ((Object)Object).
+     */
+    private static final MethodHandle ENUM_SET_COPY = DeepCopier.enumSetCopy();
+
+    /**
+     * クラス毎のコピー方法.
+     */
+    private static final ClassValue<DeepCopier.Strategy> STRATEGIES = new ClassValue<DeepCopier.Strategy>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected DeepCopier.Strategy computeValue(Class<?> type) {
+            return DeepCopier.strategy(type);
+        }
+    };
+
+    /**
+     * スレッド毎に再利用するコピー中の状態.
+     */
+    private static final ThreadLocal<DeepCopier.Context> CONTEXTS = new ThreadLocal<>();
+
+    /**
+     * Constractor.
+     */
+    private DeepCopier() {
+        super();
+    }
+
+    /**
+     * 1 クラスのコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    abstract static class Strategy {
+
+        /**
+         * 参照を共有するか判定する.
+         *
+         * @return 参照を共有する場合 TRUE.
+         */
+        boolean shares() {
+            return false;
+        }
+
+        /**
+         * 複製元を深くコピーする. 複製は子要素をコピーする前に {@link DeepCopier.Context#register(Object, Object)} で登録し,
+         * 登録された複製が自身の生成したものでない場合 (並列コピーで他のスレッドが先に登録した場合) は子要素をコピーせずにそれを返すこと.
+         *
+         * @param source
+         *            複製元.
+         * @param context
+         *            コピー中の状態.
+         * @return 複製.
+         */
+        abstract Object copy(Object source, DeepCopier.Context context);
+
+        /**
+         * 複製元を既存のオブジェクトに深くコピーする. 再利用できない場合は {@link #copy(Object, DeepCopier.Context)} と同じく新しい複製を生成する.
+         *
+         * @param source
+         *            複製元.
+         * @param target
+         *            再利用する, 複製元と同じクラスのオブジェクト.
+         * @param context
+         *            コピー中の状態.
+         * @return 複製. 再利用した場合は target.
+         */
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            return this.copy(source, context);
+        }
+
+        /**
+         * コピーの対象となる子要素を列挙する.
+         *
+         * @param source
+         *            複製元.
+         * @param action
+         *            子要素毎の処理.
+         */
+        void children(Object source, Consumer<Object> action) {
+            // 子要素を持たない.
+        }
+    }
+
+    /**
+     * <p>
+     * 1 回のコピー中の状態.
+     * </p>
+     * <p>
+     * 複製元から複製への同一性マップを保持する.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Context {
+
+        /**
+         * 複製元から複製への同一性マップ. 並列コピーでは使用しない (NULL).
+         */
+        final Map<Object, Object> copies;
+
+        /**
+         * 再利用した複製先の同一性マップ. 使用するまで NULL.
+         */
+        private Map<Object, Object> reused;
+
+        /**
+         * 使用中の場合 TRUE.
+         */
+        boolean active;
+
+        /**
+         * Constractor.
+         */
+        Context() {
+            this(new IdentityHashMap<>());
+        }
+
+        /**
+         * Constractor.
+         *
+         * @param copies
+         *            複製元から複製への同一性マップ.
+         */
+        Context(Map<Object, Object> copies) {
+            super();
+            this.copies = copies;
+        }
+
+        /**
+         * 指定されたオブジェクトを深くコピーする.
+         *
+         * @param source
+         *            複製元.
+         * @return 複製. 既にコピーされている場合はその複製.
+         */
+        Object copy(Object source) {
+            Object returnValue = source;
+            if (source != null) {
+                DeepCopier.Strategy strategy = DeepCopier.STRATEGIES.get(source.getClass());
+                if (!strategy.shares()) {
+                    returnValue = this.lookup(source);
+                    if (returnValue == null) {
+                        returnValue = strategy.copy(source, this);
+                    }
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 指定されたオブジェクトを既存のオブジェクトに深くコピーする. 既存のオブジェクトを再利用できない場合は新しい複製を生成する.
+         *
+         * @param source
+         *            複製元.
+         * @param target
+         *            再利用するオブジェクト. NULL でもよい.
+         * @return 複製. 既にコピーされている場合はその複製.
+         */
+        Object copyInto(Object source, Object target) {
+            Object returnValue = source;
+            if (source != null) {
+                DeepCopier.Strategy strategy = DeepCopier.STRATEGIES.get(source.getClass());
+                if (!strategy.shares()) {
+                    returnValue = this.lookup(source);
+                    if (returnValue == null) {
+                        returnValue = target != source && target != null && target.getClass() == source.getClass()
+                                && this.claim(target) ? strategy.copyInto(source, target, this)
+                                        : strategy.copy(source, this);
+                    }
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 指定されたオブジェクトを複製先として再利用することを宣言する. 1 回のコピーで同じオブジェクトを 2 回再利用しないために用いる.
+         *
+         * @param target
+         *            再利用するオブジェクト.
+         * @return 再利用できる場合 TRUE.
+         */
+        boolean claim(Object target) {
+            if (this.reused == null) {
+                this.reused = new IdentityHashMap<>();
+            }
+            return this.reused.put(target, target) == null;
+        }
+
+        /**
+         * 次のコピーのために状態を消去する.
+         *
+         * @return 再利用できる大きさの場合 TRUE.
+         */
+        boolean clear() {
+            boolean returnValue = this.copies.size() <= DeepCopier.REUSABLE_MAP_SIZE
+                    && (this.reused == null || this.reused.size() <= DeepCopier.REUSABLE_MAP_SIZE);
+            if (returnValue) {
+                this.copies.clear();
+                if (this.reused != null) {
+                    this.reused.clear();
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 登録された複製を返す.
+         *
+         * @param source
+         *            複製元.
+         * @return 複製. 登録されていない場合は NULL.
+         */
+        Object lookup(Object source) {
+            return this.copies.get(source);
+        }
+
+        /**
+         * 複製元と複製の対応を登録する.
+         *
+         * @param source
+         *            複製元.
+         * @param copy
+         *            複製.
+         * @return 登録された複製. 既に他の複製が登録されていた場合はその複製.
+         */
+        Object register(Object source, Object copy) {
+            this.copies.put(source, copy);
+            return copy;
+        }
+
+        /**
+         * 指定された範囲の全ての要素を深くコピーする.
+         *
+         * @param sources
+         *            複製元.
+         * @param targets
+         *            複製の格納先. 複製元と同じ配列でもよい.
+         * @param from
+         *            範囲の開始位置 (この位置を含む).
+         * @param to
+         *            範囲の終了位置 (この位置を含まない).
+         */
+        void copyAll(Object[] sources, Object[] targets, int from, int to) {
+            for (int index = from; index < to; index++) {
+                targets[index] = this.copy(sources[index]);
+            }
+        }
+
+        /**
+         * 要素をコピーし終えたコンテナに要素を追加する.
+         *
+         * @param copy
+         *            複製したコンテナ.
+         * @param elements
+         *            コピーした要素. マップの場合はキーと値を交互に並べたもの.
+         * @param keyed
+         *            マップの場合 TRUE.
+         * @param action
+         *            要素を追加する処理.
+         */
+        void fill(Object copy, Object[] elements, boolean keyed, Runnable action) {
+            action.run();
+        }
+    }
+
+    /**
+     * <p>
+     * 並列コピー中の状態.
+     * </p>
+     * <p>
+     * 同一性マップは全てのワーカで共有される. 同じオブジェクトを複数のワーカが同時にコピーした場合は, 先に登録された複製が採用される.
+     * </p>
+     * <p>
+     * 登録された複製は他のワーカがフィールドをコピーし終える前に参照される場合がある. そのため, ハッシュ値又は順序で要素を配置するコンテナ
+     * ({@link Set}, {@link Map} 及び {@link Deque} でない {@link Queue}) には並列コピー中に要素を追加せず, 全てのワーカが
+     * 終了した後で {@link #complete()} により, 要素 (マップの場合はキー) から到達可能なコンテナを先に埋める順序で要素を追加する.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class ParallelContext extends DeepCopier.Context {
+
+        /**
+         * 複製元から複製への同一性マップ.
+         */
+        private final ConcurrentMap<DeepCopier.Identity, Object> shared = new ConcurrentHashMap<>();
+
+        /**
+         * 複製したコンテナから, 要素の追加を待つ処理への同一性マップ.
+         */
+        private final ConcurrentMap<DeepCopier.Identity, DeepCopier.Fill> fills = new ConcurrentHashMap<>();
+
+        /**
+         * Constractor.
+         */
+        ParallelContext() {
+            super(null);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Context#lookup(java.lang.Object)
+         */
+        @Override
+        Object lookup(Object source) {
+            return this.shared.get(new DeepCopier.Identity(source));
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Context#register(java.lang.Object, java.lang.Object)
+         */
+        @Override
+        Object register(Object source, Object copy) {
+            Object registered = this.shared.putIfAbsent(new DeepCopier.Identity(source), copy);
+            return registered == null ? copy : registered;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Context#copyAll(java.lang.Object[], java.lang.Object[], int, int)
+         */
+        @Override
+        void copyAll(Object[] sources, Object[] targets, int from, int to) {
+            if (to - from > 1 && ForkJoinTask.inForkJoinPool()) {
+                new DeepCopier.CopyTask(this, sources, targets, from, to).invoke();
+            } else {
+                super.copyAll(sources, targets, from, to);
+            }
+        }
+
+        /**
+         * 逐次に要素をコピーする.
+         *
+         * @param sources
+         *            複製元.
+         * @param targets
+         *            複製の格納先.
+         * @param from
+         *            範囲の開始位置 (この位置を含む).
+         * @param to
+         *            範囲の終了位置 (この位置を含まない).
+         */
+        void copySequential(Object[] sources, Object[] targets, int from, int to) {
+            super.copyAll(sources, targets, from, to);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Context#fill(java.lang.Object, java.lang.Object[], boolean, java.lang.Runnable)
+         */
+        @Override
+        void fill(Object copy, Object[] elements, boolean keyed, Runnable action) {
+            if (DeepCopier.isOrdered(copy)) {
+                this.fills.put(new DeepCopier.Identity(copy), new DeepCopier.Fill(copy, elements, keyed, action));
+            } else {
+                action.run();
+            }
+        }
+
+        /**
+         * 並列コピーの終了後に, 要素の追加を待つ全てのコンテナに要素を追加する.
+         */
+        void complete() {
+            if (!this.fills.isEmpty()) {
+                Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (DeepCopier.Fill fill : this.fills.values()) {
+                    this.complete(fill.copy, visited);
+                }
+            }
+        }
+
+        /**
+         * 指定された複製から到達可能なコンテナに, 深さ優先の帰りがけ順で要素を追加する. 循環参照の先にあるコンテナは,
+         * {@link DeepCopier#copy(Object)} と同じく要素を追加する前の状態で参照される.
+         *
+         * @param target
+         *            複製.
+         * @param visited
+         *            訪問済みの複製.
+         */
+        private void complete(Object target, Set<Object> visited) {
+            if (target != null && !DeepCopier.strategyOf(target.getClass()).shares() && visited.add(target)) {
+                DeepCopier.Fill fill = this.fills.get(new DeepCopier.Identity(target));
+                if (fill == null) {
+                    DeepCopier.strategyOf(target.getClass()).children(target, child -> this.complete(child, visited));
+                } else {
+                    for (int index = 0; index < fill.elements.length; index += fill.keyed ? 2 : 1) {
+                        this.complete(fill.elements[index], visited);
+                    }
+                    fill.action.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * 要素の追加を待つコンテナ.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Fill {
+
+        /**
+         * 複製したコンテナ.
+         */
+        final Object copy;
+
+        /**
+         * コピーした要素. マップの場合はキーと値を交互に並べたもの.
+         */
+        final Object[] elements;
+
+        /**
+         * マップの場合 TRUE.
+         */
+        final boolean keyed;
+
+        /**
+         * 要素を追加する処理.
+         */
+        final Runnable action;
+
+        /**
+         * Constractor.
+         *
+         * @param copy
+         *            複製したコンテナ.
+         * @param elements
+         *            コピーした要素.
+         * @param keyed
+         *            マップの場合 TRUE.
+         * @param action
+         *            要素を追加する処理.
+         */
+        Fill(Object copy, Object[] elements, boolean keyed, Runnable action) {
+            super();
+            this.copy = copy;
+            this.elements = elements;
+            this.keyed = keyed;
+            this.action = action;
+        }
+    }
+
+    /**
+     * 同一性で比較するマップのキー.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Identity {
+
+        /**
+         * 対象のオブジェクト.
+         */
+        private final Object target;
+
+        /**
+         * Constractor.
+         *
+         * @param target
+         *            対象のオブジェクト.
+         */
+        Identity(Object target) {
+            super();
+            this.target = target;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.target);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof DeepCopier.Identity && ((DeepCopier.Identity) obj).target == this.target;
+        }
+    }
+
+    /**
+     * <p>
+     * 要素の範囲を分割して並列にコピーするタスク.
+     * </p>
+     * <p>
+     * 待機中のタスクが少ない間だけ分割するため, 大きな配列も幅の狭い木も同じ方法で作業を盗み合える.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class CopyTask extends RecursiveAction {
+
+        /**
+         * シリアルバージョン UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 分割を続ける待機中タスク数の上限.
+         */
+        private static final int SURPLUS = 3;
+
+        /**
+         * 並列コピー中の状態.
+         */
+        private final transient DeepCopier.ParallelContext context;
+
+        /**
+         * 複製元.
+         */
+        private final transient Object[] sources;
+
+        /**
+         * 複製の格納先.
+         */
+        private final transient Object[] targets;
+
+        /**
+         * 範囲の開始位置 (この位置を含む).
+         */
+        private final int from;
+
+        /**
+         * 範囲の終了位置 (この位置を含まない).
+         */
+        private final int to;
+
+        /**
+         * Constractor.
+         *
+         * @param context
+         *            並列コピー中の状態.
+         * @param sources
+         *            複製元.
+         * @param targets
+         *            複製の格納先.
+         * @param from
+         *            範囲の開始位置 (この位置を含む).
+         * @param to
+         *            範囲の終了位置 (この位置を含まない).
+         */
+        CopyTask(DeepCopier.ParallelContext context, Object[] sources, Object[] targets, int from, int to) {
+            super();
+            this.context = context;
+            this.sources = sources;
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (this.to - this.from > 1 && ForkJoinTask.getSurplusQueuedTaskCount() <= DeepCopier.CopyTask.SURPLUS) {
+                int middle = (this.from + this.to) >>> 1;
+                ForkJoinTask.invokeAll(
+                        new DeepCopier.CopyTask(this.context, this.sources, this.targets, this.from, middle),
+                        new DeepCopier.CopyTask(this.context, this.sources, this.targets, middle, this.to));
+            } else {
+                this.context.copySequential(this.sources, this.targets, this.from, this.to);
+            }
+        }
+    }
+
+    /**
+     * 指定されたオブジェクトを深くコピーする.
+     *
+     * @param <T>
+     *            コピーするクラス.
+     * @param source
+     *            複製元.
+     * @return 複製. 複製元が NULL の場合は NULL.
+     * @throws IllegalArgumentException
+     *             コピーできないクラスのオブジェクトを含む場合.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T copy(T source) {
+        return (T) DeepCopier.run(context -> context.copy(source));
+    }
+
+    /**
+     * <p>
+     * 指定されたオブジェクトを既存のオブジェクトに深くコピーする.
+     * </p>
+     * <p>
+     * 複製先のフィールドが指す配列, コレクション, マップ及びその他のオブジェクトは, 複製元の対応する値と同じクラス (配列の場合は同じ長さ)
+     * であれば新しく生成せずに再利用する. 再利用できない値は {@link #copy(Object)} と同じく新しく生成する. 1 つのオブジェクトは 1
+     * 回のコピーで 1 度だけ再利用されるため, 複製先の共有参照は複製元の形に合わせて解消される.
+     * </p>
+     * <p>
+     * final なフィールドには書き込まないため, final なフィールドの値 (プリミティブ型は値, 参照型は同一性) が複製元と異なるオブジェクトは再利用せずに新しく生成する.
+     * 標準ライブラリの変更不可能なコレクション及びマップ
+     * ({@link Collections#unmodifiableList(List)} 等) も再利用しないが, それ以外の変更できないコレクション又はマップ ({@link Arrays#asList(Object...)}
+     * 等) を複製先が持つ場合, その要素の数が変わると {@link UnsupportedOperationException} となる.
+     * </p>
+     * <p>
+     * 複製先のオブジェクトグラフは, 変更可能なオブジェクトを複製元のオブジェクトグラフと共有していてはならない.
+     * </p>
+     *
+     * @param <T>
+     *            コピーするクラス.
+     * @param source
+     *            複製元.
+     * @param target
+     *            複製先.
+     * @return 複製先.
+     * @throws NullPointerException
+     *             指定された複製元又は複製先が NULL の場合.
+     * @throws IllegalArgumentException
+     *             複製元と複製先が同一の場合, 同じクラスでない場合, 又は複製先を再利用できない場合 (不変なクラス, final なフィールドの値が異なるオブジェクト,
+     *             長さの異なる配列等).
+     * @throws UnsupportedOperationException
+     *             複製先が持つ変更できないコレクション又はマップを変更しようとした場合.
+     */
+    @NonNullReturnValue
+    public static <T> T copyInto(T source, T target) {
+        if (DeepCopier.copyOrReuse(source, target) != target) {
+            throw new IllegalArgumentException("cannot copy into " + source.getClass().getName());
+        }
+        return target;
+    }
+
+    /**
+     * 指定されたオブジェクトを, 再利用できる場合は既存のオブジェクトに, できない場合は新しいオブジェクトに深くコピーする.
+     *
+     * @param <T>
+     *            コピーするクラス.
+     * @param source
+     *            複製元.
+     * @param target
+     *            複製先.
+     * @return 複製先, 又は複製先を再利用できない場合は新しい複製.
+     * @throws NullPointerException
+     *             指定された複製元又は複製先が NULL の場合.
+     * @throws IllegalArgumentException
+     *             複製元と複製先が同一の場合, 又は同じクラスでない場合.
+     * @throws UnsupportedOperationException
+     *             複製先が持つ変更できないコレクション又はマップを変更しようとした場合.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copyOrReuse(T source, T target) {
+        Objects.requireNonNull(source);
+        Objects.requireNonNull(target);
+        if (source == target || source.getClass() != target.getClass()) {
+            throw new IllegalArgumentException("target must be another instance of " + source.getClass().getName());
+        }
+        return (T) DeepCopier.run(context -> context.copyInto(source, target));
+    }
+
+    /**
+     * スレッド毎に再利用するコピー中の状態を用いて処理を実行する.
+     *
+     * @param action
+     *            処理.
+     * @return 処理の結果.
+     */
+    private static Object run(Function<DeepCopier.Context, Object> action) {
+        DeepCopier.Context context = DeepCopier.CONTEXTS.get();
+        boolean reuse = context != null && !context.active;
+        if (!reuse) {
+            context = new DeepCopier.Context();
+        }
+        context.active = true;
+        try {
+            return action.apply(context);
+        } finally {
+            context.active = false;
+            if (context.clear()) {
+                DeepCopier.CONTEXTS.set(context);
+            } else {
+                DeepCopier.CONTEXTS.remove();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * 指定されたオブジェクトを並列に深くコピーする.
+     * </p>
+     * <p>
+     * 独立した部分グラフ (大きな配列やコレクションの要素, 木の枝) を共通の {@link ForkJoinPool} で並列にコピーする. 同一性マップは全てのワーカで共有されるため,
+     * 循環参照及び共有参照は {@link #copy(Object)} と同じ形で複製される. 到達可能なオブジェクトが少ない場合, 又は並列度が 1 の場合は
+     * {@link #copy(Object)} と同じく逐次にコピーする.
+     * </p>
+     * <p>
+     * ハッシュ値又は順序で要素を配置するコンテナ ({@link HashSet}, {@link java.util.HashMap}, {@link TreeSet} 等) には,
+     * 全ての要素のコピーが完了した後で要素を追加する.
+     * </p>
+     * <p>
+     * コピー中に複製元のオブジェクトグラフを変更してはならない.
+     * </p>
+     *
+     * @param <T>
+     *            コピーするクラス.
+     * @param source
+     *            複製元.
+     * @return 複製. 複製元が NULL の場合は NULL.
+     * @throws IllegalArgumentException
+     *             コピーできないクラスのオブジェクトを含む場合.
+     */
+    public static <T> T copyParallel(T source) {
+        return DeepCopier.copyParallel(source, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 指定されたプールで, 指定されたオブジェクトを並列に深くコピーする.
+     *
+     * @param <T>
+     *            コピーするクラス.
+     * @param source
+     *            複製元.
+     * @param pool
+     *            コピーに用いるプール.
+     * @return 複製. 複製元が NULL の場合は NULL.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copyParallel(T source, ForkJoinPool pool) {
+        T returnValue = null;
+        if (pool.getParallelism() > 1
+                && DeepCopier.count(source, DeepCopier.PARALLEL_THRESHOLD) >= DeepCopier.PARALLEL_THRESHOLD) {
+            Object[] root = { source };
+            DeepCopier.ParallelContext context = new DeepCopier.ParallelContext();
+            pool.invoke(new DeepCopier.CopyTask(context, root, root, 0, 1));
+            context.complete();
+            returnValue = (T) root[0];
+        } else {
+            returnValue = DeepCopier.copy(source);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定されたオブジェクトから到達可能な, コピーの対象となるオブジェクトを数える.
+     *
+     * @param source
+     *            起点のオブジェクト.
+     * @param limit
+     *            数える上限.
+     * @return オブジェクト数. 上限に達した場合は上限.
+     */
+    static int count(Object source, int limit) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> queue = new ArrayDeque<>();
+        Consumer<Object> enqueue = target -> {
+            if (target != null && !DeepCopier.strategyOf(target.getClass()).shares() && visited.add(target)) {
+                queue.add(target);
+            }
+        };
+        enqueue.accept(source);
+        while (!queue.isEmpty() && visited.size() < limit) {
+            Object target = queue.poll();
+            DeepCopier.strategyOf(target.getClass()).children(target, enqueue);
+        }
+        return Math.min(visited.size(), limit);
+    }
+
+    /**
+     * 指定されたクラスのコピー方法を返す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return コピー方法.
+     */
+    static DeepCopier.Strategy strategyOf(Class<?> type) {
+        return DeepCopier.STRATEGIES.get(type);
+    }
+
+    /**
+     * 指定されたクラスのコピー方法を決定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return コピー方法.
+     */
+    private static DeepCopier.Strategy strategy(Class<?> type) {
+        DeepCopier.Strategy returnValue = null;
+        if (DeepCopier.isImmutable(type)) {
+            RuntimeException failure = DeepCopier.validate(type);
+            returnValue = failure == null ? new DeepCopier.Share() : new DeepCopier.Reject(failure);
+        } else if (type.isArray()) {
+            returnValue = type.getComponentType().isPrimitive() || DeepCopier.isShared(type.getComponentType())
+                    ? new DeepCopier.ShallowArray() : new DeepCopier.ObjectArray();
+        } else if (type == Optional.class) {
+            returnValue = new DeepCopier.OptionalCopy();
+        } else if (EnumSet.class.isAssignableFrom(type)) {
+            returnValue = new DeepCopier.PublicCopy(DeepCopier.ENUM_SET_COPY);
+        } else if (DeepCopier.ATOMICS.contains(type)) {
+            returnValue = new DeepCopier.AtomicCopy();
+        } else if (DeepCopier.inheritsLibrary(type) && Collection.class.isAssignableFrom(type)) {
+            returnValue = new DeepCopier.CollectionCopy(type);
+        } else if (DeepCopier.inheritsLibrary(type) && Map.class.isAssignableFrom(type)) {
+            returnValue = new DeepCopier.MapCopy(type);
+        } else if (DeepCopier.isLibrary(type) && DeepCopier.publicClone(type) != null) {
+            returnValue = new DeepCopier.PublicCopy(DeepCopier.publicClone(type));
+        } else if (DeepCopier.isLibrary(type) && DeepCopier.copyConstructor(type) != null) {
+            returnValue = new DeepCopier.PublicCopy(DeepCopier.copyConstructor(type));
+        } else {
+            returnValue = new DeepCopier.Fields(type);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 不変なクラスか判定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return {@link Immutable} が付与されたクラス, 列挙型又は不変であることが分かっている標準ライブラリのクラスの場合 TRUE.
+     */
+    static boolean isImmutable(Class<?> type) {
+        return DeepCopier.IMMUTABLES.contains(type) || type.isEnum()
+                || (type.getSuperclass() != null && type.getSuperclass().isEnum())
+                || type.isAnnotationPresent(Immutable.class) || DeepCopier.isTimeValue(type);
+    }
+
+    /**
+     * 宣言された型の値を常に共有できるか判定する.
+     *
+     * @param type
+     *            宣言された型.
+     * @return final かつ不変なクラス, 又は列挙型の場合 TRUE.
+     */
+    static boolean isShared(Class<?> type) {
+        return (Modifier.isFinal(type.getModifiers()) || type.isEnum()) && !type.isArray()
+                && DeepCopier.isImmutable(type) && DeepCopier.validate(type) == null;
+    }
+
+    /**
+     * java.time の値クラスか判定する. ビルダ等を含むサブパッケージは対象外とする.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return java.time 又は java.time.chrono パッケージのクラスの場合 TRUE.
+     */
+    private static boolean isTimeValue(Class<?> type) {
+        Package pkg = type.getPackage();
+        return pkg != null && (pkg.getName().equals("java.time") || pkg.getName().equals("java.time.chrono"));
+    }
+
+    /**
+     * {@link Immutable} が付与されたクラスの全てのフィールドが final であるか検証する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return final でないフィールドを持つ場合はその例外. それ以外は NULL.
+     */
+    private static RuntimeException validate(Class<?> type) {
+        RuntimeException returnValue = null;
+        if (type.isAnnotationPresent(Immutable.class)) {
+            for (Class<?> current = type; returnValue == null && current != null; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (returnValue == null && !Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                        returnValue = new IllegalArgumentException(
+                                type.getName() + " is annotated @Immutable but " + field + " is not final.");
+                    }
+                }
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 標準ライブラリのクラスか判定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return 標準ライブラリのクラスの場合 TRUE.
+     */
+    static boolean isLibrary(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.")
+                || name.startsWith("jdk.");
+    }
+
+    /**
+     * 標準ライブラリのクラス, 又は標準ライブラリの具象クラスを継承したクラスか判定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return 最も近い標準ライブラリのスーパークラスが自身, 又は抽象クラスでも {@link Object} でもない場合 TRUE.
+     */
+    private static boolean inheritsLibrary(Class<?> type) {
+        Class<?> library = type;
+        while (!DeepCopier.isLibrary(library)) {
+            library = library.getSuperclass();
+        }
+        return library == type || (library != Object.class && !Modifier.isAbstract(library.getModifiers()));
+    }
+
+    /**
+     * 公開された clone() を返す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return clone() のハンドル ((Object)Object). 存在しない場合は NULL.
+     */
+    private static MethodHandle publicClone(Class<?> type) {
+        MethodHandle returnValue = null;
+        if (Cloneable.class.isAssignableFrom(type) && Modifier.isPublic(type.getModifiers())) {
+            try {
+                Method method = type.getMethod("clone");
+                returnValue = DeepCopier.LOOKUP.unreflect(method)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // 公開されていない.
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 公開されたコピーコンストラクタを返す. 自身の型を引数に取るもの, {@link CharSequence} を引数に取るもの ({@link StringBuilder} 等),
+     * 又はプリミティブ型を返す get() の値を引数に取るもの ({@link AtomicInteger} 等) の順に探す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return コピーコンストラクタのハンドル ((Object)Object). 存在しない場合は NULL.
+     */
+    private static MethodHandle copyConstructor(Class<?> type) {
+        MethodHandle returnValue = null;
+        if (Modifier.isPublic(type.getModifiers()) && !Modifier.isAbstract(type.getModifiers())) {
+            for (Class<?> parameter : new Class<?>[] { type, CharSequence.class }) {
+                try {
+                    if (returnValue == null && parameter.isAssignableFrom(type)) {
+                        returnValue = DeepCopier.LOOKUP.unreflectConstructor(type.getConstructor(parameter))
+                                .asType(MethodType.methodType(Object.class, Object.class));
+                    }
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    // 次の候補を探す.
+                }
+            }
+            try {
+                Method get = type.getMethod("get");
+                if (returnValue == null && get.getParameterCount() == 0 && get.getReturnType().isPrimitive()
+                        && get.getReturnType() != void.class) {
+                    returnValue = MethodHandles.filterArguments(
+                            DeepCopier.LOOKUP.unreflectConstructor(type.getConstructor(get.getReturnType())), 0,
+                            DeepCopier.LOOKUP.unreflect(get))
+                            .asType(MethodType.methodType(Object.class, Object.class));
+                }
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                // 公開されていない.
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * ハンドルを呼び出し, チェック例外をラッピングする.
+     *
+     * @param handle
+     *            ハンドル ((Object)Object).
+     * @param argument
+     *            引数.
+     * @return 結果.
+     */
+    static Object invoke(MethodHandle handle, Object argument) {
+        try {
+            return (Object) handle.invokeExact(argument);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 2 つの引数でハンドルを呼び出し, チェック例外をラッピングする.
+     *
+     * @param handle
+     *            ハンドル ((Object, Object)Object).
+     * @param first
+     *            第 1 引数.
+     * @param second
+     *            第 2 引数.
+     * @return 結果.
+     */
+    static Object invoke(MethodHandle handle, Object first, Object second) {
+        try {
+            return (Object) handle.invokeExact(first, second);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 参照を共有するコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Share extends DeepCopier.Strategy {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#shares()
+         */
+        @Override
+        boolean shares() {
+            return true;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            return source;
+        }
+    }
+
+    /**
+     * 不変であるべきクラスが検証に失敗した場合のコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Reject extends DeepCopier.Strategy {
+
+        /**
+         * 検証に失敗した原因.
+         */
+        final RuntimeException failure;
+
+        /**
+         * Constractor.
+         *
+         * @param failure
+         *            検証に失敗した原因.
+         */
+        Reject(RuntimeException failure) {
+            super();
+            this.failure = failure;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            throw this.failure;
+        }
+    }
+
+    /**
+     * プリミティブ型配列及び共有できる要素型の配列のコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class ShallowArray extends DeepCopier.Strategy {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            int length = Array.getLength(source);
+            Object returnValue = Array.newInstance(source.getClass().getComponentType(), length);
+            System.arraycopy(source, 0, returnValue, 0, length);
+            return context.register(source, returnValue);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copyInto(java.lang.Object, java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            Object returnValue = null;
+            int length = Array.getLength(source);
+            if (length == Array.getLength(target)) {
+                System.arraycopy(source, 0, target, 0, length);
+                returnValue = context.register(source, target);
+            } else {
+                returnValue = this.copy(source, context);
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * 参照型配列のコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class ObjectArray extends DeepCopier.Strategy {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            Object[] array = (Object[]) source;
+            Object[] copy = (Object[]) Array.newInstance(source.getClass().getComponentType(), array.length);
+            Object returnValue = context.register(source, copy);
+            if (returnValue == copy) {
+                context.copyAll(array, copy, 0, array.length);
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copyInto(java.lang.Object, java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            Object returnValue = null;
+            Object[] array = (Object[]) source;
+            Object[] reused = (Object[]) target;
+            if (array.length == reused.length) {
+                returnValue = context.register(source, target);
+                for (int index = 0; index < array.length; index++) {
+                    reused[index] = context.copyInto(array[index], reused[index]);
+                }
+            } else {
+                returnValue = this.copy(source, context);
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#children(java.lang.Object, java.util.function.Consumer)
+         */
+        @Override
+        void children(Object source, Consumer<Object> action) {
+            for (Object element : (Object[]) source) {
+                action.accept(element);
+            }
+        }
+    }
+
+    /**
+     * {@link Optional} のコピー方法. 値を深くコピーして包み直す.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class OptionalCopy extends DeepCopier.Strategy {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            Object value = ((Optional<?>) source).orElse(null);
+            Object copy = context.copy(value);
+            // 値が共有される場合は包み直す必要がない.
+            return copy == value ? source : context.register(source, Optional.of(copy));
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#children(java.lang.Object, java.util.function.Consumer)
+         */
+        @Override
+        void children(Object source, Consumer<Object> action) {
+            ((Optional<?>) source).ifPresent(action);
+        }
+    }
+
+    /**
+     * java.util.concurrent.atomic のクラスのコピー方法. 同じクラスの空のインスタンスを生成し, 値を深くコピーして設定する.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class AtomicCopy extends DeepCopier.Strategy {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            Object copy = AtomicCopy.create(source);
+            Object returnValue = context.register(source, copy);
+            if (returnValue == copy) {
+                AtomicCopy.transfer(source, copy, context);
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copyInto(java.lang.Object, java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            Object returnValue = null;
+            if (AtomicCopy.lengthOf(source) != AtomicCopy.lengthOf(target)) {
+                returnValue = this.copy(source, context);
+            } else {
+                returnValue = context.register(source, target);
+                AtomicCopy.transfer(source, target, context);
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#children(java.lang.Object, java.util.function.Consumer)
+         */
+        @Override
+        void children(Object source, Consumer<Object> action) {
+            if (source instanceof AtomicReference) {
+                action.accept(((AtomicReference<?>) source).get());
+            } else if (source instanceof AtomicReferenceArray) {
+                AtomicReferenceArray<?> array = (AtomicReferenceArray<?>) source;
+                for (int index = 0; index < array.length(); index++) {
+                    action.accept(array.get(index));
+                }
+            } else if (source instanceof AtomicMarkableReference) {
+                action.accept(((AtomicMarkableReference<?>) source).getReference());
+            } else if (source instanceof AtomicStampedReference) {
+                action.accept(((AtomicStampedReference<?>) source).getReference());
+            }
+        }
+
+        /**
+         * 複製元と同じクラスの空のインスタンスを生成する.
+         *
+         * @param source
+         *            複製元.
+         * @return 空のインスタンス. 配列の場合は同じ長さのもの.
+         */
+        private static Object create(Object source) {
+            Object returnValue = null;
+            if (source instanceof AtomicReference) {
+                returnValue = new AtomicReference<>();
+            } else if (source instanceof AtomicReferenceArray) {
+                returnValue = new AtomicReferenceArray<>(((AtomicReferenceArray<?>) source).length());
+            } else if (source instanceof AtomicIntegerArray) {
+                returnValue = new AtomicIntegerArray(((AtomicIntegerArray) source).length());
+            } else if (source instanceof AtomicLongArray) {
+                returnValue = new AtomicLongArray(((AtomicLongArray) source).length());
+            } else if (source instanceof AtomicMarkableReference) {
+                returnValue = new AtomicMarkableReference<>(null, false);
+            } else if (source instanceof AtomicStampedReference) {
+                returnValue = new AtomicStampedReference<>(null, 0);
+            } else if (source instanceof LongAdder) {
+                returnValue = new LongAdder();
+            } else {
+                returnValue = new DoubleAdder();
+            }
+            return returnValue;
+        }
+
+        /**
+         * 配列の長さを返す.
+         *
+         * @param atomic
+         *            対象のインスタンス.
+         * @return 配列の場合はその長さ, それ以外は 0.
+         */
+        private static int lengthOf(Object atomic) {
+            return atomic instanceof AtomicReferenceArray ? ((AtomicReferenceArray<?>) atomic).length()
+                    : atomic instanceof AtomicIntegerArray ? ((AtomicIntegerArray) atomic).length()
+                            : atomic instanceof AtomicLongArray ? ((AtomicLongArray) atomic).length() : 0;
+        }
+
+        /**
+         * 複製元の値を深くコピーして複製先に設定する. 複製先の現在の値は再利用する.
+         *
+         * @param source
+         *            複製元.
+         * @param target
+         *            複製先.
+         * @param context
+         *            コピー中の状態.
+         */
+        @SuppressWarnings("unchecked")
+        private static void transfer(Object source, Object target, DeepCopier.Context context) {
+            if (source instanceof AtomicReference) {
+                AtomicReference<Object> reference = (AtomicReference<Object>) target;
+                reference.set(context.copyInto(((AtomicReference<?>) source).get(), reference.get()));
+            } else if (source instanceof AtomicReferenceArray) {
+                AtomicReferenceArray<?> array = (AtomicReferenceArray<?>) source;
+                AtomicReferenceArray<Object> copy = (AtomicReferenceArray<Object>) target;
+                for (int index = 0; index < array.length(); index++) {
+                    copy.set(index, context.copyInto(array.get(index), copy.get(index)));
+                }
+            } else if (source instanceof AtomicIntegerArray) {
+                AtomicIntegerArray array = (AtomicIntegerArray) source;
+                for (int index = 0; index < array.length(); index++) {
+                    ((AtomicIntegerArray) target).set(index, array.get(index));
+                }
+            } else if (source instanceof AtomicLongArray) {
+                AtomicLongArray array = (AtomicLongArray) source;
+                for (int index = 0; index < array.length(); index++) {
+                    ((AtomicLongArray) target).set(index, array.get(index));
+                }
+            } else if (source instanceof AtomicMarkableReference) {
+                boolean[] mark = new boolean[1];
+                Object value = ((AtomicMarkableReference<?>) source).get(mark);
+                AtomicMarkableReference<Object> reference = (AtomicMarkableReference<Object>) target;
+                reference.set(context.copyInto(value, reference.getReference()), mark[0]);
+            } else if (source instanceof AtomicStampedReference) {
+                int[] stamp = new int[1];
+                Object value = ((AtomicStampedReference<?>) source).get(stamp);
+                AtomicStampedReference<Object> reference = (AtomicStampedReference<Object>) target;
+                reference.set(context.copyInto(value, reference.getReference()), stamp[0]);
+            } else if (source instanceof LongAdder) {
+                ((LongAdder) target).reset();
+                ((LongAdder) target).add(((LongAdder) source).sum());
+            } else {
+                ((DoubleAdder) target).reset();
+                ((DoubleAdder) target).add(((DoubleAdder) source).sum());
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * 標準ライブラリの空のコレクション又はマップを生成する手段.
+     * </p>
+     * <p>
+     * 複製元から読み出した生成時の設定 (コンパレータ等) をパラメータとし, それを引き継いだ空のインスタンスを生成する. 変更不可能なコレクション,
+     * 同期化されたコレクション及び型検査されたコレクションの場合は, 内側のコレクションとして標準的なクラスのインスタンスを生成し,
+     * {@link #view(Object, Object)} で同じ種類のラッパーで包む.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Creation {
+
+        /**
+         * 対象のクラス.
+         */
+        private final Class<?> type;
+
+        /**
+         * 空のインスタンスを生成するハンドル ((Object)Object). 引数は生成時の設定.
+         */
+        private final MethodHandle constructor;
+
+        /**
+         * 複製元から生成時の設定を読み出すハンドル ((Object)Object). 設定を持たない場合は NULL.
+         */
+        private final MethodHandle argument;
+
+        /**
+         * 生成時の設定の型. 設定を持たない場合は NULL.
+         */
+        private final Class<?> argumentType;
+
+        /**
+         * 生成時の設定が NULL でもよい場合 TRUE.
+         */
+        private final boolean nullable;
+
+        /**
+         * ラッパーを生成するハンドル ((Object, Object)Object). 引数は内側のインスタンス及びパラメータ. ラッパーでない場合は NULL.
+         */
+        private final MethodHandle wrapper;
+
+        /**
+         * 型検査されたコレクションの要素の型を読み出すハンドル ((Object)Object). 型検査されたコレクションでない場合は空.
+         */
+        private final MethodHandle[] checked;
+
+        /**
+         * 生成できない理由. 生成できる場合は NULL.
+         */
+        private final RuntimeException failure;
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            対象のクラス.
+         * @param backing
+         *            対象のクラスがラッパーの場合に内側に生成するクラス.
+         * @param interfaces
+         *            {@link Collections} のラッパーを生成するメソッドに対応するインタフェース. 優先するものから順に並べる.
+         * @param checked
+         *            型検査されたコレクションの要素の型を保持するフィールド名.
+         */
+        Creation(Class<?> type, Class<?> backing, Class<?>[] interfaces, String... checked) {
+            super();
+            this.type = type;
+            this.wrapper = DeepCopier.wrapper(type, interfaces);
+            Class<?> created = this.wrapper == null ? type : backing;
+            MethodHandle constructor = null;
+            MethodHandle argument = null;
+            Class<?> argumentType = null;
+            boolean nullable = true;
+            MethodHandle[] readers = new MethodHandle[0];
+            RuntimeException failure = null;
+            try {
+                if (type.getName().startsWith("java.util.Collections$Checked")) {
+                    readers = new MethodHandle[checked.length];
+                    for (int index = 0; index < readers.length; index++) {
+                        readers[index] = ClassLayout.reader(type, checked[index]);
+                    }
+                }
+                if (!DeepCopier.isLibrary(type)) {
+                    // 標準ライブラリのクラスを継承したクラスは, 宣言されたコンストラクタが追加した要素を消去して用いる.
+                    Constructor<?> declared = null;
+                    if (DeepCopier.isSorted(type)) {
+                        try {
+                            declared = type.getDeclaredConstructor(Comparator.class);
+                            argumentType = Comparator.class;
+                        } catch (NoSuchMethodException e) {
+                            // 引数なしのコンストラクタで生成し, 自然順序の場合に限り生成できる.
+                        }
+                        argument = DeepCopier.LOOKUP.findStatic(DeepCopier.class, "comparatorOf",
+                                MethodType.methodType(Comparator.class, Object.class));
+                    }
+                    if (declared == null) {
+                        declared = type.getDeclaredConstructor();
+                    }
+                    declared.setAccessible(true);
+                    constructor = DeepCopier.LOOKUP.unreflectConstructor(declared);
+                    constructor = MethodHandles.filterReturnValue(declared.getParameterCount() == 1
+                            ? constructor.asType(MethodType.genericMethodType(1))
+                            : MethodHandles.dropArguments(constructor.asType(MethodType.methodType(Object.class)), 0,
+                                    Object.class),
+                            DeepCopier.helper("cleared"));
+                } else if (type == Arrays.asList().getClass()) {
+                    constructor = DeepCopier.helper("fixedList");
+                    argument = DeepCopier.helper("sizeOf");
+                    argumentType = Integer.class;
+                    nullable = false;
+                } else if (type == ConcurrentHashMap.KeySetView.class) {
+                    constructor = DeepCopier.helper("keySetView");
+                    argument = DeepCopier.LOOKUP
+                            .findVirtual(type, "getMappedValue", MethodType.methodType(Object.class))
+                            .asType(MethodType.genericMethodType(1));
+                    argumentType = Object.class;
+                    nullable = false;
+                } else if (type.getName().equals("java.util.Collections$SetFromMap")) {
+                    constructor = DeepCopier.helper("setFromMap");
+                    argument = MethodHandles.filterReturnValue(ClassLayout.reader(type, "m"),
+                            DeepCopier.helper("emptyMapOf"));
+                    argumentType = Map.class;
+                    nullable = false;
+                } else if (type == LinkedHashMap.class) {
+                    constructor = DeepCopier.helper("linkedHashMap");
+                    argument = ClassLayout.reader(type, "accessOrder");
+                    argumentType = Boolean.class;
+                    nullable = false;
+                } else if (!Modifier.isPublic(created.getModifiers()) || Modifier.isAbstract(created.getModifiers())) {
+                    failure = new IllegalArgumentException("cannot create " + type.getName());
+                } else if (DeepCopier.isSorted(created)) {
+                    try {
+                        constructor = DeepCopier.LOOKUP.unreflectConstructor(created.getConstructor(Comparator.class));
+                    } catch (NoSuchMethodException e) {
+                        // PriorityBlockingQueue 等は初期容量も引数に取る.
+                        constructor = MethodHandles.insertArguments(DeepCopier.LOOKUP
+                                .unreflectConstructor(created.getConstructor(int.class, Comparator.class)), 0,
+                                DeepCopier.INITIAL_CAPACITY);
+                    }
+                    argument = DeepCopier.LOOKUP.findStatic(DeepCopier.class, "comparatorOf",
+                            MethodType.methodType(Comparator.class, Object.class));
+                    argumentType = Comparator.class;
+                } else if (created == EnumMap.class) {
+                    constructor = DeepCopier.LOOKUP.unreflectConstructor(created.getConstructor(Class.class));
+                    argument = ClassLayout.reader(created, "keyType");
+                    argumentType = Class.class;
+                    nullable = false;
+                } else if (BlockingQueue.class.isAssignableFrom(created)
+                        && DeepCopier.hasConstructor(created, int.class)) {
+                    // 容量制限のある ArrayBlockingQueue 等は容量を引数に取る.
+                    constructor = DeepCopier.LOOKUP.unreflectConstructor(created.getConstructor(int.class));
+                    argument = DeepCopier.helper("capacityOf");
+                    argumentType = Integer.class;
+                    nullable = false;
+                } else {
+                    constructor = MethodHandles.dropArguments(DeepCopier.LOOKUP
+                            .unreflectConstructor(created.getConstructor()).asType(MethodType.methodType(Object.class)),
+                            0, Object.class);
+                }
+            } catch (NoSuchMethodException | IllegalAccessException | IllegalArgumentException e) {
+                failure = new IllegalArgumentException("cannot create " + type.getName(), e);
+            }
+            this.constructor = constructor == null ? null : constructor.asType(MethodType.genericMethodType(1));
+            this.argument = argument == null ? null : argument.asType(MethodType.genericMethodType(1));
+            this.argumentType = argumentType;
+            this.nullable = nullable;
+            this.checked = readers;
+            this.failure = failure;
+        }
+
+        /**
+         * 複製元からパラメータを読み出す.
+         *
+         * @param source
+         *            複製元.
+         * @return パラメータ. 型検査されたコレクションの場合は生成時の設定と要素の型を並べた配列, それ以外は生成時の設定.
+         * @throws IllegalArgumentException
+         *             複製元と同じクラスのインスタンスを生成できない場合.
+         */
+        Object parameterOf(Object source) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            Object argument = this.argument == null ? null : DeepCopier.invoke(this.argument, source);
+            Object returnValue = argument;
+            if (this.checked.length > 0) {
+                Object[] parameter = new Object[this.checked.length + 1];
+                parameter[0] = argument;
+                for (int index = 0; index < this.checked.length; index++) {
+                    parameter[index + 1] = DeepCopier.invoke(this.checked[index], source);
+                }
+                returnValue = parameter;
+            }
+            if (!this.accepts(returnValue)) {
+                throw new IllegalArgumentException("cannot create " + this.type.getName() + " with " + argument);
+            }
+            return returnValue;
+        }
+
+        /**
+         * パラメータから空のインスタンスを生成できるか判定する.
+         *
+         * @param parameter
+         *            パラメータ.
+         * @return 生成できる場合 TRUE.
+         */
+        boolean accepts(Object parameter) {
+            boolean returnValue = false;
+            if (this.checked.length == 0) {
+                returnValue = this.acceptsArgument(parameter);
+            } else if (parameter instanceof Object[] && ((Object[]) parameter).length == this.checked.length + 1) {
+                Object[] array = (Object[]) parameter;
+                returnValue = this.acceptsArgument(array[0]);
+                for (int index = 1; index < array.length; index++) {
+                    returnValue &= array[index] instanceof Class;
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 生成時の設定からインスタンスを生成できるか判定する.
+         *
+         * @param argument
+         *            生成時の設定.
+         * @return 生成できる場合 TRUE.
+         */
+        private boolean acceptsArgument(Object argument) {
+            boolean returnValue = false;
+            if (this.failure != null) {
+                returnValue = false;
+            } else if (argument == null) {
+                returnValue = this.nullable;
+            } else {
+                // 長さ及び容量は負でなく, EnumMap のキーの型は列挙型であること.
+                returnValue = this.argumentType != null && this.argumentType.isInstance(argument)
+                        && (this.argumentType != Integer.class || (Integer) argument >= 0)
+                        && (this.argumentType != Class.class || ((Class<?>) argument).isEnum());
+            }
+            return returnValue;
+        }
+
+        /**
+         * 空のインスタンスを生成する.
+         *
+         * @param parameter
+         *            {@link #parameterOf(Object)} で読み出したパラメータ.
+         * @return 空のインスタンス. 対象のクラスがラッパーの場合は内側のインスタンス.
+         * @throws IllegalArgumentException
+         *             パラメータから生成できない場合.
+         */
+        Object create(Object parameter) {
+            if (this.failure != null) {
+                throw this.failure;
+            } else if (!this.accepts(parameter)) {
+                throw new IllegalArgumentException("cannot create " + this.type.getName() + " with " + parameter);
+            }
+            return DeepCopier.invoke(this.constructor,
+                    this.checked.length == 0 ? parameter : ((Object[]) parameter)[0]);
+        }
+
+        /**
+         * 対象のクラスがラッパーの場合, 指定されたインスタンスを同じ種類のラッパーで包む.
+         *
+         * @param parameter
+         *            {@link #create(Object)} に渡したパラメータ.
+         * @param created
+         *            {@link #create(Object)} で生成したインスタンス.
+         * @return ラッパー. 対象のクラスがラッパーでない場合は指定されたインスタンス.
+         */
+        Object view(Object parameter, Object created) {
+            return this.wrapper == null ? created : DeepCopier.invoke(this.wrapper, created, parameter);
+        }
+
+        /**
+         * 複製元の複製として既存のインスタンスを再利用できるか判定する.
+         *
+         * @param source
+         *            複製元.
+         * @param target
+         *            再利用するインスタンス.
+         * @return ラッパーでなく, 生成時の設定が等しい場合 TRUE.
+         */
+        boolean reuses(Object source, Object target) {
+            boolean returnValue = false;
+            if (this.wrapper == null) {
+                Object parameter = this.parameterOf(source);
+                Object reused = this.parameterOf(target);
+                returnValue = Objects.equals(parameter, reused)
+                        && (parameter == null || parameter.getClass() == reused.getClass());
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * 標準ライブラリのコレクションのコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class CollectionCopy extends DeepCopier.Strategy {
+
+        /**
+         * 空のインスタンスを生成する手段.
+         */
+        private final DeepCopier.Creation creation;
+
+        /**
+         * 固定長のリスト ({@link Arrays#asList(Object...)}) の場合 TRUE.
+         */
+        private final boolean fixed;
+
+        /**
+         * サブクラスで宣言されたフィールドのコピー方法. 標準ライブラリのクラスの場合は NULL.
+         */
+        private final DeepCopier.Fields fields;
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            対象のクラス.
+         */
+        CollectionCopy(Class<?> type) {
+            super();
+            Class<?> backing = SortedSet.class.isAssignableFrom(type) ? TreeSet.class
+                    : List.class.isAssignableFrom(type)
+                            ? RandomAccess.class.isAssignableFrom(type) ? ArrayList.class : LinkedList.class
+                            : Set.class.isAssignableFrom(type) ? LinkedHashSet.class
+                                    : Queue.class.isAssignableFrom(type) ? LinkedList.class : ArrayList.class;
+            this.creation = new DeepCopier.Creation(type, backing, new Class<?>[] { NavigableSet.class,
+                    SortedSet.class, Set.class, List.class, Queue.class, Collection.class }, "type");
+            this.fixed = type == Arrays.asList().getClass();
+            this.fields = DeepCopier.isLibrary(type) ? null : new DeepCopier.Fields(type, ClassLayout.ownOf(type));
+        }
+
+        /**
+         * 標準ライブラリのクラスを継承したクラスか判定する.
+         *
+         * @return 標準ライブラリのクラスでない場合 TRUE.
+         */
+        boolean isSubclass() {
+            return this.fields != null;
+        }
+
+        /**
+         * 複製元からパラメータを読み出す.
+         *
+         * @param source
+         *            複製元.
+         * @return パラメータ.
+         * @throws IllegalArgumentException
+         *             複製元と同じクラスのインスタンスを生成できない場合.
+         */
+        Object parameterOf(Object source) {
+            return this.creation.parameterOf(source);
+        }
+
+        /**
+         * パラメータから空のインスタンスを生成できるか判定する.
+         *
+         * @param parameter
+         *            パラメータ.
+         * @return 生成できる場合 TRUE.
+         */
+        boolean accepts(Object parameter) {
+            return this.creation.accepts(parameter);
+        }
+
+        /**
+         * 空のインスタンスを生成する.
+         *
+         * @param parameter
+         *            {@link #parameterOf(Object)} で読み出したパラメータ.
+         * @return 空のインスタンス. 固定長のリストの場合は要素が全て NULL のリスト, ラッパーの場合は内側のコレクション.
+         * @throws IllegalArgumentException
+         *             パラメータから生成できない場合.
+         */
+        @SuppressWarnings("unchecked")
+        Collection<Object> create(Object parameter) {
+            return (Collection<Object>) this.creation.create(parameter);
+        }
+
+        /**
+         * 対象のクラスがラッパーの場合, 指定されたコレクションを同じ種類のラッパーで包む.
+         *
+         * @param parameter
+         *            {@link #create(Object)} に渡したパラメータ.
+         * @param collection
+         *            {@link #create(Object)} で生成したコレクション.
+         * @return ラッパー. 対象のクラスがラッパーでない場合は指定されたコレクション.
+         */
+        Object view(Object parameter, Collection<Object> collection) {
+            return this.creation.view(parameter, collection);
+        }
+
+        /**
+         * {@link #create(Object)} で生成したコレクションに要素を追加する. 固定長のリストの場合は要素を置き換える.
+         *
+         * @param collection
+         *            {@link #create(Object)} で生成したコレクション.
+         * @param elements
+         *            要素.
+         * @throws IllegalArgumentException
+         *             固定長のリストの長さと要素数が異なる場合.
+         */
+        void addAll(Collection<Object> collection, Object[] elements) {
+            if (!this.fixed) {
+                collection.addAll(Arrays.asList(elements));
+            } else if (collection.size() != elements.length) {
+                throw new IllegalArgumentException(
+                        "fixed-size list of " + collection.size() + " cannot hold " + elements.length + " elements.");
+            } else {
+                List<Object> list = (List<Object>) collection;
+                for (int index = 0; index < elements.length; index++) {
+                    list.set(index, elements[index]);
+                }
+            }
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(Object source, DeepCopier.Context context) {
+            Collection<Object> collection = (Collection<Object>) source;
+            Object parameter = this.parameterOf(source);
+            Collection<Object> copy = this.create(parameter);
+            Object view = this.view(parameter, copy);
+            Object returnValue = context.register(source, view);
+            if (returnValue == view) {
+                if (this.fields != null) {
+                    this.fields.copyFields(source, copy, context);
+                }
+                Object[] elements = collection.toArray();
+                context.copyAll(elements, elements, 0, elements.length);
+                context.fill(view, elements, false, () -> this.addAll(copy, elements));
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copyInto(java.lang.Object, java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            Object returnValue = null;
+            if (!this.creation.reuses(source, target)
+                    || (this.fields != null && !this.fields.sameFinals(target, source))) {
+                returnValue = this.copy(source, context);
+            } else {
+                Collection<Object> collection = (Collection<Object>) source;
+                returnValue = context.register(source, target);
+                if (this.fields != null) {
+                    this.fields.copyFieldsInto(source, target, context);
+                }
+                if (source instanceof List && collection.size() == ((List<?>) target).size()) {
+                    // 位置の同じ要素を再利用する. 反復子の set() に対応しないリスト (CopyOnWriteArrayList 等) もあるため,
+                    // 要素をコピーし終えてから入れ替える. 固定長のリストは生成時の設定 (長さ) が等しいため, 常にこの経路となる.
+                    Object[] elements = collection.toArray();
+                    Object[] reused = ((List<?>) target).toArray();
+                    for (int index = 0; index < elements.length; index++) {
+                        elements[index] = context.copyInto(elements[index], reused[index]);
+                    }
+                    if (!this.fixed) {
+                        ((Collection<Object>) target).clear();
+                    }
+                    this.addAll((Collection<Object>) target, elements);
+                } else {
+                    Object[] elements = collection.toArray();
+                    context.copyAll(elements, elements, 0, elements.length);
+                    ((Collection<Object>) target).clear();
+                    ((Collection<Object>) target).addAll(Arrays.asList(elements));
+                }
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#children(java.lang.Object, java.util.function.Consumer)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        void children(Object source, Consumer<Object> action) {
+            ((Collection<Object>) source).forEach(action);
+            if (this.fields != null) {
+                this.fields.children(source, action);
+            }
+        }
+    }
+
+    /**
+     * 標準ライブラリのマップのコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class MapCopy extends DeepCopier.Strategy {
+
+        /**
+         * 空のインスタンスを生成する手段.
+         */
+        private final DeepCopier.Creation creation;
+
+        /**
+         * サブクラスで宣言されたフィールドのコピー方法. 標準ライブラリのクラスの場合は NULL.
+         */
+        private final DeepCopier.Fields fields;
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            対象のクラス.
+         */
+        MapCopy(Class<?> type) {
+            super();
+            this.creation = new DeepCopier.Creation(type,
+                    SortedMap.class.isAssignableFrom(type) ? TreeMap.class : LinkedHashMap.class,
+                    new Class<?>[] { NavigableMap.class, SortedMap.class, Map.class }, "keyType", "valueType");
+            this.fields = DeepCopier.isLibrary(type) ? null : new DeepCopier.Fields(type, ClassLayout.ownOf(type));
+        }
+
+        /**
+         * 標準ライブラリのクラスを継承したクラスか判定する.
+         *
+         * @return 標準ライブラリのクラスでない場合 TRUE.
+         */
+        boolean isSubclass() {
+            return this.fields != null;
+        }
+
+        /**
+         * 複製元からパラメータを読み出す.
+         *
+         * @param source
+         *            複製元.
+         * @return パラメータ.
+         * @throws IllegalArgumentException
+         *             複製元と同じクラスのインスタンスを生成できない場合.
+         */
+        Object parameterOf(Object source) {
+            return this.creation.parameterOf(source);
+        }
+
+        /**
+         * パラメータから空のインスタンスを生成できるか判定する.
+         *
+         * @param parameter
+         *            パラメータ.
+         * @return 生成できる場合 TRUE.
+         */
+        boolean accepts(Object parameter) {
+            return this.creation.accepts(parameter);
+        }
+
+        /**
+         * 空のインスタンスを生成する.
+         *
+         * @param parameter
+         *            {@link #parameterOf(Object)} で読み出したパラメータ.
+         * @return 空のインスタンス. ラッパーの場合は内側のマップ.
+         * @throws IllegalArgumentException
+         *             パラメータから生成できない場合.
+         */
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> create(Object parameter) {
+            return (Map<Object, Object>) this.creation.create(parameter);
+        }
+
+        /**
+         * 対象のクラスがラッパーの場合, 指定されたマップを同じ種類のラッパーで包む.
+         *
+         * @param parameter
+         *            {@link #create(Object)} に渡したパラメータ.
+         * @param map
+         *            {@link #create(Object)} で生成したマップ.
+         * @return ラッパー. 対象のクラスがラッパーでない場合は指定されたマップ.
+         */
+        Object view(Object parameter, Map<Object, Object> map) {
+            return this.creation.view(parameter, map);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copy(Object source, DeepCopier.Context context) {
+            Map<Object, Object> map = (Map<Object, Object>) source;
+            Object parameter = this.parameterOf(source);
+            Map<Object, Object> copy = this.create(parameter);
+            Object view = this.view(parameter, copy);
+            Object returnValue = context.register(source, view);
+            if (returnValue == view) {
+                if (this.fields != null) {
+                    this.fields.copyFields(source, copy, context);
+                }
+                Object[] entries = new Object[map.size() * 2];
+                int index = 0;
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    entries[index++] = entry.getKey();
+                    entries[index++] = entry.getValue();
+                }
+                context.copyAll(entries, entries, 0, index);
+                int length = index;
+                context.fill(view, entries, true, () -> {
+                    for (int position = 0; position < length; position += 2) {
+                        copy.put(entries[position], entries[position + 1]);
+                    }
+                });
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copyInto(java.lang.Object, java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            Object returnValue = null;
+            if (!this.creation.reuses(source, target)
+                    || (this.fields != null && !this.fields.sameFinals(target, source))) {
+                returnValue = this.copy(source, context);
+            } else {
+                Map<Object, Object> map = (Map<Object, Object>) source;
+                Map<Object, Object> reused = (Map<Object, Object>) target;
+                returnValue = context.register(source, target);
+                if (this.fields != null) {
+                    this.fields.copyFieldsInto(source, target, context);
+                }
+                Object[] entries = new Object[map.size() * 2];
+                int index = 0;
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    Object key = context.copy(entry.getKey());
+                    entries[index++] = key;
+                    entries[index++] = context.copyInto(entry.getValue(), reused.get(key));
+                }
+                reused.clear();
+                for (int position = 0; position < index; position += 2) {
+                    reused.put(entries[position], entries[position + 1]);
+                }
+            }
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#children(java.lang.Object, java.util.function.Consumer)
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        void children(Object source, Consumer<Object> action) {
+            ((Map<Object, Object>) source).forEach((key, value) -> {
+                action.accept(key);
+                action.accept(value);
+            });
+            if (this.fields != null) {
+                this.fields.children(source, action);
+            }
+        }
+    }
+
+    /**
+     * 公開された clone() 又はコピーコンストラクタによるコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class PublicCopy extends DeepCopier.Strategy {
+
+        /**
+         * clone() 又はコピーコンストラクタのハンドル ((Object)Object).
+         */
+        private final MethodHandle copier;
+
+        /**
+         * Constractor.
+         *
+         * @param copier
+         *            clone() 又はコピーコンストラクタのハンドル ((Object)Object).
+         */
+        PublicCopy(MethodHandle copier) {
+            super();
+            this.copier = copier;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            return context.register(source, DeepCopier.invoke(this.copier, source));
+        }
+    }
+
+    /**
+     * 全てのフィールドを深くコピーするコピー方法.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Fields extends DeepCopier.Strategy {
+
+        /**
+         * 対象のクラス.
+         */
+        private final Class<?> type;
+
+        /**
+         * 対象のクラスのアクセス手段. アクセスできない場合は NULL.
+         */
+        private final ClassLayout layout;
+
+        /**
+         * 参照型のフィールド毎の, 値をコピーせずに共有できるか.
+         */
+        private final boolean[] shared;
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            対象のクラス.
+         */
+        Fields(Class<?> type) {
+            this(type, ClassLayout.isAccessible(type) ? ClassLayout.of(type) : null);
+        }
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            対象のクラス.
+         * @param layout
+         *            コピーするフィールドのアクセス手段. アクセスできない場合は NULL.
+         */
+        Fields(Class<?> type, ClassLayout layout) {
+            super();
+            this.type = type;
+            this.layout = layout;
+            this.shared = new boolean[this.layout == null ? 0 : this.layout.references.length];
+            for (int index = 0; index < this.shared.length; index++) {
+                this.shared[index] = DeepCopier.isShared(this.layout.references[index].getType());
+            }
+        }
+
+        /**
+         * 対象のクラスのアクセス手段を返す.
+         *
+         * @return アクセス手段.
+         * @throws IllegalArgumentException
+         *             フィールドにアクセスできない場合.
+         */
+        private ClassLayout layout() {
+            return this.layout == null ? ClassLayout.of(this.type) : this.layout;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copy(java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copy(Object source, DeepCopier.Context context) {
+            Object copy = this.layout().allocate();
+            Object returnValue = context.register(source, copy);
+            if (returnValue == copy) {
+                this.copyFields(source, copy, context);
+            }
+            return returnValue;
+        }
+
+        /**
+         * 生成した複製に全てのフィールドを深くコピーする.
+         *
+         * @param source
+         *            複製元.
+         * @param copy
+         *            登録済みの複製.
+         * @param context
+         *            コピー中の状態.
+         */
+        void copyFields(Object source, Object copy, DeepCopier.Context context) {
+            ClassLayout layout = this.layout();
+            layout.copyPrimitives(copy, source);
+            if (context instanceof DeepCopier.ParallelContext && this.shared.length > 1) {
+                Object[] values = new Object[this.shared.length];
+                for (int index = 0; index < values.length; index++) {
+                    values[index] = layout.get(index, source);
+                }
+                context.copyAll(values, values, 0, values.length);
+                for (int index = 0; index < values.length; index++) {
+                    layout.set(index, copy, values[index]);
+                }
+            } else {
+                for (int index = 0; index < this.shared.length; index++) {
+                    Object value = layout.get(index, source);
+                    layout.set(index, copy, this.shared[index] ? value : context.copy(value));
+                }
+            }
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#copyInto(java.lang.Object, java.lang.Object, sp.lang.DeepCopier.Context)
+         */
+        @Override
+        Object copyInto(Object source, Object target, DeepCopier.Context context) {
+            Object returnValue = null;
+            if (!this.sameFinals(target, source)) {
+                // final なフィールドは書き換えないため, 値の異なる複製先は再利用しない.
+                returnValue = this.copy(source, context);
+            } else {
+                returnValue = context.register(source, target);
+                this.copyFieldsInto(source, target, context);
+            }
+            return returnValue;
+        }
+
+        /**
+         * final なフィールドの値が一致し, 既存のオブジェクトを複製先として再利用できるか判定する.
+         *
+         * @param target
+         *            再利用するオブジェクト.
+         * @param source
+         *            複製元.
+         * @return 再利用できる場合 TRUE.
+         */
+        boolean sameFinals(Object target, Object source) {
+            return this.layout().sameFinals(target, source);
+        }
+
+        /**
+         * 登録済みの既存のオブジェクトに final でない全てのフィールドを深くコピーする.
+         *
+         * @param source
+         *            複製元.
+         * @param target
+         *            再利用するオブジェクト.
+         * @param context
+         *            コピー中の状態.
+         */
+        void copyFieldsInto(Object source, Object target, DeepCopier.Context context) {
+            ClassLayout layout = this.layout();
+            layout.copyMutablePrimitives(target, source);
+            for (int index = 0; index < this.shared.length; index++) {
+                if (!Modifier.isFinal(layout.references[index].getModifiers())) {
+                    Object value = layout.get(index, source);
+                    layout.set(index, target,
+                            this.shared[index] ? value : context.copyInto(value, layout.get(index, target)));
+                }
+            }
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Strategy#children(java.lang.Object, java.util.function.Consumer)
+         */
+        @Override
+        void children(Object source, Consumer<Object> action) {
+            for (int index = 0; index < this.shared.length; index++) {
+                if (!this.shared[index]) {
+                    action.accept(this.layout.get(index, source));
+                }
+            }
+        }
+    }
+
+    /**
+     * コンパレータを引数に取って生成するクラスか判定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return ソート済みのコレクション又はマップ, {@link PriorityQueue} 又は {@link PriorityBlockingQueue} の場合 TRUE.
+     */
+    private static boolean isSorted(Class<?> type) {
+        return SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type)
+                || PriorityQueue.class.isAssignableFrom(type) || PriorityBlockingQueue.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 要素のハッシュ値又は順序で要素を配置するコンテナか判定する. このようなコンテナには要素を完成させてから追加する必要がある.
+     *
+     * @param container
+     *            対象のコレクション又はマップ.
+     * @return {@link Set}, {@link Map}, 又は {@link Deque} 以外の {@link Queue} の場合 TRUE.
+     */
+    static boolean isOrdered(Object container) {
+        return container instanceof Set || container instanceof Map
+                || (container instanceof Queue && !(container instanceof Deque));
+    }
+
+    /**
+     * 指定されたコレクション又はマップのコンパレータを返す.
+     *
+     * @param source
+     *            対象のコレクション又はマップ.
+     * @return コンパレータ. 自然順序の場合, 又はコンパレータを持たない場合は NULL.
+     */
+    static Comparator<?> comparatorOf(Object source) {
+        Comparator<?> returnValue = null;
+        if (source instanceof SortedSet) {
+            returnValue = ((SortedSet<?>) source).comparator();
+        } else if (source instanceof SortedMap) {
+            returnValue = ((SortedMap<?, ?>) source).comparator();
+        } else if (source instanceof PriorityQueue) {
+            returnValue = ((PriorityQueue<?>) source).comparator();
+        } else if (source instanceof PriorityBlockingQueue) {
+            returnValue = ((PriorityBlockingQueue<?>) source).comparator();
+        }
+        return returnValue;
+    }
+
+    /**
+     * 変更不可能なコレクション, 同期化されたコレクション又は型検査されたコレクションのラッパーを生成するハンドルを返す.
+     *
+     * @param type
+     *            対象のクラス.
+     * @param interfaces
+     *            {@link Collections} のラッパーを生成するメソッドに対応するインタフェース. 優先するものから順に並べる.
+     * @return ラッパーを生成するハンドル ((Object, Object)Object). 引数は内側のコレクション又はマップ, 及び型検査されたものの場合は
+     *         生成時の設定と要素の型を並べた配列. 対象のクラスがラッパーでない場合は NULL.
+     */
+    private static MethodHandle wrapper(Class<?> type, Class<?>... interfaces) {
+        String name = type.getName();
+        String factory = name.startsWith("java.util.Collections$Unmodifiable")
+                || name.startsWith("java.util.Collections$Empty") || name.startsWith("java.util.Collections$Singleton")
+                || name.startsWith("java.util.Collections$CopiesList")
+                || name.startsWith("java.util.ImmutableCollections$") ? "unmodifiable"
+                        : name.startsWith("java.util.Collections$Synchronized") ? "synchronized"
+                                : name.startsWith("java.util.Collections$Checked") ? "checked" : null;
+        MethodHandle returnValue = null;
+        for (Class<?> view : interfaces) {
+            if (factory != null && returnValue == null && view.isAssignableFrom(type)) {
+                // 型検査されたものは要素の型 (マップの場合はキーと値の型) も引数に取る.
+                int types = factory.equals("checked") ? Map.class.isAssignableFrom(view) ? 2 : 1 : 0;
+                MethodHandle[] getters = new MethodHandle[types];
+                int[] reorder = new int[types + 1];
+                for (int index = 0; index < types; index++) {
+                    getters[index] = MethodHandles.insertArguments(MethodHandles.arrayElementGetter(Object[].class),
+                            1, index + 1).asType(MethodType.genericMethodType(1));
+                    reorder[index + 1] = 1;
+                }
+                try {
+                    MethodHandle handle = DeepCopier.LOOKUP
+                            .findStatic(Collections.class, factory + view.getSimpleName(),
+                                    MethodType.methodType(view, view).appendParameterTypes(
+                                            Collections.nCopies(types, Class.class)))
+                            .asType(MethodType.genericMethodType(types + 1));
+                    returnValue = MethodHandles.permuteArguments(
+                            types == 0 ? handle : MethodHandles.filterArguments(handle, 1, getters),
+                            MethodType.genericMethodType(2), reorder);
+                } catch (NoSuchMethodException e) {
+                    // 次のインタフェースを探す (Queue の unmodifiable... 等は存在しない).
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 生成時の設定を扱う補助メソッドのハンドルを返す.
+     *
+     * @param name
+     *            メソッド名.
+     * @return ハンドル ((Object)Object).
+     */
+    private static MethodHandle helper(String name) {
+        try {
+            return DeepCopier.LOOKUP.findStatic(DeepCopier.class, name, MethodType.genericMethodType(1));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 指定された引数の公開されたコンストラクタを持つか判定する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @param parameters
+     *            引数の型.
+     * @return 持つ場合 TRUE.
+     */
+    private static boolean hasConstructor(Class<?> type, Class<?>... parameters) {
+        boolean returnValue = false;
+        try {
+            returnValue = type.getConstructor(parameters) != null;
+        } catch (NoSuchMethodException e) {
+            returnValue = false;
+        }
+        return returnValue;
+    }
+
+    /**
+     * コレクション又はマップの要素を全て消去する.
+     *
+     * @param container
+     *            対象のコレクション又はマップ.
+     * @return 対象のコレクション又はマップ.
+     */
+    private static Object cleared(Object container) {
+        if (container instanceof Map) {
+            ((Map<?, ?>) container).clear();
+        } else {
+            ((Collection<?>) container).clear();
+        }
+        return container;
+    }
+
+    /**
+     * 要素が全て NULL の固定長のリストを生成する.
+     *
+     * @param size
+     *            長さ.
+     * @return {@link Arrays#asList(Object...)} のリスト.
+     */
+    private static Object fixedList(Object size) {
+        return Arrays.asList(new Object[(Integer) size]);
+    }
+
+    /**
+     * コレクションの要素数を返す.
+     *
+     * @param source
+     *            対象のコレクション.
+     * @return 要素数.
+     */
+    private static Object sizeOf(Object source) {
+        return ((Collection<?>) source).size();
+    }
+
+    /**
+     * {@link BlockingQueue} の容量を返す.
+     *
+     * @param source
+     *            対象のキュー.
+     * @return 要素数と残りの容量の和. 容量制限がない場合は {@link Integer#MAX_VALUE}.
+     */
+    private static Object capacityOf(Object source) {
+        BlockingQueue<?> queue = (BlockingQueue<?>) source;
+        return (int) Math.min((long) queue.size() + queue.remainingCapacity(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 空の {@link ConcurrentHashMap.KeySetView} を生成する.
+     *
+     * @param mapped
+     *            追加した要素に対応付ける値.
+     * @return {@link ConcurrentHashMap.KeySetView}.
+     */
+    private static Object keySetView(Object mapped) {
+        return new ConcurrentHashMap<Object, Object>().keySet(mapped);
+    }
+
+    /**
+     * 空の {@link LinkedHashMap} を生成する.
+     *
+     * @param accessOrder
+     *            アクセス順序の場合 TRUE, 挿入順序の場合 FALSE.
+     * @return {@link LinkedHashMap}.
+     */
+    private static Object linkedHashMap(Object accessOrder) {
+        return new LinkedHashMap<>(16, 0.75f, (Boolean) accessOrder);
+    }
+
+    /**
+     * 指定されたマップに基づくセット ({@link Collections#newSetFromMap(Map)}) を生成する.
+     *
+     * @param map
+     *            空のマップ.
+     * @return セット.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object setFromMap(Object map) {
+        return Collections.newSetFromMap((Map<Object, Boolean>) map);
+    }
+
+    /**
+     * 指定されたマップと同じ種類の空のマップを生成する.
+     *
+     * @param source
+     *            対象のマップ.
+     * @return 空のマップ.
+     * @throws IllegalArgumentException
+     *             同じ種類のマップを生成できない場合.
+     */
+    private static Object emptyMapOf(Object source) {
+        DeepCopier.Strategy strategy = DeepCopier.STRATEGIES.get(source.getClass());
+        if (!(strategy instanceof DeepCopier.MapCopy)) {
+            throw new IllegalArgumentException("cannot create " + source.getClass().getName());
+        }
+        Object parameter = ((DeepCopier.MapCopy) strategy).parameterOf(source);
+        return ((DeepCopier.MapCopy) strategy).view(parameter, ((DeepCopier.MapCopy) strategy).create(parameter));
+    }
+
+    /**
+     * {@link EnumSet#copyOf(EnumSet)} のハンドルを返す.
+     *
+     * @return {@link EnumSet#copyOf(EnumSet)} のハンドル ((Object)Object).
+     */
+    private static MethodHandle enumSetCopy() {
+        try {
+            return DeepCopier.LOOKUP
+                    .findStatic(EnumSet.class, "copyOf", MethodType.methodType(EnumSet.class, EnumSet.class))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -8,10 +8,17 @@ http://opensource.org/licenses/mit-license.php
 */
 package sp.lang;
 
+import java.util.Objects;
+
 import sp.base.NonNullReturnValue;
 
 /**
+ * <p>
  * 深いコピーを実装していることを表す.
+ * </p>
+ * <p>
+ * 全てのフィールドを深くコピーする場合は {@link DeepCopier#copy(Object)} で実装できる.
+ * </p>
  *
  * @author Se-foo
  * @param <R>
@@ -28,4 +35,45 @@ public interface DeepCopyable<R> extends Cloneable {
      */
     @NonNullReturnValue
     R deepclone();
+
+    /**
+     * <p>
+     * このオブジェクトを既存のオブジェクトに深くコピーする.
+     * </p>
+     * <p>
+     * 複製先が持つ配列, コレクション等は形が一致する限り再利用される (詳細は {@link DeepCopier#copyInto(Object, Object)}).
+     * ダブルバッファ等で繰り返しコピーする場合に {@link #deepclone()} の代わりに用いる. 戻り値を複製として用いること.
+     * </p>
+     * <p>
+     * 既定の実装は final なフィールドには書き込まない. final なフィールドの値 (プリミティブ型は値, 参照型は同一性) が複製先と異なる場合 (不変なクラス等),
+     * 及びフィールドにアクセスできないクラスの場合は複製先を変更せず, {@link #deepclone()} の結果を返す. 複製先が持つオブジェクトについても同様に,
+     * 再利用できないものは新しく生成する.
+     * </p>
+     *
+     * @param target
+     *            複製先.
+     * @return 複製先. 複製先を再利用できない場合は {@link #deepclone()} の結果, 又は複製元を共有する不変なクラスの場合はこのインスタンス.
+     * @throws NullPointerException
+     *             指定された複製先が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された複製先がこのオブジェクトと同じクラスの別のインスタンスでない場合.
+     * @throws UnsupportedOperationException
+     *             複製先が持つ変更できないコレクション又はマップ ({@link java.util.Arrays#asList(Object...)} 等) の要素の数を変える場合.
+     * @since 0.2
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    default R deepcopyInto(R target) {
+        if (Objects.requireNonNull(target) == this || target.getClass() != this.getClass()) {
+            throw new IllegalArgumentException("target must be another instance of " + this.getClass().getName());
+        }
+        R returnValue = null;
+        ClassLayout layout = ClassLayout.isAccessible(this.getClass()) ? ClassLayout.of(this.getClass()) : null;
+        if (layout != null && layout.sameFinals(target, this)) {
+            returnValue = (R) DeepCopier.copyOrReuse(this, target);
+        } else {
+            returnValue = this.deepclone();
+        }
+        return returnValue;
+    }
 }
@@ -0,0 +1,379 @@
+/*
+sp.lang.DeltaCopier
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * 変更されたノードだけを再度コピーする, 差分による深いコピー.
+ * </p>
+ * <p>
+ * {@link #deepclone()} で全体をコピーした後, 元のオブジェクトグラフを変更する度に変更したオブジェクトを {@link #markDirty(Object)}
+ * で通知する. {@link #deepcloneDelta(Object)} は前回の複製のうち変更されていない部分グラフを共有し, 変更されたノードと,
+ * そこに到達するノード (ルートからの経路及び同じ循環に属するノード) だけを新しくコピーする.
+ * </p>
+ * <p>
+ * 配列やコレクションの変更も, その配列やコレクション自身を通知すること. 通知されていない変更は複製に反映されない.
+ * 生成されたスナップショットは部分グラフを共有するため, 変更してはならない.
+ * </p>
+ * <p>
+ * {@link #markDirty(Object)} はスレッドセーフである. スナップショットの生成中に元のオブジェクトグラフを変更してはならない.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            元のオブジェクトのクラス.
+ * @since 0.2
+ */
+public final class DeltaCopier<T> {
+
+    /**
+     * 元のオブジェクト.
+     */
+    private final T source;
+
+    /**
+     * 前回のスナップショット以降に変更が通知されたオブジェクト.
+     */
+    private Set<Object> dirty = DeltaCopier.newIdentitySet();
+
+    /**
+     * 前回のスナップショットにおける, 元のオブジェクトから複製への同一性マップ. スナップショットがない場合は NULL.
+     */
+    private Map<Object, Object> copies;
+
+    /**
+     * 前回のスナップショット.
+     */
+    private T previous;
+
+    /**
+     * Constractor.
+     *
+     * @param source
+     *            元のオブジェクト.
+     * @throws NullPointerException
+     *             指定されたオブジェクトが NULL の場合.
+     */
+    public DeltaCopier(T source) {
+        super();
+        this.source = Objects.requireNonNull(source);
+    }
+
+    /**
+     * 元のオブジェクトを返す.
+     *
+     * @return 元のオブジェクト.
+     */
+    @NonNullReturnValue
+    public T source() {
+        return this.source;
+    }
+
+    /**
+     * 指定されたオブジェクトが変更されたことを通知する.
+     *
+     * @param node
+     *            変更されたオブジェクト. 元のオブジェクトグラフに含まれない場合は無視される.
+     * @throws NullPointerException
+     *             指定されたオブジェクトが NULL の場合.
+     */
+    public void markDirty(Object node) {
+        Objects.requireNonNull(node);
+        synchronized (this) {
+            this.dirty.add(node);
+        }
+    }
+
+    /**
+     * 全体をコピーしたスナップショットを生成する.
+     *
+     * @return スナップショット.
+     * @throws IllegalArgumentException
+     *             コピーできないクラスのオブジェクトを含む場合.
+     */
+    @NonNullReturnValue
+    public synchronized T deepclone() {
+        this.dirty = DeltaCopier.newIdentitySet();
+        this.copies = null;
+        this.previous = null;
+        return this.snapshot(Collections.emptyMap(), Collections.emptySet());
+    }
+
+    /**
+     * 前回のスナップショットとの差分だけをコピーしたスナップショットを生成する.
+     *
+     * @param previous
+     *            前回のスナップショット. 直前の {@link #deepclone()} 又は {@link #deepcloneDelta(Object)} の戻り値.
+     * @return スナップショット. 変更されていない部分グラフは前回のスナップショットと共有する.
+     * @throws NullPointerException
+     *             指定されたスナップショットが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたスナップショットが前回のスナップショットでない場合, 又はコピーできないクラスのオブジェクトを含む場合.
+     */
+    @NonNullReturnValue
+    public synchronized T deepcloneDelta(T previous) {
+        if (Objects.requireNonNull(previous) != this.previous || this.copies == null) {
+            throw new IllegalArgumentException("previous is not the latest snapshot.");
+        }
+        Set<Object> dirty = this.dirty;
+        this.dirty = DeltaCopier.newIdentitySet();
+        return this.snapshot(this.copies, dirty);
+    }
+
+    /**
+     * スナップショットを生成し, 次回の差分のために状態を記録する.
+     *
+     * @param copies
+     *            前回のスナップショットにおける同一性マップ.
+     * @param dirty
+     *            変更が通知されたオブジェクト.
+     * @return スナップショット.
+     */
+    @SuppressWarnings("unchecked")
+    private T snapshot(Map<Object, Object> copies, Set<Object> dirty) {
+        Map<Object, DeltaCopier.Mark> marks = new DeltaCopier.Analyzer(copies, dirty).analyze(this.source);
+        DeltaCopier.DeltaContext context = new DeltaCopier.DeltaContext(copies, marks);
+        T returnValue = (T) context.copy(this.source);
+        Map<Object, Object> next = new IdentityHashMap<>(marks.size());
+        for (Object node : marks.keySet()) {
+            Object copy = context.lookup(node);
+            next.put(node, copy == null ? copies.get(node) : copy);
+        }
+        this.copies = next;
+        this.previous = returnValue;
+        return returnValue;
+    }
+
+    /**
+     * 同一性で比較する集合を生成する.
+     *
+     * @return 空の集合.
+     */
+    private static Set<Object> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * 1 つのノードの解析状態.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Mark {
+
+        /**
+         * 訪問順.
+         */
+        final int index;
+
+        /**
+         * 到達可能なスタック上のノードの最小の訪問順.
+         */
+        int low;
+
+        /**
+         * スタック上にある場合 TRUE.
+         */
+        boolean onStack = true;
+
+        /**
+         * 自身又は到達可能なノードが変更された場合 TRUE.
+         */
+        boolean changed;
+
+        /**
+         * Constractor.
+         *
+         * @param index
+         *            訪問順.
+         */
+        Mark(int index) {
+            super();
+            this.index = index;
+            this.low = index;
+        }
+    }
+
+    /**
+     * <p>
+     * 変更されたノードに到達できるノードを求める解析.
+     * </p>
+     * <p>
+     * 強連結成分 (Tarjan のアルゴリズム) 毎に判定するため, 循環の一部が変更された場合は循環全体が変更されたものとみなす.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Analyzer {
+
+        /**
+         * 前回のスナップショットにおける同一性マップ.
+         */
+        private final Map<Object, Object> copies;
+
+        /**
+         * 変更が通知されたオブジェクト.
+         */
+        private final Set<Object> dirty;
+
+        /**
+         * ノード毎の解析状態.
+         */
+        private final Map<Object, DeltaCopier.Mark> marks = new IdentityHashMap<>();
+
+        /**
+         * 強連結成分が確定していないノード.
+         */
+        private final Deque<Object> stack = new ArrayDeque<>();
+
+        /**
+         * Constractor.
+         *
+         * @param copies
+         *            前回のスナップショットにおける同一性マップ.
+         * @param dirty
+         *            変更が通知されたオブジェクト.
+         */
+        Analyzer(Map<Object, Object> copies, Set<Object> dirty) {
+            super();
+            this.copies = copies;
+            this.dirty = dirty;
+        }
+
+        /**
+         * 指定されたオブジェクトから到達可能な全てのノードを解析する.
+         *
+         * @param root
+         *            起点のオブジェクト.
+         * @return ノード毎の解析結果. コピーされずに共有されるオブジェクトは含まない.
+         */
+        Map<Object, DeltaCopier.Mark> analyze(Object root) {
+            if (root != null && !DeepCopier.strategyOf(root.getClass()).shares()) {
+                this.visit(root);
+            }
+            return this.marks;
+        }
+
+        /**
+         * 1 つのノードを訪問する.
+         *
+         * @param node
+         *            訪問するノード.
+         * @return ノードの解析状態.
+         */
+        private DeltaCopier.Mark visit(Object node) {
+            DeltaCopier.Mark returnValue = new DeltaCopier.Mark(this.marks.size());
+            this.marks.put(node, returnValue);
+            this.stack.push(node);
+            returnValue.changed = this.dirty.contains(node) || !this.copies.containsKey(node);
+            DeltaCopier.Mark mark = returnValue;
+            DeepCopier.strategyOf(node.getClass()).children(node, child -> {
+                if (child != null && !DeepCopier.strategyOf(child.getClass()).shares()) {
+                    DeltaCopier.Mark next = this.marks.get(child);
+                    if (next == null) {
+                        next = this.visit(child);
+                        mark.low = Math.min(mark.low, next.low);
+                    } else if (next.onStack) {
+                        mark.low = Math.min(mark.low, next.index);
+                    }
+                    mark.changed |= next.changed;
+                }
+            });
+            if (returnValue.low == returnValue.index) {
+                boolean changed = false;
+                for (Object member : this.stack) {
+                    DeltaCopier.Mark current = this.marks.get(member);
+                    changed |= current.changed;
+                    if (member == node) {
+                        break;
+                    }
+                }
+                Object member = null;
+                do {
+                    member = this.stack.pop();
+                    DeltaCopier.Mark current = this.marks.get(member);
+                    current.onStack = false;
+                    current.changed = changed;
+                } while (member != node);
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * <p>
+     * 差分コピー中の状態.
+     * </p>
+     * <p>
+     * 変更されていないノードは前回の複製を登録し, その部分グラフを辿らない.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class DeltaContext extends DeepCopier.Context {
+
+        /**
+         * 前回のスナップショットにおける同一性マップ.
+         */
+        private final Map<Object, Object> previous;
+
+        /**
+         * ノード毎の解析結果.
+         */
+        private final Map<Object, DeltaCopier.Mark> marks;
+
+        /**
+         * Constractor.
+         *
+         * @param previous
+         *            前回のスナップショットにおける同一性マップ.
+         * @param marks
+         *            ノード毎の解析結果.
+         */
+        DeltaContext(Map<Object, Object> previous, Map<Object, DeltaCopier.Mark> marks) {
+            super();
+            this.previous = previous;
+            this.marks = marks;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.DeepCopier.Context#copy(java.lang.Object)
+         */
+        @Override
+        Object copy(Object source) {
+            Object returnValue = source;
+            if (source != null) {
+                DeepCopier.Strategy strategy = DeepCopier.strategyOf(source.getClass());
+                if (!strategy.shares()) {
+                    returnValue = this.lookup(source);
+                    if (returnValue == null) {
+                        DeltaCopier.Mark mark = this.marks.get(source);
+                        returnValue = mark != null && !mark.changed ? this.register(source, this.previous.get(source))
+                                : strategy.copy(source, this);
+                    }
+                }
+            }
+            return returnValue;
+        }
+    }
+}
@@ -0,0 +1,1511 @@
+/*
+sp.lang.GraphSnapshot
+sp.lang.GraphSnapshot.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * オブジェクトグラフのコンパクトなバイナリスナップショット.
+ * </p>
+ * <p>
+ * {@link DeepCopier} と同じ規則で辿れるオブジェクトグラフを, クラス毎のスキーマ (フィールド名と型) を含む自己記述的な形式で書き出す.
+ * 整数は可変長 (ZigZag) で, 浮動小数点数はそのまま詰めて書き出し, 2 度目以降に現れるオブジェクトは参照番号で書き出すため, 循環参照及び共有参照は復元後も保たれる.
+ * フィールドの読み書きはクラス毎に 1 度だけ生成した {@link MethodHandle} で行う.
+ * </p>
+ * <p>
+ * 復元時はフィールドを名前で対応付けるため, フィールドの追加及び削除に耐える (存在しないフィールドは読み捨て, 新しいフィールドは初期値となる). ただし, 型の変わったフィールド,
+ * 及びフィールドの型に代入できない値は黙って捨てずに {@link IllegalArgumentException} とする. 上記の規則で辿れない標準ライブラリのクラス
+ * ({@link java.math.BigDecimal}, java.time, {@link java.util.EnumSet} 等) 及び標準ライブラリのコレクションを継承したクラスは,
+ * {@link Serializable} であれば Java 直列化で埋め込む.
+ * 標準ライブラリのコレクション及びマップは, 要素と共に生成時の設定 (コンパレータ, {@link java.util.EnumMap} のキーの型,
+ * 型検査されたコレクションの要素の型等) を書き出す.
+ * </p>
+ * <p>
+ * ファイルからの復元はメモリマップで行う. ファイルの大きさは {@link Integer#MAX_VALUE} バイトまでとする.
+ * </p>
+ * <p>
+ * 復元はスナップショットに書かれた任意のクラスを読み込み, コンストラクタを呼ばずに生成し, Java 直列化の {@code readObject} を実行する. そのため,
+ * 許可リストを取らない {@link #read(ByteBuffer, Class)} 及び {@link #read(Path, Class)} は信頼できる入力元のスナップショットにだけ用いること.
+ * それ以外の入力元には, 読み込んでよいクラス名の許可リストを取る {@link #read(ByteBuffer, Class, Predicate)} を用いる. 許可リストはクラスの読み込み
+ * ({@link Class#forName(String, boolean, ClassLoader)}) 及び生成の前に, Java 直列化で埋め込まれたクラスも含めて判定する.
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class GraphSnapshot {
+
+    /**
+     * 先頭のマジックナンバー ("SPGS").
+     */
+    private static final int MAGIC = 0x53504753;
+
+    /**
+     * 形式の版.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * NULL.
+     */
+    private static final byte NULL = 0;
+
+    /**
+     * 既出のオブジェクトへの参照.
+     */
+    private static final byte REFERENCE = 1;
+
+    /**
+     * {@link String}.
+     */
+    private static final byte STRING = 2;
+
+    /**
+     * {@link Integer}.
+     */
+    private static final byte INTEGER = 3;
+
+    /**
+     * {@link Long}.
+     */
+    private static final byte LONG = 4;
+
+    /**
+     * {@link Double}.
+     */
+    private static final byte DOUBLE = 5;
+
+    /**
+     * {@link Float}.
+     */
+    private static final byte FLOAT = 6;
+
+    /**
+     * {@link Short}.
+     */
+    private static final byte SHORT = 7;
+
+    /**
+     * {@link Byte}.
+     */
+    private static final byte BYTE = 8;
+
+    /**
+     * {@link Character}.
+     */
+    private static final byte CHARACTER = 9;
+
+    /**
+     * {@link Boolean}.
+     */
+    private static final byte BOOLEAN = 10;
+
+    /**
+     * 列挙型.
+     */
+    private static final byte ENUM = 11;
+
+    /**
+     * {@link Class}.
+     */
+    private static final byte CLASS = 12;
+
+    /**
+     * プリミティブ型の配列.
+     */
+    private static final byte PRIMITIVE_ARRAY = 13;
+
+    /**
+     * 参照型の配列.
+     */
+    private static final byte OBJECT_ARRAY = 14;
+
+    /**
+     * 標準ライブラリのコレクション.
+     */
+    private static final byte COLLECTION = 15;
+
+    /**
+     * 標準ライブラリのマップ.
+     */
+    private static final byte MAP = 16;
+
+    /**
+     * フィールド毎に書き出したオブジェクト.
+     */
+    private static final byte FIELDS = 17;
+
+    /**
+     * Java 直列化で埋め込んだオブジェクト.
+     */
+    private static final byte SERIALIZED = 18;
+
+    /**
+     * プリミティブ型の名前とクラス.
+     */
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+    static {
+        for (Class<?> type : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class,
+                long.class, float.class, double.class, void.class }) {
+            GraphSnapshot.PRIMITIVES.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * クラス毎のスキーマ.
+     */
+    private static final ClassValue<GraphSnapshot.Schema> SCHEMAS = new ClassValue<GraphSnapshot.Schema>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected GraphSnapshot.Schema computeValue(Class<?> type) {
+            return new GraphSnapshot.Schema(ClassLayout.of(type));
+        }
+    };
+
+    /**
+     * Constractor.
+     */
+    private GraphSnapshot() {
+        super();
+    }
+
+    /**
+     * 指定されたオブジェクトグラフのスナップショットを生成する.
+     *
+     * @param root
+     *            ルートのオブジェクト. NULL でもよい.
+     * @return スナップショット. 位置は 0, リミットはスナップショットの末尾.
+     * @throws IllegalArgumentException
+     *             書き出せないクラスのオブジェクトを含む場合.
+     */
+    @NonNullReturnValue
+    public static ByteBuffer toByteBuffer(Object root) {
+        GraphSnapshot.Writer writer = new GraphSnapshot.Writer();
+        writer.writeObject(root);
+        writer.buffer.flip();
+        return writer.buffer;
+    }
+
+    /**
+     * 指定されたオブジェクトグラフのスナップショットをチャネルに書き出す.
+     *
+     * @param root
+     *            ルートのオブジェクト. NULL でもよい.
+     * @param channel
+     *            出力先.
+     * @throws NullPointerException
+     *             指定されたチャネルが NULL の場合.
+     * @throws IllegalArgumentException
+     *             書き出せないクラスのオブジェクトを含む場合.
+     * @throws IOException
+     *             書き出しに失敗した場合.
+     */
+    public static void write(Object root, WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(channel);
+        ByteBuffer buffer = GraphSnapshot.toByteBuffer(root);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 指定されたオブジェクトグラフのスナップショットをファイルに書き出す. ファイルが存在する場合は上書きする.
+     *
+     * @param root
+     *            ルートのオブジェクト. NULL でもよい.
+     * @param file
+     *            出力先のファイル.
+     * @throws NullPointerException
+     *             指定されたファイルが NULL の場合.
+     * @throws IllegalArgumentException
+     *             書き出せないクラスのオブジェクトを含む場合.
+     * @throws IOException
+     *             書き出しに失敗した場合.
+     */
+    public static void write(Object root, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Objects.requireNonNull(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            GraphSnapshot.write(root, channel);
+        }
+    }
+
+    /**
+     * スナップショットからオブジェクトグラフを復元する. バッファの位置はスナップショットの末尾に進む.
+     *
+     * @param <T>
+     *            ルートのクラス.
+     * @param buffer
+     *            スナップショット.
+     * @param type
+     *            ルートのクラス.
+     * @return 復元したルートのオブジェクト.
+     * @throws NullPointerException
+     *             指定されたバッファ又はクラスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             スナップショットが壊れている場合, クラスを読み込めない場合, 又はフィールドの型が変わった場合.
+     * @throws ClassCastException
+     *             ルートが指定されたクラスではない場合.
+     */
+    public static <T> T read(ByteBuffer buffer, Class<T> type) {
+        return GraphSnapshot.read(buffer, type, name -> true);
+    }
+
+    /**
+     * 許可されたクラスだけを読み込んでスナップショットからオブジェクトグラフを復元する. バッファの位置はスナップショットの末尾に進む.
+     *
+     * @param <T>
+     *            ルートのクラス.
+     * @param buffer
+     *            スナップショット.
+     * @param type
+     *            ルートのクラス.
+     * @param allowed
+     *            読み込んでよいクラスの許可リスト. クラス名 ({@link Class#getName()}) を取る. 配列の場合は要素のクラス名を判定し, プリミティブ型は常に許可する.
+     * @return 復元したルートのオブジェクト.
+     * @throws NullPointerException
+     *             指定されたバッファ, クラス又は許可リストが NULL の場合.
+     * @throws IllegalArgumentException
+     *             スナップショットが壊れている場合, クラスを読み込めない場合, 許可されていないクラスを含む場合, 又はフィールドの型が変わった場合.
+     * @throws ClassCastException
+     *             ルートが指定されたクラスではない場合.
+     */
+    public static <T> T read(ByteBuffer buffer, Class<T> type, Predicate<String> allowed) {
+        Objects.requireNonNull(type);
+        GraphSnapshot.Reader reader = new GraphSnapshot.Reader(Objects.requireNonNull(buffer),
+                Objects.requireNonNull(allowed));
+        Object returnValue = null;
+        try {
+            if (buffer.getInt() != GraphSnapshot.MAGIC || buffer.get() != GraphSnapshot.VERSION) {
+                throw new IllegalArgumentException("not a graph snapshot.");
+            }
+            returnValue = reader.readObject();
+            reader.complete();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("corrupted graph snapshot.", e);
+        }
+        return type.cast(returnValue);
+    }
+
+    /**
+     * ファイルをメモリマップしてオブジェクトグラフを復元する.
+     *
+     * @param <T>
+     *            ルートのクラス.
+     * @param file
+     *            スナップショットのファイル.
+     * @param type
+     *            ルートのクラス.
+     * @return 復元したルートのオブジェクト.
+     * @throws NullPointerException
+     *             指定されたファイル又はクラスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             スナップショットが壊れている場合, クラスを読み込めない場合, 又はフィールドの型が変わった場合.
+     * @throws ClassCastException
+     *             ルートが指定されたクラスではない場合.
+     * @throws IOException
+     *             読み込みに失敗した場合, 又はファイルが大きすぎる場合.
+     */
+    public static <T> T read(Path file, Class<T> type) throws IOException {
+        return GraphSnapshot.read(file, type, name -> true);
+    }
+
+    /**
+     * 許可されたクラスだけを読み込んでファイルからオブジェクトグラフを復元する. ファイルはメモリマップする.
+     *
+     * @param <T>
+     *            ルートのクラス.
+     * @param file
+     *            スナップショットのファイル.
+     * @param type
+     *            ルートのクラス.
+     * @param allowed
+     *            読み込んでよいクラスの許可リスト. {@link #read(ByteBuffer, Class, Predicate)} を参照.
+     * @return 復元したルートのオブジェクト.
+     * @throws NullPointerException
+     *             指定されたファイル, クラス又は許可リストが NULL の場合.
+     * @throws IllegalArgumentException
+     *             スナップショットが壊れている場合, クラスを読み込めない場合, 許可されていないクラスを含む場合, 又はフィールドの型が変わった場合.
+     * @throws ClassCastException
+     *             ルートが指定されたクラスではない場合.
+     * @throws IOException
+     *             読み込みに失敗した場合, 又はファイルが大きすぎる場合.
+     */
+    public static <T> T read(Path file, Class<T> type, Predicate<String> allowed) throws IOException {
+        Objects.requireNonNull(allowed);
+        ByteBuffer buffer = null;
+        try (FileChannel channel = FileChannel.open(Objects.requireNonNull(file), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to map.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return GraphSnapshot.read(buffer, type, allowed);
+    }
+
+    /**
+     * <p>
+     * フィールド毎に書き出すクラスのスキーマ.
+     * </p>
+     * <p>
+     * フィールドの型は JVM の記述子 (Z, B, C, S, I, J, F, D) 又は参照型 (L) の 1 文字で表す.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Schema {
+
+        /**
+         * アクセス手段.
+         */
+        final ClassLayout layout;
+
+        /**
+         * 宣言したクラスで修飾したフィールド名.
+         */
+        final String[] names;
+
+        /**
+         * フィールドの型.
+         */
+        final byte[] codes;
+
+        /**
+         * フィールド.
+         */
+        final Field[] fields;
+
+        /**
+         * フィールドの読み出し ((Object) プリミティブ型又は Object).
+         */
+        final MethodHandle[] getters;
+
+        /**
+         * フィールドの書き込み ((Object, プリミティブ型又は Object)void).
+         */
+        final MethodHandle[] setters;
+
+        /**
+         * Constractor.
+         *
+         * @param layout
+         *            アクセス手段.
+         */
+        Schema(ClassLayout layout) {
+            super();
+            this.layout = layout;
+            int size = layout.primitives.length + layout.references.length;
+            this.names = new String[size];
+            this.codes = new byte[size];
+            this.fields = new Field[size];
+            this.getters = new MethodHandle[size];
+            this.setters = new MethodHandle[size];
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            for (int index = 0; index < size; index++) {
+                Field field = index < layout.primitives.length ? layout.primitives[index]
+                        : layout.references[index - layout.primitives.length];
+                Class<?> type = field.getType().isPrimitive() ? field.getType() : Object.class;
+                this.fields[index] = field;
+                this.names[index] = field.getDeclaringClass().getName() + "#" + field.getName();
+                this.codes[index] = GraphSnapshot.code(field.getType());
+                try {
+                    this.getters[index] = lookup.unreflectGetter(field)
+                            .asType(MethodType.methodType(type, Object.class));
+                    this.setters[index] = lookup.unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, type));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("cannot access " + field, e);
+                }
+            }
+        }
+
+        /**
+         * 指定された名前と型のフィールドの位置を返す.
+         *
+         * @param name
+         *            宣言したクラスで修飾したフィールド名.
+         * @param code
+         *            フィールドの型.
+         * @return フィールドの位置. 存在しない場合は -1.
+         * @throws IllegalArgumentException
+         *             同じ名前のフィールドの型が異なる場合.
+         */
+        int indexOf(String name, byte code) {
+            int returnValue = -1;
+            for (int index = 0; returnValue < 0 && index < this.names.length; index++) {
+                if (this.names[index].equals(name)) {
+                    if (this.codes[index] != code) {
+                        throw new IllegalArgumentException(
+                                "type of " + name + " changed: " + (char) code + " -> " + (char) this.codes[index]);
+                    }
+                    returnValue = index;
+                }
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * 指定された型の 1 文字の記述子を返す.
+     *
+     * @param type
+     *            型.
+     * @return 記述子.
+     */
+    static byte code(Class<?> type) {
+        byte returnValue = 'L';
+        if (type == boolean.class) {
+            returnValue = 'Z';
+        } else if (type == byte.class) {
+            returnValue = 'B';
+        } else if (type == char.class) {
+            returnValue = 'C';
+        } else if (type == short.class) {
+            returnValue = 'S';
+        } else if (type == int.class) {
+            returnValue = 'I';
+        } else if (type == long.class) {
+            returnValue = 'J';
+        } else if (type == float.class) {
+            returnValue = 'F';
+        } else if (type == double.class) {
+            returnValue = 'D';
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定されたクラス名が許可リストに含まれるか判定する. 配列の場合は要素のクラス名を判定し, プリミティブ型は常に許可する.
+     *
+     * @param allowed
+     *            許可リスト.
+     * @param name
+     *            クラス名 ({@link Class#getName()}).
+     * @throws IllegalArgumentException
+     *             許可されていない場合.
+     */
+    static void checkAllowed(Predicate<String> allowed, String name) {
+        int dimensions = 0;
+        while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        String element = name.substring(dimensions);
+        if (dimensions > 0) {
+            element = element.startsWith("L") && element.endsWith(";") ? element.substring(1, element.length() - 1)
+                    : null;
+        }
+        if (element != null && !GraphSnapshot.PRIMITIVES.containsKey(element) && !allowed.test(element)) {
+            throw new IllegalArgumentException(name + " is not allowed.");
+        }
+    }
+
+    /**
+     * チェック例外をラッピングする.
+     *
+     * @param e
+     *            例外.
+     * @return ラッピングした例外.
+     */
+    static RuntimeException wrap(Throwable e) {
+        RuntimeException returnValue = null;
+        if (e instanceof RuntimeException) {
+            returnValue = (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else {
+            returnValue = new IllegalStateException(e);
+        }
+        return returnValue;
+    }
+
+    /**
+     * スナップショットの書き出し.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Writer {
+
+        /**
+         * 出力先. 必要に応じて拡張する.
+         */
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+
+        /**
+         * 書き出したオブジェクトの参照番号.
+         */
+        private final Map<Object, Integer> objects = new IdentityHashMap<>();
+
+        /**
+         * 書き出したクラスの番号.
+         */
+        private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+        /**
+         * Constractor.
+         */
+        Writer() {
+            super();
+            this.buffer.putInt(GraphSnapshot.MAGIC).put(GraphSnapshot.VERSION);
+        }
+
+        /**
+         * 出力先の残りを確保する.
+         *
+         * @param size
+         *            必要なバイト数.
+         */
+        private void ensure(int size) {
+            if (this.buffer.remaining() < size) {
+                int capacity = Math.max(this.buffer.capacity() * 2, this.buffer.position() + size);
+                ByteBuffer next = ByteBuffer.allocate(capacity);
+                this.buffer.flip();
+                next.put(this.buffer);
+                this.buffer = next;
+            }
+        }
+
+        /**
+         * 1 バイトを書き出す.
+         *
+         * @param value
+         *            値.
+         */
+        private void putByte(int value) {
+            this.ensure(1);
+            this.buffer.put((byte) value);
+        }
+
+        /**
+         * 符号なしの可変長整数を書き出す.
+         *
+         * @param value
+         *            値.
+         */
+        private void putVarLong(long value) {
+            this.ensure(10);
+            long rest = value;
+            while ((rest & ~0x7FL) != 0) {
+                this.buffer.put((byte) ((rest & 0x7F) | 0x80));
+                rest >>>= 7;
+            }
+            this.buffer.put((byte) rest);
+        }
+
+        /**
+         * 符号付きの可変長整数を書き出す.
+         *
+         * @param value
+         *            値.
+         */
+        private void putZigZag(long value) {
+            this.putVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * 文字列を UTF-8 で書き出す.
+         *
+         * @param value
+         *            値.
+         */
+        private void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.putVarLong(bytes.length);
+            this.ensure(bytes.length);
+            this.buffer.put(bytes);
+        }
+
+        /**
+         * クラスの番号を書き出す. 初めて現れたクラスの場合は名前を続けて書き出す.
+         *
+         * @param type
+         *            クラス.
+         * @return 初めて現れたクラスの場合 TRUE.
+         */
+        private boolean putClass(Class<?> type) {
+            Integer id = this.classes.get(type);
+            boolean returnValue = id == null;
+            if (returnValue) {
+                id = this.classes.size();
+                this.classes.put(type, id);
+            }
+            this.putVarLong(id);
+            if (returnValue) {
+                this.putString(type.getName());
+            }
+            return returnValue;
+        }
+
+        /**
+         * オブジェクトを書き出す.
+         *
+         * @param value
+         *            値.
+         */
+        void writeObject(Object value) {
+            Integer id = value == null ? null : this.objects.get(value);
+            if (value == null) {
+                this.putByte(GraphSnapshot.NULL);
+            } else if (id != null) {
+                this.putByte(GraphSnapshot.REFERENCE);
+                this.putVarLong(id);
+            } else {
+                this.objects.put(value, this.objects.size());
+                this.writeNew(value);
+            }
+        }
+
+        /**
+         * 初めて現れたオブジェクトを書き出す.
+         *
+         * @param value
+         *            値.
+         */
+        private void writeNew(Object value) {
+            Class<?> type = value.getClass();
+            DeepCopier.Strategy strategy = DeepCopier.strategyOf(type);
+            if (value instanceof String) {
+                this.putByte(GraphSnapshot.STRING);
+                this.putString((String) value);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                this.putByte(value instanceof Integer ? GraphSnapshot.INTEGER
+                        : value instanceof Long ? GraphSnapshot.LONG
+                                : value instanceof Short ? GraphSnapshot.SHORT : GraphSnapshot.BYTE);
+                this.putZigZag(((Number) value).longValue());
+            } else if (value instanceof Double) {
+                this.putByte(GraphSnapshot.DOUBLE);
+                this.ensure(8);
+                this.buffer.putDouble((Double) value);
+            } else if (value instanceof Float) {
+                this.putByte(GraphSnapshot.FLOAT);
+                this.ensure(4);
+                this.buffer.putFloat((Float) value);
+            } else if (value instanceof Character) {
+                this.putByte(GraphSnapshot.CHARACTER);
+                this.putVarLong((Character) value);
+            } else if (value instanceof Boolean) {
+                this.putByte(GraphSnapshot.BOOLEAN);
+                this.putByte((Boolean) value ? 1 : 0);
+            } else if (value instanceof Enum) {
+                this.putByte(GraphSnapshot.ENUM);
+                this.putClass(((Enum<?>) value).getDeclaringClass());
+                this.putString(((Enum<?>) value).name());
+            } else if (value instanceof Class) {
+                this.putByte(GraphSnapshot.CLASS);
+                this.putString(((Class<?>) value).getName());
+            } else if (type.isArray()) {
+                this.writeArray(value);
+            } else if (strategy instanceof DeepCopier.CollectionCopy
+                    && !((DeepCopier.CollectionCopy) strategy).isSubclass()) {
+                this.putByte(GraphSnapshot.COLLECTION);
+                this.putClass(type);
+                this.writeObject(((DeepCopier.CollectionCopy) strategy).parameterOf(value));
+                this.putVarLong(((Collection<?>) value).size());
+                for (Object element : (Collection<?>) value) {
+                    this.writeObject(element);
+                }
+            } else if (strategy instanceof DeepCopier.MapCopy && !((DeepCopier.MapCopy) strategy).isSubclass()) {
+                this.putByte(GraphSnapshot.MAP);
+                this.putClass(type);
+                this.writeObject(((DeepCopier.MapCopy) strategy).parameterOf(value));
+                this.putVarLong(((Map<?, ?>) value).size());
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    this.writeObject(entry.getKey());
+                    this.writeObject(entry.getValue());
+                }
+            } else if (strategy instanceof DeepCopier.Reject) {
+                throw ((DeepCopier.Reject) strategy).failure;
+            } else if (!DeepCopier.isLibrary(type)
+                    && !(strategy instanceof DeepCopier.CollectionCopy || strategy instanceof DeepCopier.MapCopy)) {
+                // 標準ライブラリのコレクション等を継承したクラスはスーパークラスのフィールドを読み書きできないため, 以下の Java 直列化で埋め込む.
+                this.writeFields(value);
+            } else if (value instanceof Serializable) {
+                this.writeSerialized(value);
+            } else {
+                throw new IllegalArgumentException("cannot write " + type.getName());
+            }
+        }
+
+        /**
+         * 配列を書き出す.
+         *
+         * @param value
+         *            配列.
+         */
+        private void writeArray(Object value) {
+            Class<?> component = value.getClass().getComponentType();
+            int length = Array.getLength(value);
+            this.putByte(component.isPrimitive() ? GraphSnapshot.PRIMITIVE_ARRAY : GraphSnapshot.OBJECT_ARRAY);
+            this.putClass(value.getClass());
+            this.putVarLong(length);
+            if (component == double.class) {
+                this.ensure(length * 8);
+                this.buffer.asDoubleBuffer().put((double[]) value);
+                this.buffer.position(this.buffer.position() + length * 8);
+            } else if (component == float.class) {
+                this.ensure(length * 4);
+                this.buffer.asFloatBuffer().put((float[]) value);
+                this.buffer.position(this.buffer.position() + length * 4);
+            } else if (component == byte.class) {
+                this.ensure(length);
+                this.buffer.put((byte[]) value);
+            } else if (component == boolean.class) {
+                this.ensure(length);
+                for (boolean element : (boolean[]) value) {
+                    this.buffer.put((byte) (element ? 1 : 0));
+                }
+            } else if (component == int.class) {
+                for (int element : (int[]) value) {
+                    this.putZigZag(element);
+                }
+            } else if (component == long.class) {
+                for (long element : (long[]) value) {
+                    this.putZigZag(element);
+                }
+            } else if (component == short.class) {
+                for (short element : (short[]) value) {
+                    this.putZigZag(element);
+                }
+            } else if (component == char.class) {
+                for (char element : (char[]) value) {
+                    this.putVarLong(element);
+                }
+            } else {
+                for (Object element : (Object[]) value) {
+                    this.writeObject(element);
+                }
+            }
+        }
+
+        /**
+         * フィールド毎にオブジェクトを書き出す. 初めて現れたクラスの場合はスキーマを続けて書き出す.
+         *
+         * @param value
+         *            オブジェクト.
+         */
+        private void writeFields(Object value) {
+            GraphSnapshot.Schema schema = GraphSnapshot.SCHEMAS.get(value.getClass());
+            this.putByte(GraphSnapshot.FIELDS);
+            if (this.putClass(value.getClass())) {
+                this.putVarLong(schema.names.length);
+                for (int index = 0; index < schema.names.length; index++) {
+                    this.putString(schema.names[index]);
+                    this.putByte(schema.codes[index]);
+                }
+            }
+            try {
+                for (int index = 0; index < schema.names.length; index++) {
+                    MethodHandle getter = schema.getters[index];
+                    switch (schema.codes[index]) {
+                    case 'Z':
+                        this.putByte((boolean) getter.invokeExact(value) ? 1 : 0);
+                        break;
+                    case 'B':
+                        this.putByte((byte) getter.invokeExact(value));
+                        break;
+                    case 'C':
+                        this.putVarLong((char) getter.invokeExact(value));
+                        break;
+                    case 'S':
+                        this.putZigZag((short) getter.invokeExact(value));
+                        break;
+                    case 'I':
+                        this.putZigZag((int) getter.invokeExact(value));
+                        break;
+                    case 'J':
+                        this.putZigZag((long) getter.invokeExact(value));
+                        break;
+                    case 'F':
+                        this.ensure(4);
+                        this.buffer.putFloat((float) getter.invokeExact(value));
+                        break;
+                    case 'D':
+                        this.ensure(8);
+                        this.buffer.putDouble((double) getter.invokeExact(value));
+                        break;
+                    default:
+                        this.writeObject((Object) getter.invokeExact(value));
+                        break;
+                    }
+                }
+            } catch (Throwable e) {
+                throw GraphSnapshot.wrap(e);
+            }
+        }
+
+        /**
+         * Java 直列化でオブジェクトを書き出す.
+         *
+         * @param value
+         *            オブジェクト.
+         */
+        private void writeSerialized(Object value) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(value);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot write " + value.getClass().getName(), e);
+            }
+            this.putByte(GraphSnapshot.SERIALIZED);
+            this.putVarLong(bytes.size());
+            this.ensure(bytes.size());
+            this.buffer.put(bytes.toByteArray());
+        }
+    }
+
+    /**
+     * 読み込んだクラスの情報.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class ClassEntry {
+
+        /**
+         * クラス.
+         */
+        final Class<?> type;
+
+        /**
+         * スナップショット中のフィールドの型. スキーマを読み込んでいない場合は NULL.
+         */
+        byte[] codes;
+
+        /**
+         * スナップショット中のフィールドに対応する, 現在のスキーマのフィールドの位置 (存在しない場合は -1).
+         */
+        int[] targets;
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            クラス.
+         */
+        ClassEntry(Class<?> type) {
+            super();
+            this.type = type;
+        }
+    }
+
+    /**
+     * スナップショットの読み込み.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Reader {
+
+        /**
+         * 入力元.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * 読み込んだオブジェクト. 参照番号の順.
+         */
+        private final List<Object> objects = new ArrayList<>();
+
+        /**
+         * 読み込んだクラス. 番号の順.
+         */
+        private final List<GraphSnapshot.ClassEntry> classes = new ArrayList<>();
+
+        /**
+         * 全てのオブジェクトを読み込むまで要素の追加を遅らせたコンテナへの追加処理. 要素を読み終えた順.
+         */
+        private final List<Runnable> fills = new ArrayList<>();
+
+        /**
+         * クラスの読み込みに用いるクラスローダ.
+         */
+        private final ClassLoader loader;
+
+        /**
+         * 読み込んでよいクラスの許可リスト.
+         */
+        private final Predicate<String> allowed;
+
+        /**
+         * Constractor.
+         *
+         * @param buffer
+         *            入力元.
+         * @param allowed
+         *            読み込んでよいクラスの許可リスト.
+         */
+        Reader(ByteBuffer buffer, Predicate<String> allowed) {
+            super();
+            this.buffer = buffer;
+            this.allowed = allowed;
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            this.loader = loader == null ? GraphSnapshot.class.getClassLoader() : loader;
+        }
+
+        /**
+         * 符号なしの可変長整数を読み込む.
+         *
+         * @return 値.
+         */
+        private long getVarLong() {
+            long returnValue = 0;
+            int shift = 0;
+            byte current = 0;
+            do {
+                if (shift > 63) {
+                    throw new IllegalArgumentException("corrupted graph snapshot.");
+                }
+                current = this.buffer.get();
+                returnValue |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return returnValue;
+        }
+
+        /**
+         * 長さ又は番号として可変長整数を読み込む.
+         *
+         * @return 値.
+         */
+        private int getSize() {
+            long returnValue = this.getVarLong();
+            if (returnValue > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            return (int) returnValue;
+        }
+
+        /**
+         * 後続する要素の数として可変長整数を読み込む. 残りのバイト数で収まらない数は, 配列を確保する前に壊れたスナップショットとして扱う.
+         *
+         * @param width
+         *            要素 1 つあたりの最小のバイト数.
+         * @return 要素の数.
+         */
+        private int getLength(int width) {
+            int returnValue = this.getSize();
+            if (returnValue > this.buffer.remaining() / width) {
+                throw new IllegalArgumentException("corrupted graph snapshot: length " + returnValue
+                        + " exceeds the remaining " + this.buffer.remaining() + " bytes.");
+            }
+            return returnValue;
+        }
+
+        /**
+         * 符号付きの可変長整数を読み込む.
+         *
+         * @return 値.
+         */
+        private long getZigZag() {
+            long value = this.getVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * UTF-8 の文字列を読み込む.
+         *
+         * @return 値.
+         */
+        private String getString() {
+            byte[] bytes = new byte[this.getLength(1)];
+            this.buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 名前からクラスを読み込む.
+         *
+         * @param name
+         *            クラス名.
+         * @return クラス.
+         * @throws IllegalArgumentException
+         *             許可されていないクラスの場合.
+         */
+        private Class<?> load(String name) {
+            Class<?> returnValue = GraphSnapshot.PRIMITIVES.get(name);
+            if (returnValue == null) {
+                GraphSnapshot.checkAllowed(this.allowed, name);
+                try {
+                    returnValue = Class.forName(name, false, this.loader);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("cannot load " + name, e);
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * クラスの番号を読み込む. 初めて現れたクラスの場合は名前を続けて読み込む.
+         *
+         * @return クラスの情報.
+         */
+        private GraphSnapshot.ClassEntry getClassEntry() {
+            int id = this.getSize();
+            if (id == this.classes.size()) {
+                this.classes.add(new GraphSnapshot.ClassEntry(this.load(this.getString())));
+            }
+            return this.classes.get(id);
+        }
+
+        /**
+         * オブジェクトを読み込む.
+         *
+         * @return 値.
+         */
+        Object readObject() {
+            Object returnValue = null;
+            byte tag = this.buffer.get();
+            switch (tag) {
+            case GraphSnapshot.NULL:
+                break;
+            case GraphSnapshot.REFERENCE:
+                returnValue = this.objects.get(this.getSize());
+                break;
+            case GraphSnapshot.STRING:
+                returnValue = this.register(this.getString());
+                break;
+            case GraphSnapshot.INTEGER:
+                returnValue = this.register((int) this.getZigZag());
+                break;
+            case GraphSnapshot.LONG:
+                returnValue = this.register(this.getZigZag());
+                break;
+            case GraphSnapshot.SHORT:
+                returnValue = this.register((short) this.getZigZag());
+                break;
+            case GraphSnapshot.BYTE:
+                returnValue = this.register((byte) this.getZigZag());
+                break;
+            case GraphSnapshot.DOUBLE:
+                returnValue = this.register(this.buffer.getDouble());
+                break;
+            case GraphSnapshot.FLOAT:
+                returnValue = this.register(this.buffer.getFloat());
+                break;
+            case GraphSnapshot.CHARACTER:
+                returnValue = this.register((char) this.getVarLong());
+                break;
+            case GraphSnapshot.BOOLEAN:
+                returnValue = this.register(this.buffer.get() != 0);
+                break;
+            case GraphSnapshot.ENUM:
+                returnValue = this.register(this.readEnum(this.getClassEntry().type, this.getString()));
+                break;
+            case GraphSnapshot.CLASS:
+                returnValue = this.register(this.load(this.getString()));
+                break;
+            case GraphSnapshot.PRIMITIVE_ARRAY:
+            case GraphSnapshot.OBJECT_ARRAY:
+                returnValue = this.readArray();
+                break;
+            case GraphSnapshot.COLLECTION:
+                returnValue = this.readCollection();
+                break;
+            case GraphSnapshot.MAP:
+                returnValue = this.readMap();
+                break;
+            case GraphSnapshot.FIELDS:
+                returnValue = this.readFields();
+                break;
+            case GraphSnapshot.SERIALIZED:
+                returnValue = this.register(this.readSerialized());
+                break;
+            default:
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            return returnValue;
+        }
+
+        /**
+         * 読み込んだオブジェクトに参照番号を割り当てる.
+         *
+         * @param value
+         *            読み込んだオブジェクト.
+         * @return 読み込んだオブジェクト.
+         */
+        private Object register(Object value) {
+            this.objects.add(value);
+            return value;
+        }
+
+        /**
+         * 列挙型の定数を返す.
+         *
+         * @param type
+         *            列挙型.
+         * @param name
+         *            定数名.
+         * @return 定数.
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private Object readEnum(Class<?> type, String name) {
+            if (!type.isEnum()) {
+                throw new IllegalArgumentException(type.getName() + " is not an enum.");
+            }
+            return Enum.valueOf((Class) type, name);
+        }
+
+        /**
+         * 配列を読み込む.
+         *
+         * @return 配列.
+         */
+        private Object readArray() {
+            Class<?> component = this.getClassEntry().type.getComponentType();
+            if (component == null) {
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            int length = this.getLength(component == double.class ? 8 : component == float.class ? 4 : 1);
+            Object returnValue = this.register(Array.newInstance(component, length));
+            if (component == double.class) {
+                this.buffer.asDoubleBuffer().get((double[]) returnValue);
+                this.buffer.position(this.buffer.position() + length * 8);
+            } else if (component == float.class) {
+                this.buffer.asFloatBuffer().get((float[]) returnValue);
+                this.buffer.position(this.buffer.position() + length * 4);
+            } else if (component == byte.class) {
+                this.buffer.get((byte[]) returnValue);
+            } else if (component == boolean.class) {
+                boolean[] array = (boolean[]) returnValue;
+                for (int index = 0; index < length; index++) {
+                    array[index] = this.buffer.get() != 0;
+                }
+            } else if (component == int.class) {
+                int[] array = (int[]) returnValue;
+                for (int index = 0; index < length; index++) {
+                    array[index] = (int) this.getZigZag();
+                }
+            } else if (component == long.class) {
+                long[] array = (long[]) returnValue;
+                for (int index = 0; index < length; index++) {
+                    array[index] = this.getZigZag();
+                }
+            } else if (component == short.class) {
+                short[] array = (short[]) returnValue;
+                for (int index = 0; index < length; index++) {
+                    array[index] = (short) this.getZigZag();
+                }
+            } else if (component == char.class) {
+                char[] array = (char[]) returnValue;
+                for (int index = 0; index < length; index++) {
+                    array[index] = (char) this.getVarLong();
+                }
+            } else {
+                Object[] array = (Object[]) returnValue;
+                for (int index = 0; index < length; index++) {
+                    array[index] = this.readObject();
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * コレクションを読み込む.
+         *
+         * @return コレクション.
+         */
+        private Object readCollection() {
+            DeepCopier.Strategy strategy = DeepCopier.strategyOf(this.getClassEntry().type);
+            if (!(strategy instanceof DeepCopier.CollectionCopy)) {
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            DeepCopier.CollectionCopy copier = (DeepCopier.CollectionCopy) strategy;
+            int id = this.objects.size();
+            this.register(null);
+            Object parameter = this.readObject();
+            if (!copier.accepts(parameter)) {
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            Collection<Object> collection = copier.create(parameter);
+            Object returnValue = copier.view(parameter, collection);
+            this.objects.set(id, returnValue);
+            Object[] elements = new Object[this.getLength(1)];
+            for (int index = 0; index < elements.length; index++) {
+                elements[index] = this.readObject();
+            }
+            this.fill(collection, () -> copier.addAll(collection, elements));
+            return returnValue;
+        }
+
+        /**
+         * 読み込んだ要素をコンテナに追加する. 要素のハッシュ値又は順序で要素を配置するコンテナの場合は, 要素のフィールドを全て読み込んでから追加するため,
+         * {@link #complete()} まで遅らせる.
+         *
+         * @param container
+         *            コンテナ.
+         * @param action
+         *            要素を追加する処理.
+         */
+        private void fill(Object container, Runnable action) {
+            if (DeepCopier.isOrdered(container)) {
+                this.fills.add(action);
+            } else {
+                action.run();
+            }
+        }
+
+        /**
+         * 遅らせた要素の追加を, 要素を読み終えた順に行う. 内側のコンテナは外側のコンテナより先に要素を読み終えるため, 外側のコンテナには完成した要素を追加する.
+         */
+        void complete() {
+            for (Runnable action : this.fills) {
+                action.run();
+            }
+            this.fills.clear();
+        }
+
+        /**
+         * マップを読み込む.
+         *
+         * @return マップ.
+         */
+        private Object readMap() {
+            DeepCopier.Strategy strategy = DeepCopier.strategyOf(this.getClassEntry().type);
+            if (!(strategy instanceof DeepCopier.MapCopy)) {
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            DeepCopier.MapCopy copier = (DeepCopier.MapCopy) strategy;
+            int id = this.objects.size();
+            this.register(null);
+            Object parameter = this.readObject();
+            if (!copier.accepts(parameter)) {
+                throw new IllegalArgumentException("corrupted graph snapshot.");
+            }
+            Map<Object, Object> map = copier.create(parameter);
+            Object returnValue = copier.view(parameter, map);
+            this.objects.set(id, returnValue);
+            Object[] entries = new Object[this.getLength(2) * 2];
+            for (int index = 0; index < entries.length; index++) {
+                entries[index] = this.readObject();
+            }
+            this.fill(map, () -> {
+                for (int index = 0; index < entries.length; index += 2) {
+                    map.put(entries[index], entries[index + 1]);
+                }
+            });
+            return returnValue;
+        }
+
+        /**
+         * フィールド毎に書き出されたオブジェクトを読み込む.
+         *
+         * @return オブジェクト.
+         */
+        private Object readFields() {
+            GraphSnapshot.ClassEntry entry = this.getClassEntry();
+            GraphSnapshot.Schema schema = GraphSnapshot.SCHEMAS.get(entry.type);
+            if (entry.codes == null) {
+                int size = this.getLength(2);
+                entry.codes = new byte[size];
+                entry.targets = new int[size];
+                for (int index = 0; index < size; index++) {
+                    String name = this.getString();
+                    entry.codes[index] = this.buffer.get();
+                    entry.targets[index] = schema.indexOf(name, entry.codes[index]);
+                }
+            }
+            Object returnValue = this.register(schema.layout.allocate());
+            try {
+                for (int index = 0; index < entry.codes.length; index++) {
+                    int target = entry.targets[index];
+                    MethodHandle setter = target < 0 ? null : schema.setters[target];
+                    switch (entry.codes[index]) {
+                    case 'Z':
+                        boolean booleanValue = this.buffer.get() != 0;
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, booleanValue);
+                        }
+                        break;
+                    case 'B':
+                        byte byteValue = this.buffer.get();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, byteValue);
+                        }
+                        break;
+                    case 'C':
+                        char charValue = (char) this.getVarLong();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, charValue);
+                        }
+                        break;
+                    case 'S':
+                        short shortValue = (short) this.getZigZag();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, shortValue);
+                        }
+                        break;
+                    case 'I':
+                        int intValue = (int) this.getZigZag();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, intValue);
+                        }
+                        break;
+                    case 'J':
+                        long longValue = this.getZigZag();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, longValue);
+                        }
+                        break;
+                    case 'F':
+                        float floatValue = this.buffer.getFloat();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, floatValue);
+                        }
+                        break;
+                    case 'D':
+                        double doubleValue = this.buffer.getDouble();
+                        if (setter != null) {
+                            setter.invokeExact(returnValue, doubleValue);
+                        }
+                        break;
+                    case 'L':
+                        Object value = this.readObject();
+                        if (setter != null) {
+                            if (value != null && !schema.fields[target].getType().isInstance(value)) {
+                                throw new IllegalArgumentException("cannot assign " + value.getClass().getName()
+                                        + " to " + schema.fields[target]);
+                            }
+                            setter.invokeExact(returnValue, value);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("corrupted graph snapshot.");
+                    }
+                }
+            } catch (Throwable e) {
+                throw GraphSnapshot.wrap(e);
+            }
+            return returnValue;
+        }
+
+        /**
+         * Java 直列化で埋め込まれたオブジェクトを読み込む.
+         *
+         * @return オブジェクト.
+         */
+        private Object readSerialized() {
+            byte[] bytes = new byte[this.getLength(1)];
+            this.buffer.get(bytes);
+            try (ObjectInputStream input = new GraphSnapshot.AllowedInputStream(new ByteArrayInputStream(bytes),
+                    this.allowed)) {
+                return input.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalArgumentException("cannot read a serialized object.", e);
+            }
+        }
+    }
+
+    /**
+     * 許可リストに含まれるクラスだけを読み込む Java 直列化の入力.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class AllowedInputStream extends ObjectInputStream {
+
+        /**
+         * 読み込んでよいクラスの許可リスト.
+         */
+        private final Predicate<String> allowed;
+
+        /**
+         * Constractor.
+         *
+         * @param input
+         *            入力元.
+         * @param allowed
+         *            読み込んでよいクラスの許可リスト.
+         * @throws IOException
+         *             ストリームヘッダを読み込めない場合.
+         */
+        AllowedInputStream(InputStream input, Predicate<String> allowed) throws IOException {
+            super(input);
+            this.allowed = allowed;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.io.ObjectInputStream#resolveClass(java.io.ObjectStreamClass)
+         */
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            this.check(desc.getName());
+            return super.resolveClass(desc);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.io.ObjectInputStream#resolveProxyClass(java.lang.String[])
+         */
+        @Override
+        protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+            for (String name : interfaces) {
+                this.check(name);
+            }
+            return super.resolveProxyClass(interfaces);
+        }
+
+        /**
+         * 指定されたクラス名が許可リストに含まれるか判定する.
+         *
+         * @param name
+         *            クラス名.
+         * @throws InvalidClassException
+         *             許可されていない場合.
+         */
+        private void check(String name) throws InvalidClassException {
+            try {
+                GraphSnapshot.checkAllowed(this.allowed, name);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidClassException(name, "not allowed");
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+sp.lang.Interner
+sp.lang.Interner.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+import sp.base.Exclusiveness;
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * 不変なオブジェクトの正規化 (インターン) を行うプール.
+ * </p>
+ * <p>
+ * 等しいインスタンスを 1 つの代表インスタンスにまとめる. 対象は {@link DeepCopier} がコピーせずに共有する不変なクラス ({@link sp.base.Immutable}
+ * が付与された final クラス, {@link String}, ボクシングされたクラス等) に限る. 代表インスタンスは弱参照で保持するため,
+ * 他から参照されなくなれば回収される.
+ * </p>
+ * <p>
+ * 表はハッシュ値で分割されたストライプ毎に排他制御するため, 異なるストライプへの並行したインターンは互いを待たない.
+ * 既定ではハッシュ値及び等価性に {@link Object#hashCode()} 及び {@link Object#equals(Object)} を用いるが,
+ * {@link #of(ToIntFunction, BiPredicate)} で構造的なハッシュ値等の安価な関数を指定できる (高速経路).
+ * </p>
+ * <p>
+ * {@link UnaryOperator} を実装するため, 取り込み時の写像に {@code mapper.andThenFunction(interner)} 等で合成できる.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            インターンするクラス.
+ * @since 0.2
+ */
+public final class Interner<T> implements UnaryOperator<T> {
+
+    /**
+     * クラス毎の, インターンの対象か否か.
+     */
+    private static final ClassValue<Boolean> INTERNABLE = new ClassValue<Boolean>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return DeepCopier.isShared(type);
+        }
+    };
+
+    /**
+     * ハッシュ関数.
+     */
+    private final ToIntFunction<? super T> hash;
+
+    /**
+     * 等価性の判定.
+     */
+    private final BiPredicate<? super T, ? super T> equality;
+
+    /**
+     * ストライプの数のビット数.
+     */
+    private final int bits;
+
+    /**
+     * ストライプ.
+     */
+    private final Interner.Stripe<T>[] stripes;
+
+    /**
+     * Constractor.
+     *
+     * @param hash
+     *            ハッシュ関数.
+     * @param equality
+     *            等価性の判定.
+     */
+    @SuppressWarnings("unchecked")
+    private Interner(ToIntFunction<? super T> hash, BiPredicate<? super T, ? super T> equality) {
+        super();
+        this.hash = hash;
+        this.equality = equality;
+        int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4);
+        this.bits = Integer.numberOfTrailingZeros(stripes);
+        this.stripes = (Interner.Stripe<T>[]) new Interner.Stripe<?>[stripes];
+        for (int index = 0; index < stripes; index++) {
+            this.stripes[index] = new Interner.Stripe<>();
+        }
+    }
+
+    /**
+     * {@link Object#hashCode()} 及び {@link Object#equals(Object)} で比較するプールを生成する.
+     *
+     * @param <T>
+     *            インターンするクラス.
+     * @return プール.
+     */
+    @NonNullReturnValue
+    public static <T> Interner<T> of() {
+        return new Interner<>(Object::hashCode, Object::equals);
+    }
+
+    /**
+     * 指定された関数で比較するプールを生成する.
+     *
+     * @param <T>
+     *            インターンするクラス.
+     * @param hash
+     *            ハッシュ関数. 等しいインスタンスには同じ値を返すこと.
+     * @param equality
+     *            等価性の判定.
+     * @return プール.
+     * @throws NullPointerException
+     *             指定された関数が NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <T> Interner<T> of(ToIntFunction<? super T> hash, BiPredicate<? super T, ? super T> equality) {
+        return new Interner<>(Objects.requireNonNull(hash), Objects.requireNonNull(equality));
+    }
+
+    /**
+     * 指定されたインスタンスと等しい代表インスタンスを返す. 存在しない場合は指定されたインスタンスを代表として登録する.
+     *
+     * @param value
+     *            インスタンス.
+     * @return 代表インスタンス.
+     * @throws NullPointerException
+     *             指定されたインスタンスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたインスタンスが不変なクラスでない場合.
+     */
+    @NonNullReturnValue
+    public T intern(T value) {
+        if (!Interner.INTERNABLE.get(value.getClass())) {
+            throw new IllegalArgumentException(value.getClass().getName() + " is not an immutable final class.");
+        }
+        int hash = Interner.spread(this.hash.applyAsInt(value));
+        return this.stripes[this.bits == 0 ? 0 : hash >>> (Integer.SIZE - this.bits)].intern(value, hash,
+                this.equality);
+    }
+
+    /**
+     * ハッシュ値を拡散する. ストライプは上位ビットで, バケットは下位ビットで選ぶため, 乗算の前後で上位ビットを下位ビットに畳み込み,
+     * 下位ビットが揃ったハッシュ値 ({@code i << 16} 等) も上位ビットだけが揃ったハッシュ値も両方に散らばるようにする.
+     *
+     * @param hash
+     *            ハッシュ値.
+     * @return 拡散したハッシュ値.
+     */
+    static int spread(int hash) {
+        int returnValue = (hash ^ (hash >>> 16)) * 0x9E3779B9;
+        return returnValue ^ (returnValue >>> 16);
+    }
+
+    /**
+     * {@link #intern(Object)} と同じ.
+     *
+     * @param value
+     *            インスタンス.
+     * @return 代表インスタンス.
+     * @throws NullPointerException
+     *             指定されたインスタンスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたインスタンスが不変なクラスでない場合.
+     */
+    @NonNullReturnValue
+    @Override
+    public T apply(T value) {
+        return this.intern(value);
+    }
+
+    /**
+     * 保持している代表インスタンスの数を返す. 回収済みで未整理のものを含む場合がある.
+     *
+     * @return 代表インスタンスの数.
+     */
+    public int size() {
+        int returnValue = 0;
+        for (Interner.Stripe<T> stripe : this.stripes) {
+            returnValue += stripe.size();
+        }
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 代表インスタンスへの弱参照.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            インターンするクラス.
+     * @since 0.2
+     */
+    static final class Entry<T> extends WeakReference<T> {
+
+        /**
+         * ハッシュ値.
+         */
+        final int hash;
+
+        /**
+         * 同じバケットの次の要素.
+         */
+        Interner.Entry<T> next;
+
+        /**
+         * Constractor.
+         *
+         * @param value
+         *            代表インスタンス.
+         * @param queue
+         *            回収を通知するキュー.
+         * @param hash
+         *            ハッシュ値.
+         * @param next
+         *            同じバケットの次の要素.
+         */
+        Entry(T value, ReferenceQueue<? super T> queue, int hash, Interner.Entry<T> next) {
+            super(value, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    /**
+     * <p>
+     * 1 つのストライプのハッシュ表.
+     * </p>
+     * <p>
+     * 全ての操作はこのインスタンスで同期する.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            インターンするクラス.
+     * @since 0.2
+     */
+    @Exclusiveness
+    static final class Stripe<T> {
+
+        /**
+         * バケット.
+         */
+        private Interner.Entry<T>[] table = Interner.Stripe.newTable(16);
+
+        /**
+         * 要素数.
+         */
+        private int count;
+
+        /**
+         * 回収された代表インスタンスの通知.
+         */
+        private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+        /**
+         * Constractor.
+         */
+        Stripe() {
+            super();
+        }
+
+        /**
+         * 代表インスタンスを返す. 存在しない場合は指定されたインスタンスを登録する.
+         *
+         * @param value
+         *            インスタンス.
+         * @param hash
+         *            拡散したハッシュ値.
+         * @param equality
+         *            等価性の判定.
+         * @return 代表インスタンス.
+         */
+        synchronized T intern(T value, int hash, BiPredicate<? super T, ? super T> equality) {
+            this.expunge();
+            T returnValue = null;
+            int index = hash & (this.table.length - 1);
+            for (Interner.Entry<T> entry = this.table[index]; returnValue == null
+                    && entry != null; entry = entry.next) {
+                T current = entry.get();
+                if (entry.hash == hash && current != null && equality.test(current, value)) {
+                    returnValue = current;
+                }
+            }
+            if (returnValue == null) {
+                this.table[index] = new Interner.Entry<>(value, this.queue, hash, this.table[index]);
+                if (++this.count > this.table.length - (this.table.length >>> 2)) {
+                    this.resize();
+                }
+                returnValue = value;
+            }
+            return returnValue;
+        }
+
+        /**
+         * 要素数を返す.
+         *
+         * @return 要素数.
+         */
+        synchronized int size() {
+            this.expunge();
+            return this.count;
+        }
+
+        /**
+         * 回収された代表インスタンスの要素を取り除く.
+         */
+        @SuppressWarnings("unchecked")
+        private void expunge() {
+            for (Reference<? extends T> reference = this.queue.poll(); reference != null; reference = this.queue
+                    .poll()) {
+                Interner.Entry<T> target = (Interner.Entry<T>) reference;
+                int index = target.hash & (this.table.length - 1);
+                Interner.Entry<T> previous = null;
+                for (Interner.Entry<T> entry = this.table[index]; entry != null; entry = entry.next) {
+                    if (entry == target) {
+                        if (previous == null) {
+                            this.table[index] = entry.next;
+                        } else {
+                            previous.next = entry.next;
+                        }
+                        this.count--;
+                        break;
+                    }
+                    previous = entry;
+                }
+            }
+        }
+
+        /**
+         * バケットの数を 2 倍にする.
+         */
+        private void resize() {
+            Interner.Entry<T>[] table = Interner.Stripe.newTable(this.table.length << 1);
+            for (Interner.Entry<T> head : this.table) {
+                Interner.Entry<T> entry = head;
+                while (entry != null) {
+                    Interner.Entry<T> next = entry.next;
+                    int index = entry.hash & (table.length - 1);
+                    entry.next = table[index];
+                    table[index] = entry;
+                    entry = next;
+                }
+            }
+            this.table = table;
+        }
+
+        /**
+         * バケットの配列を生成する.
+         *
+         * @param <T>
+         *            インターンするクラス.
+         * @param length
+         *            バケットの数.
+         * @return バケットの配列.
+         */
+        @SuppressWarnings("unchecked")
+        private static <T> Interner.Entry<T>[] newTable(int length) {
+            return (Interner.Entry<T>[]) new Interner.Entry<?>[length];
+        }
+    }
+}
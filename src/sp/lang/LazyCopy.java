@@ -0,0 +1,420 @@
+/*
+sp.lang.LazyCopy
+sp.lang.LazyCopy.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * 必要な部分だけを後からコピーする, 遅延された深いコピー.
+ * </p>
+ * <p>
+ * {@link #snapshot()} はコピーを行わずに即座にスナップショットを返す. スナップショットの各ノードは,
+ * {@link LazyCopy.Node#get()} 等で初めてアクセスされた時点で {@link DeepCopier} と同じ規則でコピーされる. 1 つのスナップショット内では,
+ * 循環参照及び共有参照はそのままの形で複製される.
+ * </p>
+ * <p>
+ * Java ではフィールドへのアクセスを横取りできないため, スナップショットは元のオブジェクトと同じ型ではなく {@link LazyCopy.Node}
+ * を介して辿る. 元のオブジェクトグラフを変更する前には必ず {@link #beforeWrite()} を呼び出すこと (書き込みバリア). 未完了のスナップショットは
+ * その時点で全てコピーされ, 以降の変更から隔離される.
+ * </p>
+ *
+ * <pre>
+ * LazyCopy&lt;Graph&gt; lazy = LazyCopy.of(graph);
+ * LazyCopy.Node&lt;Graph&gt; snapshot = lazy.snapshot();
+ * String name = snapshot.child("owner").value("name", String.class);
+ *
+ * lazy.beforeWrite();
+ * graph.owner.name = "changed";
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            元のオブジェクトのクラス.
+ * @since 0.2
+ */
+public final class LazyCopy<T> {
+
+    /**
+     * 元のオブジェクト.
+     */
+    private final T source;
+
+    /**
+     * 未完了のスナップショット.
+     */
+    private final List<WeakReference<LazyCopy.Snapshot>> pending = new ArrayList<>();
+
+    /**
+     * Constractor.
+     *
+     * @param source
+     *            元のオブジェクト.
+     */
+    private LazyCopy(T source) {
+        super();
+        this.source = source;
+    }
+
+    /**
+     * 指定されたオブジェクトの遅延された深いコピーを生成する.
+     *
+     * @param <T>
+     *            元のオブジェクトのクラス.
+     * @param source
+     *            元のオブジェクト.
+     * @return 遅延された深いコピー.
+     * @throws NullPointerException
+     *             指定されたオブジェクトが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <T> LazyCopy<T> of(T source) {
+        return new LazyCopy<>(Objects.requireNonNull(source));
+    }
+
+    /**
+     * 元のオブジェクトを返す.
+     *
+     * @return 元のオブジェクト.
+     */
+    @NonNullReturnValue
+    public T source() {
+        return this.source;
+    }
+
+    /**
+     * 現時点のスナップショットを生成する. コピーは行わない.
+     *
+     * @return スナップショットのルート.
+     */
+    @NonNullReturnValue
+    public LazyCopy.Node<T> snapshot() {
+        LazyCopy.Snapshot snapshot = new LazyCopy.Snapshot(this.source);
+        synchronized (this.pending) {
+            this.pending.removeIf(reference -> reference.get() == null);
+            this.pending.add(new WeakReference<>(snapshot));
+        }
+        return new LazyCopy.Node<>(snapshot, this.source, false);
+    }
+
+    /**
+     * <p>
+     * 元のオブジェクトグラフを変更する前に呼び出す書き込みバリア.
+     * </p>
+     * <p>
+     * 未完了の全てのスナップショットを完全にコピーする.
+     * </p>
+     */
+    public void beforeWrite() {
+        List<LazyCopy.Snapshot> snapshots = new ArrayList<>();
+        synchronized (this.pending) {
+            for (WeakReference<LazyCopy.Snapshot> reference : this.pending) {
+                LazyCopy.Snapshot snapshot = reference.get();
+                if (snapshot != null) {
+                    snapshots.add(snapshot);
+                }
+            }
+            this.pending.clear();
+        }
+        snapshots.forEach(LazyCopy.Snapshot::materialize);
+    }
+
+    /**
+     * 未完了のスナップショットの数を返す.
+     *
+     * @return 未完了のスナップショットの数.
+     */
+    int pending() {
+        int returnValue = 0;
+        synchronized (this.pending) {
+            for (WeakReference<LazyCopy.Snapshot> reference : this.pending) {
+                LazyCopy.Snapshot snapshot = reference.get();
+                if (snapshot != null && !snapshot.materialized) {
+                    returnValue++;
+                }
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 1 つのスナップショットの状態.
+     * </p>
+     * <p>
+     * 複製元から複製への同一性マップを保持する. 全ての操作はこのインスタンスで同期する.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Snapshot {
+
+        /**
+         * 元のオブジェクト.
+         */
+        private final Object root;
+
+        /**
+         * コピー中の状態.
+         */
+        private final DeepCopier.Context context = new DeepCopier.Context(new IdentityHashMap<>());
+
+        /**
+         * 全てコピー済みの場合 TRUE.
+         */
+        volatile boolean materialized;
+
+        /**
+         * Constractor.
+         *
+         * @param root
+         *            元のオブジェクト.
+         */
+        Snapshot(Object root) {
+            super();
+            this.root = root;
+        }
+
+        /**
+         * 全てをコピーする.
+         */
+        synchronized void materialize() {
+            if (!this.materialized) {
+                this.context.copy(this.root);
+                this.materialized = true;
+            }
+        }
+
+        /**
+         * 指定された元のオブジェクトの複製を返す. コピーされていない場合はコピーする.
+         *
+         * @param source
+         *            元のオブジェクト.
+         * @return 複製.
+         */
+        synchronized Object copy(Object source) {
+            return this.context.copy(source);
+        }
+
+        /**
+         * 指定された元のオブジェクトの読み出し元を返す.
+         *
+         * @param source
+         *            元のオブジェクト.
+         * @return コピー済みの場合は複製. それ以外は元のオブジェクト.
+         */
+        synchronized Object resolve(Object source) {
+            Object returnValue = this.context.lookup(source);
+            if (returnValue == null) {
+                returnValue = this.materialized ? this.context.copy(source) : source;
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * <p>
+     * スナップショット内の 1 つのノード.
+     * </p>
+     * <p>
+     * 子ノードの取得はコピーを伴わない. {@link #get()} 又は {@link #value(String, Class)} で参照型の値を取り出した時点で, その部分グラフがコピーされる.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            ノードのクラス.
+     * @since 0.2
+     */
+    public static final class Node<T> {
+
+        /**
+         * スナップショット.
+         */
+        private final LazyCopy.Snapshot snapshot;
+
+        /**
+         * 元のオブジェクト又は複製.
+         */
+        private final Object target;
+
+        /**
+         * {@link #target} が複製の場合 TRUE.
+         */
+        private final boolean copied;
+
+        /**
+         * Constractor.
+         *
+         * @param snapshot
+         *            スナップショット.
+         * @param target
+         *            元のオブジェクト又は複製.
+         * @param copied
+         *            {@link #target} が複製の場合 TRUE.
+         */
+        Node(LazyCopy.Snapshot snapshot, Object target, boolean copied) {
+            super();
+            this.snapshot = snapshot;
+            this.target = target;
+            this.copied = copied;
+        }
+
+        /**
+         * このノードが NULL か判定する.
+         *
+         * @return NULL の場合 TRUE.
+         */
+        public boolean isNull() {
+            return this.target == null;
+        }
+
+        /**
+         * このノード以下の部分グラフをコピーして返す. 2 回目以降は同じ複製を返す.
+         *
+         * @return 複製. このノードが NULL の場合は NULL.
+         */
+        @SuppressWarnings("unchecked")
+        public T get() {
+            return (T) (this.copied ? this.target : this.snapshot.copy(this.target));
+        }
+
+        /**
+         * 指定された名前の参照型フィールドの子ノードを返す. コピーは行わない.
+         *
+         * @param <R>
+         *            子ノードのクラス.
+         * @param name
+         *            フィールド名.
+         * @return 子ノード.
+         * @throws NullPointerException
+         *             指定された名前が NULL の場合, 又はこのノードが NULL の場合.
+         * @throws IllegalArgumentException
+         *             指定された名前の参照型フィールドが存在しない場合.
+         */
+        @NonNullReturnValue
+        public <R> LazyCopy.Node<R> child(String name) {
+            Objects.requireNonNull(name);
+            synchronized (this.snapshot) {
+                Object current = this.current();
+                ClassLayout layout = ClassLayout.of(current.getClass());
+                int index = ClassLayout.indexOf(layout.references, name);
+                if (index < 0) {
+                    throw new IllegalArgumentException(
+                            current.getClass().getName() + " has no reference field " + name);
+                }
+                return this.childOf(current, layout.get(index, current));
+            }
+        }
+
+        /**
+         * 指定された位置の配列又は {@link List} の要素の子ノードを返す. コピーは行わない.
+         *
+         * @param <R>
+         *            子ノードのクラス.
+         * @param index
+         *            要素の位置.
+         * @return 子ノード.
+         * @throws NullPointerException
+         *             このノードが NULL の場合.
+         * @throws IllegalArgumentException
+         *             このノードが参照型の配列でも {@link List} でもない場合.
+         * @throws IndexOutOfBoundsException
+         *             指定された位置が範囲外の場合.
+         */
+        @NonNullReturnValue
+        public <R> LazyCopy.Node<R> child(int index) {
+            synchronized (this.snapshot) {
+                Object current = this.current();
+                Object element = null;
+                if (current instanceof Object[]) {
+                    element = ((Object[]) current)[index];
+                } else if (current instanceof List) {
+                    element = ((List<?>) current).get(index);
+                } else {
+                    throw new IllegalArgumentException(current.getClass().getName() + " is not an array or a list.");
+                }
+                return this.childOf(current, element);
+            }
+        }
+
+        /**
+         * 指定された名前のフィールドの値を返す. 参照型の場合はその部分グラフをコピーする.
+         *
+         * @param <R>
+         *            値のクラス.
+         * @param name
+         *            フィールド名.
+         * @param type
+         *            値のクラス. プリミティブ型の場合はボクシングされたクラス.
+         * @return フィールドの値.
+         * @throws NullPointerException
+         *             指定された名前又はクラスが NULL の場合, 又はこのノードが NULL の場合.
+         * @throws IllegalArgumentException
+         *             指定された名前のフィールドが存在しない場合.
+         * @throws ClassCastException
+         *             値が指定されたクラスではない場合.
+         */
+        public <R> R value(String name, Class<R> type) {
+            Objects.requireNonNull(name);
+            Objects.requireNonNull(type);
+            Object returnValue = null;
+            synchronized (this.snapshot) {
+                Object current = this.current();
+                ClassLayout layout = ClassLayout.of(current.getClass());
+                int index = ClassLayout.indexOf(layout.primitives, name);
+                if (index >= 0) {
+                    returnValue = layout.getPrimitive(index, current);
+                } else {
+                    index = ClassLayout.indexOf(layout.references, name);
+                    if (index < 0) {
+                        throw new IllegalArgumentException(current.getClass().getName() + " has no field " + name);
+                    }
+                    returnValue = this.childOf(current, layout.get(index, current)).get();
+                }
+            }
+            return type.cast(returnValue);
+        }
+
+        /**
+         * 読み出し元のオブジェクトを返す.
+         *
+         * @return コピー済みの場合は複製. それ以外は元のオブジェクト.
+         * @throws NullPointerException
+         *             このノードが NULL の場合.
+         */
+        private Object current() {
+            Objects.requireNonNull(this.target, "node is null");
+            return this.copied ? this.target : this.snapshot.resolve(this.target);
+        }
+
+        /**
+         * 読み出し元から取得した値の子ノードを生成する.
+         *
+         * @param <R>
+         *            子ノードのクラス.
+         * @param current
+         *            読み出し元.
+         * @param value
+         *            読み出し元から取得した値.
+         * @return 子ノード.
+         */
+        private <R> LazyCopy.Node<R> childOf(Object current, Object value) {
+            boolean copied = this.copied || current != this.target || value == null;
+            return new LazyCopy.Node<>(this.snapshot, value, copied);
+        }
+    }
+}
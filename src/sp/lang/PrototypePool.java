@@ -0,0 +1,119 @@
+/*
+sp.lang.PrototypePool
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * 原型の深いコピーを再利用するプール.
+ * </p>
+ * <p>
+ * {@link #acquire()} は返却されたインスタンスがあれば {@link DeepCopier#copyInto(Object, Object)} で原型の状態に戻して返し,
+ * なければ {@link DeepCopier#copy(Object)} で新しく生成する. 返却されたインスタンスが持つ配列やコレクションも再利用されるため,
+ * 繰り返し生成される状態オブジェクトの割り当てを抑えられる. 再利用できない部分 (final なフィールドの値が原型と異なるオブジェクト等) は新しく生成する.
+ * </p>
+ * <p>
+ * スレッドセーフである. ただし原型はプールの使用中に変更してはならない.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            原型のクラス.
+ * @since 0.2
+ */
+public final class PrototypePool<T> {
+
+    /**
+     * 原型.
+     */
+    private final T prototype;
+
+    /**
+     * 返却されたインスタンス.
+     */
+    private final BlockingQueue<T> pool;
+
+    /**
+     * Constractor.
+     *
+     * @param prototype
+     *            原型.
+     * @param capacity
+     *            保持する返却されたインスタンスの最大数.
+     * @throws NullPointerException
+     *             指定された原型が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された最大数が 1 未満の場合.
+     */
+    public PrototypePool(T prototype, int capacity) {
+        super();
+        this.prototype = Objects.requireNonNull(prototype);
+        this.pool = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 原型を返す.
+     *
+     * @return 原型.
+     */
+    @NonNullReturnValue
+    public T prototype() {
+        return this.prototype;
+    }
+
+    /**
+     * 原型と同じ状態のインスタンスを取得する.
+     *
+     * @return 原型の深いコピー. 原型とも, 使用中の他のインスタンスとも状態を共有しない.
+     * @throws IllegalArgumentException
+     *             原型をコピーできない場合.
+     */
+    @NonNullReturnValue
+    public T acquire() {
+        T returnValue = this.pool.poll();
+        if (returnValue == null) {
+            returnValue = DeepCopier.copy(this.prototype);
+        } else {
+            returnValue = DeepCopier.copyOrReuse(this.prototype, returnValue);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 使用を終えたインスタンスを返却する. プールが一杯の場合は破棄される.
+     *
+     * @param instance
+     *            {@link #acquire()} で取得したインスタンス. 返却後は使用してはならない.
+     * @return プールに保持された場合 TRUE.
+     * @throws NullPointerException
+     *             指定されたインスタンスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたインスタンスが原型自身, 又は原型と異なるクラスの場合.
+     */
+    public boolean release(T instance) {
+        if (Objects.requireNonNull(instance) == this.prototype || instance.getClass() != this.prototype.getClass()) {
+            throw new IllegalArgumentException("instance is not acquired from this pool.");
+        }
+        return this.pool.offer(instance);
+    }
+
+    /**
+     * 保持している返却されたインスタンスの数を返す.
+     *
+     * @return 保持しているインスタンスの数.
+     */
+    public int size() {
+        return this.pool.size();
+    }
+}
@@ -8,6 +8,8 @@ http://opensource.org/licenses/mit-license.php
 */
 package sp.lang;
 
+import java.util.Objects;
+
 import sp.base.NonNullReturnValue;
 
 /**
@@ -28,4 +30,41 @@ public interface ShallowCopyable<R> extends Cloneable {
      */
     @NonNullReturnValue
     R clone();
+
+    /**
+     * <p>
+     * このオブジェクトの全てのフィールドを既存のオブジェクトに浅くコピーする.
+     * </p>
+     * <p>
+     * 新しいインスタンスを生成しないため, ダブルバッファ等で繰り返しコピーする場合に {@link #clone()} の代わりに用いる. 戻り値を複製として用いること.
+     * </p>
+     * <p>
+     * 既定の実装は final なフィールドには書き込まず, final でない全てのフィールドを複製先に書き込む. final なフィールドの値 (プリミティブ型は値, 参照型は同一性)
+     * が複製先と異なる場合 (不変なクラス等), 及びフィールドにアクセスできないクラスの場合は複製先を変更せず, {@link #clone()} の結果を返す.
+     * 不変なクラスは既存のオブジェクトに書き込めないため, このメソッドをオーバーライドせず, {@link #clone()} でこのインスタンスを返せばよい.
+     * </p>
+     *
+     * @param target
+     *            複製先.
+     * @return 複製先. 複製先を再利用できない場合は {@link #clone()} の結果 (不変なクラスではこのインスタンス自身となり得る).
+     * @throws NullPointerException
+     *             指定された複製先が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された複製先がこのオブジェクトと同じクラスでない場合.
+     * @since 0.2
+     */
+    @NonNullReturnValue
+    default R copyInto(R target) {
+        if (Objects.requireNonNull(target).getClass() != this.getClass()) {
+            throw new IllegalArgumentException("target must be an instance of " + this.getClass().getName());
+        }
+        R returnValue = target;
+        ClassLayout layout = ClassLayout.isAccessible(this.getClass()) ? ClassLayout.of(this.getClass()) : null;
+        if (layout != null && layout.sameFinals(target, this)) {
+            layout.copyFields(target, this);
+        } else {
+            returnValue = this.clone();
+        }
+        return returnValue;
+    }
 }
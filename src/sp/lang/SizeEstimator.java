@@ -0,0 +1,991 @@
+/*
+sp.lang.SizeEstimator
+sp.lang.SizeEstimator.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * オブジェクトのヒープ上の大きさの推定.
+ * </p>
+ * <p>
+ * インスタンスの大きさはフィールドの宣言から HotSpot の典型的なフィールド配置 (大きい型から順に詰め, 8 バイト境界の隙間を小さい型で埋める)
+ * に従って計算し, クラス毎にキャッシュする. オブジェクトヘッダ及び参照の大きさは圧縮ポインタの設定に, インスタンス全体はアライメントの設定に従う.
+ * JVM の実際の配置とは異なる場合があるため, 推定値として扱うこと.
+ * </p>
+ * <p>
+ * オブジェクトグラフの大きさは, 到達可能な全てのオブジェクトを同一性で 1 度だけ数える. {@link Class} と列挙型の定数は数えない.
+ * フィールドにアクセスできないクラス (Java 9 以降のモジュールで保護された標準ライブラリのクラス等) は, {@link DeepCopier} と同じくコレクション及びマップの要素だけを辿り,
+ * 辿れない内部の配列及びノードは要素数から推定して所有するオブジェクトの大きさに加える. 推定するのは {@link String} の文字の配列,
+ * ハッシュ表 ({@link HashMap}, {@link HashSet}, {@link Hashtable}, {@link ConcurrentHashMap} 等) の表とノード, 木 ({@link TreeMap},
+ * {@link TreeSet}) 及び {@link LinkedList} のノード, 配列によるコレクション ({@link ArrayList}, {@link ArrayDeque} 等) の配列 (容量ではなく要素数)
+ * に限る. それ以外のクラスの内部は数えないため, その場合の推定値は下限となる.
+ * </p>
+ * <p>
+ * 保持サイズ (そのオブジェクトが回収された場合に共に回収されるオブジェクトの大きさの合計) は, 起点から辿ったグラフの支配木から求める.
+ * グラフの外からの参照は見えないため, 起点以外から参照されているオブジェクトの保持サイズは実際より大きくなり得る.
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class SizeEstimator {
+
+    /**
+     * 実行中の JVM の設定に従う推定.
+     */
+    private static final SizeEstimator CURRENT = SizeEstimator.detect();
+
+    /**
+     * ハッシュ表の既定の容量.
+     */
+    private static final int DEFAULT_TABLE = 16;
+
+    /**
+     * クラス毎の, 辿れない内部の構造.
+     */
+    private static final ClassValue<SizeEstimator.Internals> INTERNALS = new ClassValue<SizeEstimator.Internals>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected SizeEstimator.Internals computeValue(Class<?> type) {
+            return SizeEstimator.Internals.of(type);
+        }
+    };
+
+    /**
+     * {@link String} の文字の配列の要素の型 (Java 9 以降は byte, それ以前は char).
+     */
+    private static final Class<?> STRING_COMPONENT = SizeEstimator.stringComponent();
+
+    /**
+     * 64 ビット JVM の場合 TRUE.
+     */
+    private final boolean wide;
+
+    /**
+     * 圧縮された参照を用いる場合 TRUE.
+     */
+    private final boolean compressedOops;
+
+    /**
+     * 圧縮されたクラスポインタを用いる場合 TRUE.
+     */
+    private final boolean compressedClassPointers;
+
+    /**
+     * オブジェクトのアライメント (バイト).
+     */
+    private final int alignment;
+
+    /**
+     * クラス毎のインスタンスの大きさ.
+     */
+    private final ClassValue<Long> sizes = new ClassValue<Long>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return SizeEstimator.this.computeInstanceSize(type);
+        }
+    };
+
+    /**
+     * Constractor.
+     *
+     * @param wide
+     *            64 ビット JVM の場合 TRUE.
+     * @param compressedOops
+     *            圧縮された参照を用いる場合 TRUE.
+     * @param compressedClassPointers
+     *            圧縮されたクラスポインタを用いる場合 TRUE.
+     * @param alignment
+     *            オブジェクトのアライメント (バイト).
+     */
+    private SizeEstimator(boolean wide, boolean compressedOops, boolean compressedClassPointers, int alignment) {
+        super();
+        this.wide = wide;
+        this.compressedOops = wide && compressedOops;
+        this.compressedClassPointers = wide && compressedClassPointers;
+        this.alignment = alignment;
+    }
+
+    /**
+     * 実行中の JVM の設定に従う推定を返す.
+     *
+     * @return 実行中の JVM の設定に従う推定.
+     */
+    @NonNullReturnValue
+    public static SizeEstimator current() {
+        return SizeEstimator.CURRENT;
+    }
+
+    /**
+     * 64 ビット JVM の指定された設定に従う推定を返す.
+     *
+     * @param compressedOops
+     *            圧縮された参照を用いる場合 TRUE (-XX:+UseCompressedOops).
+     * @param compressedClassPointers
+     *            圧縮されたクラスポインタを用いる場合 TRUE (-XX:+UseCompressedClassPointers).
+     * @param alignment
+     *            オブジェクトのアライメント (-XX:ObjectAlignmentInBytes).
+     * @return 推定.
+     * @throws IllegalArgumentException
+     *             アライメントが 8 以上 256 以下の 2 の累乗でない場合.
+     */
+    @NonNullReturnValue
+    public static SizeEstimator of(boolean compressedOops, boolean compressedClassPointers, int alignment) {
+        if (alignment < 8 || alignment > 256 || Integer.bitCount(alignment) != 1) {
+            throw new IllegalArgumentException("alignment must be a power of two between 8 and 256: " + alignment);
+        }
+        return new SizeEstimator(true, compressedOops, compressedClassPointers, alignment);
+    }
+
+    /**
+     * 実行中の JVM の設定を調べる. 調べられない場合は 64 ビットの既定値 (最大ヒープが 32 GB 未満なら圧縮された参照を用いる) とする.
+     *
+     * @return 実行中の JVM の設定に従う推定.
+     */
+    private static SizeEstimator detect() {
+        boolean wide = !"32".equals(System.getProperty("sun.arch.data.model"));
+        boolean compressedOops = Runtime.getRuntime().maxMemory() < (32L << 30);
+        boolean compressedClassPointers = compressedOops;
+        int alignment = 8;
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            if (bean != null) {
+                compressedOops = Boolean.parseBoolean(bean.getVMOption("UseCompressedOops").getValue());
+                compressedClassPointers = Boolean
+                        .parseBoolean(bean.getVMOption("UseCompressedClassPointers").getValue());
+                alignment = Integer.parseInt(bean.getVMOption("ObjectAlignmentInBytes").getValue());
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // 既定値を用いる.
+        }
+        return new SizeEstimator(wide, compressedOops, compressedClassPointers, alignment);
+    }
+
+    /**
+     * 圧縮された参照を用いるか判定する.
+     *
+     * @return 圧縮された参照を用いる場合 TRUE.
+     */
+    public boolean isCompressedOops() {
+        return this.compressedOops;
+    }
+
+    /**
+     * オブジェクトのアライメントを返す.
+     *
+     * @return オブジェクトのアライメント (バイト).
+     */
+    public int alignment() {
+        return this.alignment;
+    }
+
+    /**
+     * 参照の大きさを返す.
+     *
+     * @return 参照の大きさ (バイト).
+     */
+    public int referenceSize() {
+        return this.wide && !this.compressedOops ? 8 : 4;
+    }
+
+    /**
+     * オブジェクトヘッダの大きさを返す.
+     *
+     * @return オブジェクトヘッダの大きさ (バイト).
+     */
+    public int headerSize() {
+        return !this.wide ? 8 : this.compressedClassPointers ? 12 : 16;
+    }
+
+    /**
+     * 配列の要素の開始位置を返す.
+     *
+     * @return 配列ヘッダ (長さを含む) の大きさ (バイト).
+     */
+    public int arrayHeaderSize() {
+        return !this.wide ? 12 : this.compressedClassPointers ? 16 : 24;
+    }
+
+    /**
+     * 指定されたクラスのインスタンスの大きさを返す.
+     *
+     * @param type
+     *            配列以外のクラス.
+     * @return インスタンスの大きさ (バイト).
+     * @throws NullPointerException
+     *             指定されたクラスが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたクラスが配列, プリミティブ型又はインタフェースの場合.
+     */
+    public long instanceSize(Class<?> type) {
+        if (type.isArray() || type.isPrimitive() || type.isInterface()) {
+            throw new IllegalArgumentException(type.getName() + " has no fixed instance size.");
+        }
+        return this.sizes.get(type);
+    }
+
+    /**
+     * 指定された配列の大きさを返す.
+     *
+     * @param componentType
+     *            要素の型.
+     * @param length
+     *            長さ.
+     * @return 配列の大きさ (バイト).
+     * @throws NullPointerException
+     *             指定された型が NULL の場合.
+     * @throws IllegalArgumentException
+     *             長さが負の場合.
+     */
+    public long arraySize(Class<?> componentType, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative: " + length);
+        }
+        return this.align(this.arrayHeaderSize() + (long) length * this.sizeOf(componentType));
+    }
+
+    /**
+     * 指定されたオブジェクト自身の大きさを返す. 参照先のオブジェクトは含まない.
+     *
+     * @param target
+     *            対象のオブジェクト.
+     * @return オブジェクト自身の大きさ (バイト). NULL の場合は 0.
+     */
+    public long shallowSizeOf(Object target) {
+        long returnValue = 0;
+        if (target != null) {
+            Class<?> type = target.getClass();
+            returnValue = type.isArray() ? this.arraySize(type.getComponentType(), Array.getLength(target))
+                    : this.sizes.get(type);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定されたオブジェクトから到達可能な全てのオブジェクトの大きさの合計を返す. 共有されたオブジェクトは 1 度だけ数える.
+     * グラフ内の各オブジェクトの保持サイズは {@link #retention(Object)} で求める.
+     *
+     * @param root
+     *            起点のオブジェクト.
+     * @return 大きさの合計 (バイト). NULL の場合は 0.
+     */
+    public long reachableSizeOf(Object root) {
+        return this.measure(root).bytes();
+    }
+
+    /**
+     * 指定されたオブジェクトから到達可能な全てのオブジェクトの大きさを, クラス毎に集計する.
+     *
+     * @param root
+     *            起点のオブジェクト.
+     * @return 集計結果.
+     */
+    @NonNullReturnValue
+    public SizeEstimator.Footprint measure(Object root) {
+        SizeEstimator.Footprint returnValue = new SizeEstimator.Footprint();
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> queue = new ArrayDeque<>();
+        if (SizeEstimator.isCounted(root)) {
+            visited.add(root);
+            queue.add(root);
+        }
+        while (!queue.isEmpty()) {
+            Object target = queue.poll();
+            returnValue.add(target.getClass(), this.shallowSizeOf(target) + this.hiddenSizeOf(target));
+            SizeEstimator.children(target, child -> {
+                if (SizeEstimator.isCounted(child) && visited.add(child)) {
+                    queue.add(child);
+                }
+            });
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定されたオブジェクトから到達可能なグラフの支配木を求め, グラフ内の各オブジェクトの保持サイズを計算する. 支配木は Cooper, Harvey,
+     * Kennedy の反復法で求める.
+     *
+     * @param root
+     *            起点のオブジェクト.
+     * @return 保持サイズ. NULL の場合は何も含まない.
+     */
+    @NonNullReturnValue
+    public SizeEstimator.Retention retention(Object root) {
+        // 幅優先で番号を振り, 参照先の番号を集める.
+        Map<Object, Integer> ids = new IdentityHashMap<>();
+        List<Object> objects = new ArrayList<>();
+        List<int[]> successors = new ArrayList<>();
+        if (SizeEstimator.isCounted(root)) {
+            ids.put(root, 0);
+            objects.add(root);
+        }
+        for (int id = 0; id < objects.size(); id++) {
+            List<Integer> edges = new ArrayList<>();
+            SizeEstimator.children(objects.get(id), child -> {
+                if (SizeEstimator.isCounted(child)) {
+                    Integer next = ids.get(child);
+                    if (next == null) {
+                        next = objects.size();
+                        ids.put(child, next);
+                        objects.add(child);
+                    }
+                    edges.add(next);
+                }
+            });
+            successors.add(edges.stream().mapToInt(Integer::intValue).toArray());
+        }
+        int size = objects.size();
+
+        // 深さ優先の帰りがけ順と, 参照元の番号を求める.
+        int[] order = new int[size];
+        int[] post = new int[size];
+        int[] cursors = new int[size];
+        int[] stack = new int[size];
+        boolean[] seen = new boolean[size];
+        List<List<Integer>> predecessors = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            predecessors.add(new ArrayList<>());
+        }
+        int depth = 0;
+        int finished = 0;
+        if (size > 0) {
+            stack[depth++] = 0;
+            seen[0] = true;
+        }
+        while (depth > 0) {
+            int current = stack[depth - 1];
+            int[] edges = successors.get(current);
+            if (cursors[current] < edges.length) {
+                int next = edges[cursors[current]++];
+                predecessors.get(next).add(current);
+                if (!seen[next]) {
+                    seen[next] = true;
+                    stack[depth++] = next;
+                }
+            } else {
+                depth--;
+                post[current] = finished;
+                order[finished++] = current;
+            }
+        }
+
+        // 帰りがけ順の逆順に, 直接の支配者が変化しなくなるまで繰り返す.
+        int[] dominators = new int[size];
+        Arrays.fill(dominators, -1);
+        if (size > 0) {
+            dominators[0] = 0;
+        }
+        boolean changed = size > 1;
+        while (changed) {
+            changed = false;
+            for (int index = size - 2; index >= 0; index--) {
+                int current = order[index];
+                int dominator = -1;
+                for (int predecessor : predecessors.get(current)) {
+                    if (dominators[predecessor] != -1) {
+                        dominator = dominator == -1 ? predecessor
+                                : SizeEstimator.intersect(dominators, post, predecessor, dominator);
+                    }
+                }
+                if (dominators[current] != dominator) {
+                    dominators[current] = dominator;
+                    changed = true;
+                }
+            }
+        }
+
+        // 帰りがけ順に, 自身の保持サイズを直接の支配者に加える.
+        long[] shallow = new long[size];
+        long[] retained = new long[size];
+        for (int id = 0; id < size; id++) {
+            Object target = objects.get(id);
+            shallow[id] = this.shallowSizeOf(target) + this.hiddenSizeOf(target);
+            retained[id] = shallow[id];
+        }
+        for (int index = 0; index < size - 1; index++) {
+            int current = order[index];
+            retained[dominators[current]] += retained[current];
+        }
+        return new SizeEstimator.Retention(ids, objects.toArray(), dominators, shallow, retained);
+    }
+
+    /**
+     * 支配木上の 2 つのオブジェクトに共通する最も近い支配者を求める.
+     *
+     * @param dominators
+     *            直接の支配者.
+     * @param post
+     *            帰りがけ順の番号.
+     * @param left
+     *            オブジェクトの番号.
+     * @param right
+     *            オブジェクトの番号.
+     * @return 共通する支配者の番号.
+     */
+    private static int intersect(int[] dominators, int[] post, int left, int right) {
+        int returnValue = left;
+        int other = right;
+        while (returnValue != other) {
+            while (post[returnValue] < post[other]) {
+                returnValue = dominators[returnValue];
+            }
+            while (post[other] < post[returnValue]) {
+                other = dominators[other];
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 集計の対象となるオブジェクトか判定する.
+     *
+     * @param target
+     *            対象のオブジェクト.
+     * @return NULL, {@link Class} 及び列挙型の定数以外の場合 TRUE.
+     */
+    private static boolean isCounted(Object target) {
+        return target != null && !(target instanceof Class) && !(target instanceof Enum);
+    }
+
+    /**
+     * 参照先のオブジェクトを列挙する.
+     *
+     * @param target
+     *            対象のオブジェクト.
+     * @param action
+     *            参照先毎の処理.
+     */
+    private static void children(Object target, Consumer<Object> action) {
+        Class<?> type = target.getClass();
+        if (target instanceof Object[]) {
+            for (Object element : (Object[]) target) {
+                action.accept(element);
+            }
+        } else if (!type.isArray()) {
+            if (ClassLayout.isAccessible(type)) {
+                ClassLayout layout = ClassLayout.of(type);
+                for (int index = 0; index < layout.references.length; index++) {
+                    action.accept(layout.get(index, target));
+                }
+            } else {
+                DeepCopier.strategyOf(type).children(target, action);
+            }
+        }
+    }
+
+    /**
+     * フィールドにアクセスできないオブジェクトの, 辿れない内部の配列及びノードの大きさを推定する.
+     *
+     * @param target
+     *            対象のオブジェクト.
+     * @return 推定した大きさ (バイト). フィールドを辿れる場合, 又は推定できないクラスの場合は 0.
+     */
+    long hiddenSizeOf(Object target) {
+        long returnValue = 0;
+        Class<?> type = target.getClass();
+        boolean hidden = !type.isArray() && !ClassLayout.isAccessible(type);
+        if (hidden && target instanceof String) {
+            String value = (String) target;
+            int length = value.length();
+            if (SizeEstimator.STRING_COMPONENT == byte.class) {
+                // Latin-1 で表せない文字を含む場合は 1 文字 2 バイトとなる.
+                for (int index = 0; index < value.length(); index++) {
+                    if (value.charAt(index) > 0xFF) {
+                        length = value.length() * 2;
+                        break;
+                    }
+                }
+            }
+            returnValue = this.arraySize(SizeEstimator.STRING_COMPONENT, length);
+        } else if (hidden) {
+            SizeEstimator.Internals internals = SizeEstimator.INTERNALS.get(type);
+            long size = target instanceof Map ? ((Map<?, ?>) target).size()
+                    : target instanceof Collection ? ((Collection<?>) target).size() : 0;
+            if (internals.owner != null) {
+                returnValue += this.instanceSize(internals.owner);
+            }
+            if (internals.node != null) {
+                returnValue += size * this.instanceSize(internals.node);
+            }
+            if (internals.table && size > 0) {
+                // 負荷係数 0.75 で要素数を収める 2 の累乗.
+                long capacity = Long.highestOneBit(Math.max((size * 4 + 2) / 3 - 1, 1)) << 1;
+                capacity = Math.max(SizeEstimator.DEFAULT_TABLE, Math.min(capacity, 1 << 30));
+                returnValue += this.arraySize(Object.class, (int) capacity);
+            }
+            if (internals.array) {
+                returnValue += this.arraySize(Object.class, (int) size);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * {@link String} の文字の配列の要素の型を調べる.
+     *
+     * @return 要素の型. 調べられない場合は char.
+     */
+    private static Class<?> stringComponent() {
+        Class<?> returnValue = char.class;
+        try {
+            returnValue = String.class.getDeclaredField("value").getType().getComponentType();
+        } catch (NoSuchFieldException | RuntimeException e) {
+            // 既定値を用いる.
+        }
+        return returnValue == null ? char.class : returnValue;
+    }
+
+    /**
+     * 指定されたクラスのインスタンスの大きさを計算する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return インスタンスの大きさ (バイト).
+     */
+    long computeInstanceSize(Class<?> type) {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            hierarchy.add(0, current);
+        }
+        long offset = this.headerSize();
+        for (Class<?> current : hierarchy) {
+            int[] counts = new int[9];
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    counts[this.sizeOf(field.getType())]++;
+                }
+            }
+            if (counts[8] > 0 && offset % 8 != 0) {
+                long gap = 8 - offset % 8;
+                for (int size = 4; size > 0; size >>= 1) {
+                    while (counts[size] > 0 && gap >= size) {
+                        counts[size]--;
+                        gap -= size;
+                        offset += size;
+                    }
+                }
+                offset += gap;
+            }
+            for (int size = 8; size > 0; size >>= 1) {
+                offset += (long) size * counts[size];
+            }
+        }
+        return this.align(offset);
+    }
+
+    /**
+     * 指定された型の値の大きさを返す.
+     *
+     * @param type
+     *            型.
+     * @return 値の大きさ (バイト).
+     */
+    private int sizeOf(Class<?> type) {
+        int returnValue = this.referenceSize();
+        if (type == long.class || type == double.class) {
+            returnValue = 8;
+        } else if (type == int.class || type == float.class) {
+            returnValue = 4;
+        } else if (type == short.class || type == char.class) {
+            returnValue = 2;
+        } else if (type == byte.class || type == boolean.class) {
+            returnValue = 1;
+        }
+        return returnValue;
+    }
+
+    /**
+     * アライメントに合わせて切り上げる.
+     *
+     * @param size
+     *            大きさ.
+     * @return 切り上げた大きさ.
+     */
+    private long align(long size) {
+        return (size + this.alignment - 1) & -this.alignment;
+    }
+
+    /**
+     * フィールドを辿れない標準ライブラリのコレクション及びマップの内部の構造.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Internals {
+
+        /**
+         * 内部に保持する委譲先のクラス ({@link HashSet} の {@link HashMap} 等). 存在しない場合は NULL.
+         */
+        final Class<?> owner;
+
+        /**
+         * 要素毎のノードのクラス. 存在しない場合, 又は読み込めない場合は NULL.
+         */
+        final Class<?> node;
+
+        /**
+         * ハッシュ表を持つ場合 TRUE.
+         */
+        final boolean table;
+
+        /**
+         * 要素を並べた配列を持つ場合 TRUE.
+         */
+        final boolean array;
+
+        /**
+         * Constractor.
+         *
+         * @param owner
+         *            内部に保持する委譲先のクラス.
+         * @param node
+         *            要素毎のノードのクラス名.
+         * @param table
+         *            ハッシュ表を持つ場合 TRUE.
+         * @param array
+         *            要素を並べた配列を持つ場合 TRUE.
+         */
+        private Internals(Class<?> owner, String node, boolean table, boolean array) {
+            super();
+            Class<?> type = null;
+            if (node != null) {
+                try {
+                    type = Class.forName(node, false, null);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // ノードは数えない.
+                }
+            }
+            this.owner = owner;
+            this.node = type;
+            this.table = table;
+            this.array = array;
+        }
+
+        /**
+         * 指定されたクラスの内部の構造を返す.
+         *
+         * @param type
+         *            対象のクラス.
+         * @return 内部の構造. 推定できないクラスの場合は何も持たない構造.
+         */
+        static SizeEstimator.Internals of(Class<?> type) {
+            SizeEstimator.Internals returnValue = null;
+            if (LinkedHashSet.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(LinkedHashMap.class, "java.util.LinkedHashMap$Entry", true,
+                        false);
+            } else if (HashSet.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(HashMap.class, "java.util.HashMap$Node", true, false);
+            } else if (LinkedHashMap.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(null, "java.util.LinkedHashMap$Entry", true, false);
+            } else if (HashMap.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(null, "java.util.HashMap$Node", true, false);
+            } else if (Hashtable.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(null, "java.util.Hashtable$Entry", true, false);
+            } else if (ConcurrentHashMap.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(null, "java.util.concurrent.ConcurrentHashMap$Node", true,
+                        false);
+            } else if (TreeSet.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(TreeMap.class, "java.util.TreeMap$Entry", false, false);
+            } else if (TreeMap.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(null, "java.util.TreeMap$Entry", false, false);
+            } else if (LinkedList.class.isAssignableFrom(type)) {
+                returnValue = new SizeEstimator.Internals(null, "java.util.LinkedList$Node", false, false);
+            } else {
+                returnValue = new SizeEstimator.Internals(null, null, false,
+                        ArrayList.class.isAssignableFrom(type) || ArrayDeque.class.isAssignableFrom(type)
+                                || Vector.class.isAssignableFrom(type) || PriorityQueue.class.isAssignableFrom(type));
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * <p>
+     * オブジェクトグラフ内の各オブジェクトの保持サイズ.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static final class Retention {
+
+        /**
+         * オブジェクト毎の番号.
+         */
+        private final Map<Object, Integer> ids;
+
+        /**
+         * 番号毎のオブジェクト.
+         */
+        private final Object[] objects;
+
+        /**
+         * 番号毎の直接の支配者の番号. 起点は自身.
+         */
+        private final int[] dominators;
+
+        /**
+         * 番号毎の, 辿れない内部を含むオブジェクト自身の大きさ.
+         */
+        private final long[] shallow;
+
+        /**
+         * 番号毎の保持サイズ.
+         */
+        private final long[] retained;
+
+        /**
+         * Constractor.
+         *
+         * @param ids
+         *            オブジェクト毎の番号.
+         * @param objects
+         *            番号毎のオブジェクト.
+         * @param dominators
+         *            番号毎の直接の支配者の番号.
+         * @param shallow
+         *            番号毎のオブジェクト自身の大きさ.
+         * @param retained
+         *            番号毎の保持サイズ.
+         */
+        Retention(Map<Object, Integer> ids, Object[] objects, int[] dominators, long[] shallow, long[] retained) {
+            super();
+            this.ids = ids;
+            this.objects = objects;
+            this.dominators = dominators;
+            this.shallow = shallow;
+            this.retained = retained;
+        }
+
+        /**
+         * オブジェクト数を返す.
+         *
+         * @return グラフ内のオブジェクト数.
+         */
+        public int objects() {
+            return this.objects.length;
+        }
+
+        /**
+         * 起点の保持サイズを返す. 到達可能な全てのオブジェクトの大きさの合計と等しい.
+         *
+         * @return 起点の保持サイズ (バイト). 起点が NULL の場合は 0.
+         */
+        public long bytes() {
+            return this.objects.length == 0 ? 0 : this.retained[0];
+        }
+
+        /**
+         * 指定されたオブジェクト自身の大きさを返す. フィールドを辿れない標準ライブラリのクラスは, 推定した内部の大きさを含む.
+         *
+         * @param target
+         *            対象のオブジェクト.
+         * @return オブジェクト自身の大きさ (バイト). グラフ内に無い場合は 0.
+         */
+        public long shallowSizeOf(Object target) {
+            Integer id = this.ids.get(target);
+            return id == null ? 0 : this.shallow[id];
+        }
+
+        /**
+         * 指定されたオブジェクトの保持サイズを返す. 自身と, 起点から自身を経由しなければ到達できない全てのオブジェクトの大きさの合計となる.
+         *
+         * @param target
+         *            対象のオブジェクト.
+         * @return 保持サイズ (バイト). グラフ内に無い場合は 0.
+         */
+        public long retainedSizeOf(Object target) {
+            Integer id = this.ids.get(target);
+            return id == null ? 0 : this.retained[id];
+        }
+
+        /**
+         * 指定されたオブジェクトの直接の支配者を返す.
+         *
+         * @param target
+         *            対象のオブジェクト.
+         * @return 起点から対象への全ての経路が通過するオブジェクトのうち最も近いもの. 起点の場合, 又はグラフ内に無い場合は NULL.
+         */
+        public Object dominatorOf(Object target) {
+            Integer id = this.ids.get(target);
+            return id == null || id == 0 ? null : this.objects[this.dominators[id]];
+        }
+
+        /**
+         * 保持サイズの大きい順にオブジェクトを返す.
+         *
+         * @param limit
+         *            最大の件数.
+         * @return オブジェクトの一覧.
+         * @throws IllegalArgumentException
+         *             最大の件数が負の場合.
+         */
+        @NonNullReturnValue
+        public List<Object> largest(int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit must not be negative: " + limit);
+            }
+            return IntStream.range(0, this.objects.length).boxed()
+                    .sorted((left, right) -> Long.compare(this.retained[right], this.retained[left])).limit(limit)
+                    .map(id -> this.objects[id]).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * <p>
+     * オブジェクトグラフの大きさのクラス毎の集計結果.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static final class Footprint {
+
+        /**
+         * クラス毎の [オブジェクト数, 大きさの合計].
+         */
+        private final Map<Class<?>, long[]> totals = new HashMap<>();
+
+        /**
+         * Constractor.
+         */
+        Footprint() {
+            super();
+        }
+
+        /**
+         * 1 つのオブジェクトを集計する.
+         *
+         * @param type
+         *            オブジェクトのクラス.
+         * @param size
+         *            オブジェクトの大きさ.
+         */
+        void add(Class<?> type, long size) {
+            long[] total = this.totals.computeIfAbsent(type, key -> new long[2]);
+            total[0]++;
+            total[1] += size;
+        }
+
+        /**
+         * オブジェクト数を返す.
+         *
+         * @return オブジェクト数.
+         */
+        public long objects() {
+            return this.totals.values().stream().mapToLong(total -> total[0]).sum();
+        }
+
+        /**
+         * 大きさの合計を返す.
+         *
+         * @return 大きさの合計 (バイト).
+         */
+        public long bytes() {
+            return this.totals.values().stream().mapToLong(total -> total[1]).sum();
+        }
+
+        /**
+         * 指定されたクラスのオブジェクト数を返す.
+         *
+         * @param type
+         *            クラス.
+         * @return オブジェクト数.
+         */
+        public long objectsOf(Class<?> type) {
+            long[] total = this.totals.get(type);
+            return total == null ? 0 : total[0];
+        }
+
+        /**
+         * 指定されたクラスのオブジェクトの大きさの合計を返す.
+         *
+         * @param type
+         *            クラス.
+         * @return 大きさの合計 (バイト).
+         */
+        public long bytesOf(Class<?> type) {
+            long[] total = this.totals.get(type);
+            return total == null ? 0 : total[1];
+        }
+
+        /**
+         * 集計されたクラスを大きさの合計の降順で返す.
+         *
+         * @return クラスの一覧.
+         */
+        @NonNullReturnValue
+        public List<Class<?>> classes() {
+            List<Class<?>> returnValue = new ArrayList<>(this.totals.keySet());
+            returnValue.sort((left, right) -> Long.compare(this.bytesOf(right), this.bytesOf(left)));
+            return returnValue;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @NonNullReturnValue
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(this.objects()).append(" objects, ").append(this.bytes()).append(" bytes");
+            for (Class<?> type : this.classes()) {
+                builder.append(System.lineSeparator()).append(String.format("%12d %10d  %s", this.bytesOf(type),
+                        this.objectsOf(type), type.getName()));
+            }
+            return builder.toString();
+        }
+    }
+}
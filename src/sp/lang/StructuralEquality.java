@@ -0,0 +1,636 @@
+/*
+sp.lang.StructuralEquality
+sp.lang.StructuralEquality.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.lang;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import sp.base.Immutable;
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * フィールドの値による構造的な等価性と 64 ビットのハッシュ値.
+ * </p>
+ * <p>
+ * クラス毎に全てのインスタンスフィールド (スーパークラスを含み, static 及び transient を除く) を比較する {@link MethodHandle}
+ * の連鎖を生成し, {@link ClassValue} にキャッシュする. 以降の比較及びハッシュ値の計算はリフレクションを用いない. プリミティブ型は値で,
+ * 配列は内容で, その他の参照型は参照先の {@link Object#equals(Object)} 及び {@link Object#hashCode()} で比較する.
+ * 標準ライブラリのクラス及び配列は, そのクラス自身の等価性に従う.
+ * </p>
+ * <p>
+ * ハッシュ値はフィールド毎に乗算と回転で混合し, 最後に Murmur3 の最終混合を行う. 複数フィールドの複合キーでも下位ビットが偏らない.
+ * </p>
+ * <p>
+ * {@link Immutable} なクラスは, {@link StructuralEquality.HashCache} を付与した final な long フィールドを宣言し,
+ * コンストラクタの最後で {@link #hash64(Object)} の値を代入することでハッシュ値をキャッシュできる. キャッシュされたハッシュ値は等価性の判定でも,
+ * 異なるインスタンスを早期に除外するために用いる.
+ * </p>
+ *
+ * <pre>
+ * &#064;Immutable
+ * final class Key {
+ *     final String name;
+ *     final int id;
+ *     &#064;StructuralEquality.HashCache
+ *     final long hash;
+ *
+ *     Key(String name, int id) {
+ *         this.name = name;
+ *         this.id = id;
+ *         this.hash = StructuralEquality.hash64(this);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class StructuralEquality {
+
+    /**
+     * <p>
+     * ハッシュ値をキャッシュするフィールドであることを示す.
+     * </p>
+     * <p>
+     * {@link Immutable} なクラスの final な long フィールドに付与する. このフィールドは比較の対象から除かれる.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    public static @interface HashCache {
+    }
+
+    /**
+     * 混合に用いる乗数 (黄金比).
+     */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * 混合に用いる乗数.
+     */
+    private static final long MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+    /**
+     * このクラスの検索.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * クラス毎の比較手段.
+     */
+    private static final ClassValue<StructuralEquality.Shape> SHAPES = new ClassValue<StructuralEquality.Shape>() {
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.ClassValue#computeValue(java.lang.Class)
+         */
+        @Override
+        protected StructuralEquality.Shape computeValue(Class<?> type) {
+            return new StructuralEquality.Shape(type);
+        }
+    };
+
+    /**
+     * Constractor.
+     */
+    private StructuralEquality() {
+        super();
+    }
+
+    /**
+     * 2 つのオブジェクトが構造的に等しいか判定する.
+     *
+     * @param left
+     *            比較するオブジェクト.
+     * @param right
+     *            比較するオブジェクト.
+     * @return 同じクラスで全てのフィールドが等しい場合, 又は両方が NULL の場合 TRUE.
+     * @throws IllegalArgumentException
+     *             フィールドにアクセスできない, 又は {@link StructuralEquality.HashCache} の宣言が正しくないクラスの場合.
+     */
+    public static boolean equals(Object left, Object right) {
+        boolean returnValue = left == right;
+        if (!returnValue && left != null && right != null && left.getClass() == right.getClass()) {
+            Class<?> type = left.getClass();
+            if (type.isArray()) {
+                returnValue = Objects.deepEquals(left, right);
+            } else if (DeepCopier.isLibrary(type)) {
+                returnValue = left.equals(right);
+            } else {
+                returnValue = StructuralEquality.SHAPES.get(type).equals(left, right);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 構造的なハッシュ値を返す.
+     *
+     * @param target
+     *            対象のオブジェクト.
+     * @return 64 ビットのハッシュ値. NULL の場合は 0.
+     * @throws IllegalArgumentException
+     *             フィールドにアクセスできない, 又は {@link StructuralEquality.HashCache} の宣言が正しくないクラスの場合.
+     */
+    public static long hash64(Object target) {
+        long returnValue = 0L;
+        if (target != null) {
+            Class<?> type = target.getClass();
+            if (type.isArray()) {
+                returnValue = StructuralEquality.finish(StructuralEquality.mixArray(StructuralEquality.seed(type),
+                        target));
+            } else if (DeepCopier.isLibrary(type)) {
+                returnValue = StructuralEquality
+                        .finish(StructuralEquality.mix(StructuralEquality.seed(type), target.hashCode()));
+            } else {
+                returnValue = StructuralEquality.SHAPES.get(type).hash(target);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 構造的なハッシュ値を 32 ビットで返す. {@link #equals(Object, Object)} と整合する.
+     *
+     * @param target
+     *            対象のオブジェクト.
+     * @return ハッシュ値. NULL の場合は 0.
+     * @throws IllegalArgumentException
+     *             フィールドにアクセスできない, 又は {@link StructuralEquality.HashCache} の宣言が正しくないクラスの場合.
+     */
+    public static int hashCode(Object target) {
+        long hash = StructuralEquality.hash64(target);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * 構造的な等価性で比較する {@link Interner} を生成する.
+     *
+     * @param <T>
+     *            インターンするクラス.
+     * @return プール.
+     */
+    @NonNullReturnValue
+    public static <T> Interner<T> interner() {
+        return Interner.of(StructuralEquality::hashCode, StructuralEquality::equals);
+    }
+
+    /**
+     * クラス毎の初期値を返す.
+     *
+     * @param type
+     *            クラス.
+     * @return 初期値.
+     */
+    static long seed(Class<?> type) {
+        return type.getName().hashCode() * StructuralEquality.GOLDEN;
+    }
+
+    /**
+     * Murmur3 の最終混合を行う.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @return ハッシュ値.
+     */
+    static long finish(long hash) {
+        long returnValue = hash;
+        returnValue ^= returnValue >>> 33;
+        returnValue *= 0xFF51AFD7ED558CCDL;
+        returnValue ^= returnValue >>> 33;
+        returnValue *= 0xC4CEB9FE1A85EC53L;
+        returnValue ^= returnValue >>> 33;
+        return returnValue;
+    }
+
+    /**
+     * 値を混合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param value
+     *            値.
+     * @return ハッシュ値.
+     */
+    static long mix(long hash, long value) {
+        return Long.rotateLeft(hash + value * StructuralEquality.GOLDEN, 31) * StructuralEquality.MULTIPLIER;
+    }
+
+    /**
+     * 値を混合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param value
+     *            値.
+     * @return ハッシュ値.
+     */
+    static long mix(long hash, int value) {
+        return StructuralEquality.mix(hash, (long) value);
+    }
+
+    /**
+     * 値を混合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param value
+     *            値.
+     * @return ハッシュ値.
+     */
+    static long mix(long hash, boolean value) {
+        return StructuralEquality.mix(hash, value ? 1231L : 1237L);
+    }
+
+    /**
+     * 値を混合する. {@link Float#equals(Object)} と整合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param value
+     *            値.
+     * @return ハッシュ値.
+     */
+    static long mix(long hash, float value) {
+        return StructuralEquality.mix(hash, (long) Float.floatToIntBits(value));
+    }
+
+    /**
+     * 値を混合する. {@link Double#equals(Object)} と整合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param value
+     *            値.
+     * @return ハッシュ値.
+     */
+    static long mix(long hash, double value) {
+        return StructuralEquality.mix(hash, Double.doubleToLongBits(value));
+    }
+
+    /**
+     * 値を混合する. 配列は内容を, その他は {@link Object#hashCode()} を混合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param value
+     *            値.
+     * @return ハッシュ値.
+     */
+    static long mix(long hash, Object value) {
+        long returnValue = 0L;
+        if (value == null) {
+            returnValue = StructuralEquality.mix(hash, 0L);
+        } else if (value.getClass().isArray()) {
+            returnValue = StructuralEquality.mixArray(hash, value);
+        } else {
+            returnValue = StructuralEquality.mix(hash, value.hashCode());
+        }
+        return returnValue;
+    }
+
+    /**
+     * 配列の長さと全ての要素を混合する.
+     *
+     * @param hash
+     *            混合中のハッシュ値.
+     * @param array
+     *            配列.
+     * @return ハッシュ値.
+     */
+    static long mixArray(long hash, Object array) {
+        long returnValue = hash;
+        if (array instanceof Object[]) {
+            Object[] values = (Object[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (Object value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof long[]) {
+            long[] values = (long[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (long value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof int[]) {
+            int[] values = (int[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (int value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof double[]) {
+            double[] values = (double[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (double value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof float[]) {
+            float[] values = (float[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (float value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof boolean[]) {
+            boolean[] values = (boolean[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (boolean value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof byte[]) {
+            byte[] values = (byte[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (byte value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else if (array instanceof short[]) {
+            short[] values = (short[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (short value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        } else {
+            char[] values = (char[]) array;
+            returnValue = StructuralEquality.mix(returnValue, values.length);
+            for (char value : values) {
+                returnValue = StructuralEquality.mix(returnValue, value);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 値が等しいか判定する.
+     *
+     * @param left
+     *            値.
+     * @param right
+     *            値.
+     * @return 等しい場合 TRUE.
+     */
+    static boolean same(long left, long right) {
+        return left == right;
+    }
+
+    /**
+     * 値が等しいか判定する.
+     *
+     * @param left
+     *            値.
+     * @param right
+     *            値.
+     * @return 等しい場合 TRUE.
+     */
+    static boolean same(int left, int right) {
+        return left == right;
+    }
+
+    /**
+     * 値が等しいか判定する.
+     *
+     * @param left
+     *            値.
+     * @param right
+     *            値.
+     * @return 等しい場合 TRUE.
+     */
+    static boolean same(boolean left, boolean right) {
+        return left == right;
+    }
+
+    /**
+     * 値が等しいか判定する. {@link Float#equals(Object)} と整合する.
+     *
+     * @param left
+     *            値.
+     * @param right
+     *            値.
+     * @return 等しい場合 TRUE.
+     */
+    static boolean same(float left, float right) {
+        return Float.floatToIntBits(left) == Float.floatToIntBits(right);
+    }
+
+    /**
+     * 値が等しいか判定する. {@link Double#equals(Object)} と整合する.
+     *
+     * @param left
+     *            値.
+     * @param right
+     *            値.
+     * @return 等しい場合 TRUE.
+     */
+    static boolean same(double left, double right) {
+        return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+    }
+
+    /**
+     * 値が等しいか判定する. 配列は内容で比較する.
+     *
+     * @param left
+     *            値.
+     * @param right
+     *            値.
+     * @return 等しい場合 TRUE.
+     */
+    static boolean same(Object left, Object right) {
+        return Objects.deepEquals(left, right);
+    }
+
+    /**
+     * <p>
+     * 1 つのクラスの比較手段.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Shape {
+
+        /**
+         * (Object, Object)boolean の等価性の判定.
+         */
+        private final MethodHandle equality;
+
+        /**
+         * (long, Object)long のハッシュ値の混合.
+         */
+        private final MethodHandle hasher;
+
+        /**
+         * (Object)long のキャッシュされたハッシュ値の読み出し. キャッシュしない場合は NULL.
+         */
+        private final MethodHandle cache;
+
+        /**
+         * クラス毎の初期値.
+         */
+        private final long seed;
+
+        /**
+         * 生成に失敗した原因. 成功した場合は NULL.
+         */
+        private final RuntimeException failure;
+
+        /**
+         * Constractor.
+         *
+         * @param type
+         *            対象のクラス.
+         */
+        Shape(Class<?> type) {
+            super();
+            MethodHandle equality = null;
+            MethodHandle hasher = null;
+            MethodHandle cache = null;
+            RuntimeException failure = null;
+            try {
+                List<Field> fields = new ArrayList<>();
+                for (Class<?> current = type; current != null && current != Object.class; current = current
+                        .getSuperclass()) {
+                    for (Field field : current.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (field.isAnnotationPresent(StructuralEquality.HashCache.class)) {
+                            if (cache != null || field.getType() != long.class || !Modifier.isFinal(modifiers)
+                                    || !type.isAnnotationPresent(Immutable.class)) {
+                                throw new IllegalArgumentException(field
+                                        + " must be the only final long field of an @Immutable class to cache hash.");
+                            }
+                            field.setAccessible(true);
+                            cache = StructuralEquality.LOOKUP.unreflectGetter(field)
+                                    .asType(MethodType.methodType(long.class, Object.class));
+                        } else if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                            fields.add(field);
+                        }
+                    }
+                }
+                equality = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0, Object.class,
+                        Object.class);
+                hasher = MethodHandles.dropArguments(MethodHandles.identity(long.class), 1, Object.class);
+                MethodHandle unequal = MethodHandles
+                        .dropArguments(MethodHandles.constant(boolean.class, false), 0, Object.class, Object.class);
+                for (int index = fields.size() - 1; index >= 0; index--) {
+                    Field field = fields.get(index);
+                    field.setAccessible(true);
+                    Class<?> kind = StructuralEquality.Shape.kindOf(field.getType());
+                    MethodHandle getter = StructuralEquality.LOOKUP.unreflectGetter(field)
+                            .asType(MethodType.methodType(kind, Object.class));
+                    MethodHandle same = StructuralEquality.LOOKUP.findStatic(StructuralEquality.class, "same",
+                            MethodType.methodType(boolean.class, kind, kind));
+                    equality = MethodHandles.guardWithTest(MethodHandles.filterArguments(same, 0, getter, getter),
+                            equality, unequal);
+                }
+                for (Field field : fields) {
+                    Class<?> kind = StructuralEquality.Shape.kindOf(field.getType());
+                    MethodHandle getter = StructuralEquality.LOOKUP.unreflectGetter(field)
+                            .asType(MethodType.methodType(kind, Object.class));
+                    MethodHandle mix = StructuralEquality.LOOKUP.findStatic(StructuralEquality.class, "mix",
+                            MethodType.methodType(long.class, long.class, kind));
+                    MethodHandle step = MethodHandles.filterArguments(mix, 1, getter);
+                    hasher = MethodHandles.permuteArguments(MethodHandles.collectArguments(step, 0, hasher),
+                            MethodType.methodType(long.class, long.class, Object.class), 0, 1, 1);
+                }
+            } catch (IllegalAccessException | NoSuchMethodException | RuntimeException e) {
+                failure = e instanceof IllegalArgumentException ? (IllegalArgumentException) e
+                        : new IllegalArgumentException("cannot access fields of " + type.getName(), e);
+            }
+            this.equality = equality;
+            this.hasher = hasher;
+            this.cache = cache;
+            this.seed = StructuralEquality.seed(type);
+            this.failure = failure;
+        }
+
+        /**
+         * 同じクラスの 2 つのインスタンスが等しいか判定する.
+         *
+         * @param left
+         *            インスタンス.
+         * @param right
+         *            インスタンス.
+         * @return 全てのフィールドが等しい場合 TRUE.
+         */
+        boolean equals(Object left, Object right) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            try {
+                boolean returnValue = true;
+                if (this.cache != null) {
+                    long leftHash = (long) this.cache.invokeExact(left);
+                    long rightHash = (long) this.cache.invokeExact(right);
+                    returnValue = leftHash == 0L || rightHash == 0L || leftHash == rightHash;
+                }
+                return returnValue && (boolean) this.equality.invokeExact(left, right);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * インスタンスのハッシュ値を返す.
+         *
+         * @param target
+         *            インスタンス.
+         * @return ハッシュ値.
+         */
+        long hash(Object target) {
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            try {
+                long returnValue = this.cache == null ? 0L : (long) this.cache.invokeExact(target);
+                if (returnValue == 0L) {
+                    returnValue = StructuralEquality.finish((long) this.hasher.invokeExact(this.seed, target));
+                }
+                return returnValue;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * 比較に用いる型を返す.
+         *
+         * @param type
+         *            フィールドの型.
+         * @return long, int, boolean, float, double 又は Object.
+         */
+        private static Class<?> kindOf(Class<?> type) {
+            Class<?> returnValue = Object.class;
+            if (type == byte.class || type == short.class || type == char.class || type == int.class) {
+                returnValue = int.class;
+            } else if (type.isPrimitive()) {
+                returnValue = type;
+            }
+            return returnValue;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+sp.nio.MappedRecordReader
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * ファイルをメモリマップし, レコード単位に並列に解析する読み込み機構.
+ * </p>
+ * <p>
+ * ファイルはレコードの境界で分割され, 分割毎に {@link FileChannel#map(FileChannel.MapMode, long, long)} でマップされて
+ * {@link ForkJoinPool#commonPool()} で解析される. 各レコードは複製されず, 位置からリミットまでがレコードとなる {@link ByteBuffer}
+ * のビューとして解析関数に渡される. ビューは分割毎に再利用されるため, 解析関数の呼び出し後に保持してはならない.
+ * </p>
+ * <p>
+ * 解析結果はファイル上のレコードの順序で返される. 改行区切りの場合, 改行文字 (LF 及び直前の CR) はレコードに含まれない.
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class MappedRecordReader {
+
+    /**
+     * 1 分割の最大バイト数.
+     */
+    private static final int MAXIMUM_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * 1 分割の最小バイト数.
+     */
+    private static final int MINIMUM_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * 読み込むファイル.
+     */
+    private final Path path;
+
+    /**
+     * 固定長レコードのバイト数. 改行区切りの場合は 0.
+     */
+    private final int recordSize;
+
+    /**
+     * 1 分割の目安のバイト数. 0 の場合はファイルサイズと並列度から決定する.
+     */
+    private final int chunkSize;
+
+    /**
+     * 1 分割の解析結果の格納先.
+     *
+     * @author Se-foo
+     * @param <X>
+     *            解析中に発生する例外クラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    private static interface Sink<X extends Throwable> {
+
+        /**
+         * 1 レコードを解析して格納する.
+         *
+         * @param record
+         *            位置からリミットまでがレコードとなるビュー.
+         * @throws X
+         *             解析中にエラーが発生した場合.
+         */
+        void accept(ByteBuffer record) throws X;
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param path
+     *            読み込むファイル.
+     * @param recordSize
+     *            固定長レコードのバイト数. 改行区切りの場合は 0.
+     * @param chunkSize
+     *            1 分割の目安のバイト数.
+     */
+    private MappedRecordReader(Path path, int recordSize, int chunkSize) {
+        super();
+        this.path = path;
+        this.recordSize = recordSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 改行区切りのファイルを読み込む機構を生成する.
+     *
+     * @param path
+     *            読み込むファイル.
+     * @return 読み込み機構.
+     * @throws NullPointerException
+     *             指定されたファイルが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static MappedRecordReader newlineDelimited(Path path) {
+        return new MappedRecordReader(Objects.requireNonNull(path), 0, 0);
+    }
+
+    /**
+     * 固定長レコードのファイルを読み込む機構を生成する.
+     *
+     * @param path
+     *            読み込むファイル.
+     * @param recordSize
+     *            1 レコードのバイト数.
+     * @return 読み込み機構.
+     * @throws NullPointerException
+     *             指定されたファイルが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたバイト数が 1 未満の場合.
+     */
+    @NonNullReturnValue
+    public static MappedRecordReader fixedWidth(Path path, int recordSize) {
+        if (recordSize < 1) {
+            throw new IllegalArgumentException("recordSize must be positive: " + recordSize);
+        }
+        return new MappedRecordReader(Objects.requireNonNull(path), recordSize, 0);
+    }
+
+    /**
+     * 1 分割の目安のバイト数を変更した読み込み機構を返す.
+     *
+     * @param chunkSize
+     *            1 分割の目安のバイト数. 分割はこの位置以降の最初のレコード境界で行われる.
+     * @return 読み込み機構.
+     * @throws IllegalArgumentException
+     *             指定されたバイト数が 1 未満又は 1 GB を超える場合.
+     */
+    @NonNullReturnValue
+    public MappedRecordReader chunkSize(int chunkSize) {
+        if (chunkSize < 1 || MappedRecordReader.MAXIMUM_CHUNK_SIZE < chunkSize) {
+            throw new IllegalArgumentException("illegal chunkSize: " + chunkSize);
+        }
+        return new MappedRecordReader(this.path, this.recordSize, chunkSize);
+    }
+
+    /**
+     * 全てのレコードを並列に解析する.
+     *
+     * @param <R>
+     *            解析結果のクラス.
+     * @param <X>
+     *            解析中に発生する例外クラス.
+     * @param parser
+     *            レコードの解析関数.
+     * @return レコード順の解析結果.
+     * @throws NullPointerException
+     *             指定された解析関数が NULL の場合.
+     * @throws IOException
+     *             読み込み中にエラーが発生した, 又は固定長レコードの途中でファイルが終わっている場合.
+     * @throws X
+     *             解析中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public <R, X extends Throwable> List<R> read(FunctionWithThrown.OfObj<ByteBuffer, ? extends R, ? extends X> parser)
+            throws IOException, X {
+        Objects.requireNonNull(parser);
+        List<List<R>> results = new ArrayList<>();
+        this.<X> parse(count -> {
+            for (int index = 0; index < count; index++) {
+                results.add(new ArrayList<>());
+            }
+        }, chunk -> {
+            List<R> result = results.get(chunk);
+            return record -> result.add(parser.apply(record));
+        });
+        List<R> returnValue = new ArrayList<>();
+        for (List<R> result : results) {
+            returnValue.addAll(result);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 全てのレコードを並列に long 値へ解析する.
+     *
+     * @param <X>
+     *            解析中に発生する例外クラス.
+     * @param parser
+     *            レコードの解析関数.
+     * @return レコード順の解析結果.
+     * @throws NullPointerException
+     *             指定された解析関数が NULL の場合.
+     * @throws IOException
+     *             読み込み中にエラーが発生した, 又は固定長レコードの途中でファイルが終わっている場合.
+     * @throws X
+     *             解析中にエラーが発生した場合.
+     */
+    @NonNullReturnValue
+    public <X extends Throwable> long[] readLongs(FunctionWithThrown.OfObjToLong<ByteBuffer, ? extends X> parser)
+            throws IOException, X {
+        Objects.requireNonNull(parser);
+        List<MappedRecordReader.LongArray> results = new ArrayList<>();
+        this.<X> parse(count -> {
+            for (int index = 0; index < count; index++) {
+                results.add(new MappedRecordReader.LongArray());
+            }
+        }, chunk -> {
+            MappedRecordReader.LongArray result = results.get(chunk);
+            return record -> result.add(parser.apply(record));
+        });
+        int total = 0;
+        for (MappedRecordReader.LongArray result : results) {
+            total += result.size;
+        }
+        long[] returnValue = new long[total];
+        int offset = 0;
+        for (MappedRecordReader.LongArray result : results) {
+            System.arraycopy(result.values, 0, returnValue, offset, result.size);
+            offset += result.size;
+        }
+        return returnValue;
+    }
+
+    /**
+     * 1 分割の long 値の解析結果.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    private static final class LongArray {
+
+        /**
+         * 解析結果.
+         */
+        long[] values = new long[16];
+
+        /**
+         * 解析結果の件数.
+         */
+        int size;
+
+        /**
+         * 解析結果を追加する.
+         *
+         * @param value
+         *            解析結果.
+         */
+        void add(long value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+    }
+
+    /**
+     * 分割数の通知.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @FunctionalInterface
+    private static interface Prepare {
+
+        /**
+         * 分割数を通知する.
+         *
+         * @param count
+         *            分割数.
+         */
+        void accept(int count);
+    }
+
+    /**
+     * 分割毎の格納先の生成.
+     *
+     * @author Se-foo
+     * @param <X>
+     *            解析中に発生する例外クラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    private static interface SinkFactory<X extends Throwable> {
+
+        /**
+         * 指定された分割の格納先を返す.
+         *
+         * @param chunk
+         *            分割の位置.
+         * @return 格納先.
+         */
+        MappedRecordReader.Sink<X> create(int chunk);
+    }
+
+    /**
+     * ファイルを分割して並列に解析する.
+     *
+     * @param <X>
+     *            解析中に発生する例外クラス.
+     * @param prepare
+     *            分割数の通知先. 解析の開始前に 1 度だけ呼び出される.
+     * @param sinks
+     *            分割毎の格納先の生成.
+     * @throws IOException
+     *             読み込み中にエラーが発生した場合.
+     * @throws X
+     *             解析中にエラーが発生した場合.
+     */
+    @SuppressWarnings("unchecked")
+    private <X extends Throwable> void parse(MappedRecordReader.Prepare prepare,
+            MappedRecordReader.SinkFactory<X> sinks) throws IOException, X {
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            long[] bounds = this.bounds(channel);
+            int count = bounds.length - 1;
+            prepare.accept(count);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            IntStream.range(0, count).parallel().forEach(chunk -> {
+                if (failure.get() == null) {
+                    try {
+                        long start = bounds[chunk];
+                        long size = bounds[chunk + 1] - start;
+                        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                        this.scan(map, sinks.create(chunk));
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            Throwable thrown = failure.get();
+            if (thrown instanceof IOException) {
+                throw (IOException) thrown;
+            } else if (thrown instanceof RuntimeException) {
+                throw (RuntimeException) thrown;
+            } else if (thrown instanceof Error) {
+                throw (Error) thrown;
+            } else if (thrown != null) {
+                throw (X) thrown;
+            }
+        }
+    }
+
+    /**
+     * マップされた 1 分割のレコードを順に解析する.
+     *
+     * @param <X>
+     *            解析中に発生する例外クラス.
+     * @param map
+     *            マップされた分割.
+     * @param sink
+     *            格納先.
+     * @throws X
+     *             解析中にエラーが発生した場合.
+     */
+    private <X extends Throwable> void scan(MappedByteBuffer map, MappedRecordReader.Sink<X> sink) throws X {
+        ByteBuffer view = map.duplicate();
+        int limit = map.limit();
+        if (this.recordSize > 0) {
+            for (int start = 0; start < limit; start += this.recordSize) {
+                view.clear();
+                view.position(start).limit(start + this.recordSize);
+                sink.accept(view);
+            }
+        } else {
+            int start = 0;
+            for (int index = 0; index <= limit; index++) {
+                if (index == limit ? start < limit : map.get(index) == '\n') {
+                    int end = index > start && map.get(index - 1) == '\r' ? index - 1 : index;
+                    view.clear();
+                    view.position(start).limit(end);
+                    sink.accept(view);
+                    start = index + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * ファイルをレコード境界で分割する.
+     *
+     * @param channel
+     *            読み込むファイル.
+     * @return 分割の境界. 先頭は 0, 末尾はファイルサイズ.
+     * @throws IOException
+     *             読み込み中にエラーが発生した, レコードが 1 GB を超える, 又は固定長レコードの途中でファイルが終わっている場合.
+     */
+    private long[] bounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (this.recordSize > 0 && size % this.recordSize != 0) {
+            throw new IOException(this.path + " is truncated: " + size + " bytes is not a multiple of "
+                    + this.recordSize);
+        }
+        long target = this.chunkSize;
+        if (target == 0) {
+            target = Math.min(MappedRecordReader.MAXIMUM_CHUNK_SIZE, Math.max(MappedRecordReader.MINIMUM_CHUNK_SIZE,
+                    size / (ForkJoinPool.getCommonPoolParallelism() * 4L)));
+        }
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            long next = Math.min(size, position + target);
+            if (this.recordSize > 0) {
+                next = Math.min(size, (next + this.recordSize - 1) / this.recordSize * this.recordSize);
+            } else if (next < size) {
+                next = this.nextLine(channel, buffer, next - 1, size);
+            }
+            if (MappedRecordReader.MAXIMUM_CHUNK_SIZE < next - position) {
+                throw new IOException("record is too large at " + position);
+            }
+            bounds.add(next);
+            position = next;
+        }
+        long[] returnValue = new long[bounds.size()];
+        for (int index = 0; index < returnValue.length; index++) {
+            returnValue[index] = bounds.get(index);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定された位置以降の最初の改行の次の位置を返す.
+     *
+     * @param channel
+     *            読み込むファイル.
+     * @param buffer
+     *            作業領域.
+     * @param from
+     *            検索の開始位置.
+     * @param size
+     *            ファイルサイズ.
+     * @return 改行の次の位置. 改行が無い場合はファイルサイズ.
+     * @throws IOException
+     *             読み込み中にエラーが発生した場合.
+     */
+    private long nextLine(FileChannel channel, ByteBuffer buffer, long from, long size) throws IOException {
+        long returnValue = size;
+        long position = from;
+        while (position < size && returnValue == size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int index = 0; index < read && returnValue == size; index++) {
+                if (buffer.get(index) == '\n') {
+                    returnValue = position + index + 1;
+                }
+            }
+            position += read;
+        }
+        return returnValue;
+    }
+}
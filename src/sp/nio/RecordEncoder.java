@@ -0,0 +1,738 @@
+/*
+sp.nio.RecordEncoder
+sp.nio.RecordEncoder.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.nio;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * マッピングで取り出したフィールドをテキストのレコードとして書き出す符号化機構.
+ * </p>
+ * <p>
+ * 数値は {@link String} を経由せずに再利用されるバッファへ直接書式化され, バッファが一杯になった時点でまとめてチャネルに書き込まれる.
+ * 整数値の double 値は小数点を付けずに書き出される. オブジェクトのフィールドは, 数値及び真偽値はプリミティブと同様に,
+ * {@link CharSequence} はそのまま, それ以外は {@link String#valueOf(Object)} の結果が UTF-8 で書き出される.
+ * </p>
+ *
+ * <pre>
+ * RecordEncoder&lt;Item, RuntimeException&gt; encoder = new RecordEncoder&lt;Item, RuntimeException&gt;(
+ *         RecordEncoder.Format.CSV).toObj("name", Item::getName).toLong("total", Item::getTotal);
+ * RecordEncoder&lt;Item, RuntimeException&gt;.Output output = encoder.open(channel);
+ * output.writeHeader();
+ * output.writeAll(items);
+ * output.flush();
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            符号化するクラス.
+ * @param <X>
+ *            変換中に発生する例外クラス.
+ * @since 0.2
+ */
+public final class RecordEncoder<T, X extends Throwable> {
+
+    /**
+     * 既定のバッファサイズ.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 最小のバッファサイズ.
+     */
+    private static final int MINIMUM_BUFFER_SIZE = 64;
+
+    /**
+     * 16 進数の文字.
+     */
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * レコードの形式.
+     */
+    private final RecordEncoder.Format format;
+
+    /**
+     * 登録順のフィールド.
+     */
+    private final List<RecordEncoder.Field> fields = new ArrayList<>();
+
+    /**
+     * レコードの形式.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static enum Format {
+
+        /**
+         * カンマ区切り (RFC 4180). 区切り文字, 引用符又は改行を含む値は引用符で囲む.
+         */
+        CSV,
+
+        /**
+         * タブ区切り. タブ, 改行及びバックスラッシュはバックスラッシュでエスケープする.
+         */
+        TSV,
+
+        /**
+         * 1 行 1 オブジェクトの JSON. 有限でない double 値は null となる.
+         */
+        JSON_LINES
+    }
+
+    /**
+     * フィールドの種類.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    private static enum Kind {
+        /**
+         * int 値.
+         */
+        INT,
+        /**
+         * long 値.
+         */
+        LONG,
+        /**
+         * double 値.
+         */
+        DOUBLE,
+        /**
+         * オブジェクト.
+         */
+        OBJ
+    }
+
+    /**
+     * フィールド.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    private static final class Field {
+
+        /**
+         * フィールド名.
+         */
+        final String name;
+
+        /**
+         * フィールドの種類.
+         */
+        final RecordEncoder.Kind kind;
+
+        /**
+         * マッピング.
+         */
+        final Object mapping;
+
+        /**
+         * Constractor.
+         *
+         * @param name
+         *            フィールド名.
+         * @param kind
+         *            フィールドの種類.
+         * @param mapping
+         *            マッピング.
+         */
+        Field(String name, RecordEncoder.Kind kind, Object mapping) {
+            super();
+            this.name = name;
+            this.kind = kind;
+            this.mapping = mapping;
+        }
+    }
+
+    /**
+     * <p>
+     * チャネルへの書き出し.
+     * </p>
+     * <p>
+     * バッファは書き出し毎に再利用される. スレッドセーフではない. {@link #flush()} を呼び出すまで, 書き出したレコードがチャネルに
+     * 書き込まれるとは限らない.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public final class Output implements Flushable {
+
+        /**
+         * 書き込み先.
+         */
+        private final WritableByteChannel channel;
+
+        /**
+         * バッファ.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * バッファの配列.
+         */
+        private final byte[] bytes;
+
+        /**
+         * バッファの書き込み位置.
+         */
+        private int position;
+
+        /**
+         * 整数の書式化に用いる作業領域.
+         */
+        private final byte[] digits = new byte[20];
+
+        /**
+         * double 値の書式化に用いる作業領域.
+         */
+        private final StringBuilder decimal = new StringBuilder(32);
+
+        /**
+         * JSON のフィールド名 ("name":) の符号化結果.
+         */
+        private final byte[][] keys;
+
+        /**
+         * Constractor.
+         *
+         * @param channel
+         *            書き込み先.
+         * @param bufferSize
+         *            バッファサイズ.
+         */
+        Output(WritableByteChannel channel, int bufferSize) {
+            super();
+            this.channel = channel;
+            this.bytes = new byte[bufferSize];
+            this.buffer = ByteBuffer.wrap(this.bytes);
+            this.keys = new byte[RecordEncoder.this.fields.size()][];
+            for (int index = 0; index < this.keys.length; index++) {
+                this.keys[index] = this.key(RecordEncoder.this.fields.get(index).name);
+            }
+        }
+
+        /**
+         * フィールド名の行を書き出す. JSON の場合は何もしない.
+         *
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        public void writeHeader() throws IOException {
+            if (RecordEncoder.this.format != RecordEncoder.Format.JSON_LINES) {
+                List<RecordEncoder.Field> fields = RecordEncoder.this.fields;
+                for (int index = 0; index < fields.size(); index++) {
+                    if (index > 0) {
+                        this.putSeparator();
+                    }
+                    this.putText(fields.get(index).name);
+                }
+                this.put((byte) '\n');
+            }
+        }
+
+        /**
+         * 指定された対象を 1 レコードとして書き出す.
+         *
+         * @param target
+         *            書き出す対象.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        @SuppressWarnings("unchecked")
+        public void write(T target) throws IOException, X {
+            boolean json = RecordEncoder.this.format == RecordEncoder.Format.JSON_LINES;
+            List<RecordEncoder.Field> fields = RecordEncoder.this.fields;
+            if (json) {
+                this.put((byte) '{');
+            }
+            for (int index = 0; index < fields.size(); index++) {
+                if (index > 0) {
+                    this.putSeparator();
+                }
+                if (json) {
+                    this.putBytes(this.keys[index]);
+                }
+                RecordEncoder.Field field = fields.get(index);
+                switch (field.kind) {
+                case INT:
+                    this.putLong(((FunctionWithThrown.OfObjToInt<? super T, ? extends X>) field.mapping).apply(target));
+                    break;
+                case LONG:
+                    this.putLong(
+                            ((FunctionWithThrown.OfObjToLong<? super T, ? extends X>) field.mapping).apply(target));
+                    break;
+                case DOUBLE:
+                    this.putDouble(
+                            ((FunctionWithThrown.OfObjToDouble<? super T, ? extends X>) field.mapping).apply(target));
+                    break;
+                default:
+                    this.putObj(((FunctionWithThrown.OfObj<? super T, ?, ? extends X>) field.mapping).apply(target));
+                    break;
+                }
+            }
+            if (json) {
+                this.put((byte) '}');
+            }
+            this.put((byte) '\n');
+        }
+
+        /**
+         * 指定された全ての対象をレコードとして書き出す.
+         *
+         * @param targets
+         *            書き出す対象.
+         * @throws NullPointerException
+         *             指定された対象が NULL の場合.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         * @throws X
+         *             変換中にエラーが発生した場合.
+         */
+        public void writeAll(Iterable<? extends T> targets) throws IOException, X {
+            for (T target : targets) {
+                this.write(target);
+            }
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.io.Flushable#flush()
+         */
+        @Override
+        public void flush() throws IOException {
+            this.buffer.clear();
+            this.buffer.limit(this.position);
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.position = 0;
+        }
+
+        /**
+         * 指定されたバイト数を書き込めるようにバッファを空ける.
+         *
+         * @param size
+         *            書き込むバイト数.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void ensure(int size) throws IOException {
+            if (this.bytes.length - this.position < size) {
+                this.flush();
+            }
+        }
+
+        /**
+         * 1 バイト書き込む.
+         *
+         * @param value
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void put(byte value) throws IOException {
+            this.ensure(1);
+            this.bytes[this.position++] = value;
+        }
+
+        /**
+         * バイト列を書き込む.
+         *
+         * @param values
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putBytes(byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                this.ensure(1);
+                int length = Math.min(values.length - offset, this.bytes.length - this.position);
+                System.arraycopy(values, offset, this.bytes, this.position, length);
+                this.position += length;
+                offset += length;
+            }
+        }
+
+        /**
+         * 区切り文字を書き込む.
+         *
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putSeparator() throws IOException {
+            this.put(RecordEncoder.this.format == RecordEncoder.Format.TSV ? (byte) '\t' : (byte) ',');
+        }
+
+        /**
+         * 整数を 10 進数で書き込む.
+         *
+         * @param value
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putLong(long value) throws IOException {
+            if (value == Long.MIN_VALUE) {
+                this.putAscii("-9223372036854775808");
+            } else {
+                this.ensure(this.digits.length);
+                long rest = value;
+                if (rest < 0) {
+                    this.bytes[this.position++] = '-';
+                    rest = -rest;
+                }
+                int length = 0;
+                do {
+                    this.digits[length++] = (byte) ('0' + rest % 10);
+                    rest /= 10;
+                } while (rest != 0);
+                while (length > 0) {
+                    this.bytes[this.position++] = this.digits[--length];
+                }
+            }
+        }
+
+        /**
+         * double 値を書き込む.
+         *
+         * @param value
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putDouble(double value) throws IOException {
+            if (RecordEncoder.this.format == RecordEncoder.Format.JSON_LINES
+                    && (Double.isNaN(value) || Double.isInfinite(value))) {
+                this.putAscii("null");
+            } else if (value == (long) value && Math.abs(value) < 1e15 && !(value == 0 && 1 / value < 0)) {
+                this.putLong((long) value);
+            } else {
+                this.decimal.setLength(0);
+                this.putAscii(this.decimal.append(value));
+            }
+        }
+
+        /**
+         * ASCII 文字列をエスケープせずに書き込む.
+         *
+         * @param value
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putAscii(CharSequence value) throws IOException {
+            this.ensure(value.length());
+            for (int index = 0; index < value.length(); index++) {
+                this.bytes[this.position++] = (byte) value.charAt(index);
+            }
+        }
+
+        /**
+         * オブジェクトを書き込む.
+         *
+         * @param value
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putObj(Object value) throws IOException {
+            if (value == null) {
+                if (RecordEncoder.this.format == RecordEncoder.Format.JSON_LINES) {
+                    this.putAscii("null");
+                }
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte) {
+                this.putLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                this.putDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                this.putAscii(((Boolean) value).booleanValue() ? "true" : "false");
+            } else {
+                this.putText(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+            }
+        }
+
+        /**
+         * 文字列を形式に従ってエスケープして書き込む.
+         *
+         * @param value
+         *            書き込む値.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private void putText(CharSequence value) throws IOException {
+            switch (RecordEncoder.this.format) {
+            case CSV:
+                boolean quoted = false;
+                for (int index = 0; index < value.length() && !quoted; index++) {
+                    char c = value.charAt(index);
+                    quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+                }
+                if (quoted) {
+                    this.put((byte) '"');
+                }
+                for (int index = 0; index < value.length(); index++) {
+                    char c = value.charAt(index);
+                    if (c == '"') {
+                        this.put((byte) '"');
+                    }
+                    index = this.putChar(value, index);
+                }
+                if (quoted) {
+                    this.put((byte) '"');
+                }
+                break;
+            case TSV:
+                for (int index = 0; index < value.length(); index++) {
+                    char c = value.charAt(index);
+                    if (c == '\t' || c == '\n' || c == '\r' || c == '\\') {
+                        this.put((byte) '\\');
+                        this.put((byte) (c == '\t' ? 't' : c == '\n' ? 'n' : c == '\r' ? 'r' : '\\'));
+                    } else {
+                        index = this.putChar(value, index);
+                    }
+                }
+                break;
+            default:
+                this.put((byte) '"');
+                for (int index = 0; index < value.length(); index++) {
+                    char c = value.charAt(index);
+                    if (c == '"' || c == '\\') {
+                        this.put((byte) '\\');
+                        this.put((byte) c);
+                    } else if (c < 0x20) {
+                        this.ensure(6);
+                        this.bytes[this.position++] = '\\';
+                        this.bytes[this.position++] = 'u';
+                        this.bytes[this.position++] = '0';
+                        this.bytes[this.position++] = '0';
+                        this.bytes[this.position++] = RecordEncoder.HEX[c >> 4];
+                        this.bytes[this.position++] = RecordEncoder.HEX[c & 0xF];
+                    } else {
+                        index = this.putChar(value, index);
+                    }
+                }
+                this.put((byte) '"');
+                break;
+            }
+        }
+
+        /**
+         * 1 文字を UTF-8 で書き込む.
+         *
+         * @param value
+         *            文字列.
+         * @param index
+         *            書き込む文字の位置.
+         * @return 書き込んだ最後の char の位置. サロゲートペアの場合は次の位置.
+         * @throws IOException
+         *             書き込み中にエラーが発生した場合.
+         */
+        private int putChar(CharSequence value, int index) throws IOException {
+            int returnValue = index;
+            char c = value.charAt(index);
+            this.ensure(4);
+            if (c < 0x80) {
+                this.bytes[this.position++] = (byte) c;
+            } else if (c < 0x800) {
+                this.bytes[this.position++] = (byte) (0xC0 | c >> 6);
+                this.bytes[this.position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(index + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(index + 1));
+                this.bytes[this.position++] = (byte) (0xF0 | code >> 18);
+                this.bytes[this.position++] = (byte) (0x80 | code >> 12 & 0x3F);
+                this.bytes[this.position++] = (byte) (0x80 | code >> 6 & 0x3F);
+                this.bytes[this.position++] = (byte) (0x80 | code & 0x3F);
+                returnValue++;
+            } else if (Character.isSurrogate(c)) {
+                this.bytes[this.position++] = '?';
+            } else {
+                this.bytes[this.position++] = (byte) (0xE0 | c >> 12);
+                this.bytes[this.position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                this.bytes[this.position++] = (byte) (0x80 | c & 0x3F);
+            }
+            return returnValue;
+        }
+
+        /**
+         * JSON のフィールド名を符号化する.
+         *
+         * @param name
+         *            フィールド名.
+         * @return "name": の UTF-8 表現.
+         */
+        private byte[] key(String name) {
+            StringBuilder builder = new StringBuilder(name.length() + 3).append('"');
+            for (int index = 0; index < name.length(); index++) {
+                char c = name.charAt(index);
+                if (c == '"' || c == '\\') {
+                    builder.append('\\').append(c);
+                } else if (c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.append("\":").toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param format
+     *            レコードの形式.
+     * @throws NullPointerException
+     *             指定された形式が NULL の場合.
+     */
+    public RecordEncoder(RecordEncoder.Format format) {
+        super();
+        this.format = Objects.requireNonNull(format);
+    }
+
+    /**
+     * 指定されたマッピングを int 値のフィールドとして登録する.
+     *
+     * @param name
+     *            フィールド名.
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return このインスタンス.
+     * @throws NullPointerException
+     *             指定されたフィールド名又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public RecordEncoder<T, X> toInt(String name, FunctionWithThrown.OfObjToInt<? super T, ? extends X> mapping) {
+        return this.add(name, RecordEncoder.Kind.INT, mapping);
+    }
+
+    /**
+     * 指定されたマッピングを long 値のフィールドとして登録する.
+     *
+     * @param name
+     *            フィールド名.
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return このインスタンス.
+     * @throws NullPointerException
+     *             指定されたフィールド名又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public RecordEncoder<T, X> toLong(String name,
+            FunctionWithThrown.OfObjToLong<? super T, ? extends X> mapping) {
+        return this.add(name, RecordEncoder.Kind.LONG, mapping);
+    }
+
+    /**
+     * 指定されたマッピングを double 値のフィールドとして登録する.
+     *
+     * @param name
+     *            フィールド名.
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return このインスタンス.
+     * @throws NullPointerException
+     *             指定されたフィールド名又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public RecordEncoder<T, X> toDouble(String name,
+            FunctionWithThrown.OfObjToDouble<? super T, ? extends X> mapping) {
+        return this.add(name, RecordEncoder.Kind.DOUBLE, mapping);
+    }
+
+    /**
+     * 指定されたマッピングをオブジェクトのフィールドとして登録する.
+     *
+     * @param name
+     *            フィールド名.
+     * @param mapping
+     *            フィールドの値の生成に用いるマッピング.
+     * @return このインスタンス.
+     * @throws NullPointerException
+     *             指定されたフィールド名又はマッピングが NULL の場合.
+     */
+    @NonNullReturnValue
+    public RecordEncoder<T, X> toObj(String name,
+            FunctionWithThrown.OfObj<? super T, ?, ? extends X> mapping) {
+        return this.add(name, RecordEncoder.Kind.OBJ, mapping);
+    }
+
+    /**
+     * 指定されたチャネルへの書き出しを開始する.
+     *
+     * @param channel
+     *            書き込み先.
+     * @return 書き出し.
+     * @throws NullPointerException
+     *             指定されたチャネルが NULL の場合.
+     */
+    @NonNullReturnValue
+    public RecordEncoder<T, X>.Output open(WritableByteChannel channel) {
+        return this.open(channel, RecordEncoder.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 指定されたチャネルへの書き出しを開始する.
+     *
+     * @param channel
+     *            書き込み先.
+     * @param bufferSize
+     *            バッファサイズ.
+     * @return 書き出し.
+     * @throws NullPointerException
+     *             指定されたチャネルが NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたバッファサイズが 64 未満の場合.
+     */
+    @NonNullReturnValue
+    public RecordEncoder<T, X>.Output open(WritableByteChannel channel, int bufferSize) {
+        Objects.requireNonNull(channel);
+        if (bufferSize < RecordEncoder.MINIMUM_BUFFER_SIZE) {
+            throw new IllegalArgumentException("bufferSize must be " + RecordEncoder.MINIMUM_BUFFER_SIZE
+                    + " or more: " + bufferSize);
+        }
+        return new Output(channel, bufferSize);
+    }
+
+    /**
+     * フィールドを登録する.
+     *
+     * @param name
+     *            フィールド名.
+     * @param kind
+     *            フィールドの種類.
+     * @param mapping
+     *            マッピング.
+     * @return このインスタンス.
+     */
+    private RecordEncoder<T, X> add(String name, RecordEncoder.Kind kind, Object mapping) {
+        this.fields.add(new RecordEncoder.Field(Objects.requireNonNull(name), kind, Objects.requireNonNull(mapping)));
+        return this;
+    }
+}
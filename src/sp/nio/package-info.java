@@ -0,0 +1,9 @@
+/**
+ * <p>
+ * 標準 Java ライブラリ {@link java.nio} の拡張機能を提供する.
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+package sp.nio;
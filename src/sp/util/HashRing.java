@@ -0,0 +1,190 @@
+/*
+sp.util.HashRing
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util;
+
+import java.util.Arrays;
+
+import sp.base.Immutable;
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * ハッシュ値をシャードに割り当てるコンシステントハッシュのリング.
+ * </p>
+ * <p>
+ * 各シャードはリング上に仮想ノードと呼ぶ複数の点を持ち, ハッシュ値は時計回りに最も近い点のシャードに割り当てられる. 点の位置はシャードの番号と
+ * 仮想ノードの番号だけから決まるため, {@link #withShards(int)} でシャードを増やしても既存の点は動かず, 割り当てが変わるハッシュ値は
+ * 新しいシャードに移るものだけ (およそ 1 / 新しいシャード数) となる. シャードを減らす場合も, 割り当てが変わるのは取り除いたシャードの分だけとなる.
+ * </p>
+ * <p>
+ * 不変であり, スレッドセーフである.
+ * </p>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+@Immutable
+public final class HashRing {
+
+    /**
+     * 既定の, シャード毎の仮想ノードの数.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * シャードの数.
+     */
+    private final int shards;
+
+    /**
+     * シャード毎の仮想ノードの数.
+     */
+    private final int virtualNodes;
+
+    /**
+     * 昇順に並べた点の位置.
+     */
+    private final long[] points;
+
+    /**
+     * 点毎のシャードの番号.
+     */
+    private final int[] owners;
+
+    /**
+     * Constractor.
+     *
+     * @param shards
+     *            シャードの数.
+     * @param virtualNodes
+     *            シャード毎の仮想ノードの数.
+     */
+    private HashRing(int shards, int virtualNodes) {
+        super();
+        this.shards = shards;
+        this.virtualNodes = virtualNodes;
+        int length = shards * virtualNodes;
+        long[] keys = new long[length];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                keys[shard * virtualNodes + node] = HashRing.mix((long) shard << 32 | node);
+            }
+        }
+        Integer[] order = new Integer[length];
+        for (int index = 0; index < length; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, (left, right) -> Long.compare(keys[left], keys[right]));
+        this.points = new long[length];
+        this.owners = new int[length];
+        for (int index = 0; index < length; index++) {
+            this.points[index] = keys[order[index]];
+            this.owners[index] = order[index] / virtualNodes;
+        }
+    }
+
+    /**
+     * 既定の数の仮想ノードを持つリングを生成する.
+     *
+     * @param shards
+     *            シャードの数.
+     * @return リング.
+     * @throws IllegalArgumentException
+     *             指定されたシャードの数が 1 未満の場合.
+     */
+    @NonNullReturnValue
+    public static HashRing of(int shards) {
+        return HashRing.of(shards, HashRing.DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * リングを生成する.
+     *
+     * @param shards
+     *            シャードの数.
+     * @param virtualNodes
+     *            シャード毎の仮想ノードの数. 多いほど割り当てが均等になる.
+     * @return リング.
+     * @throws IllegalArgumentException
+     *             指定されたシャードの数又は仮想ノードの数が 1 未満の場合, 又は点の総数が大きすぎる場合.
+     */
+    @NonNullReturnValue
+    public static HashRing of(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1 || (long) shards * virtualNodes > 1 << 24) {
+            throw new IllegalArgumentException("illegal ring: " + shards + " shards, " + virtualNodes + " nodes");
+        }
+        return new HashRing(shards, virtualNodes);
+    }
+
+    /**
+     * シャードの数を変えたリングを返す. 仮想ノードの数は変わらない.
+     *
+     * @param shards
+     *            新しいシャードの数.
+     * @return リング. シャードの数が同じ場合はこのインスタンス.
+     * @throws IllegalArgumentException
+     *             指定されたシャードの数が 1 未満の場合.
+     */
+    @NonNullReturnValue
+    public HashRing withShards(int shards) {
+        return shards == this.shards ? this : HashRing.of(shards, this.virtualNodes);
+    }
+
+    /**
+     * シャードの数を返す.
+     *
+     * @return シャードの数.
+     */
+    public int size() {
+        return this.shards;
+    }
+
+    /**
+     * 指定されたハッシュ値を割り当てるシャードの番号を返す.
+     *
+     * @param hash
+     *            ハッシュ値.
+     * @return シャードの番号 (0 以上 {@link #size()} 未満).
+     */
+    public int shardOf(long hash) {
+        int index = Arrays.binarySearch(this.points, HashRing.mix(hash));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return this.owners[index == this.points.length ? 0 : index];
+    }
+
+    /**
+     * ハッシュ値を拡散する (MurmurHash3 の fmix64).
+     *
+     * @param hash
+     *            ハッシュ値.
+     * @return 拡散したハッシュ値.
+     */
+    static long mix(long hash) {
+        long returnValue = hash;
+        returnValue ^= returnValue >>> 33;
+        returnValue *= 0xFF51AFD7ED558CCDL;
+        returnValue ^= returnValue >>> 33;
+        returnValue *= 0xC4CEB9FE1A85EC53L;
+        returnValue ^= returnValue >>> 33;
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @NonNullReturnValue
+    @Override
+    public String toString() {
+        return "HashRing[" + this.shards + " shards, " + this.virtualNodes + " virtual nodes]";
+    }
+}
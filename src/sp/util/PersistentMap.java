@@ -0,0 +1,817 @@
+/*
+sp.util.PersistentMap
+sp.util.PersistentMap.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import sp.base.Immutable;
+import sp.base.NonNullReturnValue;
+import sp.lang.DeepCopier;
+import sp.lang.DeepCopyable;
+import sp.lang.ShallowCopyable;
+
+/**
+ * <p>
+ * 永続マップ (HAMT: Hash Array Mapped Trie).
+ * </p>
+ * <p>
+ * キーのハッシュ値を 5 ビットずつ区切って 32 分木を辿る. 各ノードはビットマップで使用中の枝だけを詰めた配列に保持し,
+ * ハッシュ値が衝突したキーは衝突ノードにまとめる. 更新操作はルートから対象のノードまでの経路だけを複製し (パスコピー),
+ * 残りの部分木を更新前のマップと共有する. 更新前のマップは変更されず, そのまま使用し続けられる.
+ * </p>
+ * <p>
+ * 不変であるため {@link #clone()} は O(1) でこのインスタンス自身を返し, {@link DeepCopier} はコピーせずに共有する.
+ * キー及び値も不変であることが望ましい. キー及び値を含めて複製する場合は {@link #deepclone()} を用いる.
+ * </p>
+ * <p>
+ * キーに NULL は使用できない. 値には NULL を使用できる.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <K>
+ *            キーのクラス.
+ * @param <V>
+ *            値のクラス.
+ * @since 0.2
+ */
+@Immutable
+public final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>>, ShallowCopyable<PersistentMap<K, V>>,
+        DeepCopyable<PersistentMap<K, V>> {
+
+    /**
+     * 1 つのノードが区切るハッシュ値のビット数.
+     */
+    private static final int BITS = 5;
+
+    /**
+     * ハッシュ値からノード内の枝を求めるマスク.
+     */
+    private static final int MASK = (1 << PersistentMap.BITS) - 1;
+
+    /**
+     * 空のマップ.
+     */
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(0,
+            new PersistentMap.Node(0, false, new Object[0]));
+
+    /**
+     * 要素数.
+     */
+    private final int size;
+
+    /**
+     * トライのルート.
+     */
+    private final PersistentMap.Node root;
+
+    /**
+     * Constractor.
+     *
+     * @param size
+     *            要素数.
+     * @param root
+     *            トライのルート.
+     */
+    private PersistentMap(int size, PersistentMap.Node root) {
+        super();
+        this.size = size;
+        this.root = root;
+    }
+
+    /**
+     * 空のマップを返す.
+     *
+     * @param <K>
+     *            キーのクラス.
+     * @param <V>
+     *            値のクラス.
+     * @return 空のマップ.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) PersistentMap.EMPTY;
+    }
+
+    /**
+     * 指定されたマップと同じ対応付けを持つマップを返す.
+     *
+     * @param <K>
+     *            キーのクラス.
+     * @param <V>
+     *            値のクラス.
+     * @param source
+     *            対応付け.
+     * @return マップ.
+     * @throws NullPointerException
+     *             指定されたマップ又はそのキーが NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <K, V> PersistentMap<K, V> from(Map<? extends K, ? extends V> source) {
+        PersistentMap<K, V> returnValue = PersistentMap.empty();
+        for (Map.Entry<? extends K, ? extends V> entry : source.entrySet()) {
+            returnValue = returnValue.with(entry.getKey(), entry.getValue());
+        }
+        return returnValue;
+    }
+
+    /**
+     * 要素数を返す.
+     *
+     * @return 要素数.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * 空か判定する.
+     *
+     * @return 要素がない場合 TRUE.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * 指定されたキーに対応付けられた値を返す.
+     *
+     * @param key
+     *            キー.
+     * @return 値. 対応付けがない場合は NULL.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    public V get(Object key) {
+        return this.getOrDefault(key, null);
+    }
+
+    /**
+     * 指定されたキーに対応付けられた値を返す.
+     *
+     * @param key
+     *            キー.
+     * @param defaultValue
+     *            対応付けがない場合の値.
+     * @return 値.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        Object returnValue = this.root.find(0, PersistentMap.hash(key), key, PersistentMap.Node.NOT_FOUND);
+        return returnValue == PersistentMap.Node.NOT_FOUND ? defaultValue : (V) returnValue;
+    }
+
+    /**
+     * 指定されたキーの対応付けがあるか判定する.
+     *
+     * @param key
+     *            キー.
+     * @return 対応付けがある場合 TRUE.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    public boolean containsKey(Object key) {
+        return this.root.find(0, PersistentMap.hash(key), key,
+                PersistentMap.Node.NOT_FOUND) != PersistentMap.Node.NOT_FOUND;
+    }
+
+    /**
+     * 指定されたキーに値を対応付けたマップを返す.
+     *
+     * @param key
+     *            キー.
+     * @param value
+     *            値.
+     * @return 新しいマップ. 既に同じ値が対応付けられている場合はこのインスタンス. このマップは変更されない.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    @NonNullReturnValue
+    public PersistentMap<K, V> with(K key, V value) {
+        boolean[] added = new boolean[1];
+        PersistentMap.Node root = this.root.assoc(0, PersistentMap.hash(key), key, value, added);
+        return root == this.root ? this : new PersistentMap<>(added[0] ? this.size + 1 : this.size, root);
+    }
+
+    /**
+     * 指定されたキーの対応付けを取り除いたマップを返す.
+     *
+     * @param key
+     *            キー.
+     * @return 新しいマップ. 対応付けがない場合はこのインスタンス. このマップは変更されない.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    @NonNullReturnValue
+    public PersistentMap<K, V> without(Object key) {
+        PersistentMap<K, V> returnValue = this;
+        PersistentMap.Node root = this.root.dissoc(0, PersistentMap.hash(key), key);
+        if (root == null) {
+            returnValue = PersistentMap.empty();
+        } else if (root != this.root) {
+            returnValue = new PersistentMap<>(this.size - 1, root);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 読み出し専用の {@link Map} としての表現を返す. 要素の複製は生成しない.
+     *
+     * @return 読み出し専用のマップ.
+     */
+    @NonNullReturnValue
+    public Map<K, V> asMap() {
+        return new AbstractMap<K, V>() {
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractMap#entrySet()
+             */
+            @Override
+            public Set<Map.Entry<K, V>> entrySet() {
+                return new AbstractSet<Map.Entry<K, V>>() {
+
+                    /*
+                     * (非 Javadoc)
+                     *
+                     * @see java.util.AbstractCollection#iterator()
+                     */
+                    @Override
+                    public Iterator<Map.Entry<K, V>> iterator() {
+                        return PersistentMap.this.iterator();
+                    }
+
+                    /*
+                     * (非 Javadoc)
+                     *
+                     * @see java.util.AbstractCollection#size()
+                     */
+                    @Override
+                    public int size() {
+                        return PersistentMap.this.size;
+                    }
+                };
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractMap#get(java.lang.Object)
+             */
+            @Override
+            public V get(Object key) {
+                return key == null ? null : PersistentMap.this.get(key);
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractMap#containsKey(java.lang.Object)
+             */
+            @Override
+            public boolean containsKey(Object key) {
+                return key != null && PersistentMap.this.containsKey(key);
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractMap#size()
+             */
+            @Override
+            public int size() {
+                return PersistentMap.this.size;
+            }
+        };
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Iterable#iterator()
+     */
+    @NonNullReturnValue
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new PersistentMap.Entries<>(this.root);
+    }
+
+    /**
+     * <p>
+     * このマップを返す.
+     * </p>
+     * <p>
+     * 不変であるため複製を生成する必要はない. O(1) である.
+     * </p>
+     *
+     * @return このインスタンス.
+     */
+    @NonNullReturnValue
+    @Override
+    public PersistentMap<K, V> clone() {
+        return this;
+    }
+
+    /**
+     * 全てのキー及び値を {@link DeepCopier} で深くコピーしたマップを返す. 要素間で共有されたオブジェクトは, 複製でも共有される.
+     *
+     * @return 新しいマップ.
+     * @throws IllegalArgumentException
+     *             コピーできないキー又は値を含む場合.
+     */
+    @NonNullReturnValue
+    @Override
+    @SuppressWarnings("unchecked")
+    public PersistentMap<K, V> deepclone() {
+        Object[] entries = new Object[this.size * 2];
+        int index = 0;
+        for (Map.Entry<K, V> entry : this) {
+            entries[index++] = entry.getKey();
+            entries[index++] = entry.getValue();
+        }
+        entries = DeepCopier.copy(entries);
+        PersistentMap<K, V> returnValue = PersistentMap.empty();
+        for (index = 0; index < entries.length; index += 2) {
+            returnValue = returnValue.with((K) entries[index], (V) entries[index + 1]);
+        }
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object target) {
+        boolean returnValue = target == this;
+        if (!returnValue && target instanceof PersistentMap) {
+            PersistentMap<?, ?> other = (PersistentMap<?, ?>) target;
+            returnValue = this.size == other.size;
+            for (Map.Entry<K, V> entry : this) {
+                if (!returnValue) {
+                    break;
+                }
+                Object value = other.root.find(0, PersistentMap.hash(entry.getKey()), entry.getKey(),
+                        PersistentMap.Node.NOT_FOUND);
+                returnValue = value != PersistentMap.Node.NOT_FOUND && Objects.equals(value, entry.getValue());
+            }
+        }
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int returnValue = 0;
+        for (Map.Entry<K, V> entry : this) {
+            returnValue += entry.hashCode();
+        }
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @NonNullReturnValue
+    @Override
+    public String toString() {
+        return this.asMap().toString();
+    }
+
+    /**
+     * キーのハッシュ値を求める.
+     *
+     * @param key
+     *            キー.
+     * @return 上位ビットを拡散したハッシュ値.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    static int hash(Object key) {
+        int returnValue = key.hashCode();
+        return returnValue ^ (returnValue >>> 16);
+    }
+
+    /**
+     * <p>
+     * トライのノード.
+     * </p>
+     * <p>
+     * 配列はキーと値を交互に保持する. キーが NULL の位置は, 値の位置に子ノードを保持する. ビットマップ付きのノードは使用中の枝のビットを立て,
+     * 枝の順に配列に詰める. 衝突ノード ({@link #collision} が TRUE) は同じハッシュ値のキーだけを順不同で保持する.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Node {
+
+        /**
+         * 対応付けがないことを表す値.
+         */
+        static final Object NOT_FOUND = new Object();
+
+        /**
+         * 使用中の枝のビットマップ. 衝突ノードの場合はハッシュ値.
+         */
+        final int bitmap;
+
+        /**
+         * 衝突ノードの場合 TRUE.
+         */
+        final boolean collision;
+
+        /**
+         * キーと値 (又は NULL と子ノード) の配列.
+         */
+        final Object[] array;
+
+        /**
+         * Constractor.
+         *
+         * @param bitmap
+         *            使用中の枝のビットマップ又はハッシュ値.
+         * @param collision
+         *            衝突ノードの場合 TRUE.
+         * @param array
+         *            キーと値の配列.
+         */
+        Node(int bitmap, boolean collision, Object[] array) {
+            super();
+            this.bitmap = bitmap;
+            this.collision = collision;
+            this.array = array;
+        }
+
+        /**
+         * 指定されたキーの値を探す.
+         *
+         * @param shift
+         *            このノードが区切るビットの位置.
+         * @param hash
+         *            キーのハッシュ値.
+         * @param key
+         *            キー.
+         * @param notFound
+         *            対応付けがない場合の値.
+         * @return 値.
+         */
+        Object find(int shift, int hash, Object key, Object notFound) {
+            Object returnValue = notFound;
+            if (this.collision) {
+                int index = hash == this.bitmap ? this.indexOf(key) : -1;
+                if (index >= 0) {
+                    returnValue = this.array[index + 1];
+                }
+            } else {
+                int bit = PersistentMap.Node.bit(shift, hash);
+                if ((this.bitmap & bit) != 0) {
+                    int index = this.position(bit);
+                    Object current = this.array[index];
+                    if (current == null) {
+                        returnValue = ((PersistentMap.Node) this.array[index + 1]).find(shift + PersistentMap.BITS,
+                                hash, key, notFound);
+                    } else if (current.equals(key)) {
+                        returnValue = this.array[index + 1];
+                    }
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 指定されたキーに値を対応付けたノードを返す.
+         *
+         * @param shift
+         *            このノードが区切るビットの位置.
+         * @param hash
+         *            キーのハッシュ値.
+         * @param key
+         *            キー.
+         * @param value
+         *            値.
+         * @param added
+         *            新しいキーを追加した場合に先頭に TRUE を設定する.
+         * @return 経路を複製したノード. 変更がない場合はこのインスタンス.
+         */
+        PersistentMap.Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            PersistentMap.Node returnValue = this;
+            if (this.collision) {
+                if (hash == this.bitmap) {
+                    int index = this.indexOf(key);
+                    if (index < 0) {
+                        Object[] array = Arrays.copyOf(this.array, this.array.length + 2);
+                        array[this.array.length] = key;
+                        array[this.array.length + 1] = value;
+                        added[0] = true;
+                        returnValue = new PersistentMap.Node(this.bitmap, true, array);
+                    } else if (this.array[index + 1] != value) {
+                        returnValue = this.replace(index + 1, value);
+                    }
+                } else {
+                    returnValue = new PersistentMap.Node(PersistentMap.Node.bit(shift, this.bitmap), false,
+                            new Object[] { null, this }).assoc(shift, hash, key, value, added);
+                }
+            } else {
+                int bit = PersistentMap.Node.bit(shift, hash);
+                int index = this.position(bit);
+                if ((this.bitmap & bit) == 0) {
+                    Object[] array = new Object[this.array.length + 2];
+                    System.arraycopy(this.array, 0, array, 0, index);
+                    array[index] = key;
+                    array[index + 1] = value;
+                    System.arraycopy(this.array, index, array, index + 2, this.array.length - index);
+                    added[0] = true;
+                    returnValue = new PersistentMap.Node(this.bitmap | bit, false, array);
+                } else {
+                    Object current = this.array[index];
+                    Object currentValue = this.array[index + 1];
+                    if (current == null) {
+                        PersistentMap.Node child = ((PersistentMap.Node) currentValue).assoc(shift + PersistentMap.BITS,
+                                hash, key, value, added);
+                        if (child != currentValue) {
+                            returnValue = this.replace(index + 1, child);
+                        }
+                    } else if (current.equals(key)) {
+                        if (currentValue != value) {
+                            returnValue = this.replace(index + 1, value);
+                        }
+                    } else {
+                        added[0] = true;
+                        Object[] array = this.array.clone();
+                        array[index] = null;
+                        array[index + 1] = PersistentMap.Node.pair(shift + PersistentMap.BITS, current, currentValue,
+                                hash, key, value);
+                        returnValue = new PersistentMap.Node(this.bitmap, false, array);
+                    }
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 指定されたキーの対応付けを取り除いたノードを返す.
+         *
+         * @param shift
+         *            このノードが区切るビットの位置.
+         * @param hash
+         *            キーのハッシュ値.
+         * @param key
+         *            キー.
+         * @return 経路を複製したノード. 対応付けがない場合はこのインスタンス. 空になる場合は NULL.
+         */
+        PersistentMap.Node dissoc(int shift, int hash, Object key) {
+            PersistentMap.Node returnValue = this;
+            if (this.collision) {
+                int index = hash == this.bitmap ? this.indexOf(key) : -1;
+                if (index >= 0) {
+                    returnValue = this.array.length == 2 ? null
+                            : new PersistentMap.Node(this.bitmap, true, PersistentMap.Node.remove(this.array, index));
+                }
+            } else {
+                int bit = PersistentMap.Node.bit(shift, hash);
+                if ((this.bitmap & bit) != 0) {
+                    int index = this.position(bit);
+                    Object current = this.array[index];
+                    boolean removed = false;
+                    if (current == null) {
+                        PersistentMap.Node child = ((PersistentMap.Node) this.array[index + 1])
+                                .dissoc(shift + PersistentMap.BITS, hash, key);
+                        if (child != null && child != this.array[index + 1]) {
+                            returnValue = this.replace(index + 1, child);
+                        }
+                        removed = child == null;
+                    } else {
+                        removed = current.equals(key);
+                    }
+                    if (removed) {
+                        returnValue = this.bitmap == bit ? null
+                                : new PersistentMap.Node(this.bitmap ^ bit, false,
+                                        PersistentMap.Node.remove(this.array, index));
+                    }
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 配列の 1 つの位置を置き換えたノードを返す.
+         *
+         * @param index
+         *            位置.
+         * @param value
+         *            新しい値.
+         * @return 新しいノード.
+         */
+        private PersistentMap.Node replace(int index, Object value) {
+            Object[] array = this.array.clone();
+            array[index] = value;
+            return new PersistentMap.Node(this.bitmap, this.collision, array);
+        }
+
+        /**
+         * 衝突ノード内のキーの位置を返す.
+         *
+         * @param key
+         *            キー.
+         * @return キーの位置. 存在しない場合は -1.
+         */
+        private int indexOf(Object key) {
+            int returnValue = -1;
+            for (int index = 0; returnValue < 0 && index < this.array.length; index += 2) {
+                if (this.array[index].equals(key)) {
+                    returnValue = index;
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 枝の配列内の位置を返す.
+         *
+         * @param bit
+         *            枝のビット.
+         * @return キーの位置.
+         */
+        private int position(int bit) {
+            return Integer.bitCount(this.bitmap & (bit - 1)) * 2;
+        }
+
+        /**
+         * ハッシュ値の枝のビットを返す.
+         *
+         * @param shift
+         *            ノードが区切るビットの位置.
+         * @param hash
+         *            ハッシュ値.
+         * @return 枝のビット.
+         */
+        private static int bit(int shift, int hash) {
+            return 1 << ((hash >>> shift) & PersistentMap.MASK);
+        }
+
+        /**
+         * キーと値の組を取り除いた配列を返す.
+         *
+         * @param array
+         *            配列.
+         * @param index
+         *            キーの位置.
+         * @return 新しい配列.
+         */
+        private static Object[] remove(Object[] array, int index) {
+            Object[] returnValue = new Object[array.length - 2];
+            System.arraycopy(array, 0, returnValue, 0, index);
+            System.arraycopy(array, index + 2, returnValue, index, array.length - index - 2);
+            return returnValue;
+        }
+
+        /**
+         * 2 つのキーを持つノードを生成する.
+         *
+         * @param shift
+         *            ノードが区切るビットの位置.
+         * @param key1
+         *            既存のキー.
+         * @param value1
+         *            既存の値.
+         * @param hash2
+         *            新しいキーのハッシュ値.
+         * @param key2
+         *            新しいキー.
+         * @param value2
+         *            新しい値.
+         * @return 新しいノード.
+         */
+        private static PersistentMap.Node pair(int shift, Object key1, Object value1, int hash2, Object key2,
+                Object value2) {
+            int hash1 = PersistentMap.hash(key1);
+            PersistentMap.Node returnValue = null;
+            if (hash1 == hash2) {
+                returnValue = new PersistentMap.Node(hash1, true, new Object[] { key1, value1, key2, value2 });
+            } else {
+                boolean[] added = new boolean[1];
+                returnValue = PersistentMap.EMPTY.root.assoc(shift, hash1, key1, value1, added).assoc(shift, hash2,
+                        key2, value2, added);
+            }
+            return returnValue;
+        }
+    }
+
+    /**
+     * <p>
+     * トライの要素を深さ優先で列挙する反復子.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <K>
+     *            キーのクラス.
+     * @param <V>
+     *            値のクラス.
+     * @since 0.2
+     */
+    static final class Entries<K, V> implements Iterator<Map.Entry<K, V>> {
+
+        /**
+         * 走査中のノードの配列.
+         */
+        private final Deque<Object[]> arrays = new ArrayDeque<>();
+
+        /**
+         * 走査中のノードの配列内の次の位置.
+         */
+        private final Deque<Integer> positions = new ArrayDeque<>();
+
+        /**
+         * 次の要素. ない場合は NULL.
+         */
+        private Map.Entry<K, V> next;
+
+        /**
+         * Constractor.
+         *
+         * @param root
+         *            トライのルート.
+         */
+        Entries(PersistentMap.Node root) {
+            super();
+            this.arrays.push(root.array);
+            this.positions.push(0);
+            this.advance();
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public Map.Entry<K, V> next() {
+            Map.Entry<K, V> returnValue = this.next;
+            if (returnValue == null) {
+                throw new NoSuchElementException();
+            }
+            this.advance();
+            return returnValue;
+        }
+
+        /**
+         * 次の要素を探す.
+         */
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            this.next = null;
+            while (this.next == null && !this.arrays.isEmpty()) {
+                Object[] array = this.arrays.peek();
+                int index = this.positions.pop();
+                if (index >= array.length) {
+                    this.arrays.pop();
+                } else {
+                    this.positions.push(index + 2);
+                    if (array[index] == null) {
+                        this.arrays.push(((PersistentMap.Node) array[index + 1]).array);
+                        this.positions.push(0);
+                    } else {
+                        this.next = new AbstractMap.SimpleImmutableEntry<>((K) array[index], (V) array[index + 1]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+sp.util.PersistentSet
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import sp.base.Immutable;
+import sp.base.NonNullReturnValue;
+import sp.lang.DeepCopier;
+import sp.lang.DeepCopyable;
+import sp.lang.ShallowCopyable;
+
+/**
+ * <p>
+ * 永続セット.
+ * </p>
+ * <p>
+ * 要素をキーとする {@link PersistentMap} で実装する. 更新操作はパスコピーにより部分木を更新前のセットと共有し,
+ * 更新前のセットは変更されない.
+ * </p>
+ * <p>
+ * 不変であるため {@link #clone()} は O(1) でこのインスタンス自身を返し, {@link DeepCopier} はコピーせずに共有する.
+ * 要素に NULL は使用できない.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <E>
+ *            要素のクラス.
+ * @since 0.2
+ */
+@Immutable
+public final class PersistentSet<E> implements Iterable<E>, ShallowCopyable<PersistentSet<E>>,
+        DeepCopyable<PersistentSet<E>> {
+
+    /**
+     * 空のセット.
+     */
+    private static final PersistentSet<?> EMPTY = new PersistentSet<>(PersistentMap.empty());
+
+    /**
+     * 要素をキーとするマップ.
+     */
+    private final PersistentMap<E, Boolean> map;
+
+    /**
+     * Constractor.
+     *
+     * @param map
+     *            要素をキーとするマップ.
+     */
+    private PersistentSet(PersistentMap<E, Boolean> map) {
+        super();
+        this.map = map;
+    }
+
+    /**
+     * 空のセットを返す.
+     *
+     * @param <E>
+     *            要素のクラス.
+     * @return 空のセット.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentSet<E> empty() {
+        return (PersistentSet<E>) PersistentSet.EMPTY;
+    }
+
+    /**
+     * 指定された要素を持つセットを返す.
+     *
+     * @param <E>
+     *            要素のクラス.
+     * @param elements
+     *            要素.
+     * @return セット.
+     * @throws NullPointerException
+     *             指定された配列又はその要素が NULL の場合.
+     */
+    @NonNullReturnValue
+    @SafeVarargs
+    public static <E> PersistentSet<E> of(E... elements) {
+        PersistentSet<E> returnValue = PersistentSet.empty();
+        for (E element : elements) {
+            returnValue = returnValue.with(element);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定された要素を持つセットを返す.
+     *
+     * @param <E>
+     *            要素のクラス.
+     * @param elements
+     *            要素.
+     * @return セット.
+     * @throws NullPointerException
+     *             指定された要素又はその要素が NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <E> PersistentSet<E> from(Iterable<? extends E> elements) {
+        PersistentSet<E> returnValue = PersistentSet.empty();
+        for (E element : elements) {
+            returnValue = returnValue.with(element);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 要素数を返す.
+     *
+     * @return 要素数.
+     */
+    public int size() {
+        return this.map.size();
+    }
+
+    /**
+     * 空か判定する.
+     *
+     * @return 要素がない場合 TRUE.
+     */
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
+
+    /**
+     * 指定された要素を含むか判定する.
+     *
+     * @param element
+     *            要素.
+     * @return 含む場合 TRUE.
+     * @throws NullPointerException
+     *             指定された要素が NULL の場合.
+     */
+    public boolean contains(Object element) {
+        return this.map.containsKey(element);
+    }
+
+    /**
+     * 指定された要素を追加したセットを返す.
+     *
+     * @param element
+     *            要素.
+     * @return 新しいセット. 既に含む場合はこのインスタンス. このセットは変更されない.
+     * @throws NullPointerException
+     *             指定された要素が NULL の場合.
+     */
+    @NonNullReturnValue
+    public PersistentSet<E> with(E element) {
+        PersistentMap<E, Boolean> map = this.map.with(element, Boolean.TRUE);
+        return map == this.map ? this : new PersistentSet<>(map);
+    }
+
+    /**
+     * 指定された要素を取り除いたセットを返す.
+     *
+     * @param element
+     *            要素.
+     * @return 新しいセット. 含まない場合はこのインスタンス. このセットは変更されない.
+     * @throws NullPointerException
+     *             指定された要素が NULL の場合.
+     */
+    @NonNullReturnValue
+    public PersistentSet<E> without(Object element) {
+        PersistentMap<E, Boolean> map = this.map.without(element);
+        PersistentSet<E> returnValue = this;
+        if (map.isEmpty()) {
+            returnValue = PersistentSet.empty();
+        } else if (map != this.map) {
+            returnValue = new PersistentSet<>(map);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 読み出し専用の {@link Set} としての表現を返す. 要素の複製は生成しない.
+     *
+     * @return 読み出し専用のセット.
+     */
+    @NonNullReturnValue
+    public Set<E> asSet() {
+        return new AbstractSet<E>() {
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractCollection#contains(java.lang.Object)
+             */
+            @Override
+            public boolean contains(Object element) {
+                return element != null && PersistentSet.this.contains(element);
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractCollection#iterator()
+             */
+            @Override
+            public Iterator<E> iterator() {
+                return PersistentSet.this.iterator();
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractCollection#size()
+             */
+            @Override
+            public int size() {
+                return PersistentSet.this.size();
+            }
+        };
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Iterable#iterator()
+     */
+    @NonNullReturnValue
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<Map.Entry<E, Boolean>> entries = this.map.iterator();
+        return new Iterator<E>() {
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Iterator#hasNext()
+             */
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Iterator#next()
+             */
+            @Override
+            public E next() {
+                return entries.next().getKey();
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * このセットを返す.
+     * </p>
+     * <p>
+     * 不変であるため複製を生成する必要はない. O(1) である.
+     * </p>
+     *
+     * @return このインスタンス.
+     */
+    @NonNullReturnValue
+    @Override
+    public PersistentSet<E> clone() {
+        return this;
+    }
+
+    /**
+     * 全ての要素を {@link DeepCopier} で深くコピーしたセットを返す.
+     *
+     * @return 新しいセット.
+     * @throws IllegalArgumentException
+     *             コピーできない要素を含む場合.
+     */
+    @NonNullReturnValue
+    @Override
+    @SuppressWarnings("unchecked")
+    public PersistentSet<E> deepclone() {
+        Object[] elements = new Object[this.size()];
+        int index = 0;
+        for (E element : this) {
+            elements[index++] = element;
+        }
+        return (PersistentSet<E>) PersistentSet.from(Arrays.asList(DeepCopier.copy(elements)));
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object target) {
+        return target == this || target instanceof PersistentSet && this.map.equals(((PersistentSet<?>) target).map);
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int returnValue = 0;
+        for (E element : this) {
+            returnValue += element.hashCode();
+        }
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @NonNullReturnValue
+    @Override
+    public String toString() {
+        return this.asSet().toString();
+    }
+}
@@ -0,0 +1,589 @@
+/*
+sp.util.PersistentVector
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import sp.base.Immutable;
+import sp.base.NonNullReturnValue;
+import sp.lang.DeepCopier;
+import sp.lang.DeepCopyable;
+import sp.lang.ShallowCopyable;
+
+/**
+ * <p>
+ * 永続ベクタ (ビット分割されたトライ).
+ * </p>
+ * <p>
+ * 要素を 32 分木のトライに格納し, 末尾の 32 要素は別の配列 (テール) に保持する. 更新操作はルートから対象の葉までの経路だけを複製し (パスコピー),
+ * 残りの部分木を更新前のベクタと共有する. 更新前のベクタは変更されず, そのまま使用し続けられる. 参照と更新は O(log<sub>32</sub> n),
+ * 末尾への追加は償却 O(1) である.
+ * </p>
+ * <p>
+ * 不変であるため {@link #clone()} は O(1) でこのインスタンス自身を返し, {@link DeepCopier} はコピーせずに共有する.
+ * 要素も不変であることが望ましい. 要素を含めて複製する場合は {@link #deepclone()} を用いる.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <E>
+ *            要素のクラス.
+ * @since 0.2
+ */
+@Immutable
+public final class PersistentVector<E> implements Iterable<E>, ShallowCopyable<PersistentVector<E>>,
+        DeepCopyable<PersistentVector<E>> {
+
+    /**
+     * 1 つのノードが持つ子の数のビット数.
+     */
+    private static final int BITS = 5;
+
+    /**
+     * 1 つのノードが持つ子の数.
+     */
+    private static final int WIDTH = 1 << PersistentVector.BITS;
+
+    /**
+     * 位置からノード内の位置を求めるマスク.
+     */
+    private static final int MASK = PersistentVector.WIDTH - 1;
+
+    /**
+     * 空のノード.
+     */
+    private static final Object[] EMPTY_NODE = new Object[PersistentVector.WIDTH];
+
+    /**
+     * 空のベクタ.
+     */
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(0, PersistentVector.BITS,
+            PersistentVector.EMPTY_NODE, new Object[0]);
+
+    /**
+     * 要素数.
+     */
+    private final int size;
+
+    /**
+     * ルートの高さ (ビット数).
+     */
+    private final int shift;
+
+    /**
+     * トライのルート.
+     */
+    private final Object[] root;
+
+    /**
+     * 末尾の要素.
+     */
+    private final Object[] tail;
+
+    /**
+     * Constractor.
+     *
+     * @param size
+     *            要素数.
+     * @param shift
+     *            ルートの高さ (ビット数).
+     * @param root
+     *            トライのルート.
+     * @param tail
+     *            末尾の要素.
+     */
+    private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+        super();
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    /**
+     * 空のベクタを返す.
+     *
+     * @param <E>
+     *            要素のクラス.
+     * @return 空のベクタ.
+     */
+    @NonNullReturnValue
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentVector<E> empty() {
+        return (PersistentVector<E>) PersistentVector.EMPTY;
+    }
+
+    /**
+     * 指定された要素を順に持つベクタを返す.
+     *
+     * @param <E>
+     *            要素のクラス.
+     * @param elements
+     *            要素.
+     * @return ベクタ.
+     * @throws NullPointerException
+     *             指定された配列が NULL の場合.
+     */
+    @NonNullReturnValue
+    @SafeVarargs
+    public static <E> PersistentVector<E> of(E... elements) {
+        PersistentVector<E> returnValue = PersistentVector.empty();
+        for (E element : elements) {
+            returnValue = returnValue.plus(element);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定された要素を順に持つベクタを返す.
+     *
+     * @param <E>
+     *            要素のクラス.
+     * @param elements
+     *            要素.
+     * @return ベクタ.
+     * @throws NullPointerException
+     *             指定された要素が NULL の場合.
+     */
+    @NonNullReturnValue
+    public static <E> PersistentVector<E> from(Iterable<? extends E> elements) {
+        PersistentVector<E> returnValue = PersistentVector.empty();
+        for (E element : elements) {
+            returnValue = returnValue.plus(element);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 要素数を返す.
+     *
+     * @return 要素数.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * 空か判定する.
+     *
+     * @return 要素がない場合 TRUE.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * 指定された位置の要素を返す.
+     *
+     * @param index
+     *            位置.
+     * @return 要素.
+     * @throws IndexOutOfBoundsException
+     *             指定された位置が範囲外の場合.
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        this.checkIndex(index);
+        return (E) this.leafOf(index)[index & PersistentVector.MASK];
+    }
+
+    /**
+     * 指定された位置の要素を置き換えたベクタを返す. 位置が要素数と等しい場合は末尾に追加する.
+     *
+     * @param index
+     *            位置.
+     * @param element
+     *            新しい要素.
+     * @return 新しいベクタ. このベクタは変更されない.
+     * @throws IndexOutOfBoundsException
+     *             指定された位置が範囲外の場合.
+     */
+    @NonNullReturnValue
+    public PersistentVector<E> with(int index, E element) {
+        PersistentVector<E> returnValue = null;
+        if (index == this.size) {
+            returnValue = this.plus(element);
+        } else {
+            this.checkIndex(index);
+            if (index >= this.tailOffset()) {
+                Object[] tail = this.tail.clone();
+                tail[index & PersistentVector.MASK] = element;
+                returnValue = new PersistentVector<>(this.size, this.shift, this.root, tail);
+            } else {
+                returnValue = new PersistentVector<>(this.size, this.shift,
+                        PersistentVector.assoc(this.shift, this.root, index, element), this.tail);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 末尾に要素を追加したベクタを返す.
+     *
+     * @param element
+     *            追加する要素.
+     * @return 新しいベクタ. このベクタは変更されない.
+     */
+    @NonNullReturnValue
+    public PersistentVector<E> plus(E element) {
+        PersistentVector<E> returnValue = null;
+        if (this.size - this.tailOffset() < PersistentVector.WIDTH) {
+            Object[] tail = Arrays.copyOf(this.tail, this.tail.length + 1);
+            tail[this.tail.length] = element;
+            returnValue = new PersistentVector<>(this.size + 1, this.shift, this.root, tail);
+        } else {
+            Object[] root = null;
+            int shift = this.shift;
+            if ((this.size >>> PersistentVector.BITS) > (1 << this.shift)) {
+                root = new Object[PersistentVector.WIDTH];
+                root[0] = this.root;
+                root[1] = PersistentVector.path(this.shift, this.tail);
+                shift += PersistentVector.BITS;
+            } else {
+                root = this.pushTail(this.shift, this.root, this.tail);
+            }
+            returnValue = new PersistentVector<>(this.size + 1, shift, root, new Object[] { element });
+        }
+        return returnValue;
+    }
+
+    /**
+     * 末尾の要素を取り除いたベクタを返す.
+     *
+     * @return 新しいベクタ. このベクタは変更されない.
+     * @throws NoSuchElementException
+     *             空の場合.
+     */
+    @NonNullReturnValue
+    public PersistentVector<E> minus() {
+        PersistentVector<E> returnValue = null;
+        if (this.size == 0) {
+            throw new NoSuchElementException("vector is empty.");
+        } else if (this.size == 1) {
+            returnValue = PersistentVector.empty();
+        } else if (this.size - this.tailOffset() > 1) {
+            returnValue = new PersistentVector<>(this.size - 1, this.shift, this.root,
+                    Arrays.copyOf(this.tail, this.tail.length - 1));
+        } else {
+            Object[] tail = this.leafOf(this.size - 2);
+            Object[] root = this.popTail(this.shift, this.root);
+            int shift = this.shift;
+            if (root == null) {
+                root = PersistentVector.EMPTY_NODE;
+            }
+            if (shift > PersistentVector.BITS && root[1] == null) {
+                root = (Object[]) root[0];
+                shift -= PersistentVector.BITS;
+            }
+            returnValue = new PersistentVector<>(this.size - 1, shift, root, tail);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 読み出し専用の {@link List} としての表現を返す. 新しい配列等は生成しない.
+     *
+     * @return 読み出し専用のリスト.
+     */
+    @NonNullReturnValue
+    public List<E> asList() {
+        return new AbstractList<E>() {
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractList#get(int)
+             */
+            @Override
+            public E get(int index) {
+                return PersistentVector.this.get(index);
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.AbstractCollection#size()
+             */
+            @Override
+            public int size() {
+                return PersistentVector.this.size;
+            }
+        };
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Iterable#iterator()
+     */
+    @NonNullReturnValue
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            /**
+             * 次の要素の位置.
+             */
+            private int index;
+
+            /**
+             * 次の要素を含む葉.
+             */
+            private Object[] leaf;
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Iterator#hasNext()
+             */
+            @Override
+            public boolean hasNext() {
+                return this.index < PersistentVector.this.size;
+            }
+
+            /*
+             * (非 Javadoc)
+             *
+             * @see java.util.Iterator#next()
+             */
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if ((this.index & PersistentVector.MASK) == 0) {
+                    this.leaf = PersistentVector.this.leafOf(this.index);
+                }
+                return (E) this.leaf[this.index++ & PersistentVector.MASK];
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * このベクタを返す.
+     * </p>
+     * <p>
+     * 不変であるため複製を生成する必要はない. O(1) である.
+     * </p>
+     *
+     * @return このインスタンス.
+     */
+    @NonNullReturnValue
+    @Override
+    public PersistentVector<E> clone() {
+        return this;
+    }
+
+    /**
+     * 全ての要素を {@link DeepCopier} で深くコピーしたベクタを返す. 要素間で共有されたオブジェクトは, 複製でも共有される.
+     *
+     * @return 新しいベクタ.
+     * @throws IllegalArgumentException
+     *             コピーできない要素を含む場合.
+     */
+    @NonNullReturnValue
+    @Override
+    @SuppressWarnings("unchecked")
+    public PersistentVector<E> deepclone() {
+        Object[] elements = new Object[this.size];
+        int index = 0;
+        for (E element : this) {
+            elements[index++] = element;
+        }
+        return (PersistentVector<E>) PersistentVector.from(Arrays.asList(DeepCopier.copy(elements)));
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object target) {
+        boolean returnValue = target == this;
+        if (!returnValue && target instanceof PersistentVector) {
+            PersistentVector<?> other = (PersistentVector<?>) target;
+            returnValue = this.size == other.size;
+            Iterator<?> iterator = other.iterator();
+            for (E element : this) {
+                if (!returnValue) {
+                    break;
+                }
+                returnValue = Objects.equals(element, iterator.next());
+            }
+        }
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int returnValue = 1;
+        for (E element : this) {
+            returnValue = 31 * returnValue + Objects.hashCode(element);
+        }
+        return returnValue;
+    }
+
+    /*
+     * (非 Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @NonNullReturnValue
+    @Override
+    public String toString() {
+        return this.asList().toString();
+    }
+
+    /**
+     * 位置が範囲内か検査する.
+     *
+     * @param index
+     *            位置.
+     * @throws IndexOutOfBoundsException
+     *             指定された位置が範囲外の場合.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+    }
+
+    /**
+     * テールの先頭の位置を返す.
+     *
+     * @return テールの先頭の位置.
+     */
+    private int tailOffset() {
+        return this.size < PersistentVector.WIDTH ? 0
+                : ((this.size - 1) >>> PersistentVector.BITS) << PersistentVector.BITS;
+    }
+
+    /**
+     * 指定された位置の要素を含む葉を返す.
+     *
+     * @param index
+     *            位置.
+     * @return 葉又はテール.
+     */
+    private Object[] leafOf(int index) {
+        Object[] returnValue = this.tail;
+        if (index < this.tailOffset()) {
+            returnValue = this.root;
+            for (int level = this.shift; level > 0; level -= PersistentVector.BITS) {
+                returnValue = (Object[]) returnValue[(index >>> level) & PersistentVector.MASK];
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定された位置の要素を置き換えた部分木を返す.
+     *
+     * @param level
+     *            部分木の高さ (ビット数).
+     * @param node
+     *            部分木.
+     * @param index
+     *            位置.
+     * @param element
+     *            新しい要素.
+     * @return 経路を複製した部分木.
+     */
+    private static Object[] assoc(int level, Object[] node, int index, Object element) {
+        Object[] returnValue = node.clone();
+        if (level == 0) {
+            returnValue[index & PersistentVector.MASK] = element;
+        } else {
+            int child = (index >>> level) & PersistentVector.MASK;
+            returnValue[child] = PersistentVector.assoc(level - PersistentVector.BITS, (Object[]) node[child], index,
+                    element);
+        }
+        return returnValue;
+    }
+
+    /**
+     * 指定された葉だけを持つ経路を生成する.
+     *
+     * @param level
+     *            経路の高さ (ビット数).
+     * @param leaf
+     *            葉.
+     * @return 経路の先頭のノード.
+     */
+    private static Object[] path(int level, Object[] leaf) {
+        Object[] returnValue = leaf;
+        for (int current = level; current > 0; current -= PersistentVector.BITS) {
+            Object[] node = new Object[PersistentVector.WIDTH];
+            node[0] = returnValue;
+            returnValue = node;
+        }
+        return returnValue;
+    }
+
+    /**
+     * テールをトライの末尾に追加した部分木を返す.
+     *
+     * @param level
+     *            部分木の高さ (ビット数).
+     * @param parent
+     *            部分木.
+     * @param leaf
+     *            追加するテール.
+     * @return 経路を複製した部分木.
+     */
+    private Object[] pushTail(int level, Object[] parent, Object[] leaf) {
+        int child = ((this.size - 1) >>> level) & PersistentVector.MASK;
+        Object[] returnValue = parent.clone();
+        if (level == PersistentVector.BITS) {
+            returnValue[child] = leaf;
+        } else {
+            Object[] node = (Object[]) parent[child];
+            returnValue[child] = node != null ? this.pushTail(level - PersistentVector.BITS, node, leaf)
+                    : PersistentVector.path(level - PersistentVector.BITS, leaf);
+        }
+        return returnValue;
+    }
+
+    /**
+     * トライの末尾の葉を取り除いた部分木を返す.
+     *
+     * @param level
+     *            部分木の高さ (ビット数).
+     * @param node
+     *            部分木.
+     * @return 経路を複製した部分木. 空になる場合は NULL.
+     */
+    private Object[] popTail(int level, Object[] node) {
+        int child = ((this.size - 2) >>> level) & PersistentVector.MASK;
+        Object[] returnValue = null;
+        if (level > PersistentVector.BITS) {
+            Object[] next = this.popTail(level - PersistentVector.BITS, (Object[]) node[child]);
+            if (next != null || child != 0) {
+                returnValue = node.clone();
+                returnValue[child] = next;
+            }
+        } else if (child != 0) {
+            returnValue = node.clone();
+            returnValue[child] = null;
+        }
+        return returnValue;
+    }
+}
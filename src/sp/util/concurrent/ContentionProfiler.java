@@ -0,0 +1,595 @@
+/*
+sp.util.concurrent.ContentionProfiler
+sp.util.concurrent.ContentionProfiler.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+import sp.base.Exclusiveness;
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * 排他制御された区間の競合を計測するプロファイラ.
+ * </p>
+ * <p>
+ * 区間 ({@link ContentionProfiler.Section}) 毎に, 獲得回数, 競合した回数, 待ち時間, 保持時間, 待っているスレッドの数 (キュー長) 及び,
+ * 競合時に保持していたスレッドのスタックを記録する. カウンタはストライプ化された {@link LongAdder} で, 計測の負荷を抑える.
+ * {@link #report()} は待ち時間の合計の降順に並べた表を返し, {@link #startReporting(long, TimeUnit, Consumer)} は定期的に出力する.
+ * </p>
+ * <p>
+ * 区間は {@link ContentionProfiler.Section#synchronize(Object, FunctionWithThrown.OfObj)} 又は
+ * {@link ContentionProfiler.Section#lock(Lock, FunctionWithThrown.OfObj)} を介して実行したときだけ計測される.
+ * {@link #register(Class)} は {@link Exclusiveness} が付与されたメソッド毎に区間を登録する.
+ * </p>
+ *
+ * <pre>
+ * ContentionProfiler.Section section = profiler.section("Routes#update");
+ * section.synchronize(this, self -&gt; self.updateTable(route));
+ * </pre>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class ContentionProfiler {
+
+    /**
+     * 保持しているスレッドのスタックを採取する間隔 (競合した回数).
+     */
+    static final int SAMPLING = 16;
+
+    /**
+     * 区間毎に保持するスタックの最大数.
+     */
+    static final int MAX_STACKS = 8;
+
+    /**
+     * スタックに記録するフレームの最大数.
+     */
+    static final int MAX_FRAMES = 6;
+
+    /**
+     * 名前毎の区間.
+     */
+    private final ConcurrentMap<String, ContentionProfiler.Section> sections = new ConcurrentHashMap<>();
+
+    /**
+     * Constractor.
+     */
+    public ContentionProfiler() {
+        super();
+    }
+
+    /**
+     * 指定された名前の区間を返す. 存在しない場合は生成する.
+     *
+     * @param name
+     *            区間の名前.
+     * @return 区間.
+     * @throws NullPointerException
+     *             指定された名前が NULL の場合.
+     */
+    @NonNullReturnValue
+    public ContentionProfiler.Section section(String name) {
+        return this.sections.computeIfAbsent(Objects.requireNonNull(name), ContentionProfiler.Section::new);
+    }
+
+    /**
+     * 指定されたクラスの {@link Exclusiveness} が付与されたメソッド毎に区間を登録する. クラスに付与されている場合は全ての public メソッドを登録する.
+     *
+     * @param type
+     *            対象のクラス.
+     * @return メソッド名 (オーバーロードは引数の型を含む) 毎の区間. 区間の名前は "クラスの単純名#メソッド名" となる.
+     * @throws NullPointerException
+     *             指定されたクラスが NULL の場合.
+     */
+    @NonNullReturnValue
+    public Map<String, ContentionProfiler.Section> register(Class<?> type) {
+        boolean all = type.isAnnotationPresent(Exclusiveness.class);
+        Map<String, Integer> counts = new HashMap<>();
+        List<Method> methods = new ArrayList<>();
+        for (Method method : type.getDeclaredMethods()) {
+            if (!method.isSynthetic() && (method.isAnnotationPresent(Exclusiveness.class)
+                    || (all && Modifier.isPublic(method.getModifiers())))) {
+                methods.add(method);
+                counts.merge(method.getName(), 1, Integer::sum);
+            }
+        }
+        Map<String, ContentionProfiler.Section> returnValue = new HashMap<>();
+        for (Method method : methods) {
+            String name = method.getName();
+            if (counts.get(name) > 1) {
+                StringBuilder builder = new StringBuilder(name).append('(');
+                for (Class<?> parameter : method.getParameterTypes()) {
+                    builder.append(builder.charAt(builder.length() - 1) == '(' ? "" : ",")
+                            .append(parameter.getSimpleName());
+                }
+                name = builder.append(')').toString();
+            }
+            returnValue.put(name, this.section(type.getSimpleName() + "#" + name));
+        }
+        return returnValue;
+    }
+
+    /**
+     * 登録されている全ての区間を返す.
+     *
+     * @return 待ち時間の合計の降順に並べた区間.
+     */
+    @NonNullReturnValue
+    public List<ContentionProfiler.Section> sections() {
+        List<ContentionProfiler.Section> returnValue = new ArrayList<>(this.sections.values());
+        returnValue.sort((left, right) -> Long.compare(right.waitNanos(), left.waitNanos()));
+        return returnValue;
+    }
+
+    /**
+     * 全ての区間の計測値を消去する.
+     */
+    public void reset() {
+        this.sections.values().forEach(ContentionProfiler.Section::reset);
+    }
+
+    /**
+     * 計測値の表を返す.
+     *
+     * @return 待ち時間の合計の降順に並べた表.
+     */
+    @NonNullReturnValue
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-40s %10s %10s %12s %12s %12s %12s %6s", "section", "acquired", "contended",
+                "wait(ms)", "max wait(us)", "hold(ms)", "avg hold(us)", "queue"));
+        for (ContentionProfiler.Section section : this.sections()) {
+            long acquired = section.acquisitions();
+            builder.append(System.lineSeparator());
+            builder.append(String.format("%-40s %10d %10d %12.3f %12.1f %12.3f %12.1f %6d", section.name(), acquired,
+                    section.contentions(), section.waitNanos() / 1e6, section.maxWaitNanos() / 1e3,
+                    section.holdNanos() / 1e6,
+                    acquired == 0 ? 0.0 : section.holdNanos() / 1e3 / acquired, section.maxQueueLength()));
+            for (Map.Entry<String, Long> stack : section.ownerStacks().entrySet()) {
+                builder.append(System.lineSeparator()).append(String.format("    %6d x owner at %s", stack.getValue(),
+                        stack.getKey()));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 計測値の表を定期的に出力する. 出力はデーモンスレッドで行う.
+     *
+     * @param period
+     *            出力の間隔.
+     * @param unit
+     *            間隔の単位.
+     * @param sink
+     *            表の出力先.
+     * @return 呼び出すと出力を停止する {@link AutoCloseable}.
+     * @throws NullPointerException
+     *             指定された単位又は出力先が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された間隔が 0 以下の場合.
+     */
+    @NonNullReturnValue
+    public AutoCloseable startReporting(long period, TimeUnit unit, Consumer<? super String> sink) {
+        Objects.requireNonNull(unit);
+        Objects.requireNonNull(sink);
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ContentionProfiler-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> sink.accept(this.report()), period, period, unit);
+        return executor::shutdownNow;
+    }
+
+    /**
+     * <p>
+     * 計測する 1 つの排他制御された区間.
+     * </p>
+     * <p>
+     * 競合はモニタ (又はロック) 毎に判定する. 同じ区間で異なるモニタを保持しているスレッドは競合として数えず, 同じスレッドによる再入も
+     * 競合として数えない.
+     * </p>
+     * <p>
+     * スレッドセーフである.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static final class Section {
+
+        /**
+         * 区間の名前.
+         */
+        private final String name;
+
+        /**
+         * 獲得回数.
+         */
+        private final LongAdder acquisitions = new LongAdder();
+
+        /**
+         * 競合した回数.
+         */
+        private final LongAdder contentions = new LongAdder();
+
+        /**
+         * 待ち時間の合計 (ナノ秒).
+         */
+        private final LongAdder waitNanos = new LongAdder();
+
+        /**
+         * 保持時間の合計 (ナノ秒).
+         */
+        private final LongAdder holdNanos = new LongAdder();
+
+        /**
+         * 最大の待ち時間 (ナノ秒).
+         */
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+
+        /**
+         * 最大のキュー長.
+         */
+        private final LongAccumulator maxQueueLength = new LongAccumulator(Math::max, 0L);
+
+        /**
+         * 獲得を待っているスレッドの数.
+         */
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        /**
+         * 競合時に保持していたスレッドのスタック毎の回数.
+         */
+        private final ConcurrentMap<String, LongAdder> stacks = new ConcurrentHashMap<>();
+
+        /**
+         * 区間内で保持されているモニタ毎の, 保持しているスレッド.
+         */
+        private final ConcurrentMap<ContentionProfiler.Monitor, Thread> owners = new ConcurrentHashMap<>();
+
+        /**
+         * Constractor.
+         *
+         * @param name
+         *            区間の名前.
+         */
+        Section(String name) {
+            super();
+            this.name = name;
+        }
+
+        /**
+         * 指定されたモニタで同期して処理を実行する.
+         *
+         * @param <T>
+         *            モニタのクラス.
+         * @param <R>
+         *            処理の結果クラス.
+         * @param <X>
+         *            処理中に発生するエラークラス.
+         * @param monitor
+         *            モニタ.
+         * @param body
+         *            モニタを受け取る処理.
+         * @return 処理の結果.
+         * @throws X
+         *             処理中にエラーが発生した場合.
+         * @throws NullPointerException
+         *             指定されたモニタ又は処理が NULL の場合.
+         */
+        public <T, R, X extends Throwable> R synchronize(T monitor,
+                FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> body) throws X {
+            Objects.requireNonNull(body);
+            long start = this.enter(Objects.requireNonNull(monitor));
+            synchronized (monitor) {
+                return this.hold(start, monitor, body);
+            }
+        }
+
+        /**
+         * 指定されたロックを獲得して処理を実行する.
+         *
+         * @param <L>
+         *            ロックのクラス.
+         * @param <R>
+         *            処理の結果クラス.
+         * @param <X>
+         *            処理中に発生するエラークラス.
+         * @param lock
+         *            ロック.
+         * @param body
+         *            ロックを受け取る処理.
+         * @return 処理の結果.
+         * @throws X
+         *             処理中にエラーが発生した場合.
+         * @throws NullPointerException
+         *             指定されたロック又は処理が NULL の場合.
+         */
+        public <L extends Lock, R, X extends Throwable> R lock(L lock,
+                FunctionWithThrown.OfObj<? super L, ? extends R, ? extends X> body) throws X {
+            Objects.requireNonNull(body);
+            long start = this.enter(Objects.requireNonNull(lock));
+            lock.lock();
+            try {
+                return this.hold(start, lock, body);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 獲得の待ちを開始する. 指定されたモニタを他のスレッドが区間内で保持している場合は競合として数える.
+         *
+         * @param monitor
+         *            獲得するモニタ又はロック.
+         * @return 開始時刻 (ナノ秒).
+         */
+        long enter(Object monitor) {
+            long returnValue = System.nanoTime();
+            int queue = this.waiting.incrementAndGet();
+            this.maxQueueLength.accumulate(queue);
+            Thread owner = this.owners.get(new ContentionProfiler.Monitor(monitor));
+            if (owner != null && owner != Thread.currentThread()) {
+                this.contentions.increment();
+                if (this.contentions.sum() % ContentionProfiler.SAMPLING == 1) {
+                    this.sample(owner);
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 獲得せずに待ちを終了する (タイムアウト又は割り込み).
+         */
+        void cancel() {
+            this.waiting.decrementAndGet();
+        }
+
+        /**
+         * 獲得した状態で処理を実行し, 計測値を記録する.
+         *
+         * @param <T>
+         *            モニタ又はロックのクラス.
+         * @param <R>
+         *            処理の結果クラス.
+         * @param <X>
+         *            処理中に発生するエラークラス.
+         * @param start
+         *            待ちの開始時刻 (ナノ秒).
+         * @param monitor
+         *            モニタ又はロック.
+         * @param body
+         *            処理.
+         * @return 処理の結果.
+         * @throws X
+         *             処理中にエラーが発生した場合.
+         */
+        <T, R, X extends Throwable> R hold(long start, T monitor,
+                FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> body) throws X {
+            long acquired = System.nanoTime();
+            this.waiting.decrementAndGet();
+            this.waitNanos.add(acquired - start);
+            this.maxWaitNanos.accumulate(acquired - start);
+            Thread current = Thread.currentThread();
+            ContentionProfiler.Monitor key = new ContentionProfiler.Monitor(monitor);
+            // 再入した場合は外側の獲得が保持者を記録しているため, 解放時に消去しない.
+            boolean outermost = this.owners.put(key, current) != current;
+            try {
+                return body.apply(monitor);
+            } finally {
+                if (outermost) {
+                    this.owners.remove(key, current);
+                }
+                this.holdNanos.add(System.nanoTime() - acquired);
+                this.acquisitions.increment();
+            }
+        }
+
+        /**
+         * 保持しているスレッドのスタックを記録する.
+         *
+         * @param owner
+         *            保持しているスレッド.
+         */
+        private void sample(Thread owner) {
+            StackTraceElement[] frames = owner.getStackTrace();
+            StringBuilder builder = new StringBuilder(owner.getName());
+            for (int index = 0; index < frames.length && index < ContentionProfiler.MAX_FRAMES; index++) {
+                builder.append(index == 0 ? ": " : " <- ").append(frames[index]);
+            }
+            String stack = builder.toString();
+            LongAdder count = this.stacks.get(stack);
+            if (count == null && this.stacks.size() < ContentionProfiler.MAX_STACKS) {
+                count = this.stacks.computeIfAbsent(stack, key -> new LongAdder());
+            }
+            if (count != null) {
+                count.increment();
+            }
+        }
+
+        /**
+         * 計測値を消去する.
+         */
+        void reset() {
+            this.acquisitions.reset();
+            this.contentions.reset();
+            this.waitNanos.reset();
+            this.holdNanos.reset();
+            this.maxWaitNanos.reset();
+            this.maxQueueLength.reset();
+            this.stacks.clear();
+        }
+
+        /**
+         * 区間の名前を返す.
+         *
+         * @return 区間の名前.
+         */
+        @NonNullReturnValue
+        public String name() {
+            return this.name;
+        }
+
+        /**
+         * 獲得回数を返す.
+         *
+         * @return 獲得回数.
+         */
+        public long acquisitions() {
+            return this.acquisitions.sum();
+        }
+
+        /**
+         * 他のスレッドが保持していたために待った回数を返す.
+         *
+         * @return 競合した回数.
+         */
+        public long contentions() {
+            return this.contentions.sum();
+        }
+
+        /**
+         * 待ち時間の合計を返す.
+         *
+         * @return 待ち時間の合計 (ナノ秒).
+         */
+        public long waitNanos() {
+            return this.waitNanos.sum();
+        }
+
+        /**
+         * 最大の待ち時間を返す.
+         *
+         * @return 最大の待ち時間 (ナノ秒).
+         */
+        public long maxWaitNanos() {
+            return this.maxWaitNanos.get();
+        }
+
+        /**
+         * 保持時間の合計を返す.
+         *
+         * @return 保持時間の合計 (ナノ秒).
+         */
+        public long holdNanos() {
+            return this.holdNanos.sum();
+        }
+
+        /**
+         * 現在獲得を待っているスレッドの数を返す.
+         *
+         * @return キュー長.
+         */
+        public int queueLength() {
+            return this.waiting.get();
+        }
+
+        /**
+         * 最大のキュー長を返す.
+         *
+         * @return 最大のキュー長.
+         */
+        public long maxQueueLength() {
+            return this.maxQueueLength.get();
+        }
+
+        /**
+         * 競合時に採取した, 保持していたスレッドのスタック毎の回数を返す.
+         *
+         * @return スタック毎の回数.
+         */
+        @NonNullReturnValue
+        public Map<String, Long> ownerStacks() {
+            Map<String, Long> returnValue = new HashMap<>();
+            this.stacks.forEach((stack, count) -> returnValue.put(stack, count.sum()));
+            return Collections.unmodifiableMap(returnValue);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @NonNullReturnValue
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+
+    /**
+     * 同一性で比較するモニタのキー.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Monitor {
+
+        /**
+         * モニタ又はロック.
+         */
+        private final Object target;
+
+        /**
+         * Constractor.
+         *
+         * @param target
+         *            モニタ又はロック.
+         */
+        Monitor(Object target) {
+            super();
+            this.target = target;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.target);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ContentionProfiler.Monitor
+                    && ((ContentionProfiler.Monitor) obj).target == this.target;
+        }
+    }
+}
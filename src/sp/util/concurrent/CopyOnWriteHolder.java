@@ -0,0 +1,220 @@
+/*
+sp.util.concurrent.CopyOnWriteHolder
+sp.util.concurrent.CopyOnWriteHolder.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import sp.base.NonNullReturnValue;
+import sp.lang.ShallowCopyable;
+
+/**
+ * <p>
+ * RCU (Read-Copy-Update) 方式で値を保持する, コピーオンライトのホルダ.
+ * </p>
+ * <p>
+ * 読み出し ({@link #get()}) はロックを取らず, volatile な読み出し 1 回で現在のスナップショットを返す. 書き込みは現在の値を
+ * {@link ShallowCopyable#clone()} で複製し, 複製を変更してから CAS で公開する. 他の書き込みと競合した場合は最新の値から再度複製してやり直す.
+ * 読み出しの多いルーティングテーブル等を {@code synchronized} で保護する代わりに用いる.
+ * </p>
+ * <p>
+ * {@link #submit(Consumer)} は変更をキューに積み, キューにある複数の変更を 1 回の複製にまとめて適用する (バッチ書き込み).
+ * 書き込みを行うスレッドは変更を積んだスレッドのうちの 1 つが担い, 専用のスレッドは持たない.
+ * </p>
+ * <p>
+ * 複製は浅いため, 変更はフィールドに新しいオブジェクトを設定する形で行い, 共有されている内部のオブジェクトを直接変更してはならない.
+ * {@link sp.util.PersistentMap} 等の永続コレクションを保持すると, 変更は経路の複製だけで済む.
+ * 公開されたスナップショットも変更してはならない. 変更処理は競合により複数回呼び出されることがあるため, 引数以外に副作用を持ってはならない.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            保持する値のクラス.
+ * @since 0.2
+ */
+public final class CopyOnWriteHolder<T extends ShallowCopyable<T>> {
+
+    /**
+     * 現在のスナップショット.
+     */
+    private final AtomicReference<T> current;
+
+    /**
+     * 適用待ちの変更.
+     */
+    private final Queue<CopyOnWriteHolder.Pending<T>> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * バッチ書き込み中の場合 TRUE.
+     */
+    private final AtomicBoolean writing = new AtomicBoolean();
+
+    /**
+     * Constractor.
+     *
+     * @param initial
+     *            初期値.
+     * @throws NullPointerException
+     *             指定された初期値が NULL の場合.
+     */
+    public CopyOnWriteHolder(T initial) {
+        super();
+        this.current = new AtomicReference<>(Objects.requireNonNull(initial));
+    }
+
+    /**
+     * 現在のスナップショットを返す. ロックを取らない.
+     *
+     * @return 現在のスナップショット. 変更してはならない.
+     */
+    @NonNullReturnValue
+    public T get() {
+        return this.current.get();
+    }
+
+    /**
+     * 現在の値の複製に変更を適用して公開する. 他の書き込みと競合した場合はやり直す.
+     *
+     * @param mutation
+     *            複製への変更.
+     * @return 公開したスナップショット.
+     * @throws NullPointerException
+     *             指定された変更が NULL の場合.
+     */
+    @NonNullReturnValue
+    public T update(Consumer<? super T> mutation) {
+        Objects.requireNonNull(mutation);
+        T returnValue = null;
+        T current = null;
+        do {
+            current = this.current.get();
+            returnValue = current.clone();
+            mutation.accept(returnValue);
+        } while (!this.current.compareAndSet(current, returnValue));
+        return returnValue;
+    }
+
+    /**
+     * 指定された値を公開する.
+     *
+     * @param value
+     *            新しい値. 公開後は変更してはならない.
+     * @return 公開前のスナップショット.
+     * @throws NullPointerException
+     *             指定された値が NULL の場合.
+     */
+    @NonNullReturnValue
+    public T set(T value) {
+        return this.current.getAndSet(Objects.requireNonNull(value));
+    }
+
+    /**
+     * <p>
+     * 変更をキューに積み, バッチ書き込みで適用する.
+     * </p>
+     * <p>
+     * 他のスレッドがバッチ書き込み中でなければ, 呼び出したスレッドがキューにある全ての変更を 1 つの複製に適用して公開する. 書き込み中であれば,
+     * 書き込み中のスレッドが続けて適用する. 例外をスローした変更は適用されず, その変更の結果だけが例外で完了する.
+     * </p>
+     *
+     * @param mutation
+     *            複製への変更.
+     * @return 変更を含むスナップショットが公開された時点で完了する結果.
+     * @throws NullPointerException
+     *             指定された変更が NULL の場合.
+     */
+    @NonNullReturnValue
+    public CompletableFuture<T> submit(Consumer<? super T> mutation) {
+        CopyOnWriteHolder.Pending<T> pending = new CopyOnWriteHolder.Pending<>(Objects.requireNonNull(mutation));
+        this.queue.add(pending);
+        while (!this.queue.isEmpty() && this.writing.compareAndSet(false, true)) {
+            try {
+                this.drain();
+            } finally {
+                this.writing.set(false);
+            }
+        }
+        return pending.result;
+    }
+
+    /**
+     * キューにある変更を 1 つの複製に適用して公開する.
+     */
+    private void drain() {
+        List<CopyOnWriteHolder.Pending<T>> batch = new ArrayList<>();
+        for (CopyOnWriteHolder.Pending<T> pending = this.queue.poll(); pending != null; pending = this.queue
+                .poll()) {
+            batch.add(pending);
+        }
+        T published = null;
+        while (published == null && !batch.isEmpty()) {
+            T current = this.current.get();
+            T copy = current.clone();
+            int failed = -1;
+            for (int index = 0; failed < 0 && index < batch.size(); index++) {
+                try {
+                    batch.get(index).mutation.accept(copy);
+                } catch (RuntimeException | Error e) {
+                    batch.get(index).result.completeExceptionally(e);
+                    failed = index;
+                }
+            }
+            if (failed >= 0) {
+                batch.remove(failed);
+            } else if (this.current.compareAndSet(current, copy)) {
+                published = copy;
+            }
+        }
+        for (CopyOnWriteHolder.Pending<T> pending : batch) {
+            pending.result.complete(published);
+        }
+    }
+
+    /**
+     * <p>
+     * 適用待ちの変更.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            保持する値のクラス.
+     * @since 0.2
+     */
+    static final class Pending<T> {
+
+        /**
+         * 複製への変更.
+         */
+        final Consumer<? super T> mutation;
+
+        /**
+         * 変更を含むスナップショットが公開された時点で完了する結果.
+         */
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /**
+         * Constractor.
+         *
+         * @param mutation
+         *            複製への変更.
+         */
+        Pending(Consumer<? super T> mutation) {
+            super();
+            this.mutation = mutation;
+        }
+    }
+}
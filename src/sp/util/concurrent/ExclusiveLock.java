@@ -0,0 +1,279 @@
+/*
+sp.util.concurrent.ExclusiveLock
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * 対象のオブジェクトを {@link ReentrantLock} で保護する排他制御.
+ * </p>
+ * <p>
+ * {@link sp.base.Exclusiveness} が付与されたクラスの {@code synchronized} メソッドの置き換えに用いる. 対象へのアクセスは
+ * {@link #apply(FunctionWithThrown.OfObj)} 等に渡す処理の中だけで行う. モニタと異なり, 割り込み可能な獲得
+ * ({@link #applyInterruptibly(FunctionWithThrown.OfObj)}), タイムアウト付きの獲得
+ * ({@link #tryApply(long, TimeUnit, FunctionWithThrown.OfObj)}) 及び公平な獲得順序を選べるため, 保持したまま入出力を待つ区間でも
+ * 待つスレッドを取り残さない.
+ * </p>
+ * <p>
+ * {@link ContentionProfiler.Section} を指定すると, 獲得毎に待ち時間及び保持時間等を記録する.
+ * </p>
+ *
+ * <pre>
+ * private final ExclusiveLock&lt;Map&lt;String, Route&gt;&gt; routes
+ *         = new ExclusiveLock&lt;&gt;(new HashMap&lt;&gt;());
+ *
+ * Route find(String name) {
+ *     return this.routes.apply(table -&gt; table.get(name));
+ * }
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            保護するオブジェクトのクラス.
+ * @since 0.2
+ */
+public final class ExclusiveLock<T> {
+
+    /**
+     * 保護するオブジェクト.
+     */
+    private final T target;
+
+    /**
+     * ロック.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * 計測する区間. 計測しない場合は NULL.
+     */
+    private final ContentionProfiler.Section section;
+
+    /**
+     * Constractor. 公平でないロックで保護する.
+     *
+     * @param target
+     *            保護するオブジェクト.
+     * @throws NullPointerException
+     *             指定されたオブジェクトが NULL の場合.
+     */
+    public ExclusiveLock(T target) {
+        this(target, false);
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param target
+     *            保護するオブジェクト.
+     * @param fair
+     *            待っている時間の長いスレッドから順に獲得させる場合は TRUE.
+     * @throws NullPointerException
+     *             指定されたオブジェクトが NULL の場合.
+     */
+    public ExclusiveLock(T target, boolean fair) {
+        super();
+        this.target = Objects.requireNonNull(target);
+        this.lock = new ReentrantLock(fair);
+        this.section = null;
+    }
+
+    /**
+     * Constractor. 獲得毎に指定された区間に計測値を記録する.
+     *
+     * @param target
+     *            保護するオブジェクト.
+     * @param fair
+     *            待っている時間の長いスレッドから順に獲得させる場合は TRUE.
+     * @param section
+     *            計測する区間.
+     * @throws NullPointerException
+     *             指定されたオブジェクト又は区間が NULL の場合.
+     */
+    public ExclusiveLock(T target, boolean fair, ContentionProfiler.Section section) {
+        super();
+        this.target = Objects.requireNonNull(target);
+        this.lock = new ReentrantLock(fair);
+        this.section = Objects.requireNonNull(section);
+    }
+
+    /**
+     * ロックを獲得して処理を実行する. 獲得するまで割り込みに応答しない.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param body
+     *            保護するオブジェクトを受け取る処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定された処理が NULL の場合.
+     */
+    public <R, X extends Throwable> R apply(FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> body)
+            throws X {
+        Objects.requireNonNull(body);
+        long start = this.enter();
+        this.lock.lock();
+        return this.hold(start, body);
+    }
+
+    /**
+     * ロックを獲得して処理を実行する. 獲得を待っている間に割り込まれた場合は処理を実行しない.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param body
+     *            保護するオブジェクトを受け取る処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws InterruptedException
+     *             獲得を待っている間に割り込まれた場合.
+     * @throws NullPointerException
+     *             指定された処理が NULL の場合.
+     */
+    public <R, X extends Throwable> R applyInterruptibly(
+            FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> body) throws X, InterruptedException {
+        Objects.requireNonNull(body);
+        long start = this.enter();
+        try {
+            this.lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            this.cancel();
+            throw e;
+        }
+        return this.hold(start, body);
+    }
+
+    /**
+     * 指定された時間までにロックを獲得できた場合に処理を実行する.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param timeout
+     *            待つ時間の最大値.
+     * @param unit
+     *            時間の単位.
+     * @param body
+     *            保護するオブジェクトを受け取る処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws InterruptedException
+     *             獲得を待っている間に割り込まれた場合.
+     * @throws TimeoutException
+     *             指定された時間までに獲得できなかった場合.
+     * @throws NullPointerException
+     *             指定された単位又は処理が NULL の場合.
+     */
+    public <R, X extends Throwable> R tryApply(long timeout, TimeUnit unit,
+            FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> body)
+            throws X, InterruptedException, TimeoutException {
+        Objects.requireNonNull(unit);
+        Objects.requireNonNull(body);
+        long start = this.enter();
+        boolean acquired = false;
+        try {
+            acquired = this.lock.tryLock(timeout, unit);
+        } finally {
+            if (!acquired) {
+                this.cancel();
+            }
+        }
+        if (!acquired) {
+            throw new TimeoutException("lock was not acquired within " + timeout + " " + unit + ".");
+        }
+        return this.hold(start, body);
+    }
+
+    /**
+     * このロックに結び付いた条件を生成する. 条件を待つのは処理の中に限る.
+     *
+     * @return 条件.
+     */
+    @NonNullReturnValue
+    public Condition newCondition() {
+        return this.lock.newCondition();
+    }
+
+    /**
+     * 現在のスレッドがロックを保持しているか否かを返す.
+     *
+     * @return 保持している場合は TRUE.
+     */
+    public boolean isHeldByCurrentThread() {
+        return this.lock.isHeldByCurrentThread();
+    }
+
+    /**
+     * ロックの獲得を待っているスレッドの数の推定値を返す.
+     *
+     * @return 待っているスレッドの数.
+     */
+    public int queueLength() {
+        return this.lock.getQueueLength();
+    }
+
+    /**
+     * 獲得の待ちを開始する.
+     *
+     * @return 開始時刻 (ナノ秒). 計測しない場合は 0.
+     */
+    private long enter() {
+        return this.section == null ? 0L : this.section.enter(this.target);
+    }
+
+    /**
+     * 獲得せずに待ちを終了する.
+     */
+    private void cancel() {
+        if (this.section != null) {
+            this.section.cancel();
+        }
+    }
+
+    /**
+     * 獲得した状態で処理を実行し, ロックを解放する.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param start
+     *            待ちの開始時刻 (ナノ秒).
+     * @param body
+     *            処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     */
+    private <R, X extends Throwable> R hold(long start,
+            FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> body) throws X {
+        try {
+            return this.section == null ? body.apply(this.target) : this.section.hold(start, this.target, body);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+sp.util.concurrent.KeyedExecutor
+sp.util.concurrent.KeyedExecutor.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * 同じキーのタスクを投入順に 1 つずつ, 異なるキーのタスクを並行して実行するエグゼキュータ.
+ * </p>
+ * <p>
+ * キーは対象のオブジェクトから {@link FunctionWithThrown.OfObjToLong} で導出する. キー毎にロックを取らないキュー (レーン) を持ち,
+ * タスクを積んだスレッドのうち空のレーンに積んだ 1 つだけが, レーンを処理する実行単位を共有のエグゼキュータに投入する.
+ * 同じキーのタスクは常に 1 つの実行単位で処理されるため, キー毎の状態はロックなしで更新できる.
+ * </p>
+ * <p>
+ * 実行単位は 1 回の実行で最大 quantum 個のタスクを処理し, 残りがあればレーンを実行待ちのレーンの末尾に戻して実行単位を投入し直す.
+ * 実行単位は自身を投入したレーンではなく, 最も古い実行待ちのレーンを処理する. そのため, {@link java.util.concurrent.ForkJoinPool}
+ * のようにワーカが自身の投入したタスクを後入れ先出しで実行するエグゼキュータでも, タスクの多いキーがスレッドを占有し続けず,
+ * タスクの少ないキーも待たされない. 空になったレーンは破棄する.
+ * </p>
+ * <p>
+ * エグゼキュータが実行を拒否した場合は, 実行待ちのレーンに積まれた全てのタスクを {@link RejectedExecutionException} で完了させる.
+ * </p>
+ *
+ * <pre>
+ * KeyedExecutor&lt;Order&gt; executor = new KeyedExecutor&lt;&gt;(ForkJoinPool.commonPool(), Order::accountId);
+ * executor.submit(order, target -&gt; ledger.apply(target));
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            タスクの対象のクラス.
+ * @since 0.2
+ */
+public final class KeyedExecutor<T> {
+
+    /**
+     * 既定の, 実行単位が 1 回の実行で処理するタスクの最大数.
+     */
+    public static final int DEFAULT_QUANTUM = 16;
+
+    /**
+     * 実行単位を実行するエグゼキュータ.
+     */
+    private final Executor executor;
+
+    /**
+     * キーの抽出関数.
+     */
+    private final FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> keyOf;
+
+    /**
+     * 実行単位が 1 回の実行で処理するタスクの最大数.
+     */
+    private final int quantum;
+
+    /**
+     * キー毎のレーン.
+     */
+    private final ConcurrentMap<Long, KeyedExecutor.Lane<T>> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * 実行単位の投入を待つレーン. 投入された実行単位の数と同じだけのレーンを持つ.
+     */
+    private final Queue<KeyedExecutor.Lane<T>> ready = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constractor.
+     *
+     * @param executor
+     *            実行単位を実行するエグゼキュータ.
+     * @param keyOf
+     *            対象のオブジェクトからキーを抽出する関数.
+     * @throws NullPointerException
+     *             指定されたエグゼキュータ又は関数が NULL の場合.
+     */
+    public KeyedExecutor(Executor executor,
+            FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> keyOf) {
+        this(executor, keyOf, KeyedExecutor.DEFAULT_QUANTUM);
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param executor
+     *            実行単位を実行するエグゼキュータ.
+     * @param keyOf
+     *            対象のオブジェクトからキーを抽出する関数.
+     * @param quantum
+     *            実行単位が 1 回の実行で処理するタスクの最大数.
+     * @throws NullPointerException
+     *             指定されたエグゼキュータ又は関数が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された最大数が 1 未満の場合.
+     */
+    public KeyedExecutor(Executor executor,
+            FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> keyOf, int quantum) {
+        super();
+        if (quantum < 1) {
+            throw new IllegalArgumentException("quantum must be positive: " + quantum);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.keyOf = Objects.requireNonNull(keyOf);
+        this.quantum = quantum;
+    }
+
+    /**
+     * 指定された対象のキーのレーンにタスクを積む. タスクは同じキーの先に積まれたタスクが全て完了した後で実行される.
+     *
+     * @param <R>
+     *            タスクの結果クラス.
+     * @param target
+     *            タスクの対象.
+     * @param task
+     *            対象を受け取るタスク.
+     * @return タスクの結果. タスクがエラーをスローした場合, 又はエグゼキュータが実行を拒否した場合は例外で完了する.
+     * @throws NullPointerException
+     *             指定されたタスクが NULL の場合.
+     */
+    @NonNullReturnValue
+    public <R> CompletableFuture<R> submit(T target, FunctionWithThrown.OfObj<? super T, ? extends R, ?> task) {
+        KeyedExecutor.Task<T, R> returnValue = new KeyedExecutor.Task<>(target, Objects.requireNonNull(task));
+        Long key = this.keyOf.apply(target);
+        KeyedExecutor.Lane<T> lane = null;
+        boolean reserved = false;
+        while (!reserved) {
+            lane = this.lanes.get(key);
+            if (lane == null) {
+                KeyedExecutor.Lane<T> created = new KeyedExecutor.Lane<>(key);
+                lane = this.lanes.putIfAbsent(key, created);
+                lane = lane == null ? created : lane;
+            }
+            int pending = lane.pending.get();
+            if (pending < 0) {
+                this.lanes.remove(key, lane);
+            } else {
+                reserved = lane.pending.compareAndSet(pending, pending + 1);
+            }
+        }
+        lane.queue.add(returnValue);
+        if (lane.scheduled.get() == 0 && lane.scheduled.compareAndSet(0, 1)) {
+            this.schedule(lane);
+        }
+        return returnValue.result;
+    }
+
+    /**
+     * 処理待ちのタスクを持つキーの数を返す.
+     *
+     * @return キーの数.
+     */
+    public int keys() {
+        return this.lanes.size();
+    }
+
+    /**
+     * レーンを実行待ちのレーンの末尾に加え, 実行単位をエグゼキュータに投入する. エグゼキュータが実行を拒否した場合は,
+     * 実行待ちのレーンのタスクを全て例外で完了させる.
+     *
+     * @param lane
+     *            投入権を持つレーン.
+     */
+    void schedule(KeyedExecutor.Lane<T> lane) {
+        KeyedExecutor.Lane<T> next = lane;
+        while (next != null) {
+            this.ready.add(next);
+            try {
+                this.executor.execute(this::drain);
+                next = null;
+            } catch (RejectedExecutionException e) {
+                // 他の実行単位が先に取り出した場合は, 代わりに残っているレーンを 1 つ引き受ける.
+                KeyedExecutor.Lane<T> rejected = this.ready.remove(next) ? next : this.ready.poll();
+                next = this.reject(rejected, e) ? rejected : null;
+            }
+        }
+    }
+
+    /**
+     * 最も古い実行待ちのレーンのタスクを最大 quantum 個処理する. 残りがあれば実行単位を投入し直し, なければレーンを破棄する.
+     */
+    void drain() {
+        KeyedExecutor.Lane<T> lane = this.ready.poll();
+        if (lane != null) {
+            int done = 0;
+            KeyedExecutor.Task<T, ?> task = null;
+            while (done < this.quantum && (task = lane.queue.poll()) != null) {
+                task.run();
+                done++;
+            }
+            if (this.release(lane, done)) {
+                this.schedule(lane);
+            }
+        }
+    }
+
+    /**
+     * レーンに積まれた全てのタスクを, タスクを実行せずに例外で完了させる.
+     *
+     * @param lane
+     *            レーン.
+     * @param rejection
+     *            エグゼキュータが実行を拒否した例外.
+     * @return 完了させている間に積まれたタスクがあり, 実行単位を投入し直す必要がある場合 TRUE.
+     */
+    private boolean reject(KeyedExecutor.Lane<T> lane, RejectedExecutionException rejection) {
+        int done = 0;
+        KeyedExecutor.Task<T, ?> task = null;
+        while ((task = lane.queue.poll()) != null) {
+            task.result.completeExceptionally(rejection);
+            done++;
+        }
+        return this.release(lane, done);
+    }
+
+    /**
+     * 完了したタスクをレーンから差し引く. 残りがあれば実行単位の投入権を取り直し, なければレーンを破棄する.
+     *
+     * @param lane
+     *            レーン.
+     * @param done
+     *            完了したタスクの数.
+     * @return 投入権を取り直した場合 TRUE.
+     */
+    private boolean release(KeyedExecutor.Lane<T> lane, int done) {
+        boolean returnValue = false;
+        // 投入済みの印を先に外すことで, 印を見て投入を省いたタスクは必ず remaining に数えられる.
+        lane.scheduled.set(0);
+        int remaining = lane.pending.addAndGet(-done);
+        if (remaining > 0) {
+            returnValue = lane.scheduled.compareAndSet(0, 1);
+        } else if (lane.pending.compareAndSet(0, -1)) {
+            this.lanes.remove(lane.key, lane);
+        }
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 1 つのキーのタスクのキュー.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            タスクの対象のクラス.
+     * @since 0.2
+     */
+    static final class Lane<T> {
+
+        /**
+         * キー.
+         */
+        final Long key;
+
+        /**
+         * タスクのキュー.
+         */
+        final Queue<KeyedExecutor.Task<T, ?>> queue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 積まれて未完了のタスクの数. 破棄されたレーンは -1.
+         */
+        final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * 実行単位が投入済みの場合は 1.
+         */
+        final AtomicInteger scheduled = new AtomicInteger();
+
+        /**
+         * Constractor.
+         *
+         * @param key
+         *            キー.
+         */
+        Lane(Long key) {
+            super();
+            this.key = key;
+        }
+    }
+
+    /**
+     * <p>
+     * 積まれたタスク.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            タスクの対象のクラス.
+     * @param <R>
+     *            タスクの結果クラス.
+     * @since 0.2
+     */
+    static final class Task<T, R> {
+
+        /**
+         * タスクの対象.
+         */
+        final T target;
+
+        /**
+         * タスク.
+         */
+        final FunctionWithThrown.OfObj<? super T, ? extends R, ?> body;
+
+        /**
+         * タスクの結果.
+         */
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        /**
+         * Constractor.
+         *
+         * @param target
+         *            タスクの対象.
+         * @param body
+         *            タスク.
+         */
+        Task(T target, FunctionWithThrown.OfObj<? super T, ? extends R, ?> body) {
+            super();
+            this.target = target;
+            this.body = body;
+        }
+
+        /**
+         * タスクを実行して結果を完了させる.
+         */
+        void run() {
+            try {
+                this.result.complete(this.body.apply(this.target));
+            } catch (Throwable e) {
+                this.result.completeExceptionally(e);
+            }
+        }
+    }
+}
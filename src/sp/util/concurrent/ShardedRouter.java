@@ -0,0 +1,478 @@
+/*
+sp.util.concurrent.ShardedRouter
+sp.util.concurrent.ShardedRouter.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+import java.util.function.LongToIntFunction;
+
+import sp.base.NonNullReturnValue;
+import sp.util.HashRing;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * <p>
+ * 要素をハッシュ値でシャードに振り分け, シャード毎の専用スレッドで処理するルータ (シェアードナッシング).
+ * </p>
+ * <p>
+ * 各シャードは自身の状態と, それを読み書きする唯一のスレッドを持つ. 同じハッシュ値の要素は常に同じシャードで投入順に処理されるため,
+ * 状態はロックなしで更新できる (単一ライタ). 状態を読み出す場合も {@link #ask(int, FunctionWithThrown.OfObj)} 又は
+ * {@link #broadcast(FunctionWithThrown.OfObj)} でシャードのスレッドに処理を依頼し, 他のスレッドから直接参照してはならない.
+ * </p>
+ * <p>
+ * 各シャードのキューはロックを用いない多生産者単一消費者のキューである. シャードのスレッドはキューが空になるまで続けて取り出し,
+ * 空の場合だけ停止して次の要素を待つ. キューに上限はないため, 処理が追い付かない場合は振り分ける側で流量を抑えること.
+ * </p>
+ * <p>
+ * 振り分けは, シャードの数を指定した場合はハッシュ値を拡散した剰余で, {@link HashRing} を指定した場合はコンシステントハッシュで行う.
+ * 後者は {@link HashRing#withShards(int)} で作り直したリングへ移る際に, 割り当てが変わるハッシュ値が最小となる.
+ * </p>
+ * <p>
+ * 使用後は {@link #close()} でスレッドを終了させること.
+ * </p>
+ *
+ * <pre>
+ * try (ShardedRouter&lt;Trade, Map&lt;String, Long&gt;&gt; router = new ShardedRouter&lt;&gt;(
+ *         Runtime.getRuntime().availableProcessors(), trade -&gt; trade.symbol().hashCode(),
+ *         shard -&gt; new HashMap&lt;&gt;(),
+ *         (volumes, trade) -&gt; volumes.merge(trade.symbol(), trade.quantity(), Long::sum))) {
+ *     trades.forEach(router::route);
+ * }
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <T>
+ *            要素のクラス.
+ * @param <S>
+ *            シャードの状態のクラス.
+ * @since 0.2
+ */
+public final class ShardedRouter<T, S> implements AutoCloseable {
+
+    /**
+     * 要素のハッシュ関数.
+     */
+    private final FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> hash;
+
+    /**
+     * ハッシュ値からシャードの番号への写像.
+     */
+    private final LongToIntFunction route;
+
+    /**
+     * シャード.
+     */
+    private final List<ShardedRouter.Shard<T, S>> shards;
+
+    /**
+     * 閉じた場合は TRUE.
+     */
+    private volatile boolean closed;
+
+    /**
+     * キューに積んでいる途中のスレッドの数. 閉じる際に正確に 0 を確認できるよう, 合計が一時点の値にならない LongAdder は使わない.
+     */
+    private final AtomicLong entering = new AtomicLong();
+
+    /**
+     * Constractor. ハッシュ値を拡散した剰余で振り分ける.
+     *
+     * @param shards
+     *            シャードの数.
+     * @param hash
+     *            要素のハッシュ関数.
+     * @param state
+     *            シャードの番号を受け取り, シャードの状態を生成する関数.
+     * @param handler
+     *            シャードの状態と要素を受け取る処理.
+     * @throws NullPointerException
+     *             指定された関数又は処理が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定されたシャードの数が 1 未満の場合.
+     */
+    public ShardedRouter(int shards, FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> hash,
+            IntFunction<? extends S> state, BiConsumer<? super S, ? super T> handler) {
+        this(ShardedRouter.modulo(shards), shards, hash, state, handler);
+    }
+
+    /**
+     * Constractor. 指定されたリングで振り分ける.
+     *
+     * @param ring
+     *            リング. シャードの数はリングのシャードの数となる.
+     * @param hash
+     *            要素のハッシュ関数.
+     * @param state
+     *            シャードの番号を受け取り, シャードの状態を生成する関数.
+     * @param handler
+     *            シャードの状態と要素を受け取る処理.
+     * @throws NullPointerException
+     *             指定されたリング, 関数又は処理が NULL の場合.
+     */
+    public ShardedRouter(HashRing ring, FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> hash,
+            IntFunction<? extends S> state, BiConsumer<? super S, ? super T> handler) {
+        this(ring::shardOf, ring.size(), hash, state, handler);
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param route
+     *            ハッシュ値からシャードの番号への写像.
+     * @param shards
+     *            シャードの数.
+     * @param hash
+     *            要素のハッシュ関数.
+     * @param state
+     *            シャードの番号を受け取り, シャードの状態を生成する関数.
+     * @param handler
+     *            シャードの状態と要素を受け取る処理.
+     */
+    private ShardedRouter(LongToIntFunction route, int shards,
+            FunctionWithThrown.OfObjToLong<? super T, ? extends RuntimeException> hash,
+            IntFunction<? extends S> state, BiConsumer<? super S, ? super T> handler) {
+        super();
+        this.hash = Objects.requireNonNull(hash);
+        this.route = route;
+        Objects.requireNonNull(state);
+        Objects.requireNonNull(handler);
+        this.shards = new ArrayList<>(shards);
+        for (int index = 0; index < shards; index++) {
+            this.shards.add(new ShardedRouter.Shard<>(index, state.apply(index), handler));
+        }
+        this.shards.forEach(shard -> shard.worker.start());
+    }
+
+    /**
+     * ハッシュ値を拡散した剰余でシャードを選ぶ写像を返す.
+     *
+     * @param shards
+     *            シャードの数.
+     * @return 写像.
+     * @throws IllegalArgumentException
+     *             指定されたシャードの数が 1 未満の場合.
+     */
+    private static LongToIntFunction modulo(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+        }
+        return hash -> (int) (((hash * 0x9E3779B97F4A7C15L) >>> 32) * shards >>> 32);
+    }
+
+    /**
+     * シャードの数を返す.
+     *
+     * @return シャードの数.
+     */
+    public int size() {
+        return this.shards.size();
+    }
+
+    /**
+     * 指定された要素を処理するシャードの番号を返す.
+     *
+     * @param item
+     *            要素.
+     * @return シャードの番号.
+     */
+    public int shardOf(T item) {
+        return this.route.applyAsInt(this.hash.apply(item));
+    }
+
+    /**
+     * 指定された要素をシャードに振り分ける. 要素はシャードのスレッドで, 同じシャードに先に振り分けられた要素の後に処理される.
+     * 処理中にスローされたエラーはスレッドの {@link Thread.UncaughtExceptionHandler} に渡され, シャードは処理を続ける.
+     *
+     * @param item
+     *            要素.
+     * @return 振り分けたシャードの番号.
+     * @throws NullPointerException
+     *             指定された要素が NULL の場合.
+     * @throws IllegalStateException
+     *             ルータが閉じている場合.
+     */
+    public int route(T item) {
+        Objects.requireNonNull(item);
+        int returnValue = this.shardOf(item);
+        this.enqueue(returnValue, item);
+        return returnValue;
+    }
+
+    /**
+     * 指定されたシャードのスレッドで, シャードの状態を受け取る処理を実行する. 処理は先に振り分けられた要素の後に実行される.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param shard
+     *            シャードの番号.
+     * @param query
+     *            シャードの状態を受け取る処理.
+     * @return 処理の結果. 処理がエラーをスローした場合は例外で完了する.
+     * @throws NullPointerException
+     *             指定された処理が NULL の場合.
+     * @throws IndexOutOfBoundsException
+     *             指定されたシャードの番号が範囲外の場合.
+     * @throws IllegalStateException
+     *             ルータが閉じている場合.
+     */
+    @NonNullReturnValue
+    public <R> CompletableFuture<R> ask(int shard, FunctionWithThrown.OfObj<? super S, ? extends R, ?> query) {
+        ShardedRouter.Query<S, R> returnValue = new ShardedRouter.Query<>(Objects.requireNonNull(query));
+        this.enqueue(shard, returnValue);
+        return returnValue.result;
+    }
+
+    /**
+     * 全てのシャードのスレッドで, シャードの状態を受け取る処理を実行する. 集計等に用いる.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param query
+     *            シャードの状態を受け取る処理.
+     * @return シャードの番号順の処理の結果.
+     * @throws NullPointerException
+     *             指定された処理が NULL の場合.
+     * @throws IllegalStateException
+     *             ルータが閉じている場合.
+     */
+    @NonNullReturnValue
+    public <R> List<CompletableFuture<R>> broadcast(FunctionWithThrown.OfObj<? super S, ? extends R, ?> query) {
+        Objects.requireNonNull(query);
+        List<CompletableFuture<R>> returnValue = new ArrayList<>(this.shards.size());
+        for (int index = 0; index < this.shards.size(); index++) {
+            returnValue.add(this.ask(index, query));
+        }
+        return returnValue;
+    }
+
+    /**
+     * 新しい要素の受け付けを止め, 振り分け済みの要素を全て処理してからスレッドを終了させる. 終了を待っている間に割り込まれた場合も待ち続け,
+     * 戻る前に割り込み状態を設定し直す.
+     */
+    @Override
+    public void close() {
+        synchronized (this.shards) {
+            if (!this.closed) {
+                this.closed = true;
+                while (this.entering.get() != 0L) {
+                    Thread.yield();
+                }
+                this.shards.forEach(shard -> shard.offer(ShardedRouter.Shard.STOP));
+            }
+        }
+        boolean interrupted = false;
+        for (ShardedRouter.Shard<T, S> shard : this.shards) {
+            while (shard.worker.isAlive()) {
+                try {
+                    shard.worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * シャードのキューに積む.
+     *
+     * @param shard
+     *            シャードの番号.
+     * @param message
+     *            要素又は処理.
+     */
+    private void enqueue(int shard, Object message) {
+        ShardedRouter.Shard<T, S> target = this.shards.get(shard);
+        this.entering.incrementAndGet();
+        try {
+            if (this.closed) {
+                throw new IllegalStateException("router is closed.");
+            }
+            target.offer(message);
+        } finally {
+            this.entering.decrementAndGet();
+        }
+    }
+
+    /**
+     * <p>
+     * シャードの状態を受け取る処理と, その結果.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <S>
+     *            シャードの状態のクラス.
+     * @param <R>
+     *            処理の結果クラス.
+     * @since 0.2
+     */
+    static final class Query<S, R> {
+
+        /**
+         * 処理.
+         */
+        final FunctionWithThrown.OfObj<? super S, ? extends R, ?> body;
+
+        /**
+         * 処理の結果.
+         */
+        final CompletableFuture<R> result = new CompletableFuture<>();
+
+        /**
+         * Constractor.
+         *
+         * @param body
+         *            処理.
+         */
+        Query(FunctionWithThrown.OfObj<? super S, ? extends R, ?> body) {
+            super();
+            this.body = body;
+        }
+
+        /**
+         * 処理を実行して結果を完了させる.
+         *
+         * @param state
+         *            シャードの状態.
+         */
+        void run(S state) {
+            try {
+                this.result.complete(this.body.apply(state));
+            } catch (Throwable e) {
+                this.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * 1 つのシャード. 状態はスレッド {@link #worker} だけが読み書きする.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            要素のクラス.
+     * @param <S>
+     *            シャードの状態のクラス.
+     * @since 0.2
+     */
+    static final class Shard<T, S> implements Runnable {
+
+        /**
+         * スレッドの終了を指示する印.
+         */
+        static final Object STOP = new Object();
+
+        /**
+         * 要素及び処理のキュー. 消費者はシャードのスレッドだけである.
+         */
+        final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+
+        /**
+         * シャードのスレッドが停止しようとしている, 又は停止している場合は TRUE.
+         */
+        volatile boolean parked;
+
+        /**
+         * 状態.
+         */
+        final S state;
+
+        /**
+         * 要素を受け取る処理.
+         */
+        final BiConsumer<? super S, ? super T> handler;
+
+        /**
+         * シャードのスレッド.
+         */
+        final Thread worker;
+
+        /**
+         * Constractor.
+         *
+         * @param index
+         *            シャードの番号.
+         * @param state
+         *            状態.
+         * @param handler
+         *            要素を受け取る処理.
+         */
+        Shard(int index, S state, BiConsumer<? super S, ? super T> handler) {
+            super();
+            this.state = state;
+            this.handler = handler;
+            this.worker = new Thread(this, "ShardedRouter-shard-" + index);
+        }
+
+        /**
+         * キューに積み, 停止しているスレッドを起こす.
+         *
+         * @param message
+         *            要素, 処理又は終了の指示.
+         */
+        void offer(Object message) {
+            this.queue.offer(message);
+            if (this.parked) {
+                LockSupport.unpark(this.worker);
+            }
+        }
+
+        /**
+         * キューが空の場合にスレッドを停止させる. 停止を公開してからキューを確かめ直すため, 積まれた要素の通知は失われない.
+         */
+        void await() {
+            this.parked = true;
+            if (this.queue.isEmpty()) {
+                LockSupport.park(this);
+                // 終了の指示以外では終了しない.
+                Thread.interrupted();
+            }
+            this.parked = false;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Runnable#run()
+         */
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            boolean running = true;
+            while (running) {
+                Object message = this.queue.poll();
+                if (message == null) {
+                    this.await();
+                } else if (message == ShardedRouter.Shard.STOP) {
+                    running = false;
+                } else if (message instanceof ShardedRouter.Query) {
+                    ((ShardedRouter.Query<S, ?>) message).run(this.state);
+                } else {
+                    try {
+                        this.handler.accept(this.state, (T) message);
+                    } catch (Throwable e) {
+                        this.worker.getUncaughtExceptionHandler().uncaughtException(this.worker, e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+sp.util.concurrent.StampedLocks
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.SupplierWithThrown;
+
+/**
+ * <p>
+ * {@link StampedLock} による楽観的読み出し及び書き込みのユーティリティ.
+ * </p>
+ * <p>
+ * 読み出しはまずロックを取らずに楽観的に行い, 読み出し中に書き込みがあった場合は {@link #OPTIMISTIC_ATTEMPTS} 回まで再試行する.
+ * それでも書き込みと競合する場合は読み込みロックを獲得して読み出す. 楽観的な読み出しは書き込み途中の状態を観測し得るため,
+ * 読み出し処理は保護されたフィールドを読むだけにし, 副作用を持ってはならない. 読み出し中に発生したエラーは,
+ * 読み出しが書き込みと競合していなかった場合だけスローされ, 競合していた場合は再試行される.
+ * </p>
+ *
+ * <pre>
+ * double distance = StampedLocks.readAsDouble(this.lock, () -&gt; Math.hypot(this.x, this.y));
+ * </pre>
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class StampedLocks {
+
+    /**
+     * 読み込みロックに切り替えるまでに楽観的な読み出しを試みる回数.
+     */
+    public static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    /**
+     * Constractor.
+     */
+    private StampedLocks() {
+        super();
+    }
+
+    /**
+     * 楽観的に読み出す.
+     *
+     * @param <R>
+     *            読み出しの結果クラス.
+     * @param <X>
+     *            読み出し中に発生するエラークラス.
+     * @param lock
+     *            ロック.
+     * @param reader
+     *            読み出し処理.
+     * @return 書き込みと競合しなかった読み出しの結果.
+     * @throws X
+     *             読み出し中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定されたロック又は読み出し処理が NULL の場合.
+     */
+    public static <R, X extends Throwable> R read(StampedLock lock,
+            SupplierWithThrown.OfObj<? extends R, ? extends X> reader) throws X {
+        Objects.requireNonNull(reader);
+        for (int attempt = 0; attempt < StampedLocks.OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                R returnValue;
+                try {
+                    returnValue = reader.get();
+                } catch (Throwable e) {
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                    continue;
+                }
+                if (lock.validate(stamp)) {
+                    return returnValue;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 楽観的に int 値を読み出す.
+     *
+     * @param <X>
+     *            読み出し中に発生するエラークラス.
+     * @param lock
+     *            ロック.
+     * @param reader
+     *            読み出し処理.
+     * @return 書き込みと競合しなかった読み出しの結果.
+     * @throws X
+     *             読み出し中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定されたロック又は読み出し処理が NULL の場合.
+     */
+    public static <X extends Throwable> int readAsInt(StampedLock lock, SupplierWithThrown.OfInt<? extends X> reader)
+            throws X {
+        Objects.requireNonNull(reader);
+        for (int attempt = 0; attempt < StampedLocks.OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                int returnValue;
+                try {
+                    returnValue = reader.get();
+                } catch (Throwable e) {
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                    continue;
+                }
+                if (lock.validate(stamp)) {
+                    return returnValue;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 楽観的に long 値を読み出す.
+     *
+     * @param <X>
+     *            読み出し中に発生するエラークラス.
+     * @param lock
+     *            ロック.
+     * @param reader
+     *            読み出し処理.
+     * @return 書き込みと競合しなかった読み出しの結果.
+     * @throws X
+     *             読み出し中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定されたロック又は読み出し処理が NULL の場合.
+     */
+    public static <X extends Throwable> long readAsLong(StampedLock lock, SupplierWithThrown.OfLong<? extends X> reader)
+            throws X {
+        Objects.requireNonNull(reader);
+        for (int attempt = 0; attempt < StampedLocks.OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                long returnValue;
+                try {
+                    returnValue = reader.get();
+                } catch (Throwable e) {
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                    continue;
+                }
+                if (lock.validate(stamp)) {
+                    return returnValue;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 楽観的に double 値を読み出す.
+     *
+     * @param <X>
+     *            読み出し中に発生するエラークラス.
+     * @param lock
+     *            ロック.
+     * @param reader
+     *            読み出し処理.
+     * @return 書き込みと競合しなかった読み出しの結果.
+     * @throws X
+     *             読み出し中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定されたロック又は読み出し処理が NULL の場合.
+     */
+    public static <X extends Throwable> double readAsDouble(StampedLock lock,
+            SupplierWithThrown.OfDouble<? extends X> reader) throws X {
+        Objects.requireNonNull(reader);
+        for (int attempt = 0; attempt < StampedLocks.OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                double returnValue;
+                try {
+                    returnValue = reader.get();
+                } catch (Throwable e) {
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                    continue;
+                }
+                if (lock.validate(stamp)) {
+                    return returnValue;
+                }
+            }
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 書き込みロックを獲得して処理を実行する.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param lock
+     *            ロック.
+     * @param writer
+     *            書き込み処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定されたロック又は書き込み処理が NULL の場合.
+     */
+    public static <R, X extends Throwable> R write(StampedLock lock,
+            SupplierWithThrown.OfObj<? extends R, ? extends X> writer) throws X {
+        Objects.requireNonNull(writer);
+        long stamp = lock.writeLock();
+        try {
+            return writer.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 指定されたロックを全て書き込みロックで獲得する. 獲得は配列の順に行う.
+     * <p>
+     * 複数のロックを獲得する全ての箇所で同じ順序を用いることでデッドロックを防ぐ.
+     * </p>
+     *
+     * @param locks
+     *            獲得する順に並べたロック. 同じロックを含んではならない.
+     * @return 各ロックのスタンプ. {@link #unlockWriteAll(StampedLock[], long[])} に渡す.
+     * @throws NullPointerException
+     *             指定された配列が NULL 又は NULL を含む場合.
+     */
+    @NonNullReturnValue
+    public static long[] writeLockAll(StampedLock[] locks) {
+        long[] returnValue = new long[locks.length];
+        int locked = 0;
+        try {
+            for (; locked < locks.length; locked++) {
+                returnValue[locked] = locks[locked].writeLock();
+            }
+        } finally {
+            if (locked < locks.length) {
+                StampedLocks.unlockWrite(locks, returnValue, locked);
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * {@link #writeLockAll(StampedLock[])} で獲得したロックを獲得と逆の順に解放する.
+     *
+     * @param locks
+     *            獲得したロック.
+     * @param stamps
+     *            各ロックのスタンプ.
+     * @throws NullPointerException
+     *             指定された配列が NULL の場合.
+     * @throws IllegalMonitorStateException
+     *             スタンプがロックの状態と一致しない場合.
+     */
+    public static void unlockWriteAll(StampedLock[] locks, long[] stamps) {
+        StampedLocks.unlockWrite(locks, stamps, locks.length);
+    }
+
+    /**
+     * 先頭から指定された数のロックを逆の順に解放する.
+     *
+     * @param locks
+     *            獲得したロック.
+     * @param stamps
+     *            各ロックのスタンプ.
+     * @param count
+     *            解放するロックの数.
+     */
+    private static void unlockWrite(StampedLock[] locks, long[] stamps, int count) {
+        for (int index = count - 1; index >= 0; index--) {
+            locks[index].unlockWrite(stamps[index]);
+        }
+    }
+}
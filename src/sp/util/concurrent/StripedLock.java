@@ -0,0 +1,300 @@
+/*
+sp.util.concurrent.StripedLock
+sp.util.concurrent.StripedLock.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+
+import sp.base.NonNullReturnValue;
+import sp.util.function.FunctionWithThrown;
+import sp.util.function.SupplierWithThrown;
+
+/**
+ * <p>
+ * キーのハッシュ値で選んだストライプ毎に排他制御するロック.
+ * </p>
+ * <p>
+ * オブジェクト全体を 1 つのロックで保護する代わりに, キー毎に独立した状態 (ハッシュ表のバケット, 口座等) を 2 のべき乗個の
+ * {@link StampedLock} に分けて保護する. 異なるストライプに属するキーへの操作は互いを待たない. 各ストライプは隣接するストライプと
+ * 同じキャッシュラインを共有しないように詰め物をしている.
+ * </p>
+ * <p>
+ * 読み出しは {@link StampedLocks#read(StampedLock, SupplierWithThrown.OfObj)} と同じく楽観的に行う. 複数のキーに跨る操作
+ * ({@link #writeAll(Iterable, SupplierWithThrown.OfObj)}) はストライプの番号の昇順に獲得するため, 互いにデッドロックしない.
+ * </p>
+ *
+ * <pre>
+ * StripedLock&lt;String&gt; locks = new StripedLock&lt;&gt;(64, String::hashCode);
+ * locks.writeAll(Arrays.asList(from, to), () -&gt; this.transfer(from, to, amount));
+ * </pre>
+ *
+ * @author Se-foo
+ * @param <K>
+ *            キーのクラス.
+ * @since 0.2
+ */
+public final class StripedLock<K> {
+
+    /**
+     * キーのハッシュ関数.
+     */
+    private final FunctionWithThrown.OfObjToInt<? super K, ? extends RuntimeException> hasher;
+
+    /**
+     * ストライプ.
+     */
+    private final StripedLock.Stripe[] stripes;
+
+    /**
+     * ストライプの番号に用いるハッシュ値の上位ビットのビット数.
+     */
+    private final int bits;
+
+    /**
+     * Constractor. {@link Object#hashCode()} でストライプを選ぶ.
+     *
+     * @param concurrency
+     *            想定する並行度. ストライプの数はこれ以上の最小の 2 のべき乗となる.
+     * @throws IllegalArgumentException
+     *             指定された並行度が 1 未満又は 2 の 30 乗を超える場合.
+     */
+    public StripedLock(int concurrency) {
+        this(concurrency, Object::hashCode);
+    }
+
+    /**
+     * Constractor.
+     *
+     * @param concurrency
+     *            想定する並行度. ストライプの数はこれ以上の最小の 2 のべき乗となる.
+     * @param hasher
+     *            キーのハッシュ関数. 等しいキーには同じ値を返すこと.
+     * @throws NullPointerException
+     *             指定されたハッシュ関数が NULL の場合.
+     * @throws IllegalArgumentException
+     *             指定された並行度が 1 未満又は 2 の 30 乗を超える場合.
+     */
+    public StripedLock(int concurrency, FunctionWithThrown.OfObjToInt<? super K, ? extends RuntimeException> hasher) {
+        super();
+        if (concurrency < 1 || concurrency > 1 << 30) {
+            throw new IllegalArgumentException("illegal concurrency: " + concurrency);
+        }
+        this.hasher = Objects.requireNonNull(hasher);
+        int length = concurrency == 1 ? 1 : Integer.highestOneBit(concurrency - 1) << 1;
+        this.bits = Integer.numberOfTrailingZeros(length);
+        this.stripes = new StripedLock.Stripe[length];
+        for (int index = 0; index < length; index++) {
+            this.stripes[index] = new StripedLock.Stripe();
+        }
+    }
+
+    /**
+     * ストライプの数を返す.
+     *
+     * @return ストライプの数 (2 のべき乗).
+     */
+    public int size() {
+        return this.stripes.length;
+    }
+
+    /**
+     * 指定されたキーが属するストライプの番号を返す.
+     *
+     * @param key
+     *            キー.
+     * @return ストライプの番号.
+     */
+    public int indexOf(K key) {
+        int hash = this.hasher.apply(key) * 0x9E3779B9;
+        return this.bits == 0 ? 0 : hash >>> (Integer.SIZE - this.bits);
+    }
+
+    /**
+     * 指定されたキーが属するストライプを返す.
+     *
+     * @param key
+     *            キー.
+     * @return ストライプ.
+     */
+    @NonNullReturnValue
+    public StampedLock stripe(K key) {
+        return this.stripes[this.indexOf(key)];
+    }
+
+    /**
+     * 指定されたキーが属するストライプで楽観的に読み出す.
+     *
+     * @param <R>
+     *            読み出しの結果クラス.
+     * @param <X>
+     *            読み出し中に発生するエラークラス.
+     * @param key
+     *            キー.
+     * @param reader
+     *            読み出し処理. 副作用を持ってはならない.
+     * @return 書き込みと競合しなかった読み出しの結果.
+     * @throws X
+     *             読み出し中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定された読み出し処理が NULL の場合.
+     * @see StampedLocks#read(StampedLock, SupplierWithThrown.OfObj)
+     */
+    public <R, X extends Throwable> R read(K key, SupplierWithThrown.OfObj<? extends R, ? extends X> reader)
+            throws X {
+        return StampedLocks.read(this.stripe(key), reader);
+    }
+
+    /**
+     * 指定されたキーが属するストライプの書き込みロックを獲得して処理を実行する.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param key
+     *            キー.
+     * @param writer
+     *            書き込み処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定された書き込み処理が NULL の場合.
+     */
+    public <R, X extends Throwable> R write(K key, SupplierWithThrown.OfObj<? extends R, ? extends X> writer)
+            throws X {
+        return StampedLocks.write(this.stripe(key), writer);
+    }
+
+    /**
+     * 指定された全てのキーが属するストライプの書き込みロックを獲得して処理を実行する. 獲得はストライプの番号の昇順に行い,
+     * 同じストライプは 1 度だけ獲得する.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param keys
+     *            キー.
+     * @param writer
+     *            書き込み処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定されたキーの集合又は書き込み処理が NULL の場合.
+     */
+    public <R, X extends Throwable> R writeAll(Iterable<? extends K> keys,
+            SupplierWithThrown.OfObj<? extends R, ? extends X> writer) throws X {
+        Objects.requireNonNull(writer);
+        return this.writeOrdered(this.ordered(keys), writer);
+    }
+
+    /**
+     * 全てのストライプの書き込みロックを獲得して処理を実行する. 表の再構築等, 全てのキーに跨る操作に用いる.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param writer
+     *            書き込み処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     * @throws NullPointerException
+     *             指定された書き込み処理が NULL の場合.
+     */
+    public <R, X extends Throwable> R writeEvery(SupplierWithThrown.OfObj<? extends R, ? extends X> writer)
+            throws X {
+        Objects.requireNonNull(writer);
+        return this.writeOrdered(this.stripes, writer);
+    }
+
+    /**
+     * 指定されたキーが属するストライプを, 重複を除いて番号の昇順に並べる.
+     *
+     * @param keys
+     *            キー.
+     * @return 獲得する順に並べたストライプ.
+     */
+    StampedLock[] ordered(Iterable<? extends K> keys) {
+        int[] indices = new int[8];
+        int count = 0;
+        for (K key : keys) {
+            if (count == indices.length) {
+                indices = Arrays.copyOf(indices, count << 1);
+            }
+            indices[count++] = this.indexOf(key);
+        }
+        Arrays.sort(indices, 0, count);
+        StampedLock[] returnValue = new StampedLock[count];
+        int distinct = 0;
+        for (int index = 0; index < count; index++) {
+            if (index == 0 || indices[index] != indices[index - 1]) {
+                returnValue[distinct++] = this.stripes[indices[index]];
+            }
+        }
+        return distinct == count ? returnValue : Arrays.copyOf(returnValue, distinct);
+    }
+
+    /**
+     * 指定されたストライプを順に獲得して処理を実行する.
+     *
+     * @param <R>
+     *            処理の結果クラス.
+     * @param <X>
+     *            処理中に発生するエラークラス.
+     * @param locks
+     *            獲得する順に並べたストライプ.
+     * @param writer
+     *            書き込み処理.
+     * @return 処理の結果.
+     * @throws X
+     *             処理中にエラーが発生した場合.
+     */
+    private <R, X extends Throwable> R writeOrdered(StampedLock[] locks,
+            SupplierWithThrown.OfObj<? extends R, ? extends X> writer) throws X {
+        long[] stamps = StampedLocks.writeLockAll(locks);
+        try {
+            return writer.get();
+        } finally {
+            StampedLocks.unlockWriteAll(locks, stamps);
+        }
+    }
+
+    /**
+     * <p>
+     * 1 つのストライプ.
+     * </p>
+     * <p>
+     * ロックの状態はこのインスタンス自身が持つため, 後ろに詰め物のフィールドを置いて隣接するストライプと同じキャッシュラインに載らないようにする.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @SuppressWarnings("serial")
+    static final class Stripe extends StampedLock {
+
+        /**
+         * 詰め物.
+         */
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        /**
+         * Constractor.
+         */
+        Stripe() {
+            super();
+        }
+    }
+}
@@ -0,0 +1,492 @@
+/*
+sp.util.concurrent.VersionedStore
+sp.util.concurrent.VersionedStore.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.concurrent;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import sp.base.Exclusiveness;
+import sp.base.NonNullReturnValue;
+import sp.lang.ShallowCopyable;
+
+/**
+ * <p>
+ * 多版型同時実行制御 (MVCC) によるキーと値のストア.
+ * </p>
+ * <p>
+ * 書き込みは値を {@link ShallowCopyable#clone()} で複製して変更し, 新しい版として各キーの版の連鎖の先頭に追加する.
+ * 1 回の書き込み ({@link #write(Consumer)}) で変更した全てのキーは同じ版番号を持ち, 版番号の公開をもって不可分に見えるようになる.
+ * 書き込み同士は排他制御されるが, 読み出しはロックを取らず, 書き込みを妨げない.
+ * </p>
+ * <p>
+ * {@link #open()} で開いたスナップショットは, 開いた時点の版の一貫した状態を返し続ける. 古い版はエポック (版番号) に基づいて回収される.
+ * 開いているスナップショットの最小の版より古い版は, 書き込み時又は {@link #reclaim()} で連鎖から切り離される.
+ * スナップショットは使用後に必ず {@link VersionedStore.Snapshot#close()} で閉じること. 閉じられないスナップショットは古い版の回収を妨げる.
+ * </p>
+ * <p>
+ * 複製は浅いため, 変更はフィールドに新しいオブジェクトを設定する形で行い, 共有されている内部のオブジェクトを直接変更してはならない.
+ * 読み出した値も変更してはならない.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <K>
+ *            キーのクラス.
+ * @param <V>
+ *            値のクラス.
+ * @since 0.2
+ */
+public final class VersionedStore<K, V extends ShallowCopyable<V>> {
+
+    /**
+     * キー毎の最新の版.
+     */
+    private final Map<K, VersionedStore.Version<V>> heads = new ConcurrentHashMap<>();
+
+    /**
+     * 開いているスナップショット.
+     */
+    private final Set<VersionedStore<K, V>.Snapshot> snapshots = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 置き換えられた版を持つ, 書き込まれた順のキーと版.
+     */
+    private final Queue<Map.Entry<K, VersionedStore.Version<V>>> retired = new ArrayDeque<>();
+
+    /**
+     * 公開された最新の版番号.
+     */
+    private volatile long committed;
+
+    /**
+     * Constractor.
+     */
+    public VersionedStore() {
+        super();
+    }
+
+    /**
+     * 公開された最新の版番号を返す.
+     *
+     * @return 版番号. 書き込みがない場合は 0.
+     */
+    public long version() {
+        return this.committed;
+    }
+
+    /**
+     * 最新の版の値を返す.
+     *
+     * @param key
+     *            キー.
+     * @return 値. 存在しない場合は NULL. 変更してはならない.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    public V get(K key) {
+        VersionedStore.Version<V> head = this.heads.get(key);
+        return head == null ? null : head.value;
+    }
+
+    /**
+     * 最新の版のスナップショットを開く.
+     *
+     * @return スナップショット.
+     */
+    @NonNullReturnValue
+    public VersionedStore<K, V>.Snapshot open() {
+        VersionedStore<K, V>.Snapshot returnValue = null;
+        long version = this.committed;
+        while (returnValue == null) {
+            VersionedStore<K, V>.Snapshot snapshot = this.new Snapshot(version);
+            this.snapshots.add(snapshot);
+            long current = this.committed;
+            if (current == version) {
+                returnValue = snapshot;
+            } else {
+                this.snapshots.remove(snapshot);
+                version = current;
+            }
+        }
+        return returnValue;
+    }
+
+    /**
+     * 複数のキーへの変更を 1 つの版として書き込む.
+     *
+     * @param transaction
+     *            変更処理.
+     * @return 書き込んだ版番号. 変更がない場合は現在の版番号.
+     * @throws NullPointerException
+     *             指定された変更処理が NULL の場合.
+     */
+    @Exclusiveness
+    public synchronized long write(Consumer<? super VersionedStore<K, V>.Transaction> transaction) {
+        Objects.requireNonNull(transaction);
+        VersionedStore<K, V>.Transaction current = this.new Transaction();
+        transaction.accept(current);
+        long returnValue = this.committed;
+        if (!current.changes.isEmpty()) {
+            returnValue++;
+            for (Map.Entry<K, V> change : current.changes.entrySet()) {
+                VersionedStore.Version<V> older = this.heads.get(change.getKey());
+                VersionedStore.Version<V> version = new VersionedStore.Version<>(returnValue, change.getValue(),
+                        older);
+                this.heads.put(change.getKey(), version);
+                if (older != null) {
+                    this.retired.add(new AbstractMap.SimpleImmutableEntry<>(change.getKey(), version));
+                }
+            }
+            this.committed = returnValue;
+            this.reclaim();
+        }
+        return returnValue;
+    }
+
+    /**
+     * 1 つのキーの値を置き換える.
+     *
+     * @param key
+     *            キー.
+     * @param value
+     *            新しい値. 書き込み後は変更してはならない.
+     * @return 書き込んだ版番号.
+     * @throws NullPointerException
+     *             指定されたキー又は値が NULL の場合.
+     */
+    public long put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        return this.write(transaction -> transaction.put(key, value));
+    }
+
+    /**
+     * 1 つのキーの値の複製を変更する.
+     *
+     * @param key
+     *            キー.
+     * @param mutation
+     *            複製への変更.
+     * @return 書き込んだ版番号.
+     * @throws NullPointerException
+     *             指定されたキー又は変更が NULL の場合.
+     * @throws NoSuchElementException
+     *             指定されたキーが存在しない場合.
+     */
+    public long update(K key, Consumer<? super V> mutation) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(mutation);
+        return this.write(transaction -> {
+            V value = transaction.edit(key);
+            if (value == null) {
+                throw new NoSuchElementException("key is not found: " + key);
+            }
+            mutation.accept(value);
+        });
+    }
+
+    /**
+     * 1 つのキーを削除する.
+     *
+     * @param key
+     *            キー.
+     * @return 書き込んだ版番号. 存在しない場合は現在の版番号.
+     * @throws NullPointerException
+     *             指定されたキーが NULL の場合.
+     */
+    public long remove(K key) {
+        Objects.requireNonNull(key);
+        return this.write(transaction -> transaction.remove(key));
+    }
+
+    /**
+     * 開いているスナップショットから参照されない古い版を回収する.
+     */
+    @Exclusiveness
+    public synchronized void reclaim() {
+        long oldest = this.committed;
+        for (VersionedStore<K, V>.Snapshot snapshot : this.snapshots) {
+            oldest = Math.min(oldest, snapshot.version);
+        }
+        for (Map.Entry<K, VersionedStore.Version<V>> entry = this.retired.peek(); entry != null
+                && entry.getValue().version <= oldest; entry = this.retired.peek()) {
+            this.retired.poll();
+            VersionedStore.Version<V> version = entry.getValue();
+            version.older = null;
+            if (version.value == null) {
+                this.heads.remove(entry.getKey(), version);
+            }
+        }
+    }
+
+    /**
+     * 指定されたキーが保持している版の数を返す.
+     *
+     * @param key
+     *            キー.
+     * @return 版の数.
+     */
+    int versions(K key) {
+        int returnValue = 0;
+        for (VersionedStore.Version<V> version = this.heads.get(key); version != null; version = version.older) {
+            returnValue++;
+        }
+        return returnValue;
+    }
+
+    /**
+     * <p>
+     * 1 つのキーの 1 つの版.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <V>
+     *            値のクラス.
+     * @since 0.2
+     */
+    static final class Version<V> {
+
+        /**
+         * 版番号.
+         */
+        final long version;
+
+        /**
+         * 値. 削除された場合は NULL.
+         */
+        final V value;
+
+        /**
+         * 1 つ前の版. 回収された場合は NULL.
+         */
+        volatile VersionedStore.Version<V> older;
+
+        /**
+         * Constractor.
+         *
+         * @param version
+         *            版番号.
+         * @param value
+         *            値.
+         * @param older
+         *            1 つ前の版.
+         */
+        Version(long version, V value, VersionedStore.Version<V> older) {
+            super();
+            this.version = version;
+            this.value = value;
+            this.older = older;
+        }
+    }
+
+    /**
+     * <p>
+     * 1 回の書き込みで行う変更.
+     * </p>
+     * <p>
+     * 変更は書き込みが完了した時点でまとめて公開される.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public final class Transaction {
+
+        /**
+         * キー毎の新しい値. 削除する場合は NULL.
+         */
+        final Map<K, V> changes = new HashMap<>();
+
+        /**
+         * Constractor.
+         */
+        Transaction() {
+            super();
+        }
+
+        /**
+         * この書き込みでの変更を含む値を返す.
+         *
+         * @param key
+         *            キー.
+         * @return 値. 存在しない場合は NULL. 変更してはならない.
+         * @throws NullPointerException
+         *             指定されたキーが NULL の場合.
+         */
+        public V get(K key) {
+            return this.changes.containsKey(Objects.requireNonNull(key)) ? this.changes.get(key)
+                    : VersionedStore.this.get(key);
+        }
+
+        /**
+         * 変更するための値の複製を返す. 同じ書き込みの中では同じ複製を返す.
+         *
+         * @param key
+         *            キー.
+         * @return 値の複製. 存在しない場合は NULL.
+         * @throws NullPointerException
+         *             指定されたキーが NULL の場合.
+         */
+        public V edit(K key) {
+            V returnValue = null;
+            if (this.changes.containsKey(Objects.requireNonNull(key))) {
+                returnValue = this.changes.get(key);
+            } else {
+                V current = VersionedStore.this.get(key);
+                if (current != null) {
+                    returnValue = current.clone();
+                    this.changes.put(key, returnValue);
+                }
+            }
+            return returnValue;
+        }
+
+        /**
+         * 値を置き換える.
+         *
+         * @param key
+         *            キー.
+         * @param value
+         *            新しい値. 書き込み後は変更してはならない.
+         * @throws NullPointerException
+         *             指定されたキー又は値が NULL の場合.
+         */
+        public void put(K key, V value) {
+            this.changes.put(Objects.requireNonNull(key), Objects.requireNonNull(value));
+        }
+
+        /**
+         * キーを削除する.
+         *
+         * @param key
+         *            キー.
+         * @throws NullPointerException
+         *             指定されたキーが NULL の場合.
+         */
+        public void remove(K key) {
+            if (VersionedStore.this.get(Objects.requireNonNull(key)) != null) {
+                this.changes.put(key, null);
+            } else {
+                this.changes.remove(key);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * ある版の一貫した読み出し専用の状態.
+     * </p>
+     * <p>
+     * ロックを取らずに読み出す. 閉じるまで, 開いた時点の版より後の書き込みは見えない.
+     * </p>
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public final class Snapshot implements AutoCloseable {
+
+        /**
+         * 版番号.
+         */
+        final long version;
+
+        /**
+         * Constractor.
+         *
+         * @param version
+         *            版番号.
+         */
+        Snapshot(long version) {
+            super();
+            this.version = version;
+        }
+
+        /**
+         * 版番号を返す.
+         *
+         * @return 版番号.
+         */
+        public long version() {
+            return this.version;
+        }
+
+        /**
+         * この版の値を返す.
+         *
+         * @param key
+         *            キー.
+         * @return 値. 存在しない場合は NULL. 変更してはならない.
+         * @throws NullPointerException
+         *             指定されたキーが NULL の場合.
+         * @throws IllegalStateException
+         *             閉じられている場合.
+         */
+        public V get(K key) {
+            VersionedStore.Version<V> version = this.find(VersionedStore.this.heads.get(key));
+            return version == null ? null : version.value;
+        }
+
+        /**
+         * この版の全てのキーと値を処理する. 順序は不定である.
+         *
+         * @param action
+         *            キーと値毎の処理.
+         * @throws NullPointerException
+         *             指定された処理が NULL の場合.
+         * @throws IllegalStateException
+         *             閉じられている場合.
+         */
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            Objects.requireNonNull(action);
+            for (Map.Entry<K, VersionedStore.Version<V>> entry : VersionedStore.this.heads.entrySet()) {
+                VersionedStore.Version<V> version = this.find(entry.getValue());
+                if (version != null && version.value != null) {
+                    action.accept(entry.getKey(), version.value);
+                }
+            }
+        }
+
+        /**
+         * スナップショットを閉じる. 以降はこの版の回収を妨げない.
+         */
+        @Override
+        public void close() {
+            VersionedStore.this.snapshots.remove(this);
+        }
+
+        /**
+         * この版から見える版を探す.
+         *
+         * @param head
+         *            最新の版.
+         * @return この版から見える版. 存在しない場合は NULL.
+         * @throws IllegalStateException
+         *             閉じられている場合.
+         */
+        private VersionedStore.Version<V> find(VersionedStore.Version<V> head) {
+            if (!VersionedStore.this.snapshots.contains(this)) {
+                throw new IllegalStateException("snapshot is closed.");
+            }
+            VersionedStore.Version<V> returnValue = head;
+            while (returnValue != null && returnValue.version > this.version) {
+                returnValue = returnValue.older;
+            }
+            return returnValue;
+        }
+    }
+}
@@ -0,0 +1,462 @@
+/*
+sp.util.function.SupplierWithThrown
+sp.util.function.SupplierWithThrown.*
+
+Copyright (c) 2017 Se-foo
+
+This software is released under the MIT License.
+http://opensource.org/licenses/mit-license.php
+*/
+package sp.util.function;
+
+import java.util.Objects;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Supplier;
+
+import sp.base.NonNullReturnValue;
+
+/**
+ * <p>
+ * {@link Throwable} がスローされる可能性がある結果の供給者を表す.
+ * </p>
+ *
+ * @author Se-foo
+ * @param <X>
+ *            評価中に発生するエラークラス.
+ * @since 0.2
+ */
+public interface SupplierWithThrown<X extends Throwable> {
+
+    /**
+     * <p>
+     * 結果の供給者を表す.
+     * </p>
+     * <p>
+     * これは, {@link #get()} を関数メソッドに持つ関数型インタフェースである.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <T>
+     *            結果クラス.
+     * @param <X>
+     *            評価中に発生するエラークラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    static interface OfObj<T, X extends Throwable> extends SupplierWithThrown<X> {
+
+        /**
+         * 結果を取得する.
+         *
+         * @return 結果.
+         * @throws X
+         *             結果生成中にエラーが発生した場合.
+         */
+        T get() throws X;
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param <R>
+         *            after 関数および合成された供給者の結果クラス.
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default <R> SupplierWithThrown.OfObj<R, X> andThen(
+                FunctionWithThrown.OfObj<? super T, ? extends R, ? extends X> after) {
+            Objects.requireNonNull(after);
+            return () -> after.apply(this.get());
+        }
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param <R>
+         *            after 関数および合成された供給者の結果クラス.
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default <R> SupplierWithThrown.OfObj<R, X> andThenFunction(Function<? super T, ? extends R> after) {
+            Objects.requireNonNull(after);
+            return () -> after.apply(this.get());
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.Supplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * 非チェック例外生成関数 throwable を呼び出し, その結果がスローされる.
+         * </p>
+         *
+         * @param throwable
+         *            非チェック例外生成関数.
+         * @return 変換後の供給者.
+         * @throws NullPointerException
+         *             指定された非チェック例外生成関数が NULL, 又は生成された例外が NULL の場合.
+         */
+        @NonNullReturnValue
+        default Supplier<T> toSupplier(Function<? super Throwable, ? extends RuntimeException> throwable) {
+            Objects.requireNonNull(throwable);
+            return () -> {
+                try {
+                    return this.get();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                }
+            };
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.Supplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * {@link RuntimeException} でラッピングされてスローされる.
+         * </p>
+         *
+         * @return 変換後の供給者.
+         */
+        @NonNullReturnValue
+        default Supplier<T> toSupplier() {
+            return this.toSupplier(cause -> new RuntimeException(cause));
+        }
+    }
+
+    /**
+     * <p>
+     * int 値の結果の供給者を表す.
+     * </p>
+     * <p>
+     * これは, {@link #get()} を関数メソッドに持つ関数型インタフェースである.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <X>
+     *            評価中に発生するエラークラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    static interface OfInt<X extends Throwable> extends SupplierWithThrown<X> {
+
+        /**
+         * 結果を取得する.
+         *
+         * @return 結果.
+         * @throws X
+         *             結果生成中にエラーが発生した場合.
+         */
+        int get() throws X;
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default SupplierWithThrown.OfInt<X> andThen(FunctionWithThrown.OfInt<? extends X> after) {
+            Objects.requireNonNull(after);
+            return () -> after.apply(this.get());
+        }
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default SupplierWithThrown.OfInt<X> andThenFunction(IntUnaryOperator after) {
+            Objects.requireNonNull(after);
+            return () -> after.applyAsInt(this.get());
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.IntSupplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * 非チェック例外生成関数 throwable を呼び出し, その結果がスローされる.
+         * </p>
+         *
+         * @param throwable
+         *            非チェック例外生成関数.
+         * @return 変換後の供給者.
+         * @throws NullPointerException
+         *             指定された非チェック例外生成関数が NULL, 又は生成された例外が NULL の場合.
+         */
+        @NonNullReturnValue
+        default IntSupplier toSupplier(Function<? super Throwable, ? extends RuntimeException> throwable) {
+            Objects.requireNonNull(throwable);
+            return () -> {
+                try {
+                    return this.get();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                }
+            };
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.IntSupplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * {@link RuntimeException} でラッピングされてスローされる.
+         * </p>
+         *
+         * @return 変換後の供給者.
+         */
+        @NonNullReturnValue
+        default IntSupplier toSupplier() {
+            return this.toSupplier(cause -> new RuntimeException(cause));
+        }
+    }
+
+    /**
+     * <p>
+     * long 値の結果の供給者を表す.
+     * </p>
+     * <p>
+     * これは, {@link #get()} を関数メソッドに持つ関数型インタフェースである.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <X>
+     *            評価中に発生するエラークラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    static interface OfLong<X extends Throwable> extends SupplierWithThrown<X> {
+
+        /**
+         * 結果を取得する.
+         *
+         * @return 結果.
+         * @throws X
+         *             結果生成中にエラーが発生した場合.
+         */
+        long get() throws X;
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default SupplierWithThrown.OfLong<X> andThen(FunctionWithThrown.OfLong<? extends X> after) {
+            Objects.requireNonNull(after);
+            return () -> after.apply(this.get());
+        }
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default SupplierWithThrown.OfLong<X> andThenFunction(LongUnaryOperator after) {
+            Objects.requireNonNull(after);
+            return () -> after.applyAsLong(this.get());
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.LongSupplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * 非チェック例外生成関数 throwable を呼び出し, その結果がスローされる.
+         * </p>
+         *
+         * @param throwable
+         *            非チェック例外生成関数.
+         * @return 変換後の供給者.
+         * @throws NullPointerException
+         *             指定された非チェック例外生成関数が NULL, 又は生成された例外が NULL の場合.
+         */
+        @NonNullReturnValue
+        default LongSupplier toSupplier(Function<? super Throwable, ? extends RuntimeException> throwable) {
+            Objects.requireNonNull(throwable);
+            return () -> {
+                try {
+                    return this.get();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                }
+            };
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.LongSupplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * {@link RuntimeException} でラッピングされてスローされる.
+         * </p>
+         *
+         * @return 変換後の供給者.
+         */
+        @NonNullReturnValue
+        default LongSupplier toSupplier() {
+            return this.toSupplier(cause -> new RuntimeException(cause));
+        }
+    }
+
+    /**
+     * <p>
+     * double 値の結果の供給者を表す.
+     * </p>
+     * <p>
+     * これは, {@link #get()} を関数メソッドに持つ関数型インタフェースである.
+     * </p>
+     *
+     * @author Se-foo
+     * @param <X>
+     *            評価中に発生するエラークラス.
+     * @since 0.2
+     */
+    @FunctionalInterface
+    static interface OfDouble<X extends Throwable> extends SupplierWithThrown<X> {
+
+        /**
+         * 結果を取得する.
+         *
+         * @return 結果.
+         * @throws X
+         *             結果生成中にエラーが発生した場合.
+         */
+        double get() throws X;
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default SupplierWithThrown.OfDouble<X> andThen(FunctionWithThrown.OfDouble<? extends X> after) {
+            Objects.requireNonNull(after);
+            return () -> after.apply(this.get());
+        }
+
+        /**
+         * まずこの供給者から結果を取得し, 次に結果に関数 after を適用する供給者を返す.
+         *
+         * @param after
+         *            結果に適用する関数.
+         * @return まずこの供給者から結果を取得し, 次に after 関数を適用する供給者.
+         * @throws NullPointerException
+         *             after 関数が NULL の場合.
+         */
+        @NonNullReturnValue
+        default SupplierWithThrown.OfDouble<X> andThenFunction(DoubleUnaryOperator after) {
+            Objects.requireNonNull(after);
+            return () -> after.applyAsDouble(this.get());
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.DoubleSupplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * 非チェック例外生成関数 throwable を呼び出し, その結果がスローされる.
+         * </p>
+         *
+         * @param throwable
+         *            非チェック例外生成関数.
+         * @return 変換後の供給者.
+         * @throws NullPointerException
+         *             指定された非チェック例外生成関数が NULL, 又は生成された例外が NULL の場合.
+         */
+        @NonNullReturnValue
+        default DoubleSupplier toSupplier(Function<? super Throwable, ? extends RuntimeException> throwable) {
+            Objects.requireNonNull(throwable);
+            return () -> {
+                try {
+                    return this.get();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw Objects.requireNonNull(throwable.apply(e));
+                }
+            };
+        }
+
+        /**
+         * <p>
+         * {@link java.util.function.DoubleSupplier} に変換する.
+         * </p>
+         * <p>
+         * 発生するエラー又は非チェック例外はそのままスローされる. チェック例外又は左記以外の {@link Throwable} は
+         * {@link RuntimeException} でラッピングされてスローされる.
+         * </p>
+         *
+         * @return 変換後の供給者.
+         */
+        @NonNullReturnValue
+        default DoubleSupplier toSupplier() {
+            return this.toSupplier(cause -> new RuntimeException(cause));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sp.base.var;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link ColumnMapper} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class ColumnMapperTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() {
+
+        // Check exception from #mapParallel
+        this.thrown.expect(NumberFormatException.class);
+        this.thrown.expectMessage("test");
+
+        // #toInt, #toLong, #toDouble, #toObj
+        ColumnMapper<String, NumberFormatException> instance = new ColumnMapper<>();
+        ColumnMapper.Column<int[]> ints = instance.toInt(target -> Integer.parseInt(target));
+        ColumnMapper.Column<long[]> longs = instance.toLong(target -> Long.parseLong(target) * -1);
+        ColumnMapper.Column<double[]> doubles = instance.toDouble(target -> Double.parseDouble(target) / 2);
+        ColumnMapper.Column<Object[]> objs = instance.toObj(target -> target.length());
+
+        // #map
+        ColumnMapper.Columns result = instance.map(Arrays.asList("1", "20", "300"));
+        assertThat(result.size(), is(3));
+        assertThat(Arrays.equals(result.get(ints), new int[] { 1, 20, 300 }), is(true));
+        assertThat(Arrays.equals(result.get(longs), new long[] { -1, -20, -300 }), is(true));
+        assertThat(Arrays.equals(result.get(doubles), new double[] { 0.5, 10, 150 }), is(true));
+        assertThat(Arrays.equals(result.get(objs), new Object[] { 1, 2, 3 }), is(true));
+
+        // #map (not RandomAccess)
+        result = instance.map(new LinkedList<>(Arrays.asList("4", "5")));
+        assertThat(Arrays.equals(result.get(ints), new int[] { 4, 5 }), is(true));
+
+        // #map (array)
+        result = instance.map(new String[] { "6" });
+        assertThat(Arrays.equals(result.get(longs), new long[] { -6 }), is(true));
+
+        // #mapParallel
+        List<String> source = new ArrayList<>();
+        int[] expected = new int[10000];
+        for (int index = 0; index < expected.length; index++) {
+            source.add(Integer.toString(index));
+            expected[index] = index;
+        }
+        result = instance.mapParallel(source, 100);
+        assertThat(Arrays.equals(result.get(ints), expected), is(true));
+        assertThat(result.get(objs)[9999], is((Object) 4));
+
+        // #get (other mapper)
+        try {
+            result.get(new ColumnMapper<String, RuntimeException>().toInt(target -> 0));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e, notNullValue());
+        }
+
+        // #mapParallel
+        source.set(5000, "test");
+        instance.mapParallel(source, 100);
+    }
+
+}
@@ -0,0 +1,81 @@
+package sp.base.var;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link ColumnQuery} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class ColumnQueryTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() {
+
+        // Check exception from #count
+        this.thrown.expect(NumberFormatException.class);
+        this.thrown.expectMessage("test");
+
+        // #from
+        ColumnQuery<String, NumberFormatException> instance = ColumnQuery
+                .from(new String[] { "1", "2", "3", "4", "5", "6" });
+        assertThat(instance.count(), is(6));
+        assertThat(Arrays.equals(instance.rows(), new int[] { 0, 1, 2, 3, 4, 5 }), is(true));
+
+        // #whereInt, #whereLong, #whereDouble
+        AtomicInteger evaluated = new AtomicInteger();
+        ColumnQuery<String, NumberFormatException> result = instance
+                .whereInt(target -> Integer.parseInt(target), target -> target % 2 == 0)
+                .whereLong(target -> {
+                    evaluated.incrementAndGet();
+                    return Long.parseLong(target);
+                }, target -> target > 2)
+                .whereDouble(target -> Double.parseDouble(target), target -> target < 6);
+        assertThat(Arrays.equals(result.rows(), new int[] { 3 }), is(true));
+        assertThat(evaluated.get(), is(3));
+        assertThat(instance.count(), is(6));
+
+        // #summarizeInt
+        IntSummaryStatistics statistics = result.summarizeInt(target -> Integer.parseInt(target));
+        assertThat(statistics.getCount(), is(1L));
+        assertThat(statistics.getSum(), is(4L));
+        assertThat(instance.summarizeLong(target -> Long.parseLong(target)).getMax(), is(6L));
+        assertThat(instance.summarizeDouble(target -> Double.parseDouble(target)).getSum() == 21, is(true));
+
+        // #project
+        ColumnMapper<String, NumberFormatException> mapper = new ColumnMapper<>();
+        ColumnMapper.Column<int[]> lengths = mapper.toInt(target -> target.length() * 10);
+        ColumnMapper.Columns columns = instance.whereInt(target -> Integer.parseInt(target), target -> target > 4)
+                .project(mapper);
+        assertThat(Arrays.equals(columns.get(lengths), new int[] { 10, 10 }), is(true));
+        assertThat(Arrays.equals(instance.projectParallel(mapper).get(lengths), new int[] { 10, 10, 10, 10, 10, 10 }),
+                is(true));
+
+        // #whereInt (no rows)
+        evaluated.set(0);
+        assertThat(instance.whereInt(target -> Integer.parseInt(target), target -> false).whereLong(target -> {
+            evaluated.incrementAndGet();
+            return 0;
+        }, target -> true).count(), is(0));
+        assertThat(evaluated.get(), is(0));
+
+        // #count
+        ColumnQuery.<String, NumberFormatException> from(new LinkedList<>(Arrays.asList("1", "test")))
+                .whereInt(target -> Integer.parseInt(target), target -> true).count();
+    }
+
+}
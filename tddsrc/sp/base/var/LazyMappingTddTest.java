@@ -0,0 +1,119 @@
+package sp.base.var;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link LazyMapping} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class LazyMappingTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #materialize
+        this.thrown.expect(IOException.class);
+        this.thrown.expectMessage("test");
+
+        // #list
+        AtomicInteger count = new AtomicInteger();
+        List<String> source = Arrays.asList("1", "2", "3");
+        LazyMapping.ListView<String, Integer, RuntimeException> list = LazyMapping.list(source, target -> {
+            count.incrementAndGet();
+            return Integer.parseInt(target);
+        });
+        assertThat(list.size(), is(3));
+        assertThat(count.get(), is(0));
+        assertThat(list.get(1), is(2));
+        assertThat(list.get(1), is(2));
+        assertThat(count.get(), is(2));
+
+        // #cachedList
+        count.set(0);
+        LazyMapping.ListView<String, Integer, RuntimeException> cached = LazyMapping.cachedList(source, target -> {
+            count.incrementAndGet();
+            return target.equals("2") ? null : Integer.parseInt(target);
+        });
+        assertThat(cached.get(1), nullValue());
+        assertThat(cached.get(1), nullValue());
+        assertThat(count.get(), is(1));
+        assertThat(cached.materialize(), is(Arrays.asList(1, null, 3)));
+        assertThat(count.get(), is(3));
+
+        // #get (checked exception)
+        LazyMapping.ListView<String, String, IOException> failure = LazyMapping.list(source, target -> {
+            throw new IOException("test");
+        });
+        try {
+            failure.get(0);
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e.getCause() instanceof IOException, is(true));
+        }
+
+        // #map, #cachedMap
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("a", "1");
+        entries.put("b", "2");
+        count.set(0);
+        LazyMapping.MapView<String, String, Integer, RuntimeException> map = LazyMapping.cachedMap(entries,
+                target -> {
+                    count.incrementAndGet();
+                    return Integer.parseInt(target);
+                });
+        assertThat(map.get("b"), is(2));
+        assertThat(map.get("c"), nullValue());
+        assertThat(map.containsKey("a"), is(true));
+        assertThat(count.get(), is(1));
+        assertThat(new ArrayList<>(map.values()), is(Arrays.asList(1, 2)));
+        assertThat(count.get(), is(2));
+        assertThat(map.materialize().toString(), is("{a=1, b=2}"));
+        assertThat(LazyMapping.map(entries, target -> target + target).toString(), is("{a=11, b=22}"));
+        count.set(0);
+        LazyMapping.MapView<String, String, Integer, RuntimeException> uncached = LazyMapping.map(entries,
+                target -> {
+                    count.incrementAndGet();
+                    return Integer.parseInt(target);
+                });
+        assertThat(new ArrayList<>(uncached.keySet()), is(Arrays.asList("a", "b")));
+        Map.Entry<String, Integer> first = uncached.entrySet().iterator().next();
+        assertThat(first.getKey(), is("a"));
+        assertThat(count.get(), is(0));
+        assertThat(first.getValue(), is(1));
+        assertThat(first.getValue(), is(1));
+        assertThat(count.get(), is(1));
+        try {
+            uncached.keySet().remove("a");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertThat(entries.containsKey("a"), is(true));
+        }
+
+        // #materialize
+        List<String> large = new ArrayList<>();
+        for (int index = 0; index < 10000; index++) {
+            large.add(Integer.toString(index));
+        }
+        assertThat(LazyMapping.list(large, target -> Integer.parseInt(target)).materialize().get(9999), is(9999));
+        failure.materialize();
+    }
+
+}
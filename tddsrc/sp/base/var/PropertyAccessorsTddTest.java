@@ -0,0 +1,160 @@
+package sp.base.var;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.base.var.fixture.HiddenBeans;
+
+/**
+ * {@link PropertyAccessors} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class PropertyAccessorsTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Bean.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static class Sample {
+
+        public String getName() {
+            return "name";
+        }
+
+        public short getCount() {
+            return 3;
+        }
+
+        public long getTotal() {
+            return 1L << 40;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public int getFailure() {
+            throw new IllegalStateException("test");
+        }
+    }
+
+    /**
+     * Hidden Bean.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Hidden {
+
+        public Integer getValue() {
+            return 7;
+        }
+    }
+
+    /**
+     * Base Bean.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static class Base {
+
+        public Number getAmount() {
+            return 1L;
+        }
+    }
+
+    /**
+     * Covariant Bean.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    public static class Covariant extends PropertyAccessorsTddTest.Base {
+
+        @Override
+        public Integer getAmount() {
+            return 5;
+        }
+    }
+
+    @Test
+    public void test() {
+
+        // Check exception from #toInt("failure")
+        this.thrown.expect(IllegalStateException.class);
+        this.thrown.expectMessage("test");
+
+        // #of
+        PropertyAccessors<PropertyAccessorsTddTest.Sample> instance = PropertyAccessors
+                .of(PropertyAccessorsTddTest.Sample.class);
+        assertThat(PropertyAccessors.of(PropertyAccessorsTddTest.Sample.class) == instance, is(true));
+
+        // #names, #typeOf
+        assertThat(instance.names(),
+                is(new HashSet<>(Arrays.asList("name", "count", "total", "active", "failure"))));
+        assertThat(instance.typeOf("count") == short.class, is(true));
+
+        // #toObj, #toInt, #toLong, #toDouble
+        PropertyAccessorsTddTest.Sample sample = new PropertyAccessorsTddTest.Sample();
+        assertThat(instance.<String, RuntimeException> toObj("name", String.class).apply(sample), is("name"));
+        assertThat(instance.<Object, RuntimeException> toObj("active", Object.class).apply(sample), is(true));
+        assertThat(instance.<RuntimeException> toInt("count").apply(sample), is(3));
+        assertThat(instance.<RuntimeException> toLong("total").apply(sample), is(1L << 40));
+        assertThat(instance.<RuntimeException> toDouble("count").apply(sample) == 3, is(true));
+        assertThat(instance.toInt("count") == instance.toInt("count"), is(true));
+        try {
+            instance.toInt("total");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e, notNullValue());
+        }
+        try {
+            instance.toInt("unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e, notNullValue());
+        }
+
+        // #toInt (not public)
+        PropertyAccessors<PropertyAccessorsTddTest.Hidden> hidden = PropertyAccessors
+                .of(PropertyAccessorsTddTest.Hidden.class);
+        assertThat(hidden.<RuntimeException> toInt("value").apply(new PropertyAccessorsTddTest.Hidden()), is(7));
+        assertThat(hidden.<RuntimeException> toLong("value").apply(new PropertyAccessorsTddTest.Hidden()), is(7L));
+
+        // #toInt (not public, other package)
+        Object bean = HiddenBeans.create();
+        @SuppressWarnings("unchecked")
+        Class<Object> beanType = (Class<Object>) bean.getClass();
+        assertThat(PropertyAccessors.of(beanType).<RuntimeException> toInt("value").apply(bean), is(7));
+
+        // #typeOf, #toInt (covariant return type)
+        PropertyAccessors<PropertyAccessorsTddTest.Covariant> covariant = PropertyAccessors
+                .of(PropertyAccessorsTddTest.Covariant.class);
+        assertThat(covariant.typeOf("amount") == Integer.class, is(true));
+        assertThat(covariant.<RuntimeException> toInt("amount").apply(new PropertyAccessorsTddTest.Covariant()), is(5));
+
+        // Mapper
+        ColumnMapper<PropertyAccessorsTddTest.Sample, RuntimeException> mapper = new ColumnMapper<>();
+        ColumnMapper.Column<long[]> totals = mapper.toLong(instance.toLong("total"));
+        assertThat(mapper.map(Arrays.asList(sample, sample)).get(totals)[1], is(1L << 40));
+
+        // #toInt
+        instance.<RuntimeException> toInt("failure").apply(sample);
+    }
+
+}
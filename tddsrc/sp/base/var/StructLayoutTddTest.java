@@ -0,0 +1,108 @@
+package sp.base.var;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link StructLayout} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class StructLayoutTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() {
+
+        // Check exception from #append
+        this.thrown.expect(NumberFormatException.class);
+        this.thrown.expectMessage("test");
+
+        // #toInt, #toLong, #toDouble
+        StructLayout<String, NumberFormatException> instance = new StructLayout<>();
+        StructLayout.Field ints = instance.toInt(target -> Integer.parseInt(target));
+        StructLayout.Field longs = instance.toLong(target -> Long.parseLong(target) << 40);
+        StructLayout.Field doubles = instance.toDouble(target -> Double.parseDouble(target) / 4);
+
+        // #recordSize
+        assertThat(instance.recordSize(), is(24));
+        try {
+            instance.toInt(target -> 0);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e, notNullValue());
+        }
+
+        // #write, #cursor
+        ByteBuffer buffer = ByteBuffer.allocateDirect(instance.recordSize() * 2);
+        instance.write(buffer, 0, "1");
+        instance.write(buffer, 1, "2");
+        StructLayout<String, NumberFormatException>.Cursor cursor = instance.cursor(buffer);
+        assertThat(cursor.moveTo(1).getInt(ints), is(2));
+        assertThat(cursor.getLong(longs), is(2L << 40));
+        assertThat(cursor.moveTo(0).getDouble(doubles) == 0.25, is(true));
+        try {
+            cursor.moveTo(2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertThat(e, notNullValue());
+        }
+        try {
+            cursor.getInt(longs);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e, notNullValue());
+        }
+        try {
+            // index * recordSize が int の範囲を超える位置.
+            instance.write(buffer, 178956971, "3");
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            assertThat(cursor.moveTo(0).getInt(ints), is(1));
+        }
+
+        // #newStore
+        StructLayout<String, NumberFormatException>.Store store = instance.newStore(3);
+        List<String> source = new ArrayList<>();
+        for (int index = 0; index < 10; index++) {
+            source.add(Integer.toString(index));
+        }
+        store.appendAll(source);
+        assertThat(store.size(), is(10L));
+        cursor = store.cursor();
+        for (int index = 0; index < 10; index++) {
+            assertThat(cursor.moveTo(index).getInt(ints), is(index));
+            assertThat(cursor.getLong(longs), is((long) index << 40));
+        }
+
+        // #append : ブロックの先頭への書き込みに失敗してもブロックを残さない.
+        store.appendAll(Arrays.asList("10", "11"));
+        assertThat(store.blocks.size(), is(4));
+        try {
+            store.append("broken");
+            fail();
+        } catch (NumberFormatException e) {
+            assertThat(store.size(), is(12L));
+            assertThat(store.blocks.size(), is(4));
+        }
+        assertThat(store.append("12"), is(12L));
+        assertThat(store.blocks.size(), is(5));
+        assertThat(store.cursor().moveTo(12).getInt(ints), is(12));
+
+        // #append
+        store.append("test");
+    }
+
+}
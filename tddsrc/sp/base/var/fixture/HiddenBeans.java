@@ -0,0 +1,39 @@
+package sp.base.var.fixture;
+
+/**
+ * 他のパッケージから参照できない Bean の生成.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public final class HiddenBeans {
+
+    /**
+     * Constractor.
+     */
+    private HiddenBeans() {
+        super();
+    }
+
+    /**
+     * 公開されていないクラスの Bean を生成する.
+     *
+     * @return value プロパティ (7) を持つ Bean.
+     */
+    public static Object create() {
+        return new HiddenBeans.Bean();
+    }
+
+    /**
+     * Hidden Bean.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Bean {
+
+        public int getValue() {
+            return 7;
+        }
+    }
+}
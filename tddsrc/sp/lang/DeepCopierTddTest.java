@@ -0,0 +1,676 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.base.Immutable;
+
+/**
+ * {@link DeepCopier} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class DeepCopierTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @Immutable
+    static final class Point {
+
+        /**
+         * X.
+         */
+        final int x;
+
+        /**
+         * Constractor.
+         *
+         * @param x
+         *            X.
+         */
+        Point(int x) {
+            super();
+            this.x = x;
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @Immutable
+    static class Broken {
+
+        /**
+         * Not final.
+         */
+        int value;
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Holder {
+
+        /**
+         * Point.
+         */
+        DeepCopierTddTest.Point point;
+
+        /**
+         * Points.
+         */
+        DeepCopierTddTest.Point[] points;
+
+        /**
+         * Any.
+         */
+        Object any;
+
+        /**
+         * Broken.
+         */
+        Object broken;
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Node {
+
+        /**
+         * Name.
+         */
+        final String name;
+
+        /**
+         * Value.
+         */
+        final int value;
+
+        /**
+         * Next Node.
+         */
+        DeepCopierTddTest.Node next;
+
+        /**
+         * Children.
+         */
+        List<DeepCopierTddTest.Node> children = new ArrayList<>();
+
+        /**
+         * Weights.
+         */
+        double[] weights;
+
+        /**
+         * Constractor.
+         *
+         * @param name
+         *            Name.
+         * @param value
+         *            Value.
+         */
+        Node(String name, int value) {
+            super();
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Labeled extends DeepCopierTddTest.Node {
+
+        /**
+         * Labels.
+         */
+        Map<String, DeepCopierTddTest.Node> labels = new HashMap<>();
+
+        /**
+         * Constractor.
+         *
+         * @param name
+         *            Name.
+         */
+        Labeled(String name) {
+            super(name, -1);
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Key {
+
+        /**
+         * ID.
+         */
+        int id;
+
+        /**
+         * Constractor.
+         *
+         * @param id
+         *            ID.
+         */
+        Key(int id) {
+            super();
+            this.id = id;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return this.id;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof DeepCopierTddTest.Key && ((DeepCopierTddTest.Key) obj).id == this.id;
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Published {
+
+        /**
+         * Current Node.
+         */
+        AtomicReference<DeepCopierTddTest.Node> current = new AtomicReference<>();
+
+        /**
+         * Hits.
+         */
+        LongAdder hits = new LongAdder();
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Tagged extends ArrayList<DeepCopierTddTest.Node> {
+
+        /**
+         * serialVersionUID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Tag.
+         */
+        String tag;
+
+        /**
+         * Owner.
+         */
+        DeepCopierTddTest.Node owner;
+
+        /**
+         * Constractor.
+         */
+        Tagged() {
+            super();
+            this.add(new DeepCopierTddTest.Node("default", 0));
+        }
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        // #copy(Object) : 値, NULL.
+        assertThat(DeepCopier.copy(null), is(nullValue()));
+        String text = "text";
+        assertThat(DeepCopier.copy(text), is(sameInstance(text)));
+        assertThat(DeepCopier.copy(Thread.State.NEW), is(sameInstance(Thread.State.NEW)));
+
+        // #copy(Object) : final フィールド, プリミティブ配列.
+        DeepCopierTddTest.Node first = new DeepCopierTddTest.Node("first", 1);
+        first.weights = new double[] { 0.5, 1.5 };
+        DeepCopierTddTest.Node copy = DeepCopier.copy(first);
+        assertThat(copy, is(not(sameInstance(first))));
+        assertThat(copy.name, is("first"));
+        assertThat(copy.value, is(1));
+        assertThat(copy.weights, is(not(sameInstance(first.weights))));
+        assertThat(copy.weights[1], is(1.5));
+
+        // #copy(Object) : 循環参照.
+        DeepCopierTddTest.Node second = new DeepCopierTddTest.Node("second", 2);
+        first.next = second;
+        second.next = first;
+        copy = DeepCopier.copy(first);
+        assertThat(copy.next, is(not(sameInstance(second))));
+        assertThat(copy.next.name, is("second"));
+        assertThat(copy.next.next, is(sameInstance(copy)));
+
+        // #copy(Object) : 共有参照, コレクション, サブクラス.
+        DeepCopierTddTest.Labeled root = new DeepCopierTddTest.Labeled("root");
+        root.children.add(first);
+        root.children.add(second);
+        root.labels.put("a", second);
+        root.next = root;
+        DeepCopierTddTest.Labeled copied = DeepCopier.copy(root);
+        assertThat(copied.name, is("root"));
+        assertThat(copied.value, is(-1));
+        assertThat(copied.next, is(sameInstance(copied)));
+        assertThat(copied.children, is(instanceOf(ArrayList.class)));
+        assertThat(copied.children, is(not(sameInstance(root.children))));
+        assertThat(copied.children.get(0).next, is(sameInstance(copied.children.get(1))));
+        assertThat(copied.labels, is(instanceOf(HashMap.class)));
+        assertThat(copied.labels.get("a"), is(sameInstance(copied.children.get(1))));
+        assertThat(root.labels.get("a"), is(sameInstance(second)));
+
+        // #copy(Object) : 参照型配列.
+        Object[] array = { first, first, new int[] { 3 } };
+        array[2] = array;
+        Object[] copiedArray = DeepCopier.copy(array);
+        assertThat(copiedArray[0], is(sameInstance(copiedArray[1])));
+        assertThat(copiedArray[0], is(not(sameInstance(first))));
+        assertThat(copiedArray[2], is(sameInstance(copiedArray)));
+
+        // #copy(Object) : ソート済みコレクション, 公開されていないコレクション.
+        TreeSet<String> sorted = new TreeSet<>(Comparator.reverseOrder());
+        sorted.addAll(Arrays.asList("a", "c", "b"));
+        TreeSet<String> copiedSorted = DeepCopier.copy(sorted);
+        assertThat(copiedSorted.first(), is("c"));
+        assertThat(copiedSorted.comparator(), is(sameInstance(sorted.comparator())));
+        List<String> fixed = DeepCopier.copy(Arrays.asList("x", "y"));
+        assertThat(fixed, is(Arrays.asList("x", "y")));
+        assertThat(fixed.getClass(), is(sameInstance(Arrays.asList().getClass())));
+        fixed.set(0, "z");
+        try {
+            fixed.add("w");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertThat(fixed, is(Arrays.asList("z", "y")));
+        }
+        List<String> empty = DeepCopier.copy(Collections.<String>emptyList());
+        assertThat(empty.size(), is(0));
+
+        // #copy(Object) : EnumSet, EnumMap.
+        EnumSet<Thread.State> states = EnumSet.of(Thread.State.NEW, Thread.State.BLOCKED);
+        EnumSet<Thread.State> copiedStates = DeepCopier.copy(states);
+        assertThat(copiedStates, is(not(sameInstance(states))));
+        assertThat(copiedStates, is(states));
+        assertThat(DeepCopier.copy(EnumSet.noneOf(Thread.State.class)).isEmpty(), is(true));
+        EnumMap<Thread.State, DeepCopierTddTest.Node> byState = new EnumMap<>(Thread.State.class);
+        byState.put(Thread.State.RUNNABLE, first);
+        EnumMap<Thread.State, DeepCopierTddTest.Node> copiedByState = DeepCopier.copy(byState);
+        assertThat(copiedByState, is(instanceOf(EnumMap.class)));
+        assertThat(copiedByState.get(Thread.State.RUNNABLE).name, is("first"));
+        assertThat(copiedByState.get(Thread.State.RUNNABLE), is(not(sameInstance(first))));
+        EnumMap<Thread.State, Object> emptyByState = DeepCopier.copy(new EnumMap<>(Thread.State.class));
+        emptyByState.put(Thread.State.NEW, "new");
+        assertThat(emptyByState.get(Thread.State.NEW), is("new"));
+
+        // #copy(Object) : PriorityQueue のコンパレータ.
+        PriorityQueue<String> queue = new PriorityQueue<>(Comparator.reverseOrder());
+        queue.addAll(Arrays.asList("a", "c", "b"));
+        PriorityQueue<String> copiedQueue = DeepCopier.copy(queue);
+        assertThat(copiedQueue.comparator(), is(sameInstance(queue.comparator())));
+        assertThat(copiedQueue.poll(), is("c"));
+        PriorityBlockingQueue<String> blocking = new PriorityBlockingQueue<>(4, Comparator.reverseOrder());
+        blocking.addAll(Arrays.asList("a", "c", "b"));
+        PriorityBlockingQueue<String> copiedBlocking = DeepCopier.copy(blocking);
+        assertThat(copiedBlocking.comparator(), is(sameInstance(blocking.comparator())));
+        assertThat(copiedBlocking.poll(), is("c"));
+
+        // #copy(Object) : 変更不可能なコレクションは変更不可能なまま複製する.
+        List<DeepCopierTddTest.Node> unmodifiable = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(first)));
+        List<DeepCopierTddTest.Node> copiedUnmodifiable = DeepCopier.copy(unmodifiable);
+        assertThat(copiedUnmodifiable.get(0).name, is("first"));
+        assertThat(copiedUnmodifiable.get(0), is(not(sameInstance(first))));
+        try {
+            copiedUnmodifiable.add(first);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertThat(copiedUnmodifiable.size(), is(1));
+        }
+        Map<String, String> unmodifiableMap = DeepCopier.copy(Collections.unmodifiableMap(new HashMap<>()));
+        try {
+            unmodifiableMap.put("a", "b");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertThat(unmodifiableMap.isEmpty(), is(true));
+        }
+        SortedSet<String> unmodifiableSorted = DeepCopier.copy(Collections.unmodifiableSortedSet(sorted));
+        assertThat(unmodifiableSorted.first(), is("c"));
+        try {
+            unmodifiableSorted.add("d");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertThat(unmodifiableSorted.size(), is(3));
+        }
+
+        // #copy(Object) : 同期化されたコレクション及び型検査されたコレクションは同じ種類のラッパーとして複製する.
+        List<DeepCopierTddTest.Node> synchronizedList = Collections
+                .synchronizedList(new ArrayList<>(Arrays.asList(first)));
+        List<DeepCopierTddTest.Node> copiedSynchronized = DeepCopier.copy(synchronizedList);
+        assertThat(copiedSynchronized.getClass(), is(sameInstance(synchronizedList.getClass())));
+        assertThat(copiedSynchronized.get(0), is(not(sameInstance(first))));
+        List<String> checkedList = Collections.checkedList(new ArrayList<>(Arrays.asList("a")), String.class);
+        List<String> copiedCheckedList = DeepCopier.copy(checkedList);
+        assertThat(copiedCheckedList.getClass(), is(sameInstance(checkedList.getClass())));
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object> raw = (List<Object>) (List<?>) copiedCheckedList;
+            raw.add(1);
+            fail();
+        } catch (ClassCastException e) {
+            assertThat(copiedCheckedList, is(Arrays.asList("a")));
+        }
+        Map<String, Integer> checkedMap = Collections.checkedMap(new HashMap<>(), String.class, Integer.class);
+        Map<String, Integer> copiedCheckedMap = DeepCopier.copy(checkedMap);
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> raw = (Map<String, Object>) (Map<String, ?>) copiedCheckedMap;
+            raw.put("a", "b");
+            fail();
+        } catch (ClassCastException e) {
+            assertThat(copiedCheckedMap.isEmpty(), is(true));
+        }
+
+        // #copy(Object) : 生成時の設定 (KeySetView の値, アクセス順序, 容量) を引き継ぐ.
+        Set<String> keySet = ConcurrentHashMap.newKeySet();
+        keySet.add("a");
+        Set<String> copiedKeySet = DeepCopier.copy(keySet);
+        assertThat(copiedKeySet, is(instanceOf(ConcurrentHashMap.KeySetView.class)));
+        assertThat(copiedKeySet.add("b"), is(true));
+        assertThat(keySet, is(Collections.singleton("a")));
+        Set<String> fromMap = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        fromMap.add("a");
+        Set<String> copiedFromMap = DeepCopier.copy(fromMap);
+        assertThat(copiedFromMap.getClass(), is(sameInstance(fromMap.getClass())));
+        assertThat(copiedFromMap, is(fromMap));
+        LinkedHashMap<String, String> recent = new LinkedHashMap<>(4, 0.75f, true);
+        recent.put("a", "A");
+        recent.put("b", "B");
+        LinkedHashMap<String, String> copiedRecent = DeepCopier.copy(recent);
+        copiedRecent.get("a");
+        assertThat(copiedRecent.keySet().iterator().next(), is("b"));
+        ArrayBlockingQueue<String> bounded = new ArrayBlockingQueue<>(3);
+        bounded.add("a");
+        assertThat(DeepCopier.copy(bounded).remainingCapacity(), is(2));
+        LinkedBlockingQueue<String> linked = new LinkedBlockingQueue<>(5);
+        linked.add("a");
+        assertThat(DeepCopier.copy(linked).remainingCapacity(), is(4));
+
+        // #copy(Object) : 同じクラスのインスタンスを生成できないコレクション (他のコレクションのビュー) は例外.
+        for (Object view : Arrays.asList(new ArrayList<>(Arrays.asList("a", "b")).subList(0, 1),
+                new HashMap<>(Collections.singletonMap("a", "b")).keySet())) {
+            try {
+                DeepCopier.copy(view);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString(view.getClass().getName()));
+            }
+        }
+
+        // #copy(Object) : 公開されたコピーコンストラクタを持つ標準ライブラリのクラス.
+        AtomicInteger counter = new AtomicInteger(7);
+        AtomicInteger copiedCounter = DeepCopier.copy(counter);
+        assertThat(copiedCounter, is(not(sameInstance(counter))));
+        assertThat(copiedCounter.get(), is(7));
+        StringBuilder builder = new StringBuilder("text");
+        StringBuilder copiedBuilder = DeepCopier.copy(builder);
+        assertThat(copiedBuilder, is(not(sameInstance(builder))));
+        assertThat(copiedBuilder.toString(), is("text"));
+
+        // #copy(Object) : java.util.concurrent.atomic のクラスは値を深くコピーする.
+        DeepCopierTddTest.Published published = new DeepCopierTddTest.Published();
+        published.current.set(first);
+        published.hits.add(3);
+        DeepCopierTddTest.Published copiedPublished = DeepCopier.copy(published);
+        assertThat(copiedPublished.current, is(not(sameInstance(published.current))));
+        assertThat(copiedPublished.current.get(), is(not(sameInstance(first))));
+        assertThat(copiedPublished.current.get().name, is("first"));
+        assertThat(copiedPublished.hits.sum(), is(3L));
+        DeepCopierTddTest.Node previous = copiedPublished.current.get();
+        assertThat(DeepCopier.copyInto(published, copiedPublished), is(sameInstance(copiedPublished)));
+        assertThat(copiedPublished.current.get(), is(sameInstance(previous)));
+        assertThat(copiedPublished.hits.sum(), is(3L));
+
+        // #copy(Object) : 標準ライブラリのコレクションを継承したクラスは要素とサブクラスのフィールドをコピーする.
+        DeepCopierTddTest.Tagged tagged = new DeepCopierTddTest.Tagged();
+        tagged.set(0, first);
+        tagged.tag = "tag";
+        tagged.owner = first;
+        DeepCopierTddTest.Tagged copiedTagged = DeepCopier.copy(tagged);
+        assertThat(copiedTagged, is(instanceOf(DeepCopierTddTest.Tagged.class)));
+        assertThat(copiedTagged.size(), is(1));
+        assertThat(copiedTagged.get(0), is(not(sameInstance(first))));
+        assertThat(copiedTagged.get(0).name, is("first"));
+        assertThat(copiedTagged.owner, is(sameInstance(copiedTagged.get(0))));
+        assertThat(copiedTagged.tag, is("tag"));
+
+        // #copy(Object) : Optional は値を深くコピーして包み直す. 値を共有できる場合は Optional も共有する.
+        Optional<String> optional = Optional.of("value");
+        assertThat(DeepCopier.copy(optional), is(sameInstance(optional)));
+        assertThat(DeepCopier.copy(Optional.empty()), is(sameInstance(Optional.empty())));
+        Optional<List<StringBuilder>> mutable = Optional.of(new ArrayList<>(Arrays.asList(builder)));
+        Optional<List<StringBuilder>> copiedMutable = DeepCopier.copy(mutable);
+        assertThat(copiedMutable, is(not(sameInstance(mutable))));
+        assertThat(copiedMutable.get(), is(not(sameInstance(mutable.get()))));
+        assertThat(copiedMutable.get().get(0), is(not(sameInstance(builder))));
+        assertThat(copiedMutable.get().get(0).toString(), is("text"));
+        Object[] pairOfOptionals = { mutable, mutable };
+        Object[] copiedPair = DeepCopier.copy(pairOfOptionals);
+        assertThat(copiedPair[0], is(sameInstance(copiedPair[1])));
+
+        // #copy(Object) : 不変なクラス.
+        DeepCopierTddTest.Point point = new DeepCopierTddTest.Point(3);
+        assertThat(DeepCopier.copy(point), is(sameInstance(point)));
+        BigDecimal decimal = new BigDecimal("1.25");
+        assertThat(DeepCopier.copy(decimal), is(sameInstance(decimal)));
+        LocalDate date = LocalDate.of(2017, 1, 1);
+        assertThat(DeepCopier.copy(date), is(sameInstance(date)));
+        DeepCopierTddTest.Holder holder = new DeepCopierTddTest.Holder();
+        holder.point = point;
+        holder.points = new DeepCopierTddTest.Point[] { point, null };
+        holder.any = Arrays.asList(point, date);
+        DeepCopierTddTest.Holder copiedHolder = DeepCopier.copy(holder);
+        assertThat(copiedHolder.point, is(sameInstance(point)));
+        assertThat(copiedHolder.points, is(not(sameInstance(holder.points))));
+        assertThat(copiedHolder.points[0], is(sameInstance(point)));
+        assertThat(copiedHolder.any, is(not(sameInstance(holder.any))));
+        assertThat(((List<?>) copiedHolder.any).get(0), is(sameInstance(point)));
+        assertThat(((List<?>) copiedHolder.any).get(1), is(sameInstance(date)));
+
+        // #copyParallel(Object) : 小さなグラフ.
+        copy = DeepCopier.copyParallel(first);
+        assertThat(copy.next.next, is(sameInstance(copy)));
+
+        // #copyParallel(Object) : 大きなグラフ, 共有参照, 循環参照.
+        int size = DeepCopier.PARALLEL_THRESHOLD * 2;
+        List<DeepCopierTddTest.Node> nodes = new ArrayList<>();
+        DeepCopierTddTest.Node shared = new DeepCopierTddTest.Node("shared", 0);
+        DeepCopierTddTest.Node[] large = new DeepCopierTddTest.Node[size];
+        for (int index = 0; index < size; index++) {
+            large[index] = new DeepCopierTddTest.Node("node", index);
+            large[index].next = shared;
+            large[index].children.add(new DeepCopierTddTest.Node("leaf", -index));
+            nodes.add(large[index]);
+        }
+        shared.children = nodes;
+        DeepCopierTddTest.Node[] copiedLarge = DeepCopier.copyParallel(large);
+        DeepCopierTddTest.Node copiedShared = copiedLarge[0].next;
+        assertThat(copiedShared, is(not(sameInstance(shared))));
+        for (int index = 0; index < size; index++) {
+            assertThat(copiedLarge[index], is(not(sameInstance(large[index]))));
+            assertThat(copiedLarge[index].value, is(index));
+            assertThat(copiedLarge[index].next, is(sameInstance(copiedShared)));
+            assertThat(copiedLarge[index].children.get(0).value, is(-index));
+            assertThat(copiedShared.children.get(index), is(sameInstance(copiedLarge[index])));
+        }
+
+        // #copyParallel(Object, ForkJoinPool) : 共有された要素をコピーし終えてからハッシュで配置する.
+        DeepCopierTddTest.Key[] keys = new DeepCopierTddTest.Key[500];
+        for (int index = 0; index < keys.length; index++) {
+            keys[index] = new DeepCopierTddTest.Key(index + 1);
+        }
+        List<Object> hashed = new ArrayList<>();
+        for (int index = 0; index < DeepCopier.PARALLEL_THRESHOLD; index++) {
+            Set<DeepCopierTddTest.Key> set = new HashSet<>();
+            Map<DeepCopierTddTest.Key, Set<DeepCopierTddTest.Key>> map = new HashMap<>();
+            for (int offset = 0; offset < 8; offset++) {
+                set.add(keys[(index * 7 + offset) % keys.length]);
+            }
+            map.put(keys[index % keys.length], set);
+            hashed.add(index % 2 == 0 ? set : map);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Object> copiedHashed = DeepCopier.copyParallel(hashed, pool);
+            for (int index = 0; index < copiedHashed.size(); index++) {
+                Object element = copiedHashed.get(index);
+                assertThat(element, is(not(sameInstance(hashed.get(index)))));
+                assertThat(element, is(hashed.get(index)));
+                Set<?> set = element instanceof Set ? (Set<?>) element
+                        : (Set<?>) ((Map<?, ?>) element).get(keys[index % keys.length]);
+                for (Object key : set) {
+                    assertThat(set.contains(key), is(true));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // #copyInto(Object, Object) : 配列, コレクション, オブジェクトの再利用.
+        DeepCopierTddTest.Node state = new DeepCopierTddTest.Node("state", 1);
+        state.weights = new double[] { 1.0, 2.0 };
+        state.children.add(new DeepCopierTddTest.Node("child", 2));
+        state.next = state;
+        DeepCopierTddTest.Node buffer = DeepCopier.copy(state);
+        double[] weights = buffer.weights;
+        List<DeepCopierTddTest.Node> children = buffer.children;
+        DeepCopierTddTest.Node child = buffer.children.get(0);
+        state.weights[1] = 3.0;
+        state.children.get(0).weights = new double[] { 4.0 };
+        assertThat(DeepCopier.copyInto(state, buffer), is(sameInstance(buffer)));
+        assertThat(buffer.weights, is(sameInstance(weights)));
+        assertThat(buffer.weights[1], is(3.0));
+        assertThat(buffer.children, is(sameInstance(children)));
+        assertThat(buffer.children.get(0), is(sameInstance(child)));
+        assertThat(child.weights[0], is(4.0));
+        assertThat(child.weights, is(not(sameInstance(state.children.get(0).weights))));
+        assertThat(buffer.next, is(sameInstance(buffer)));
+
+        // #copyInto(Object, Object) : 形が一致しない場合は新しく生成する.
+        state.weights = new double[] { 5.0 };
+        state.children.add(new DeepCopierTddTest.Node("added", 3));
+        DeepCopier.copyInto(state, buffer);
+        assertThat(buffer.weights, is(not(sameInstance(weights))));
+        assertThat(buffer.weights[0], is(5.0));
+        assertThat(buffer.children, is(sameInstance(children)));
+        assertThat(buffer.children.size(), is(2));
+        assertThat(buffer.children.get(1).name, is("added"));
+        assertThat(buffer.children.get(1), is(not(sameInstance(state.children.get(1)))));
+
+        // #copyInto(Object, Object) : 反復子で要素を置き換えられないリスト, 固定長のリスト.
+        List<DeepCopierTddTest.Node> snapshot = new CopyOnWriteArrayList<>(Arrays.asList(state));
+        List<DeepCopierTddTest.Node> reusedSnapshot = DeepCopier.copy(snapshot);
+        DeepCopierTddTest.Node element = reusedSnapshot.get(0);
+        assertThat(DeepCopier.copyInto(snapshot, reusedSnapshot), is(sameInstance(reusedSnapshot)));
+        assertThat(reusedSnapshot.get(0), is(sameInstance(element)));
+        assertThat(reusedSnapshot.size(), is(1));
+        List<DeepCopierTddTest.Node> fixedNodes = Arrays.asList(state, new DeepCopierTddTest.Node("other", 4));
+        List<DeepCopierTddTest.Node> reusedFixed = DeepCopier.copy(fixedNodes);
+        element = reusedFixed.get(0);
+        assertThat(DeepCopier.copyInto(fixedNodes, reusedFixed), is(sameInstance(reusedFixed)));
+        assertThat(reusedFixed.get(0), is(sameInstance(element)));
+
+        // #copyInto(Object, Object) : 複製先の共有参照は 1 度だけ再利用する.
+        DeepCopierTddTest.Node left = new DeepCopierTddTest.Node("left", 0);
+        DeepCopierTddTest.Node right = new DeepCopierTddTest.Node("right", 0);
+        DeepCopierTddTest.Node pair = new DeepCopierTddTest.Node("pair", 0);
+        pair.children.add(left);
+        pair.children.add(right);
+        DeepCopierTddTest.Node aliased = DeepCopier.copy(pair);
+        aliased.children.set(1, aliased.children.get(0));
+        DeepCopier.copyInto(pair, aliased);
+        assertThat(aliased.children.get(0).name, is("left"));
+        assertThat(aliased.children.get(1).name, is("right"));
+        assertThat(aliased.children.get(0), is(not(sameInstance(aliased.children.get(1)))));
+
+        // #copy(Object) : final でないフィールドを持つ不変なクラス.
+        holder.broken = new DeepCopierTddTest.Broken();
+        this.thrown.expect(IllegalArgumentException.class);
+        DeepCopier.copy(holder);
+    }
+}
@@ -111,6 +111,33 @@ public class DeepCopyableTddTest {
         }
     }
 
+    /**
+     * Sample Class with a final field.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Keyed extends DeepCopyableTddTest.Sample {
+
+        /**
+         * Final Key.
+         */
+        final int key;
+
+        /**
+         * Constractor.
+         *
+         * @param inner
+         *            Inner String.
+         * @param key
+         *            Final Key.
+         */
+        public Keyed(String inner, int key) {
+            super(inner);
+            this.key = key;
+        }
+    }
+
     @Test
     public void test() {
 
@@ -122,6 +149,26 @@ public class DeepCopyableTddTest {
         assertThat(result.getClass() == instance.getClass(), is(true));
         assertThat(Objects.equals(result, instance), is(true));
         assertThat(result.inner != instance.inner, is(true));
+
+        // #deepcopyInto
+        DeepCopyableTddTest.Sample target = new DeepCopyableTddTest.Sample("other");
+        assertThat(instance.deepcopyInto(target), is(sameInstance(target)));
+        assertThat(Objects.equals(target, instance), is(true));
+
+        // #deepcopyInto : final なフィールドの値が同じ複製先は, final でないフィールドだけを書き換えて再利用する.
+        DeepCopyableTddTest.Keyed keyed = new DeepCopyableTddTest.Keyed("inner", 1);
+        DeepCopyableTddTest.Keyed same = new DeepCopyableTddTest.Keyed(null, 1);
+        assertThat(keyed.deepcopyInto(same), is(sameInstance(same)));
+        assertThat(Objects.equals(same, keyed), is(true));
+
+        // #deepcopyInto : final なフィールドの値が異なる複製先は変更せず, 複製を返す.
+        DeepCopyableTddTest.Keyed other = new DeepCopyableTddTest.Keyed(null, 2);
+        DeepCopyableTddTest.Sample copied = keyed.deepcopyInto(other);
+        assertThat(copied != other && copied != keyed, is(true));
+        assertThat(((DeepCopyableTddTest.Keyed) copied).key, is(1));
+        assertThat(Objects.equals(copied, keyed), is(true));
+        assertThat(other.key, is(2));
+        assertThat(other.inner, is(nullValue()));
     }
 
 }
@@ -0,0 +1,149 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link DeltaCopier} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class DeltaCopierTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Node {
+
+        /**
+         * Value.
+         */
+        int value;
+
+        /**
+         * Parent Node.
+         */
+        DeltaCopierTddTest.Node parent;
+
+        /**
+         * Children.
+         */
+        List<DeltaCopierTddTest.Node> children = new ArrayList<>();
+
+        /**
+         * Constractor.
+         *
+         * @param parent
+         *            Parent Node.
+         * @param value
+         *            Value.
+         */
+        Node(DeltaCopierTddTest.Node parent, int value) {
+            super();
+            this.parent = parent;
+            this.value = value;
+            if (parent != null) {
+                parent.children.add(this);
+            }
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Model {
+
+        /**
+         * Trees without back references.
+         */
+        List<DeltaCopierTddTest.Node> trees = new ArrayList<>();
+
+        /**
+         * Tree with back references.
+         */
+        DeltaCopierTddTest.Node cyclic;
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        DeltaCopierTddTest.Model model = new DeltaCopierTddTest.Model();
+        DeltaCopierTddTest.Node changing = new DeltaCopierTddTest.Node(null, 1);
+        DeltaCopierTddTest.Node stable = new DeltaCopierTddTest.Node(null, 2);
+        model.trees.add(changing);
+        model.trees.add(stable);
+        model.cyclic = new DeltaCopierTddTest.Node(null, 3);
+        new DeltaCopierTddTest.Node(model.cyclic, 4);
+        DeltaCopier<DeltaCopierTddTest.Model> copier = new DeltaCopier<>(model);
+        assertThat(copier.source(), is(sameInstance(model)));
+
+        // #deepclone()
+        DeltaCopierTddTest.Model first = copier.deepclone();
+        assertThat(first, is(not(sameInstance(model))));
+        assertThat(first.trees.get(0).value, is(1));
+        assertThat(first.cyclic.children.get(0).parent, is(sameInstance(first.cyclic)));
+
+        // #deepcloneDelta(Object) : 変更がない場合は全てを共有する.
+        DeltaCopierTddTest.Model second = copier.deepcloneDelta(first);
+        assertThat(second, is(sameInstance(first)));
+
+        // #markDirty(Object), #deepcloneDelta(Object) : 変更されたノードとその経路だけをコピーする.
+        changing.value = 10;
+        copier.markDirty(changing);
+        DeltaCopierTddTest.Model third = copier.deepcloneDelta(second);
+        assertThat(third, is(not(sameInstance(second))));
+        assertThat(third.trees, is(not(sameInstance(second.trees))));
+        assertThat(third.trees.get(0).value, is(10));
+        assertThat(second.trees.get(0).value, is(1));
+        assertThat(third.trees.get(1), is(sameInstance(second.trees.get(1))));
+        assertThat(third.cyclic, is(sameInstance(second.cyclic)));
+
+        // #deepcloneDelta(Object) : 循環の一部が変更された場合は循環全体をコピーする.
+        DeltaCopierTddTest.Node leaf = model.cyclic.children.get(0);
+        leaf.value = 40;
+        copier.markDirty(leaf);
+        DeltaCopierTddTest.Model fourth = copier.deepcloneDelta(third);
+        assertThat(fourth.cyclic, is(not(sameInstance(third.cyclic))));
+        assertThat(fourth.cyclic.children.get(0).value, is(40));
+        assertThat(fourth.cyclic.children.get(0).parent, is(sameInstance(fourth.cyclic)));
+        assertThat(third.cyclic.children.get(0).value, is(4));
+        assertThat(fourth.trees.get(0), is(sameInstance(third.trees.get(0))));
+
+        // #deepcloneDelta(Object) : 追加されたノード.
+        DeltaCopierTddTest.Node added = new DeltaCopierTddTest.Node(null, 5);
+        model.trees.add(added);
+        copier.markDirty(model.trees);
+        DeltaCopierTddTest.Model fifth = copier.deepcloneDelta(fourth);
+        assertThat(fifth.trees.size(), is(3));
+        assertThat(fifth.trees.get(2), is(not(sameInstance(added))));
+        assertThat(fifth.trees.get(2).value, is(5));
+        assertThat(fifth.trees.get(1), is(sameInstance(fourth.trees.get(1))));
+        assertThat(fourth.trees.size(), is(2));
+
+        // #deepcloneDelta(Object) : 前回のスナップショットでない場合.
+        this.thrown.expect(IllegalArgumentException.class);
+        copier.deepcloneDelta(fourth);
+    }
+}
@@ -0,0 +1,448 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import sp.base.Immutable;
+
+/**
+ * {@link GraphSnapshot} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class GraphSnapshotTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Temporary Folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @Immutable
+    static final class Point {
+
+        /**
+         * X.
+         */
+        final int x;
+
+        /**
+         * Y.
+         */
+        final double y;
+
+        /**
+         * Constractor.
+         *
+         * @param x
+         *            X.
+         * @param y
+         *            Y.
+         */
+        Point(int x, double y) {
+            super();
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Node {
+
+        /**
+         * Name.
+         */
+        String name;
+
+        /**
+         * Flags.
+         */
+        boolean flag;
+
+        /**
+         * Small value.
+         */
+        short small;
+
+        /**
+         * Letter.
+         */
+        char letter;
+
+        /**
+         * Count.
+         */
+        long count;
+
+        /**
+         * Ratio.
+         */
+        float ratio;
+
+        /**
+         * State.
+         */
+        Thread.State state;
+
+        /**
+         * Next Node.
+         */
+        GraphSnapshotTddTest.Node next;
+
+        /**
+         * Points.
+         */
+        GraphSnapshotTddTest.Point[] points;
+
+        /**
+         * Weights.
+         */
+        double[] weights;
+
+        /**
+         * Indexes.
+         */
+        int[] indexes;
+
+        /**
+         * Children.
+         */
+        List<GraphSnapshotTddTest.Node> children = new ArrayList<>();
+
+        /**
+         * Attributes.
+         */
+        Map<String, Object> attributes = new HashMap<>();
+
+        /**
+         * Sorted names.
+         */
+        TreeSet<String> sorted = new TreeSet<>(Comparator.reverseOrder());
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Holder {
+
+        /**
+         * Text.
+         */
+        String aa = "text";
+
+        /**
+         * Number.
+         */
+        Integer bb = 1;
+
+        /**
+         * Primitive number.
+         */
+        int cc = 2;
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Member {
+
+        /**
+         * Peers. 名前より先に読み込まれる.
+         */
+        Set<GraphSnapshotTddTest.Member> peers = new HashSet<>();
+
+        /**
+         * Name.
+         */
+        String name;
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.name);
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof GraphSnapshotTddTest.Member
+                    && Objects.equals(this.name, ((GraphSnapshotTddTest.Member) obj).name);
+        }
+    }
+
+    /**
+     * Test method.
+     *
+     * @throws IOException
+     *             I/O error.
+     */
+    @Test
+    public void test() throws IOException {
+        GraphSnapshotTddTest.Node root = new GraphSnapshotTddTest.Node();
+        root.name = "root あ";
+        root.flag = true;
+        root.small = -3;
+        root.letter = 'い';
+        root.count = Long.MIN_VALUE;
+        root.ratio = 0.5F;
+        root.state = Thread.State.BLOCKED;
+        GraphSnapshotTddTest.Point point = new GraphSnapshotTddTest.Point(-7, 1.5);
+        root.points = new GraphSnapshotTddTest.Point[] { point, point, null };
+        root.weights = new double[] { 0.25, -1.0, Double.NaN };
+        root.indexes = new int[] { 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        GraphSnapshotTddTest.Node child = new GraphSnapshotTddTest.Node();
+        child.name = "child";
+        child.next = root;
+        root.next = child;
+        root.children.add(child);
+        root.children.add(child);
+        root.attributes.put("decimal", new BigDecimal("12.50"));
+        root.attributes.put("date", LocalDate.of(2017, 6, 1));
+        root.attributes.put("self", root);
+        root.attributes.put("list", Arrays.asList(1, 2L, (short) 3, (byte) 4, 'c', 5.0F, 6.0, false));
+        root.sorted.addAll(Arrays.asList("a", "c", "b"));
+
+        // #toByteBuffer(Object), #read(ByteBuffer, Class)
+        ByteBuffer buffer = GraphSnapshot.toByteBuffer(root);
+        GraphSnapshotTddTest.Node copy = GraphSnapshot.read(buffer, GraphSnapshotTddTest.Node.class);
+        assertThat(buffer.hasRemaining(), is(false));
+        this.verify(root, copy);
+
+        // #write(Object, Path), #read(Path, Class)
+        Path file = this.folder.newFile("snapshot.bin").toPath();
+        GraphSnapshot.write(root, file);
+        this.verify(root, GraphSnapshot.read(file, GraphSnapshotTddTest.Node.class));
+
+        // #read(ByteBuffer, Class, Predicate) : 許可されたクラスだけを読み込む.
+        this.verify(root, GraphSnapshot.read(GraphSnapshot.toByteBuffer(root), GraphSnapshotTddTest.Node.class,
+                name -> name.startsWith("java.") || name.startsWith(GraphSnapshotTddTest.class.getName() + "$")));
+        try {
+            GraphSnapshot.read(GraphSnapshot.toByteBuffer(new GraphSnapshotTddTest.Holder[1]), Object.class,
+                    name -> name.startsWith("java."));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("GraphSnapshotTddTest$Holder;"));
+        }
+        try {
+            GraphSnapshot.read(GraphSnapshot.toByteBuffer(LocalDate.of(2017, 6, 1)), Object.class,
+                    name -> !name.startsWith("java.time."));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getCause(), is(instanceOf(InvalidClassException.class)));
+        }
+        assertThat(GraphSnapshot.read(GraphSnapshot.toByteBuffer(new int[] { 1 }), int[].class, name -> false)[0],
+                is(1));
+
+        // #read(ByteBuffer, Class) : ハッシュ値で配置するコンテナには要素を読み終えてから追加する.
+        GraphSnapshotTddTest.Member member = new GraphSnapshotTddTest.Member();
+        member.name = "member";
+        member.peers.add(member);
+        Map<Set<GraphSnapshotTddTest.Member>, GraphSnapshotTddTest.Member> byPeers = new HashMap<>();
+        byPeers.put(member.peers, member);
+        List<?> members = GraphSnapshot.read(GraphSnapshot.toByteBuffer(Arrays.asList(member, byPeers)), List.class);
+        GraphSnapshotTddTest.Member memberCopy = (GraphSnapshotTddTest.Member) members.get(0);
+        Map<?, ?> byPeersCopy = (Map<?, ?>) members.get(1);
+        assertThat(memberCopy, is(not(sameInstance(member))));
+        assertThat(memberCopy.peers.contains(memberCopy), is(true));
+        assertThat(byPeersCopy.get(memberCopy.peers), is(sameInstance(memberCopy)));
+
+        // NULL
+        assertThat(GraphSnapshot.read(GraphSnapshot.toByteBuffer(null), Object.class), is(nullValue()));
+
+        // EnumSet, EnumMap : 空の場合も要素の型を保つ.
+        EnumMap<Thread.State, Object> byState = new EnumMap<>(Thread.State.class);
+        List<Object> enums = Arrays.asList(EnumSet.of(Thread.State.NEW, Thread.State.BLOCKED),
+                EnumSet.noneOf(Thread.State.class), byState, new EnumMap<>(Thread.State.class));
+        byState.put(Thread.State.RUNNABLE, enums);
+        List<?> enumsCopy = GraphSnapshot.read(GraphSnapshot.toByteBuffer(enums), List.class);
+        assertThat(enumsCopy.get(0), is(enums.get(0)));
+        assertThat(enumsCopy.get(1), is(instanceOf(EnumSet.class)));
+        assertThat(enumsCopy.get(1), is(enums.get(1)));
+        assertThat(((EnumMap<?, ?>) enumsCopy.get(2)).get(Thread.State.RUNNABLE), is(sameInstance(enumsCopy)));
+        assertThat(enumsCopy.get(3), is(instanceOf(EnumMap.class)));
+        assertThat(enumsCopy.get(3), is(enums.get(3)));
+
+        // 型検査されたコレクション, アクセス順序の LinkedHashMap : 生成時の設定を保つ.
+        LinkedHashMap<String, String> recent = new LinkedHashMap<>(4, 0.75f, true);
+        recent.put("a", "A");
+        recent.put("b", "B");
+        List<Object> settings = Arrays.asList(Collections.checkedList(new ArrayList<>(), String.class), recent);
+        List<?> settingsCopy = GraphSnapshot.read(GraphSnapshot.toByteBuffer(settings), List.class);
+        assertThat(settingsCopy.get(0).getClass(), is(sameInstance(settings.get(0).getClass())));
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object> checked = (List<Object>) settingsCopy.get(0);
+            checked.add(1);
+            fail();
+        } catch (ClassCastException e) {
+            assertThat(((List<?>) settingsCopy.get(0)).isEmpty(), is(true));
+        }
+        Map<?, ?> recentCopy = (Map<?, ?>) settingsCopy.get(1);
+        recentCopy.get("a");
+        assertThat(recentCopy.keySet().iterator().next(), is("b"));
+
+        // #read(ByteBuffer, Class) : 型の変わったフィールド.
+        buffer = GraphSnapshot.toByteBuffer(new GraphSnapshotTddTest.Holder());
+        buffer.put(this.indexOf(buffer, "Holder#cc") + "Holder#cc".length(), (byte) 'J');
+        try {
+            GraphSnapshot.read(buffer, GraphSnapshotTddTest.Holder.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("Holder#cc"));
+        }
+
+        // #read(ByteBuffer, Class) : フィールドの型に代入できない値.
+        buffer = GraphSnapshot.toByteBuffer(new GraphSnapshotTddTest.Holder());
+        buffer.put(this.indexOf(buffer, "Holder#aa") + "Holder#a".length(), (byte) 'x');
+        buffer.put(this.indexOf(buffer, "Holder#bb") + "Holder#".length(), (byte) 'a');
+        buffer.put(this.indexOf(buffer, "Holder#ax") + "Holder#".length(), (byte) 'b');
+        buffer.put(this.indexOf(buffer, "Holder#bx") + "Holder#b".length(), (byte) 'b');
+        buffer.put(this.indexOf(buffer, "Holder#ab") + "Holder#a".length(), (byte) 'a');
+        try {
+            GraphSnapshot.read(buffer, GraphSnapshotTddTest.Holder.class);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("cannot assign"));
+        }
+
+        // #read(ByteBuffer, Class) : 残りのバイト数を超える長さは確保する前に拒否する.
+        byte[] huge = { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+        ByteBuffer string = ByteBuffer.allocate(16).putInt(0x53504753).put((byte) 1).put((byte) 2).put(huge);
+        ByteBuffer array = ByteBuffer.allocate(16).putInt(0x53504753).put((byte) 1).put((byte) 13).put((byte) 0)
+                .put((byte) 2).put("[J".getBytes(StandardCharsets.UTF_8)).put(huge);
+        for (ByteBuffer corrupted : new ByteBuffer[] { string, array }) {
+            corrupted.flip();
+            try {
+                GraphSnapshot.read(corrupted, Object.class);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString("exceeds the remaining"));
+            }
+        }
+
+        // #read(ByteBuffer, Class) : 壊れたスナップショット.
+        buffer = GraphSnapshot.toByteBuffer(root);
+        buffer.limit(buffer.limit() / 2);
+        this.thrown.expect(IllegalArgumentException.class);
+        GraphSnapshot.read(buffer, GraphSnapshotTddTest.Node.class);
+    }
+
+    /**
+     * スナップショット中の文字列の位置を返す.
+     *
+     * @param buffer
+     *            スナップショット.
+     * @param text
+     *            文字列.
+     * @return 位置.
+     */
+    private int indexOf(ByteBuffer buffer, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int returnValue = -1;
+        for (int index = 0; returnValue < 0 && index + bytes.length <= buffer.limit(); index++) {
+            boolean matched = true;
+            for (int offset = 0; matched && offset < bytes.length; offset++) {
+                matched = buffer.get(index + offset) == bytes[offset];
+            }
+            returnValue = matched ? index : -1;
+        }
+        assertThat(returnValue >= 0, is(true));
+        return returnValue;
+    }
+
+    /**
+     * 復元されたオブジェクトグラフを検証する.
+     *
+     * @param root
+     *            元のオブジェクト.
+     * @param copy
+     *            復元されたオブジェクト.
+     */
+    private void verify(GraphSnapshotTddTest.Node root, GraphSnapshotTddTest.Node copy) {
+        assertThat(copy, is(not(sameInstance(root))));
+        assertThat(copy.name, is(root.name));
+        assertThat(copy.flag, is(true));
+        assertThat(copy.small, is((short) -3));
+        assertThat(copy.letter, is('い'));
+        assertThat(copy.count, is(Long.MIN_VALUE));
+        assertThat(copy.ratio, is(0.5F));
+        assertThat(copy.state, is(Thread.State.BLOCKED));
+        assertThat(copy.points[0].x, is(-7));
+        assertThat(copy.points[0].y, is(1.5));
+        assertThat(copy.points[1], is(sameInstance(copy.points[0])));
+        assertThat(copy.points[2], is(nullValue()));
+        assertThat(copy.weights[0], is(0.25));
+        assertThat(copy.weights[1], is(-1.0));
+        assertThat(Double.isNaN(copy.weights[2]), is(true));
+        assertThat(Arrays.equals(copy.indexes, root.indexes), is(true));
+        assertThat(copy.next.name, is("child"));
+        assertThat(copy.next.next, is(sameInstance(copy)));
+        assertThat(copy.children.get(0), is(sameInstance(copy.next)));
+        assertThat(copy.children.get(1), is(sameInstance(copy.next)));
+        assertThat(copy.attributes.get("decimal"), is(new BigDecimal("12.50")));
+        assertThat(copy.attributes.get("date"), is(LocalDate.of(2017, 6, 1)));
+        assertThat(copy.attributes.get("self"), is(sameInstance(copy)));
+        assertThat(copy.attributes.get("list"), is(root.attributes.get("list")));
+        assertThat(new ArrayList<>(copy.sorted), is(Arrays.asList("c", "b", "a")));
+        assertThat(copy.next.sorted.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,159 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.base.Immutable;
+import sp.util.function.FunctionWithThrown;
+
+/**
+ * {@link Interner} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class InternerTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @Immutable
+    static final class Point {
+
+        /**
+         * X.
+         */
+        final int x;
+
+        /**
+         * Y.
+         */
+        final int y;
+
+        /**
+         * Constractor.
+         *
+         * @param x
+         *            X.
+         * @param y
+         *            Y.
+         */
+        Point(int x, int y) {
+            super();
+            this.x = x;
+            this.y = y;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object target) {
+            return target instanceof InternerTddTest.Point && ((InternerTddTest.Point) target).x == this.x
+                    && ((InternerTddTest.Point) target).y == this.y;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return 31 * this.x + this.y;
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Mutable {
+
+        /**
+         * Value.
+         */
+        int value;
+    }
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Exception.
+     */
+    @Test
+    public void test() throws Exception {
+        Interner<InternerTddTest.Point> interner = Interner.of();
+
+        // #intern(Object) : 等しいインスタンスを代表インスタンスにまとめる.
+        InternerTddTest.Point first = new InternerTddTest.Point(1, 2);
+        assertThat(interner.intern(first), is(sameInstance(first)));
+        assertThat(interner.intern(new InternerTddTest.Point(1, 2)), is(sameInstance(first)));
+        assertThat(interner.intern(new InternerTddTest.Point(2, 1)), is(not(sameInstance(first))));
+        List<InternerTddTest.Point> points = new ArrayList<>();
+        for (int index = 0; index < 10000; index++) {
+            points.add(interner.intern(new InternerTddTest.Point(index % 100, 0)));
+        }
+        assertThat(points.get(100), is(sameInstance(points.get(0))));
+        assertThat(interner.size() >= 101, is(true));
+
+        // #spread(int) : 下位ビットが揃ったハッシュ値もバケットとストライプに散らばる.
+        for (int shift : new int[] { 0, 16, 20, 22 }) {
+            Set<Integer> buckets = new HashSet<>();
+            Set<Integer> stripes = new HashSet<>();
+            for (int index = 0; index < 1024; index++) {
+                buckets.add(Interner.spread(index << shift) & 1023);
+                stripes.add(Interner.spread(index << shift) >>> 28);
+            }
+            assertThat(buckets.size() > 512, is(true));
+            assertThat(stripes.size(), is(16));
+        }
+
+        // #of(ToIntFunction, BiPredicate) : 指定された関数で比較する.
+        Interner<String> lengths = Interner.of(String::length, (left, right) -> left.length() == right.length());
+        assertThat(lengths.intern("abc"), is("abc"));
+        assertThat(lengths.intern("xyz"), is("abc"));
+
+        // #apply(Object) : 写像に合成する.
+        Interner<String> strings = Interner.of();
+        FunctionWithThrown.OfObj<Integer, String, RuntimeException> mapper = String::valueOf;
+        String canonical = mapper.andThenFunction(strings).apply(12345);
+        assertThat(mapper.andThenFunction(strings).apply(12345), is(sameInstance(canonical)));
+
+        // #intern(Object) : 参照されなくなった代表インスタンスは回収される.
+        points.clear();
+        first = null;
+        for (int count = 0; count < 50 && interner.size() > 0; count++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(interner.size(), is(0));
+
+        // #intern(Object) : 不変でないクラス.
+        this.thrown.expect(IllegalArgumentException.class);
+        Interner.<InternerTddTest.Mutable> of().intern(new InternerTddTest.Mutable());
+    }
+}
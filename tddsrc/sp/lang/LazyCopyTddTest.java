@@ -0,0 +1,122 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link LazyCopy} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class LazyCopyTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Node {
+
+        /**
+         * Name.
+         */
+        String name;
+
+        /**
+         * Value.
+         */
+        int value;
+
+        /**
+         * Next Node.
+         */
+        LazyCopyTddTest.Node next;
+
+        /**
+         * Children.
+         */
+        List<LazyCopyTddTest.Node> children = new ArrayList<>();
+
+        /**
+         * Constractor.
+         *
+         * @param name
+         *            Name.
+         * @param value
+         *            Value.
+         */
+        Node(String name, int value) {
+            super();
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        LazyCopyTddTest.Node root = new LazyCopyTddTest.Node("root", 0);
+        LazyCopyTddTest.Node first = new LazyCopyTddTest.Node("first", 1);
+        LazyCopyTddTest.Node second = new LazyCopyTddTest.Node("second", 2);
+        root.children.add(first);
+        root.children.add(second);
+        root.next = first;
+        first.next = root;
+        LazyCopy<LazyCopyTddTest.Node> lazy = LazyCopy.of(root);
+        assertThat(lazy.source(), is(sameInstance(root)));
+
+        // #snapshot(), Node#child(String), Node#child(int), Node#value(String, Class) : 遅延コピー.
+        LazyCopy.Node<LazyCopyTddTest.Node> snapshot = lazy.snapshot();
+        assertThat(lazy.pending(), is(1));
+        assertThat(snapshot.value("value", Integer.class), is(0));
+        assertThat(snapshot.child("children").child(1).value("name", String.class), is("second"));
+        LazyCopy.Node<LazyCopyTddTest.Node> next = snapshot.child("next");
+        LazyCopyTddTest.Node copiedFirst = next.get();
+        assertThat(copiedFirst, is(not(sameInstance(first))));
+        assertThat(copiedFirst.name, is("first"));
+        assertThat(next.get(), is(sameInstance(copiedFirst)));
+        assertThat(copiedFirst.next, is(not(sameInstance(root))));
+        assertThat(snapshot.get(), is(sameInstance(copiedFirst.next)));
+        assertThat(snapshot.get().children.get(0), is(sameInstance(copiedFirst)));
+        assertThat(snapshot.child("children").child(0).get(), is(sameInstance(copiedFirst)));
+
+        // #beforeWrite() : 元のオブジェクトの変更からの隔離.
+        LazyCopy.Node<LazyCopyTddTest.Node> untouched = lazy.snapshot();
+        LazyCopy.Node<LazyCopyTddTest.Node> child = untouched.child("children").child(1);
+        lazy.beforeWrite();
+        assertThat(lazy.pending(), is(0));
+        second.name = "changed";
+        root.value = 10;
+        root.next = null;
+        assertThat(child.value("name", String.class), is("second"));
+        assertThat(untouched.value("value", Integer.class), is(0));
+        assertThat(untouched.child("next").isNull(), is(false));
+        assertThat(untouched.child("next").child("next").get(), is(sameInstance(untouched.get())));
+        assertThat(lazy.snapshot().child("next").isNull(), is(true));
+
+        // Node#get() : 複製への変更はノードから参照できる.
+        untouched.get().value = 20;
+        assertThat(untouched.value("value", Integer.class), is(20));
+
+        // Node#child(String) : 存在しないフィールド.
+        this.thrown.expect(IllegalArgumentException.class);
+        snapshot.child("value");
+    }
+}
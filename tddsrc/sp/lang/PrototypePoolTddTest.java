@@ -0,0 +1,78 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link PrototypePool} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class PrototypePoolTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class State {
+
+        /**
+         * Values.
+         */
+        int[] values = new int[4];
+
+        /**
+         * Step.
+         */
+        long step;
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        PrototypePoolTddTest.State prototype = new PrototypePoolTddTest.State();
+        prototype.values[0] = 1;
+        PrototypePool<PrototypePoolTddTest.State> pool = new PrototypePool<>(prototype, 1);
+        assertThat(pool.prototype(), is(sameInstance(prototype)));
+
+        // #acquire() : 新しく生成する.
+        PrototypePoolTddTest.State first = pool.acquire();
+        assertThat(first, is(not(sameInstance(prototype))));
+        assertThat(first.values, is(not(sameInstance(prototype.values))));
+        assertThat(first.values[0], is(1));
+        first.values[0] = 10;
+        first.step = 10L;
+        int[] values = first.values;
+
+        // #release(Object), #acquire() : 返却されたインスタンスを原型の状態に戻して再利用する.
+        PrototypePoolTddTest.State second = pool.acquire();
+        assertThat(pool.release(first), is(true));
+        assertThat(pool.release(second), is(false));
+        assertThat(pool.size(), is(1));
+        PrototypePoolTddTest.State reused = pool.acquire();
+        assertThat(reused, is(sameInstance(first)));
+        assertThat(reused.values, is(sameInstance(values)));
+        assertThat(reused.values[0], is(1));
+        assertThat(reused.step, is(0L));
+        assertThat(pool.size(), is(0));
+
+        // #release(Object) : 原型自身.
+        this.thrown.expect(IllegalArgumentException.class);
+        pool.release(prototype);
+    }
+}
@@ -97,6 +97,33 @@ public class ShallowCopyableTddTest {
         }
     }
 
+    /**
+     * Sample Class with a final field.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Keyed extends ShallowCopyableTddTest.Sample {
+
+        /**
+         * Final Key.
+         */
+        final int key;
+
+        /**
+         * Constractor.
+         *
+         * @param inner
+         *            Inner Object.
+         * @param key
+         *            Final Key.
+         */
+        public Keyed(Object inner, int key) {
+            super(inner);
+            this.key = key;
+        }
+    }
+
     @Test
     public void test() {
 
@@ -107,6 +134,26 @@ public class ShallowCopyableTddTest {
         assertThat(result != instance, is(true));
         assertThat(result.getClass() == instance.getClass(), is(true));
         assertThat(Objects.equals(result, instance), is(true));
+
+        // #copyInto
+        ShallowCopyableTddTest.Sample target = new ShallowCopyableTddTest.Sample(new Object());
+        assertThat(instance.copyInto(target), is(sameInstance(target)));
+        assertThat(Objects.equals(target, instance), is(true));
+
+        // #copyInto : final なフィールドの値が同じ複製先は, final でないフィールドだけを書き換えて再利用する.
+        ShallowCopyableTddTest.Keyed keyed = new ShallowCopyableTddTest.Keyed(new Object(), 1);
+        ShallowCopyableTddTest.Keyed same = new ShallowCopyableTddTest.Keyed(null, 1);
+        assertThat(keyed.copyInto(same), is(sameInstance(same)));
+        assertThat(Objects.equals(same, keyed), is(true));
+
+        // #copyInto : final なフィールドの値が異なる複製先は変更せず, 複製を返す.
+        ShallowCopyableTddTest.Keyed other = new ShallowCopyableTddTest.Keyed(null, 2);
+        ShallowCopyableTddTest.Sample copied = keyed.copyInto(other);
+        assertThat(copied != other && copied != keyed, is(true));
+        assertThat(((ShallowCopyableTddTest.Keyed) copied).key, is(1));
+        assertThat(Objects.equals(copied, keyed), is(true));
+        assertThat(other.key, is(2));
+        assertThat(other.inner, is(nullValue()));
     }
 
 }
@@ -0,0 +1,186 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link SizeEstimator} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class SizeEstimatorTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Point {
+
+        /**
+         * X.
+         */
+        int x;
+
+        /**
+         * Y.
+         */
+        int y;
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Stamp {
+
+        /**
+         * Time.
+         */
+        long time;
+
+        /**
+         * Flag.
+         */
+        byte flag;
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Node {
+
+        /**
+         * Next.
+         */
+        SizeEstimatorTddTest.Node next;
+
+        /**
+         * Values.
+         */
+        int[] values;
+
+        /**
+         * Kind.
+         */
+        Thread.State kind = Thread.State.NEW;
+    }
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        SizeEstimator compressed = SizeEstimator.of(true, true, 8);
+        SizeEstimator wide = SizeEstimator.of(false, false, 8);
+
+        // #current() : 実行中の JVM の設定.
+        assertThat(SizeEstimator.current(), is(sameInstance(SizeEstimator.current())));
+        assertThat(SizeEstimator.current().alignment() >= 8, is(true));
+
+        // #referenceSize(), #headerSize(), #arrayHeaderSize() : 圧縮ポインタの設定に従う.
+        assertThat(compressed.isCompressedOops(), is(true));
+        assertThat(compressed.referenceSize(), is(4));
+        assertThat(compressed.headerSize(), is(12));
+        assertThat(compressed.arrayHeaderSize(), is(16));
+        assertThat(wide.referenceSize(), is(8));
+        assertThat(wide.headerSize(), is(16));
+        assertThat(wide.arrayHeaderSize(), is(24));
+
+        // #instanceSize(Class) : フィールドの配置とアライメント.
+        assertThat(compressed.instanceSize(Object.class), is(16L));
+        assertThat(compressed.instanceSize(SizeEstimatorTddTest.Point.class), is(24L));
+        assertThat(compressed.instanceSize(SizeEstimatorTddTest.Stamp.class), is(24L));
+        assertThat(compressed.instanceSize(SizeEstimatorTddTest.Node.class), is(24L));
+        assertThat(wide.instanceSize(SizeEstimatorTddTest.Node.class), is(40L));
+        assertThat(SizeEstimator.of(true, true, 16).instanceSize(SizeEstimatorTddTest.Point.class), is(32L));
+
+        // #arraySize(Class, int), #shallowSizeOf(Object) : 配列.
+        assertThat(compressed.arraySize(int.class, 3), is(32L));
+        assertThat(wide.arraySize(Object.class, 2), is(40L));
+        assertThat(compressed.shallowSizeOf(new long[2]), is(32L));
+        assertThat(compressed.shallowSizeOf(null), is(0L));
+
+        // #reachableSizeOf(Object), #measure(Object) : 循環及び共有は 1 度だけ数え, 列挙型の定数は数えない.
+        SizeEstimatorTddTest.Node first = new SizeEstimatorTddTest.Node();
+        SizeEstimatorTddTest.Node second = new SizeEstimatorTddTest.Node();
+        first.next = second;
+        second.next = first;
+        first.values = new int[3];
+        second.values = first.values;
+        assertThat(compressed.reachableSizeOf(first), is(24L + 24L + 32L));
+        SizeEstimator.Footprint footprint = compressed.measure(first);
+        assertThat(footprint.objects(), is(3L));
+        assertThat(footprint.objectsOf(SizeEstimatorTddTest.Node.class), is(2L));
+        assertThat(footprint.bytesOf(int[].class), is(32L));
+        assertThat(footprint.bytesOf(Thread.State.class), is(0L));
+        assertThat(footprint.classes().get(0), is(equalTo(SizeEstimatorTddTest.Node.class)));
+        assertThat(compressed.reachableSizeOf(null), is(0L));
+
+        // #retention(Object) : 支配木による保持サイズ. 共有されたオブジェクトは共通の支配者が保持する.
+        SizeEstimatorTddTest.Node root = new SizeEstimatorTddTest.Node();
+        SizeEstimatorTddTest.Node middle = new SizeEstimatorTddTest.Node();
+        SizeEstimatorTddTest.Node leaf = new SizeEstimatorTddTest.Node();
+        root.next = middle;
+        middle.next = leaf;
+        leaf.next = middle;
+        root.values = new int[3];
+        middle.values = root.values;
+        leaf.values = new int[1];
+        SizeEstimator.Retention retention = compressed.retention(root);
+        assertThat(retention.objects(), is(5));
+        assertThat(retention.shallowSizeOf(leaf), is(24L));
+        assertThat(retention.retainedSizeOf(leaf), is(24L + 24L));
+        assertThat(retention.retainedSizeOf(middle), is(24L + 24L + 24L));
+        assertThat(retention.retainedSizeOf(root.values), is(32L));
+        assertThat(retention.retainedSizeOf(root), is(compressed.reachableSizeOf(root)));
+        assertThat(retention.bytes(), is(24L + 72L + 32L));
+        assertThat(retention.dominatorOf(root.values), is(sameInstance((Object) root)));
+        assertThat(retention.dominatorOf(leaf.values), is(sameInstance((Object) leaf)));
+        assertThat(retention.dominatorOf(root), nullValue());
+        assertThat(retention.retainedSizeOf(new Object()), is(0L));
+        assertThat(retention.largest(2), is(Arrays.asList(root, middle)));
+        assertThat(compressed.retention(null).bytes(), is(0L));
+
+        // #reachableSizeOf(Object) : フィールドを辿れない標準ライブラリのクラスの内部を含む.
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int index = 0; index < 3; index++) {
+            map.put(index, index);
+        }
+        assertThat(compressed.reachableSizeOf(map),
+                is(compressed.instanceSize(HashMap.class) + compressed.arraySize(Object.class, 16)
+                        + 3 * compressed.instanceSize(Class.forName("java.util.HashMap$Node"))
+                        + 3 * compressed.instanceSize(Integer.class)));
+        Class<?> component = String.class.getDeclaredField("value").getType().getComponentType();
+        assertThat(compressed.reachableSizeOf("abc"),
+                is(compressed.instanceSize(String.class) + compressed.arraySize(component, 3)));
+
+        // #instanceSize(Class) : 配列.
+        this.thrown.expect(IllegalArgumentException.class);
+        compressed.instanceSize(int[].class);
+    }
+}
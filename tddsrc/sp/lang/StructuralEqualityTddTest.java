@@ -0,0 +1,207 @@
+package sp.lang;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.base.Immutable;
+
+/**
+ * {@link StructuralEquality} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class StructuralEqualityTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Base {
+
+        /**
+         * Name.
+         */
+        String name;
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static class Composite extends StructuralEqualityTddTest.Base {
+
+        /**
+         * Id.
+         */
+        int id;
+
+        /**
+         * Flag.
+         */
+        char flag;
+
+        /**
+         * Ratio.
+         */
+        double ratio;
+
+        /**
+         * Values.
+         */
+        long[] values;
+
+        /**
+         * Cache.
+         */
+        transient Object cache;
+
+        /**
+         * Constractor.
+         *
+         * @param name
+         *            Name.
+         * @param id
+         *            Id.
+         */
+        Composite(String name, int id) {
+            super();
+            this.name = name;
+            this.id = id;
+            this.values = new long[] { id };
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    @Immutable
+    static final class Key {
+
+        /**
+         * Left.
+         */
+        final int left;
+
+        /**
+         * Right.
+         */
+        final int right;
+
+        /**
+         * Hash.
+         */
+        @StructuralEquality.HashCache
+        final long hash;
+
+        /**
+         * Constractor.
+         *
+         * @param left
+         *            Left.
+         * @param right
+         *            Right.
+         */
+        Key(int left, int right) {
+            super();
+            this.left = left;
+            this.right = right;
+            this.hash = StructuralEquality.hash64(this);
+        }
+    }
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Invalid {
+
+        /**
+         * Hash.
+         */
+        @StructuralEquality.HashCache
+        long hash;
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        // #equals(Object, Object) : スーパークラスを含む全てのフィールドを比較し, transient を除く.
+        StructuralEqualityTddTest.Composite first = new StructuralEqualityTddTest.Composite("a", 1);
+        StructuralEqualityTddTest.Composite second = new StructuralEqualityTddTest.Composite("a", 1);
+        second.cache = new Object();
+        assertThat(StructuralEquality.equals(first, second), is(true));
+        assertThat(StructuralEquality.hash64(first), is(StructuralEquality.hash64(second)));
+        assertThat(StructuralEquality.hashCode(first), is(StructuralEquality.hashCode(second)));
+        second.values[0] = 2;
+        assertThat(StructuralEquality.equals(first, second), is(false));
+        second.values[0] = 1;
+        second.name = "b";
+        assertThat(StructuralEquality.equals(first, second), is(false));
+        second.name = "a";
+        second.ratio = -0.0;
+        assertThat(StructuralEquality.equals(first, second), is(false));
+        second.ratio = 0.0;
+        second.flag = 'x';
+        assertThat(StructuralEquality.equals(first, second), is(false));
+        assertThat(StructuralEquality.equals(first, null), is(false));
+        assertThat(StructuralEquality.equals(null, null), is(true));
+        assertThat(StructuralEquality.hash64(null), is(0L));
+
+        // #equals(Object, Object) : 配列及び標準ライブラリのクラス.
+        assertThat(StructuralEquality.equals(new int[] { 1, 2 }, new int[] { 1, 2 }), is(true));
+        assertThat(StructuralEquality.hash64(new int[] { 1, 2 }), is(StructuralEquality.hash64(new int[] { 1, 2 })));
+        assertThat(StructuralEquality.equals("abc", new String("abc")), is(true));
+        assertThat(StructuralEquality.equals(1, 1L), is(false));
+
+        // #hash64(Object) : 複合キーでも下位ビットが偏らない.
+        int[] buckets = new int[1024];
+        for (int left = 0; left < 128; left++) {
+            for (int right = 0; right < 128; right++) {
+                buckets[(int) StructuralEquality.hash64(new StructuralEqualityTddTest.Key(left, right)) & 1023]++;
+            }
+        }
+        int max = 0;
+        for (int bucket : buckets) {
+            max = Math.max(max, bucket);
+        }
+        assertThat(max < 40, is(true));
+
+        // StructuralEquality.HashCache : キャッシュされたハッシュ値.
+        StructuralEqualityTddTest.Key key = new StructuralEqualityTddTest.Key(3, 4);
+        assertThat(key.hash, is(not(0L)));
+        assertThat(StructuralEquality.hash64(key), is(key.hash));
+        assertThat(StructuralEquality.equals(key, new StructuralEqualityTddTest.Key(3, 4)), is(true));
+        assertThat(StructuralEquality.equals(key, new StructuralEqualityTddTest.Key(4, 3)), is(false));
+
+        // #interner() : 構造的な等価性でインターンする.
+        Interner<StructuralEqualityTddTest.Key> interner = StructuralEquality.interner();
+        assertThat(interner.intern(new StructuralEqualityTddTest.Key(5, 6)),
+                is(sameInstance(interner.intern(new StructuralEqualityTddTest.Key(5, 6)))));
+
+        // #hash64(Object) : Immutable でないクラスのハッシュ値のキャッシュ.
+        this.thrown.expect(IllegalArgumentException.class);
+        StructuralEquality.hash64(new StructuralEqualityTddTest.Invalid());
+    }
+}
@@ -0,0 +1,89 @@
+package sp.nio;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link MappedRecordReader} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class MappedRecordReaderTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #readLongs
+        this.thrown.expect(NumberFormatException.class);
+        this.thrown.expectMessage("test");
+
+        // #newlineDelimited, #read
+        Path lines = this.folder.newFile().toPath();
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < 10000; index++) {
+            text.append(index).append(index % 2 == 0 ? "\n" : "\r\n");
+        }
+        text.append("last");
+        Files.write(lines, text.toString().getBytes(StandardCharsets.UTF_8));
+        MappedRecordReader instance = MappedRecordReader.newlineDelimited(lines).chunkSize(100);
+        List<String> result = instance.<String, RuntimeException> read(
+                record -> StandardCharsets.UTF_8.decode(record).toString());
+        assertThat(result.size(), is(10001));
+        assertThat(result.get(0), is("0"));
+        assertThat(result.get(9999), is("9999"));
+        assertThat(result.get(10000), is("last"));
+
+        // #readLongs
+        long[] longs = instance.<RuntimeException> readLongs(record -> record.remaining());
+        assertThat(longs.length, is(10001));
+        assertThat(longs[1234], is(4L));
+
+        // #fixedWidth
+        Path fixed = this.folder.newFile().toPath();
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1000);
+        for (int index = 0; index < 1000; index++) {
+            buffer.putLong(index * 3L);
+        }
+        Files.write(fixed, buffer.array());
+        longs = MappedRecordReader.fixedWidth(fixed, 8).chunkSize(1000)
+                .<RuntimeException> readLongs(record -> record.getLong(record.position()));
+        assertThat(longs.length, is(1000));
+        assertThat(longs[999], is(2997L));
+        try {
+            MappedRecordReader.fixedWidth(fixed, 7).<RuntimeException> readLongs(record -> 0);
+            fail();
+        } catch (IOException e) {
+            assertThat(e, notNullValue());
+        }
+
+        // #read (empty)
+        assertThat(MappedRecordReader.newlineDelimited(this.folder.newFile().toPath())
+                .<Object, RuntimeException> read(record -> record).isEmpty(), is(true));
+
+        // #readLongs
+        Files.write(lines, Arrays.asList("1", "test", "3"), StandardCharsets.UTF_8);
+        MappedRecordReader.newlineDelimited(lines).<NumberFormatException> readLongs(
+                record -> Long.parseLong(StandardCharsets.UTF_8.decode(record).toString()));
+    }
+
+}
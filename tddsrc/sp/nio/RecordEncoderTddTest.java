@@ -0,0 +1,92 @@
+package sp.nio;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link RecordEncoder} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class RecordEncoderTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #write
+        this.thrown.expect(NumberFormatException.class);
+        this.thrown.expectMessage("test");
+
+        // CSV
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        RecordEncoder<String, NumberFormatException> csv = new RecordEncoder<String, NumberFormatException>(
+                RecordEncoder.Format.CSV).toInt("int", target -> Integer.parseInt(target))
+                        .toLong("long", target -> Long.parseLong(target) * -1)
+                        .toDouble("double", target -> Double.parseDouble(target) / 4)
+                        .toObj("text", target -> target + ",\"x\"");
+        RecordEncoder<String, NumberFormatException>.Output output = csv.open(Channels.newChannel(stream));
+        output.writeHeader();
+        output.writeAll(Arrays.asList("1", "-20"));
+        output.flush();
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8),
+                is("int,long,double,text\n1,-1,0.25,\"1,\"\"x\"\"\"\n-20,20,-5,\"-20,\"\"x\"\"\"\n"));
+
+        // TSV
+        stream.reset();
+        RecordEncoder<String, RuntimeException> tsv = new RecordEncoder<String, RuntimeException>(
+                RecordEncoder.Format.TSV).toObj("text", target -> target).toLong("min", target -> Long.MIN_VALUE);
+        RecordEncoder<String, RuntimeException>.Output tsvOutput = tsv.open(Channels.newChannel(stream));
+        tsvOutput.write("a\tb\\c\u3042");
+        tsvOutput.flush();
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8),
+                is("a\\tb\\\\c\u3042\t-9223372036854775808\n"));
+
+        // JSON_LINES
+        stream.reset();
+        RecordEncoder<String, RuntimeException> json = new RecordEncoder<String, RuntimeException>(
+                RecordEncoder.Format.JSON_LINES).toObj("text", target -> target.isEmpty() ? null : target)
+                        .toDouble("nan", target -> Double.NaN).toObj("flag", target -> true);
+        RecordEncoder<String, RuntimeException>.Output jsonOutput = json.open(Channels.newChannel(stream));
+        jsonOutput.write("\"q\"\n\uD83D\uDE00");
+        jsonOutput.write("");
+        jsonOutput.flush();
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8),
+                is("{\"text\":\"\\\"q\\\"\\u000a\uD83D\uDE00\",\"nan\":null,\"flag\":true}\n"
+                        + "{\"text\":null,\"nan\":null,\"flag\":true}\n"));
+
+        // #open (small buffer)
+        stream.reset();
+        output = csv.open(Channels.newChannel(stream), 64);
+        List<String> source = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int index = 0; index < 1000; index++) {
+            source.add(Integer.toString(index));
+            String quarter = index % 4 == 0 ? Integer.toString(index / 4) : Double.toString(index / 4.0);
+            expected.append(index).append(',').append(-index).append(',').append(quarter).append(",\"").append(index)
+                    .append(",\"\"x\"\"\"\n");
+        }
+        output.writeAll(source);
+        output.flush();
+        assertThat(new String(stream.toByteArray(), StandardCharsets.UTF_8), is(expected.toString()));
+
+        // #write
+        output.write("test");
+    }
+
+}
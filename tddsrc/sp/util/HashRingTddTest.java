@@ -0,0 +1,72 @@
+package sp.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link HashRing} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class HashRingTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        // #of(int), #shardOf(long) : ハッシュ値をおおよそ均等に割り当てる.
+        HashRing ring = HashRing.of(8);
+        assertThat(ring.size(), is(8));
+        int[] counts = new int[8];
+        for (long hash = 0; hash < 80000; hash++) {
+            counts[ring.shardOf(hash)]++;
+        }
+        for (int count : counts) {
+            assertThat(count > 7000 && count < 13000, is(true));
+        }
+        assertThat(HashRing.of(8).shardOf(12345L), is(ring.shardOf(12345L)));
+        assertThat(HashRing.of(1).shardOf(-1L), is(0));
+
+        // #withShards(int) : シャードを増やした場合は新しいシャードに移るものだけが移る.
+        HashRing grown = ring.withShards(9);
+        int moved = 0;
+        for (long hash = 0; hash < 90000; hash++) {
+            int before = ring.shardOf(hash);
+            int after = grown.shardOf(hash);
+            if (before != after) {
+                assertThat(after, is(8));
+                moved++;
+            }
+        }
+        assertThat(moved > 6000 && moved < 14000, is(true));
+        assertThat(ring.withShards(8), is(sameInstance(ring)));
+
+        // #withShards(int) : シャードを減らした場合は取り除いたシャードのものだけが移る.
+        HashRing shrunk = ring.withShards(7);
+        for (long hash = 0; hash < 10000; hash++) {
+            int before = ring.shardOf(hash);
+            if (before != 7) {
+                assertThat(shrunk.shardOf(hash), is(before));
+            }
+        }
+
+        // #toString()
+        assertThat(ring.toString(), is("HashRing[8 shards, 128 virtual nodes]"));
+
+        // #of(int, int) : シャードの数が 1 未満.
+        this.thrown.expect(IllegalArgumentException.class);
+        HashRing.of(0, 16);
+    }
+}
@@ -0,0 +1,147 @@
+package sp.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.lang.DeepCopier;
+
+/**
+ * {@link PersistentMap} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class PersistentMapTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Key {
+
+        /**
+         * Value.
+         */
+        final int value;
+
+        /**
+         * Constractor.
+         *
+         * @param value
+         *            Value.
+         */
+        Key(int value) {
+            super();
+            this.value = value;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object target) {
+            return target instanceof PersistentMapTddTest.Key
+                    && ((PersistentMapTddTest.Key) target).value == this.value;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return this.value % 7;
+        }
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        // #with(Object, Object), #without(Object) : HashMap と同じ結果になる.
+        Random random = new Random(1);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int count = 0; count < 50000; count++) {
+            Integer key = random.nextInt(20000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, count);
+                map = map.with(key, count);
+            }
+        }
+        assertThat(map.size(), is(expected.size()));
+        assertThat(map.asMap(), is(expected));
+        assertThat(map, is(PersistentMap.from(expected)));
+        assertThat(map.hashCode(), is(expected.hashCode()));
+
+        // #with(Object, Object) : 更新前のマップは変更されない.
+        PersistentMap<Integer, Integer> before = map;
+        PersistentMap<Integer, Integer> after = map.with(-1, -1).without(expected.keySet().iterator().next());
+        assertThat(before.asMap(), is(expected));
+        assertThat(after.get(-1), is(-1));
+        assertThat(after.size(), is(expected.size()));
+        assertThat(map.with(-2, null).containsKey(-2), is(true));
+        assertThat(map.getOrDefault(-3, 0), is(0));
+
+        // #with(Object, Object) : 同じ値ならこのインスタンス.
+        Integer key = expected.keySet().iterator().next();
+        assertThat(map.with(key, map.get(key)), is(sameInstance(map)));
+        assertThat(map.without(-4), is(sameInstance(map)));
+
+        // #with(Object, Object), #without(Object) : ハッシュ値が衝突するキー.
+        PersistentMap<PersistentMapTddTest.Key, String> collided = PersistentMap.empty();
+        for (int value = 0; value < 100; value++) {
+            collided = collided.with(new PersistentMapTddTest.Key(value), "v" + value);
+        }
+        assertThat(collided.size(), is(100));
+        assertThat(collided.get(new PersistentMapTddTest.Key(42)), is("v42"));
+        for (int value = 0; value < 100; value += 2) {
+            collided = collided.without(new PersistentMapTddTest.Key(value));
+        }
+        assertThat(collided.size(), is(50));
+        assertThat(collided.containsKey(new PersistentMapTddTest.Key(42)), is(false));
+        assertThat(collided.get(new PersistentMapTddTest.Key(43)), is("v43"));
+        for (int value = 1; value < 100; value += 2) {
+            collided = collided.without(new PersistentMapTddTest.Key(value));
+        }
+        assertThat(collided, is(sameInstance(PersistentMap.empty())));
+
+        // #clone(), DeepCopier : O(1) で共有する.
+        assertThat(map.clone(), is(sameInstance(map)));
+        assertThat(DeepCopier.copy(map), is(sameInstance(map)));
+        assertThat(map.copyInto(PersistentMap.empty()), is(sameInstance(map)));
+
+        // #deepclone() : 値を深くコピーする.
+        PersistentMap<String, int[]> arrays = PersistentMap.<String, int[]> empty().with("a", new int[] { 1 });
+        PersistentMap<String, int[]> copied = arrays.deepclone();
+        assertThat(copied.get("a"), is(not(sameInstance(arrays.get("a")))));
+        assertThat(copied.get("a")[0], is(1));
+
+        // #get(Object) : NULL のキー.
+        this.thrown.expect(NullPointerException.class);
+        map.get(null);
+    }
+}
@@ -0,0 +1,54 @@
+package sp.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import sp.lang.DeepCopier;
+
+/**
+ * {@link PersistentSet} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class PersistentSetTddTest {
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        // #of(Object...), #contains(Object) : 生成.
+        PersistentSet<String> set = PersistentSet.of("a", "b", "c", "a");
+        assertThat(set.size(), is(3));
+        assertThat(set.contains("b"), is(true));
+        assertThat(set.asSet(), is(new HashSet<>(Arrays.asList("a", "b", "c"))));
+
+        // #with(Object), #without(Object) : 更新前のセットは変更されない.
+        PersistentSet<String> added = set.with("d");
+        PersistentSet<String> removed = set.without("a");
+        assertThat(added.size(), is(4));
+        assertThat(removed.contains("a"), is(false));
+        assertThat(set.size(), is(3));
+        assertThat(set.with("a"), is(sameInstance(set)));
+        assertThat(set.without("z"), is(sameInstance(set)));
+        assertThat(set, is(PersistentSet.of("c", "b", "a")));
+        assertThat(set.hashCode(), is(set.asSet().hashCode()));
+        assertThat(PersistentSet.of("x").without("x"), is(sameInstance(PersistentSet.empty())));
+
+        // #clone(), DeepCopier : O(1) で共有する.
+        assertThat(set.clone(), is(sameInstance(set)));
+        assertThat(DeepCopier.copy(set), is(sameInstance(set)));
+
+        // #copyInto(PersistentSet), #deepcopyInto(PersistentSet) : 不変であるため, 複製先を変更せずにこのインスタンスを返す.
+        assertThat(set.copyInto(added), is(sameInstance(set)));
+        assertThat(added.size(), is(4));
+        assertThat(set.deepcopyInto(added), is(set));
+        assertThat(added.size(), is(4));
+    }
+}
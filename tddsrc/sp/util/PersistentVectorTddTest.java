@@ -0,0 +1,106 @@
+package sp.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.lang.DeepCopier;
+
+/**
+ * {@link PersistentVector} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class PersistentVectorTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        // #empty(), #of(Object...) : 生成.
+        assertThat(PersistentVector.empty().isEmpty(), is(true));
+        assertThat(PersistentVector.of("a", "b").asList(), is(Arrays.asList("a", "b")));
+
+        // #plus(Object), #get(int) : トライの高さが増える件数まで追加する.
+        List<Integer> expected = new ArrayList<>();
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        for (int index = 0; index < 40000; index++) {
+            if (index % 1000 == 0) {
+                versions.add(vector);
+            }
+            vector = vector.plus(index);
+            expected.add(index);
+        }
+        assertThat(vector.size(), is(40000));
+        assertThat(vector.get(0), is(0));
+        assertThat(vector.get(1055), is(1055));
+        assertThat(vector.get(39999), is(39999));
+        assertThat(vector.asList(), is(expected));
+
+        // #plus(Object) : 更新前のベクタは変更されない.
+        assertThat(versions.get(3).size(), is(3000));
+        assertThat(versions.get(3).get(2999), is(2999));
+
+        // #with(int, Object) : 経路だけを複製する.
+        PersistentVector<Integer> updated = vector.with(1055, -1).with(39999, -2).with(40000, -3);
+        assertThat(updated.get(1055), is(-1));
+        assertThat(updated.get(39999), is(-2));
+        assertThat(updated.get(40000), is(-3));
+        assertThat(vector.get(1055), is(1055));
+        assertThat(vector.size(), is(40000));
+
+        // #minus() : 末尾から取り除き, トライの高さが減る.
+        PersistentVector<Integer> popped = vector;
+        for (int index = 39999; index >= 1000; index--) {
+            assertThat(popped.get(index), is(index));
+            popped = popped.minus();
+        }
+        assertThat(popped, is(versions.get(1)));
+        assertThat(popped.hashCode(), is(versions.get(1).hashCode()));
+        assertThat(popped.plus(1000).get(1000), is(1000));
+        assertThat(vector.size(), is(40000));
+
+        // #clone() : O(1) で同じインスタンス.
+        assertThat(vector.clone(), is(sameInstance(vector)));
+
+        // #deepclone() : 要素を深くコピーし, 要素間の共有を保つ.
+        int[] shared = { 1 };
+        PersistentVector<int[]> arrays = PersistentVector.of(shared, shared);
+        PersistentVector<int[]> copied = arrays.deepclone();
+        assertThat(copied.get(0), is(not(sameInstance(shared))));
+        assertThat(copied.get(1), is(sameInstance(copied.get(0))));
+        assertThat(copied.get(0)[0], is(1));
+
+        // DeepCopier : 不変なのでコピーせずに共有する.
+        assertThat(DeepCopier.copy(vector), is(sameInstance(vector)));
+
+        // #iterator() : 全要素を順に返す.
+        int count = 0;
+        for (Integer element : vector) {
+            assertThat(element, is(count++));
+        }
+        assertThat(count, is(40000));
+        assertThat(PersistentVector.of(1, 2).toString(), is("[1, 2]"));
+
+        // #minus() : 空のベクタ.
+        this.thrown.expect(NoSuchElementException.class);
+        PersistentVector.empty().minus();
+    }
+}
@@ -0,0 +1,232 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.base.Exclusiveness;
+
+/**
+ * {@link ContentionProfiler} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class ContentionProfilerTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Counter {
+
+        /**
+         * Count.
+         */
+        int count;
+
+        /**
+         * Increment.
+         */
+        @Exclusiveness
+        synchronized void increment() {
+            this.count++;
+        }
+
+        /**
+         * Add.
+         *
+         * @param value
+         *            Value.
+         */
+        @Exclusiveness
+        synchronized void add(int value) {
+            this.count += value;
+        }
+
+        /**
+         * Add.
+         *
+         * @param value
+         *            Value.
+         */
+        @Exclusiveness
+        synchronized void add(long value) {
+            this.count += value;
+        }
+
+        /**
+         * Get.
+         *
+         * @return Count.
+         */
+        int get() {
+            return this.count;
+        }
+    }
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        ContentionProfiler profiler = new ContentionProfiler();
+
+        // #register(Class) : Exclusiveness が付与されたメソッドだけを登録する.
+        Map<String, ContentionProfiler.Section> sections = profiler.register(ContentionProfilerTddTest.Counter.class);
+        assertThat(sections.keySet().size(), is(3));
+        assertThat(sections.get("increment").name(), is("Counter#increment"));
+        assertThat(sections.get("add(int)").name(), is("Counter#add(int)"));
+        assertThat(sections.containsKey("get"), is(false));
+        assertThat(profiler.section("Counter#increment"), is(sameInstance(sections.get("increment"))));
+
+        // Section#synchronize(Object, OfObj) : 保持している間に待ったスレッドを競合として数える.
+        ContentionProfilerTddTest.Counter counter = new ContentionProfilerTddTest.Counter();
+        ContentionProfiler.Section increment = sections.get("increment");
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread owner = new Thread(() -> {
+            try {
+                increment.synchronize(counter, target -> {
+                    holding.countDown();
+                    release.await();
+                    target.increment();
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "owner");
+        owner.start();
+        holding.await();
+        Thread waiter = new Thread(() -> increment.synchronize(counter, target -> {
+            target.increment();
+            return null;
+        }), "waiter");
+        waiter.start();
+        while (increment.queueLength() == 0 || waiter.getState() != Thread.State.BLOCKED) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        release.countDown();
+        owner.join();
+        waiter.join();
+        assertThat(counter.get(), is(2));
+        assertThat(increment.acquisitions(), is(2L));
+        assertThat(increment.contentions(), is(1L));
+        assertThat(increment.maxQueueLength(), is(1L));
+        assertThat(increment.queueLength(), is(0));
+        assertThat(increment.waitNanos() >= TimeUnit.MILLISECONDS.toNanos(20), is(true));
+        assertThat(increment.holdNanos() >= TimeUnit.MILLISECONDS.toNanos(20), is(true));
+        assertThat(increment.ownerStacks().size(), is(1));
+        assertThat(increment.ownerStacks().keySet().iterator().next().startsWith("owner: "), is(true));
+
+        // Section#synchronize(Object, OfObj) : 再入は競合として数えない.
+        increment.synchronize(counter, target -> increment.synchronize(target, inner -> {
+            inner.increment();
+            return null;
+        }));
+        assertThat(increment.contentions(), is(1L));
+        assertThat(increment.acquisitions(), is(4L));
+
+        // Section#synchronize(Object, OfObj) : 異なるモニタの保持は競合として数えず, 解放したスレッドを保持者として残さない.
+        ContentionProfilerTddTest.Counter[] others = { new ContentionProfilerTddTest.Counter(),
+                new ContentionProfilerTddTest.Counter() };
+        CountDownLatch[] held = { new CountDownLatch(1), new CountDownLatch(1) };
+        CountDownLatch[] released = { new CountDownLatch(1), new CountDownLatch(1) };
+        Thread[] holders = new Thread[others.length];
+        for (int index = 0; index < holders.length; index++) {
+            int slot = index;
+            holders[index] = new Thread(() -> {
+                try {
+                    increment.synchronize(others[slot], target -> {
+                        held[slot].countDown();
+                        released[slot].await();
+                        return null;
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            holders[index].start();
+            held[index].await();
+        }
+        increment.synchronize(counter, target -> {
+            target.increment();
+            return null;
+        });
+        released[0].countDown();
+        holders[0].join();
+        released[1].countDown();
+        holders[1].join();
+        increment.synchronize(others[0], target -> {
+            target.increment();
+            return null;
+        });
+        assertThat(increment.contentions(), is(1L));
+        assertThat(increment.acquisitions(), is(8L));
+
+        // Section#lock(Lock, OfObj) : ロックを獲得して実行し, 解放する.
+        ReentrantLock lock = new ReentrantLock();
+        ContentionProfiler.Section add = sections.get("add(int)");
+        assertThat(add.lock(lock, target -> target.isHeldByCurrentThread()), is(true));
+        assertThat(lock.isLocked(), is(false));
+        assertThat(add.acquisitions(), is(1L));
+
+        // #report(), #sections() : 待ち時間の降順に並べる.
+        assertThat(profiler.sections().get(0), is(sameInstance(increment)));
+        String report = profiler.report();
+        assertThat(report.indexOf("Counter#increment") < report.indexOf("Counter#add(int)"), is(true));
+        assertThat(report.contains("x owner at owner: "), is(true));
+
+        // #startReporting(long, TimeUnit, Consumer) : 定期的に出力する.
+        BlockingQueue<String> reports = new ArrayBlockingQueue<>(16);
+        AutoCloseable reporting = profiler.startReporting(1, TimeUnit.MILLISECONDS, reports::offer);
+        try {
+            assertThat(reports.poll(10, TimeUnit.SECONDS).contains("Counter#increment"), is(true));
+        } finally {
+            reporting.close();
+        }
+
+        // #reset() : 計測値を消去する.
+        profiler.reset();
+        assertThat(increment.acquisitions(), is(0L));
+        assertThat(increment.ownerStacks().isEmpty(), is(true));
+
+        // Section#lock(Lock, OfObj) : 処理のエラーはロックを解放して伝える.
+        try {
+            add.lock(lock, target -> {
+                throw new IllegalArgumentException();
+            });
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(lock.isLocked(), is(false));
+            assertThat(add.acquisitions(), is(1L));
+        }
+
+        // #section(String) : NULL.
+        this.thrown.expect(NullPointerException.class);
+        profiler.section(null);
+    }
+}
@@ -0,0 +1,126 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.lang.ShallowCopyable;
+import sp.util.PersistentMap;
+
+/**
+ * {@link CopyOnWriteHolder} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class CopyOnWriteHolderTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Routes implements ShallowCopyable<CopyOnWriteHolderTddTest.Routes> {
+
+        /**
+         * Table.
+         */
+        PersistentMap<String, Integer> table = PersistentMap.empty();
+
+        /**
+         * Version.
+         */
+        int version;
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.ShallowCopyable#clone()
+         */
+        @Override
+        public CopyOnWriteHolderTddTest.Routes clone() {
+            CopyOnWriteHolderTddTest.Routes returnValue = new CopyOnWriteHolderTddTest.Routes();
+            returnValue.table = this.table;
+            returnValue.version = this.version;
+            return returnValue;
+        }
+    }
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Exception.
+     */
+    @Test
+    public void test() throws Exception {
+        CopyOnWriteHolderTddTest.Routes initial = new CopyOnWriteHolderTddTest.Routes();
+        CopyOnWriteHolder<CopyOnWriteHolderTddTest.Routes> holder = new CopyOnWriteHolder<>(initial);
+        assertThat(holder.get(), is(sameInstance(initial)));
+
+        // #update(Consumer) : 複製を変更して公開し, 以前のスナップショットは変更しない.
+        CopyOnWriteHolderTddTest.Routes updated = holder.update(routes -> {
+            routes.table = routes.table.with("a", 1);
+            routes.version++;
+        });
+        assertThat(holder.get(), is(sameInstance(updated)));
+        assertThat(updated.table.get("a"), is(1));
+        assertThat(initial.table.isEmpty(), is(true));
+        assertThat(initial.version, is(0));
+
+        // #update(Consumer) : 並行した書き込みは失われない.
+        List<Thread> threads = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int offset = thread * 1000;
+            threads.add(new Thread(() -> {
+                for (int index = 0; index < 1000; index++) {
+                    String key = "k" + (offset + index);
+                    if (index % 2 == 0) {
+                        holder.update(routes -> routes.table = routes.table.with(key, 0));
+                    } else {
+                        holder.submit(routes -> routes.table = routes.table.with(key, 0));
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(holder.get().table.size(), is(4001));
+
+        // #submit(Consumer) : 複数の変更を 1 つの複製にまとめ, 例外をスローした変更だけを除く.
+        CompletableFuture<CopyOnWriteHolderTddTest.Routes> first = holder.submit(routes -> routes.version += 10);
+        assertThat(first.get().version, is(11));
+        CompletableFuture<CopyOnWriteHolderTddTest.Routes> failed = holder.submit(routes -> {
+            routes.version = -1;
+            throw new IllegalStateException("rejected");
+        });
+        assertThat(failed.isCompletedExceptionally(), is(true));
+        assertThat(holder.get().version, is(11));
+
+        // #set(ShallowCopyable) : 置き換える.
+        CopyOnWriteHolderTddTest.Routes previous = holder.get();
+        assertThat(holder.set(initial), is(sameInstance(previous)));
+        assertThat(holder.get(), is(sameInstance(initial)));
+
+        // #submit(Consumer) : 例外で完了した結果.
+        this.thrown.expect(ExecutionException.class);
+        failed.get();
+    }
+}
@@ -0,0 +1,143 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link ExclusiveLock} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class ExclusiveLockTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        ContentionProfiler profiler = new ContentionProfiler();
+        ContentionProfiler.Section section = profiler.section("list");
+        ExclusiveLock<List<Integer>> lock = new ExclusiveLock<>(new ArrayList<>(), true, section);
+
+        // #apply(OfObj) : 保護するオブジェクトを排他的に変更する.
+        Thread[] threads = new Thread[4];
+        for (int index = 0; index < threads.length; index++) {
+            threads[index] = new Thread(() -> {
+                for (int count = 0; count < 1000; count++) {
+                    lock.apply(list -> list.add(list.size()));
+                }
+            });
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(lock.apply(List::size), is(4000));
+        assertThat(lock.apply(list -> list.get(3999)), is(3999));
+        assertThat(section.acquisitions(), is(4002L));
+        assertThat(section.queueLength(), is(0));
+
+        // #apply(OfObj) : 再入できる.
+        assertThat(lock.apply(list -> lock.apply(inner -> lock.isHeldByCurrentThread())), is(true));
+        assertThat(lock.isHeldByCurrentThread(), is(false));
+
+        // #tryApply(long, TimeUnit, OfObj) : 保持されている場合はタイムアウトする.
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread owner = new Thread(() -> {
+            try {
+                lock.applyInterruptibly(list -> {
+                    holding.countDown();
+                    release.await();
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        owner.start();
+        holding.await();
+        try {
+            lock.tryApply(10, TimeUnit.MILLISECONDS, List::size);
+            fail();
+        } catch (TimeoutException e) {
+            assertThat(section.queueLength(), is(0));
+        }
+
+        // #applyInterruptibly(OfObj) : 待っている間に割り込まれた場合は実行しない.
+        AtomicReference<Throwable> interrupted = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                lock.applyInterruptibly(list -> list.add(-1));
+            } catch (InterruptedException e) {
+                interrupted.set(e);
+            }
+        });
+        waiter.start();
+        while (lock.queueLength() == 0) {
+            Thread.sleep(1);
+        }
+        waiter.interrupt();
+        waiter.join();
+        assertThat(interrupted.get(), is(instanceOf(InterruptedException.class)));
+        release.countDown();
+        owner.join();
+        assertThat(lock.apply(List::size), is(4000));
+        assertThat(section.queueLength(), is(0));
+
+        // #newCondition() : 処理の中で条件を待つ.
+        ExclusiveLock<int[]> counter = new ExclusiveLock<>(new int[1]);
+        Condition ready = counter.newCondition();
+        Thread signaller = new Thread(() -> counter.apply(value -> {
+            value[0] = 1;
+            ready.signalAll();
+            return null;
+        }));
+        int observed = counter.applyInterruptibly(value -> {
+            signaller.start();
+            while (value[0] == 0) {
+                ready.await();
+            }
+            return value[0];
+        });
+        signaller.join();
+        assertThat(observed, is(1));
+
+        // #apply(OfObj) : 処理のエラーはロックを解放して伝える.
+        try {
+            counter.apply(value -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(counter.queueLength(), is(0));
+            assertThat(counter.tryApply(0, TimeUnit.SECONDS, value -> value[0]), is(1));
+        }
+
+        // #ExclusiveLock(Object) : NULL.
+        this.thrown.expect(NullPointerException.class);
+        new ExclusiveLock<>(null);
+    }
+}
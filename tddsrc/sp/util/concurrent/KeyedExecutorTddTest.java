@@ -0,0 +1,211 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link KeyedExecutor} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class KeyedExecutorTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            // #submit(Object, OfObj) : 同じキーのタスクは投入順に 1 つずつ実行する.
+            KeyedExecutor<int[]> executor = new KeyedExecutor<>(pool, target -> target[0], 4);
+            int[][] targets = new int[8][];
+            List<List<Integer>> orders = new ArrayList<>();
+            AtomicInteger[] running = new AtomicInteger[targets.length];
+            for (int key = 0; key < targets.length; key++) {
+                targets[key] = new int[] { key };
+                orders.add(new ArrayList<>());
+                running[key] = new AtomicInteger();
+            }
+            Thread[] producers = new Thread[4];
+            List<List<CompletableFuture<Integer>>> results = new ArrayList<>();
+            for (int index = 0; index < producers.length; index++) {
+                int producer = index;
+                List<CompletableFuture<Integer>> submitted = new ArrayList<>();
+                results.add(submitted);
+                producers[index] = new Thread(() -> {
+                    for (int count = 0; count < 2000; count++) {
+                        int sequence = producer * 10000 + count;
+                        submitted.add(executor.submit(targets[count % targets.length], target -> {
+                            if (running[target[0]].incrementAndGet() != 1) {
+                                throw new IllegalStateException("not exclusive");
+                            }
+                            orders.get(target[0]).add(sequence);
+                            running[target[0]].decrementAndGet();
+                            return sequence;
+                        }));
+                    }
+                });
+                producers[index].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (List<CompletableFuture<Integer>> submitted : results) {
+                for (CompletableFuture<Integer> result : submitted) {
+                    result.get(10, TimeUnit.SECONDS);
+                }
+            }
+            int total = 0;
+            for (List<Integer> order : orders) {
+                int[] last = { -1, -1, -1, -1 };
+                for (int sequence : order) {
+                    assertThat(last[sequence / 10000] < sequence, is(true));
+                    last[sequence / 10000] = sequence;
+                }
+                total += order.size();
+            }
+            assertThat(total, is(8000));
+
+            // #keys() : 空になったレーンは破棄する.
+            for (int wait = 0; executor.keys() != 0 && wait < 1000; wait++) {
+                Thread.sleep(1);
+            }
+            assertThat(executor.keys(), is(0));
+
+            // #submit(Object, OfObj) : 多くのタスクを持つキーがあっても他のキーのタスクを待たせない.
+            ExecutorService single = Executors.newSingleThreadExecutor();
+            try {
+                KeyedExecutor<Long> fair = new KeyedExecutor<>(single, Long::longValue, 2);
+                CountDownLatch gate = new CountDownLatch(1);
+                List<Long> executed = new ArrayList<>();
+                fair.submit(0L, target -> {
+                    gate.await();
+                    return executed.add(target);
+                });
+                for (int count = 0; count < 10; count++) {
+                    fair.submit(0L, executed::add);
+                }
+                CompletableFuture<Integer> cold = fair.submit(1L, target -> executed.size());
+                gate.countDown();
+                assertThat(cold.get(10, TimeUnit.SECONDS), is(2));
+            } finally {
+                single.shutdown();
+            }
+
+            // #submit(Object, OfObj) : 投入したタスクを後入れ先出しで実行するエグゼキュータでも他のキーを待たせない.
+            ForkJoinPool stealing = new ForkJoinPool(1);
+            try {
+                KeyedExecutor<Long> fair = new KeyedExecutor<>(stealing, Long::longValue, 2);
+                CountDownLatch gate = new CountDownLatch(1);
+                List<Long> executed = new ArrayList<>();
+                fair.submit(0L, target -> {
+                    gate.await();
+                    return executed.add(target);
+                });
+                for (int count = 0; count < 10; count++) {
+                    fair.submit(0L, executed::add);
+                }
+                CompletableFuture<Integer> cold = fair.submit(1L, target -> executed.size());
+                gate.countDown();
+                assertThat(cold.get(10, TimeUnit.SECONDS), is(2));
+            } finally {
+                stealing.shutdown();
+            }
+
+            // #submit(Object, OfObj) : タスクのエラーは結果に伝え, 後続のタスクは実行する.
+            CompletableFuture<Object> failed = executor.submit(targets[0], target -> {
+                throw new IOException("failed");
+            });
+            CompletableFuture<Integer> next = executor.submit(targets[0], target -> target[0] + 1);
+            assertThat(next.get(10, TimeUnit.SECONDS), is(1));
+            try {
+                failed.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause().getMessage(), is("failed"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // #submit(Object, OfObj) : エグゼキュータが実行を拒否した場合は例外で完了する.
+        KeyedExecutor<Long> rejected = new KeyedExecutor<>(pool, Long::longValue);
+        try {
+            rejected.submit(1L, target -> target).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+            assertThat(rejected.keys(), is(0));
+        }
+
+        // #submit(Object, OfObj) : 拒否されている間に積まれたタスクも全て例外で完了し, 拒否が止めば実行を再開する.
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        ExecutorService recovering = Executors.newSingleThreadExecutor();
+        try {
+            KeyedExecutor<Long> flaky = new KeyedExecutor<>(command -> {
+                if (rejecting.get()) {
+                    throw new RejectedExecutionException("rejected");
+                }
+                recovering.execute(command);
+            }, Long::longValue);
+            List<List<CompletableFuture<Long>>> results = new ArrayList<>();
+            Thread[] producers = new Thread[4];
+            for (int index = 0; index < producers.length; index++) {
+                List<CompletableFuture<Long>> submitted = new ArrayList<>();
+                results.add(submitted);
+                producers[index] = new Thread(() -> {
+                    for (long count = 0; count < 20000; count++) {
+                        submitted.add(flaky.submit(count % 2, target -> target));
+                    }
+                });
+                producers[index].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (List<CompletableFuture<Long>> submitted : results) {
+                for (CompletableFuture<Long> result : submitted) {
+                    assertThat(result.isCompletedExceptionally(), is(true));
+                }
+            }
+            assertThat(flaky.keys(), is(0));
+            rejecting.set(false);
+            assertThat(flaky.submit(1L, target -> target + 1).get(10, TimeUnit.SECONDS), is(2L));
+        } finally {
+            recovering.shutdown();
+        }
+
+        // #KeyedExecutor(Executor, OfObjToLong, int) : 最大数が 1 未満.
+        this.thrown.expect(IllegalArgumentException.class);
+        new KeyedExecutor<Long>(pool, Long::longValue, 0);
+    }
+}
@@ -0,0 +1,158 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.util.HashRing;
+
+/**
+ * {@link ShardedRouter} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class ShardedRouterTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        // #route(Object) : 同じハッシュ値の要素は同じシャードのスレッドで処理する.
+        Set<String> owners = ConcurrentHashMap.newKeySet();
+        ShardedRouter<Integer, Map<Integer, Long>> router = new ShardedRouter<>(4, Integer::longValue,
+                shard -> new HashMap<>(), (sums, value) -> sums.merge(value, (long) value, Long::sum));
+        assertThat(router.size(), is(4));
+        Thread[] producers = new Thread[4];
+        for (int index = 0; index < producers.length; index++) {
+            producers[index] = new Thread(() -> {
+                for (int value = 0; value < 10000; value++) {
+                    router.route(value);
+                }
+            });
+            producers[index].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        int holders = 0;
+        for (CompletableFuture<Boolean> result : router.broadcast(sums -> sums.containsKey(7))) {
+            holders += result.get(10, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        assertThat(holders, is(1));
+
+        // #broadcast(OfObj), #ask(int, OfObj) : シャードのスレッドで状態を集計する.
+        List<CompletableFuture<Long>> totals = router.broadcast(sums -> {
+            owners.add(Thread.currentThread().getName());
+            long returnValue = 0;
+            for (long sum : sums.values()) {
+                returnValue += sum;
+            }
+            return returnValue;
+        });
+        long total = 0;
+        for (CompletableFuture<Long> result : totals) {
+            total += result.get(10, TimeUnit.SECONDS);
+        }
+        assertThat(total, is(4L * (9999L * 10000L / 2)));
+        assertThat(owners.size(), is(4));
+        int shard = router.shardOf(42);
+        assertThat(router.ask(shard, sums -> sums.containsKey(42)).get(10, TimeUnit.SECONDS), is(true));
+        assertThat(router.ask(shard, sums -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS),
+                is("ShardedRouter-shard-" + shard));
+
+        // #ask(int, OfObj) : 処理のエラーは結果に伝える.
+        try {
+            router.ask(0, sums -> {
+                throw new IllegalStateException("failed");
+            }).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is("failed"));
+        }
+
+        // #route(Object), #ask(int, OfObj) : 待機しているシャードのスレッドを起こす.
+        for (int count = 0; count < 100; count++) {
+            Thread.sleep(count % 10 == 0 ? 5 : 0);
+            int value = 10000 + count;
+            router.route(value);
+            assertThat(router.ask(router.shardOf(value), sums -> sums.containsKey(value)).get(10, TimeUnit.SECONDS),
+                    is(true));
+        }
+
+        // #close() : 振り分け済みの要素を処理してからスレッドを終了させる.
+        CompletableFuture<Integer> last = router.ask(3, Map::size);
+        router.close();
+        assertThat(last.isDone(), is(true));
+        router.close();
+
+        // #ShardedRouter(HashRing, OfObjToLong, IntFunction, BiConsumer) : リングで振り分ける.
+        HashRing ring = HashRing.of(3);
+        try (ShardedRouter<Long, int[]> ringed = new ShardedRouter<>(ring, Long::longValue, index -> new int[1],
+                (counter, value) -> counter[0]++)) {
+            for (long value = 0; value < 300; value++) {
+                assertThat(ringed.route(value), is(ring.shardOf(value)));
+            }
+            int count = 0;
+            for (CompletableFuture<Integer> result : ringed.broadcast(counter -> counter[0])) {
+                count += result.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(count, is(300));
+        }
+
+        // #close() : 閉じている途中に受け付けた要素も処理してからスレッドを終了させる.
+        for (int round = 0; round < 50; round++) {
+            AtomicInteger processed = new AtomicInteger();
+            AtomicInteger accepted = new AtomicInteger();
+            ShardedRouter<Integer, int[]> racing = new ShardedRouter<>(2, Integer::longValue, index -> new int[1],
+                    (counter, value) -> processed.incrementAndGet());
+            Thread[] senders = new Thread[4];
+            for (int index = 0; index < senders.length; index++) {
+                senders[index] = new Thread(() -> {
+                    try {
+                        for (int value = 0;; value++) {
+                            racing.route(value);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // closed.
+                    }
+                });
+                senders[index].start();
+            }
+            Thread.sleep(1);
+            racing.close();
+            for (Thread sender : senders) {
+                sender.join();
+            }
+            assertThat(processed.get(), is(accepted.get()));
+        }
+
+        // #route(Object) : 閉じたルータ.
+        this.thrown.expect(IllegalStateException.class);
+        router.route(1);
+    }
+}
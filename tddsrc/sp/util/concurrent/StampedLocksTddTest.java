@@ -0,0 +1,120 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link StampedLocks} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class StampedLocksTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Point {
+
+        /**
+         * Lock.
+         */
+        final StampedLock lock = new StampedLock();
+
+        /**
+         * X.
+         */
+        long x;
+
+        /**
+         * Y.
+         */
+        long y;
+
+        /**
+         * Move.
+         *
+         * @param delta
+         *            Delta.
+         */
+        void move(long delta) {
+            StampedLocks.write(this.lock, () -> {
+                this.x += delta;
+                this.y -= delta;
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        StampedLocksTddTest.Point point = new StampedLocksTddTest.Point();
+
+        // #read(StampedLock, OfObj), #readAsLong(StampedLock, OfLong) : 書き込みと競合しない値を返す.
+        Thread writer = new Thread(() -> {
+            for (int count = 0; count < 100000; count++) {
+                point.move(1);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            assertThat(StampedLocks.readAsLong(point.lock, () -> point.x + point.y), is(0L));
+            long[] pair = StampedLocks.read(point.lock, () -> new long[] { point.x, point.y });
+            assertThat(pair[0], is(-pair[1]));
+        }
+        writer.join();
+        assertThat(StampedLocks.readAsLong(point.lock, () -> point.x), is(100000L));
+
+        // #readAsInt(StampedLock, OfInt), #readAsDouble(StampedLock, OfDouble)
+        assertThat(StampedLocks.readAsInt(point.lock, () -> (int) point.y), is(-100000));
+        assertThat(StampedLocks.readAsDouble(point.lock, () -> point.x / 2.0), is(50000.0));
+
+        // #read(StampedLock, OfObj) : 書き込みと競合し続ける場合は読み込みロックで読み出す.
+        AtomicInteger attempts = new AtomicInteger();
+        long held = point.lock.writeLock();
+        Thread reader = new Thread(() -> StampedLocks.read(point.lock, attempts::incrementAndGet));
+        reader.start();
+        while (point.lock.isWriteLocked() && !point.lock.isReadLocked() && reader.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        assertThat(attempts.get(), is(0));
+        point.lock.unlockWrite(held);
+        reader.join();
+        assertThat(attempts.get(), is(1));
+
+        // #writeLockAll(StampedLock[]), #unlockWriteAll(StampedLock[], long[]) : 配列の順に獲得し, 逆の順に解放する.
+        StampedLock[] locks = { new StampedLock(), new StampedLock() };
+        long[] stamps = StampedLocks.writeLockAll(locks);
+        assertThat(locks[0].isWriteLocked() && locks[1].isWriteLocked(), is(true));
+        StampedLocks.unlockWriteAll(locks, stamps);
+        assertThat(locks[0].isWriteLocked() || locks[1].isWriteLocked(), is(false));
+
+        // #read(StampedLock, OfObj) : 競合していない読み出しのエラーはそのままスローする.
+        this.thrown.expect(IllegalStateException.class);
+        StampedLocks.read(point.lock, () -> {
+            throw new IllegalStateException();
+        });
+    }
+}
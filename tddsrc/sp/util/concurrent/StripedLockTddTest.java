@@ -0,0 +1,101 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link StripedLock} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class StripedLockTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test method.
+     *
+     * @throws Exception
+     *             Error.
+     */
+    @Test
+    public void test() throws Exception {
+        // #StripedLock(int, OfObjToInt), #size() : ストライプの数は 2 のべき乗に切り上げる.
+        assertThat(new StripedLock<Integer>(1).size(), is(1));
+        assertThat(new StripedLock<Integer>(5).size(), is(8));
+        StripedLock<Integer> locks = new StripedLock<>(16, Integer::intValue);
+        assertThat(locks.size(), is(16));
+
+        // #indexOf(Object), #stripe(Object) : 連続したキーを複数のストライプに分散する.
+        Set<Integer> indices = new HashSet<>();
+        for (int key = 0; key < 64; key++) {
+            indices.add(locks.indexOf(key));
+            assertThat(locks.indexOf(key) < 16, is(true));
+        }
+        assertThat(indices.size() >= 12, is(true));
+        assertThat(locks.stripe(3), is(sameInstance(locks.stripe(3))));
+        assertThat(new StripedLock<Integer>(1).indexOf(-1), is(0));
+
+        // #write(Object, OfObj), #writeAll(Iterable, OfObj) : 複数のキーに跨る振替でも総額は変わらない.
+        long[] balances = new long[32];
+        Arrays.fill(balances, 100);
+        Thread[] threads = new Thread[4];
+        for (int index = 0; index < threads.length; index++) {
+            int seed = index;
+            threads[index] = new Thread(() -> {
+                for (int count = 0; count < 20000; count++) {
+                    int from = (seed + count * 7) % balances.length;
+                    int to = (from + 1 + count % 5) % balances.length;
+                    locks.writeAll(Arrays.asList(from, to), () -> {
+                        balances[from] -= 1;
+                        balances[to] += 1;
+                        return null;
+                    });
+                    if (count % 100 == 0) {
+                        locks.write(from, () -> balances[from] += 0);
+                    }
+                }
+            });
+            threads[index].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(locks.writeEvery(() -> Arrays.stream(balances).sum()), is(3200L));
+
+        // #read(Object, OfObj) : 楽観的に読み出す.
+        assertThat(locks.read(5, () -> balances[5]), is(balances[5]));
+
+        // #writeAll(Iterable, OfObj) : 同じストライプは 1 度だけ獲得する.
+        assertThat(locks.writeAll(Arrays.asList(1, 1, 17, 1), () -> locks.stripe(1).isWriteLocked()), is(true));
+        assertThat(locks.ordered(Arrays.asList(1, 1, 1)).length, is(1));
+        assertThat(locks.stripe(1).isWriteLocked(), is(false));
+
+        // #writeAll(Iterable, OfObj) : 処理のエラーは全てのストライプを解放して伝える.
+        try {
+            locks.writeAll(Arrays.asList(2, 3), () -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(locks.stripe(2).isWriteLocked() || locks.stripe(3).isWriteLocked(), is(false));
+        }
+
+        // #StripedLock(int) : 並行度が 1 未満.
+        this.thrown.expect(IllegalArgumentException.class);
+        new StripedLock<Integer>(0);
+    }
+}
@@ -0,0 +1,129 @@
+package sp.util.concurrent;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import sp.lang.ShallowCopyable;
+
+/**
+ * {@link VersionedStore} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class VersionedStoreTddTest {
+
+    /**
+     * Expected Exception.
+     */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Sample Class.
+     *
+     * @author Se-foo
+     * @since 0.2
+     */
+    static final class Account implements ShallowCopyable<VersionedStoreTddTest.Account> {
+
+        /**
+         * Balance.
+         */
+        long balance;
+
+        /**
+         * Constractor.
+         *
+         * @param balance
+         *            Balance.
+         */
+        Account(long balance) {
+            super();
+            this.balance = balance;
+        }
+
+        /*
+         * (非 Javadoc)
+         *
+         * @see sp.lang.ShallowCopyable#clone()
+         */
+        @Override
+        public VersionedStoreTddTest.Account clone() {
+            return new VersionedStoreTddTest.Account(this.balance);
+        }
+    }
+
+    /**
+     * Test method.
+     */
+    @Test
+    public void test() {
+        VersionedStore<String, VersionedStoreTddTest.Account> store = new VersionedStore<>();
+        assertThat(store.version(), is(0L));
+
+        // #put(Object, ShallowCopyable), #write(Consumer) : 複数のキーを 1 つの版で書き込む.
+        assertThat(store.put("a", new VersionedStoreTddTest.Account(100)), is(1L));
+        assertThat(store.put("b", new VersionedStoreTddTest.Account(0)), is(2L));
+        VersionedStore<String, VersionedStoreTddTest.Account>.Snapshot before = store.open();
+        VersionedStoreTddTest.Account original = store.get("a");
+        assertThat(store.write(transaction -> {
+            transaction.edit("a").balance -= 30;
+            transaction.edit("b").balance += 30;
+            assertThat(transaction.get("a").balance, is(70L));
+        }), is(3L));
+        assertThat(store.get("a").balance, is(70L));
+        assertThat(original.balance, is(100L));
+
+        // #open() : 開いた時点の一貫した状態を返す.
+        assertThat(before.version(), is(2L));
+        assertThat(before.get("a").balance, is(100L));
+        assertThat(before.get("b").balance, is(0L));
+        VersionedStore<String, VersionedStoreTddTest.Account>.Snapshot after = store.open();
+        Map<String, Long> totals = new HashMap<>();
+        after.forEach((key, value) -> totals.put(key, value.balance));
+        assertThat(totals.get("a") + totals.get("b"), is(100L));
+
+        // #update(Object, Consumer), #remove(Object) : 削除された値は後のスナップショットだけから見えなくなる.
+        store.update("a", account -> account.balance = 1);
+        store.remove("b");
+        assertThat(store.remove("b"), is(5L));
+        assertThat(store.get("b"), is(nullValue()));
+        assertThat(after.get("b").balance, is(30L));
+        try (VersionedStore<String, VersionedStoreTddTest.Account>.Snapshot latest = store.open()) {
+            assertThat(latest.get("b"), is(nullValue()));
+            assertThat(latest.get("a").balance, is(1L));
+        }
+
+        // #reclaim() : 開いているスナップショットが参照する版は回収しない.
+        assertThat(store.versions("a"), is(3));
+        before.close();
+        store.reclaim();
+        assertThat(store.versions("a"), is(2));
+        assertThat(after.get("a").balance, is(70L));
+        after.close();
+        store.reclaim();
+        assertThat(store.versions("a"), is(1));
+        assertThat(store.versions("b"), is(0));
+
+        // #update(Object, Consumer) : 存在しないキー.
+        try {
+            store.update("b", account -> account.balance = 1);
+            fail();
+        } catch (NoSuchElementException e) {
+            assertThat(store.version(), is(5L));
+        }
+
+        // Snapshot#get(Object) : 閉じたスナップショット.
+        this.thrown.expect(IllegalStateException.class);
+        before.get("a");
+    }
+}
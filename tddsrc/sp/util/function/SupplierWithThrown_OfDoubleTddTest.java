@@ -0,0 +1,65 @@
+package sp.util.function;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link SupplierWithThrown.OfDouble} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class SupplierWithThrown_OfDoubleTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #toSupplier()
+        this.thrown.expect(RuntimeException.class);
+        this.thrown.expectCause(instanceOf(IOException.class));
+
+        // #get
+        SupplierWithThrown.OfDouble<IOException> instance = () -> 100.0;
+        assertThat(instance.get(), is(100.0));
+
+        // #andThen
+        assertThat(instance.andThen(target -> target * -1).get(), is(-100.0));
+
+        // #andThenFunction
+        assertThat(instance.andThenFunction(target -> target * -1).get(), is(-100.0));
+
+        // #toSupplier
+        assertThat(instance.toSupplier().getAsDouble(), is(100.0));
+        assertThat(instance.toSupplier(IllegalStateException::new).getAsDouble(), is(100.0));
+        try {
+            ((SupplierWithThrown.OfDouble<IOException>) () -> {
+                throw new IOException();
+            }).toSupplier(IllegalStateException::new).getAsDouble();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IOException.class)));
+        }
+        try {
+            ((SupplierWithThrown.OfDouble<IOException>) () -> {
+                throw new IllegalArgumentException("unchecked");
+            }).toSupplier().getAsDouble();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("unchecked"));
+        }
+
+        // #toSupplier
+        ((SupplierWithThrown.OfDouble<IOException>) () -> {
+                throw new IOException();
+            }).toSupplier().getAsDouble();
+    }
+}
@@ -0,0 +1,65 @@
+package sp.util.function;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link SupplierWithThrown.OfInt} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class SupplierWithThrown_OfIntTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #toSupplier()
+        this.thrown.expect(RuntimeException.class);
+        this.thrown.expectCause(instanceOf(IOException.class));
+
+        // #get
+        SupplierWithThrown.OfInt<IOException> instance = () -> 100;
+        assertThat(instance.get(), is(100));
+
+        // #andThen
+        assertThat(instance.andThen(target -> target * -1).get(), is(-100));
+
+        // #andThenFunction
+        assertThat(instance.andThenFunction(target -> target * -1).get(), is(-100));
+
+        // #toSupplier
+        assertThat(instance.toSupplier().getAsInt(), is(100));
+        assertThat(instance.toSupplier(IllegalStateException::new).getAsInt(), is(100));
+        try {
+            ((SupplierWithThrown.OfInt<IOException>) () -> {
+                throw new IOException();
+            }).toSupplier(IllegalStateException::new).getAsInt();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IOException.class)));
+        }
+        try {
+            ((SupplierWithThrown.OfInt<IOException>) () -> {
+                throw new IllegalArgumentException("unchecked");
+            }).toSupplier().getAsInt();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("unchecked"));
+        }
+
+        // #toSupplier
+        ((SupplierWithThrown.OfInt<IOException>) () -> {
+                throw new IOException();
+            }).toSupplier().getAsInt();
+    }
+}
@@ -0,0 +1,65 @@
+package sp.util.function;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link SupplierWithThrown.OfLong} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class SupplierWithThrown_OfLongTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #toSupplier()
+        this.thrown.expect(RuntimeException.class);
+        this.thrown.expectCause(instanceOf(IOException.class));
+
+        // #get
+        SupplierWithThrown.OfLong<IOException> instance = () -> 100L;
+        assertThat(instance.get(), is(100L));
+
+        // #andThen
+        assertThat(instance.andThen(target -> target * -1).get(), is(-100L));
+
+        // #andThenFunction
+        assertThat(instance.andThenFunction(target -> target * -1).get(), is(-100L));
+
+        // #toSupplier
+        assertThat(instance.toSupplier().getAsLong(), is(100L));
+        assertThat(instance.toSupplier(IllegalStateException::new).getAsLong(), is(100L));
+        try {
+            ((SupplierWithThrown.OfLong<IOException>) () -> {
+                throw new IOException();
+            }).toSupplier(IllegalStateException::new).getAsLong();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IOException.class)));
+        }
+        try {
+            ((SupplierWithThrown.OfLong<IOException>) () -> {
+                throw new IllegalArgumentException("unchecked");
+            }).toSupplier().getAsLong();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("unchecked"));
+        }
+
+        // #toSupplier
+        ((SupplierWithThrown.OfLong<IOException>) () -> {
+                throw new IOException();
+            }).toSupplier().getAsLong();
+    }
+}
@@ -0,0 +1,65 @@
+package sp.util.function;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link SupplierWithThrown.OfObj} のテスト駆動開発.
+ *
+ * @author Se-foo
+ * @since 0.2
+ */
+public class SupplierWithThrown_OfObjTddTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test() throws IOException {
+
+        // Check exception from #toSupplier()
+        this.thrown.expect(RuntimeException.class);
+        this.thrown.expectCause(instanceOf(IOException.class));
+
+        // #get
+        SupplierWithThrown.OfObj<String, IOException> instance = () -> "100";
+        assertThat(instance.get(), is("100"));
+
+        // #andThen
+        assertThat(instance.andThen(Integer::parseInt).get(), is(100));
+
+        // #andThenFunction
+        assertThat(instance.andThenFunction(Integer::parseInt).get(), is(100));
+
+        // #toSupplier
+        assertThat(instance.toSupplier().get(), is("100"));
+        assertThat(instance.toSupplier(IllegalStateException::new).get(), is("100"));
+        try {
+            ((SupplierWithThrown.OfObj<String, IOException>) () -> {
+                throw new IOException();
+            }).toSupplier(IllegalStateException::new).get();
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IOException.class)));
+        }
+        try {
+            ((SupplierWithThrown.OfObj<String, IOException>) () -> {
+                throw new IllegalArgumentException("unchecked");
+            }).toSupplier().get();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("unchecked"));
+        }
+
+        // #toSupplier
+        ((SupplierWithThrown.OfObj<String, IOException>) () -> {
+                throw new IOException();
+            }).toSupplier().get();
+    }
+}